@@ -0,0 +1,62 @@
+package com.prolog.jvm.bench;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Latency of proving that the first of a chain of parents is an ancestor of
+ * the last, for chains of varying length. Each step down the chain leaves a
+ * choice point for the alternative clause of {@code ancestor/2}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AncestryBenchmark {
+
+    @Param({ "DEFAULT", "PREDECODED", "JIT" })
+    public PrologEngine.Interpreter interpreter;
+
+    @Param({ "10", "100", "1000" })
+    public int length;
+
+    private QueryRunner runner;
+
+    @Setup
+    public void setUp() throws Exception {
+        final StringBuilder program = new StringBuilder();
+        for (int i = 0; i < this.length; i++) {
+            program.append("parent(p").append(i).append(", p").append(i + 1)
+                    .append(").\n");
+        }
+        program.append("ancestor(X, Y) :- parent(X, Y).\n")
+                .append("ancestor(X, Y) :- parent(X, Z), ancestor(Z, Y).\n");
+        this.runner = new QueryRunner(this.interpreter,
+                new StringReader(program.toString()),
+                "ancestor(p0, p" + this.length + ").");
+    }
+
+    @Benchmark
+    public void ancestor() throws Exception {
+        this.runner.run();
+    }
+}
@@ -0,0 +1,62 @@
+package com.prolog.jvm.bench;
+
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_GLOBAL_INDEX;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prolog.jvm.main.PrologEngine;
+import com.prolog.jvm.zip.api.ZipFacade;
+
+/**
+ * Cost of dereferencing as a function of the length of the reference chain
+ * being followed. Each chain is laid out on the global stack of a fresh
+ * {@link PrologEngine}, so that reads go through the same virtual memory as
+ * during regular execution.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DerefBenchmark {
+
+    @Param({ "1", "10", "100", "1000", "10000", "100000" })
+    public int length;
+
+    private ZipFacade facade;
+    private int top;
+
+    @Setup
+    public void setUp() {
+        this.facade = new PrologEngine.Builder().build().getMachine();
+        this.facade.setWord(MIN_GLOBAL_INDEX, getWord(REF, MIN_GLOBAL_INDEX));
+        for (int i = 1; i <= this.length; i++) {
+            final int address = MIN_GLOBAL_INDEX + i;
+            this.facade.setWord(address, getWord(REF, address - 1));
+        }
+        this.top = MIN_GLOBAL_INDEX + this.length;
+    }
+
+    @Benchmark
+    public int deref() {
+        return this.facade.getWordAt(this.top);
+    }
+}
@@ -0,0 +1,72 @@
+package com.prolog.jvm.bench;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Latency of looking up the first, middle and last entries of a table of
+ * facts of varying size, by either their first or second arguments. With
+ * first-argument indexing and argument indexes built upon demand in place,
+ * neither should depend on the table's size.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FactTableBenchmark {
+
+    @Param({ "DEFAULT", "PREDECODED", "JIT" })
+    public PrologEngine.Interpreter interpreter;
+
+    @Param({ "100", "10000" })
+    public int size;
+
+    private QueryRunner runner;
+    private QueryRunner reverseRunner;
+
+    @Setup
+    public void setUp() throws Exception {
+        final StringBuilder program = new StringBuilder();
+        for (int i = 0; i < this.size; i++) {
+            program.append("entry(k").append(i).append(", v").append(i)
+                    .append(").\n");
+        }
+        this.runner = new QueryRunner(this.interpreter,
+                new StringReader(program.toString()),
+                "entry(k0, A), entry(k" + this.size / 2 + ", B), entry(k"
+                        + (this.size - 1) + ", C).");
+        this.reverseRunner = new QueryRunner(this.interpreter,
+                new StringReader(program.toString()),
+                "entry(A, v0), entry(B, v" + this.size / 2 + "), entry(C, v"
+                        + (this.size - 1) + ").");
+    }
+
+    @Benchmark
+    public void lookup() throws Exception {
+        this.runner.run();
+    }
+
+    @Benchmark
+    public void reverseLookup() throws Exception {
+        this.reverseRunner.run();
+    }
+}
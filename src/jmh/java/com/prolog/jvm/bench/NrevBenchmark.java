@@ -0,0 +1,56 @@
+package com.prolog.jvm.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Naive reverse of a 30-element list. Since each invocation counts as many
+ * operations as there are logical inferences, the reported throughput is in
+ * logical inferences per second (LIPS).
+ *
+ * @author Arno Bastenhof
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NrevBenchmark {
+
+    // The number of logical inferences made by the query, as documented in
+    // nrev.pl
+    private static final int INFERENCES = 498;
+
+    @Param({ "DEFAULT", "PREDECODED", "JIT" })
+    public PrologEngine.Interpreter interpreter;
+
+    private QueryRunner runner;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.runner = new QueryRunner(this.interpreter,
+                QueryRunner.openResource("nrev.pl"), "bench.");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INFERENCES)
+    public void nrev30() throws Exception {
+        this.runner.run();
+    }
+}
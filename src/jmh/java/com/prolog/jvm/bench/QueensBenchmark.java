@@ -0,0 +1,49 @@
+package com.prolog.jvm.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Latency of finding the first solution to the eight queens problem,
+ * exercising choice points and backtracking.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueensBenchmark {
+
+    @Param({ "DEFAULT", "PREDECODED", "JIT" })
+    public PrologEngine.Interpreter interpreter;
+
+    private QueryRunner runner;
+
+    @Setup
+    public void setUp() throws Exception {
+        this.runner = new QueryRunner(this.interpreter,
+                QueryRunner.openResource("queens.pl"), "queens(Qs).");
+    }
+
+    @Benchmark
+    public void queens8() throws Exception {
+        this.runner.run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.prolog.jvm.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Runs a single query repeatedly against a program, compiling both only once.
+ * Answers are discarded, and only the first one is computed.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+final class QueryRunner {
+
+    private final PrologEngine engine;
+    private final int queryAddr;
+    private final BufferedReader in =
+            new BufferedReader(new StringReader(""));
+    private final Writer out = new NullWriter();
+
+    /**
+     *
+     * @param interpreter the interpreter to run the query with
+     * @param program the source of the program to compile
+     * @param query the query to run, terminated by a period
+     */
+    QueryRunner(final PrologEngine.Interpreter interpreter,
+            final Reader program, final String query) throws Exception {
+        this.engine = new PrologEngine.Builder().setInterpreter(interpreter)
+                .build();
+        this.engine.newProgramCompiler().compile(program);
+        this.queryAddr = this.engine.getBytecode().getCodeSize();
+        this.engine.newQueryCompiler().compile(new StringReader(query));
+    }
+
+    /**
+     * Opens the benchmark program with the specified resource name.
+     */
+    static Reader openResource(final String name) {
+        final InputStream is = QueryRunner.class.getResourceAsStream(name);
+        if (is == null) {
+            throw new IllegalArgumentException(name);
+        }
+        return new InputStreamReader(is, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs the query up to its first answer.
+     */
+    void run() throws Exception {
+        this.engine.getInterpreter().execute(this.queryAddr, this.in,
+                this.out);
+    }
+
+    // Writer discarding all output
+    private static final class NullWriter extends Writer {
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len)
+                throws IOException {
+            // Discard
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Nothing to flush
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Nothing to close
+        }
+    }
+}
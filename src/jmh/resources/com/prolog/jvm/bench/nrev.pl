@@ -0,0 +1,17 @@
+/*
+ * Naive reverse of a list of 30 elements, the classic benchmark for measuring
+ * logical inferences per second (LIPS). Running bench/0 takes 498 inferences:
+ * one each for bench/0 and list30/1, 31 for nrev/2 and 465 for app/3.
+ */
+
+app([], L, L).
+app([H|T], L, [H|R]) :- app(T, L, R).
+
+nrev([], []).
+nrev([H|T], R) :- nrev(T, RT), app(RT, [H], R).
+
+list30([a1, a2, a3, a4, a5, a6, a7, a8, a9, a10, a11, a12, a13, a14, a15,
+        a16, a17, a18, a19, a20, a21, a22, a23, a24, a25, a26, a27, a28, a29,
+        a30]).
+
+bench :- list30(L), nrev(L, R).
@@ -0,0 +1,22 @@
+/*
+ * The eight queens problem, solved by placing one queen per row in a column
+ * not attacked by those placed before, and backtracking when none is left.
+ */
+
+queens(Qs) :- place([1, 2, 3, 4, 5, 6, 7, 8], [], Qs).
+
+place([], Qs, Qs).
+place([N|Ns], Safe, Qs) :-
+    select([N|Ns], Q, Rest),
+    noattack(Q, Safe, 1),
+    place(Rest, [Q|Safe], Qs).
+
+select([X|Xs], X, Xs).
+select([Y|Ys], X, [Y|Zs]) :- select(Ys, X, Zs).
+
+% Q does not attack any of the queens placed D or more rows before
+noattack(Q, [], D).
+noattack(Q, [Q1|Qs], D) :-
+    Q =\= Q1 + D, Q1 =\= Q + D,
+    E is D + 1,
+    noattack(Q, Qs, E).
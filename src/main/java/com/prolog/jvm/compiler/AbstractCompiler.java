@@ -9,12 +9,13 @@ import java.util.Map;
 import com.prolog.jvm.compiler.ast.Ast;
 import com.prolog.jvm.compiler.parser.PrologParser;
 import com.prolog.jvm.compiler.visitor.BytecodeGenerator;
+import com.prolog.jvm.compiler.visitor.DeterminismAnalyzer;
 import com.prolog.jvm.compiler.visitor.PrologVisitor;
 import com.prolog.jvm.compiler.visitor.SourcePass;
 import com.prolog.jvm.compiler.visitor.SymbolResolver;
 import com.prolog.jvm.exceptions.InternalCompilerException;
 import com.prolog.jvm.exceptions.RecognitionException;
-import com.prolog.jvm.main.Factory;
+import com.prolog.jvm.main.PrologEngine;
 import com.prolog.jvm.symbol.PredicateSymbol;
 import com.prolog.jvm.symbol.Scope;
 import com.prolog.jvm.symbol.Symbol;
@@ -25,7 +26,7 @@ import com.prolog.jvm.zip.api.PrologBytecode;
  * Abstract implementation of a Prolog compiler based on the Template method
  * design pattern, allowing for implementations targeting either programs or
  * queries. It is recommended that client code obtains instances through one of
- * the static factory methods on {@link Factory}.
+ * the factory methods on {@link PrologEngine}.
  *
  * @author Arno Bastenhof
  */
@@ -64,7 +65,8 @@ public abstract class AbstractCompiler {
 
     /**
      * Compiles the specified {@code source} by building an {@link Ast},
-     * resolving {@link Symbol}s and generating bytecode. Intermediate results
+     * resolving {@link Symbol}s, analyzing clause heads for determinism and
+     * generating bytecode. Intermediate results
      * are made available through {@link #root} and {@link #symbols}, allowing
      * subclasses to add additional passes by overriding this method and first
      * calling the current (super) implementation.
@@ -78,6 +80,7 @@ public abstract class AbstractCompiler {
             RecognitionException {
         this.root = constructAst(requireNonNull(source));
         this.symbols = resolveSymbols();
+        analyzeDeterminism();
         generateBytecode();
     }
 
@@ -99,19 +102,26 @@ public abstract class AbstractCompiler {
     }
 
     // Third compiler pass.
+    private void analyzeDeterminism() {
+        walkAst(this.root, new DeterminismAnalyzer(this.symbols, this.code));
+    }
+
+    // Fourth compiler pass.
     private void generateBytecode() {
         final BytecodeGenerator visitor = new BytecodeGenerator(this.symbols,
                 this.code);
         walkAst(this.root, visitor);
     }
 
-    // Checks for each declared predicate if it has any clauses.
+    // Checks for each declared predicate if it has any clauses, unless it is
+    // dynamic or built-in.
     private void verifySymbols() {
         for (SymbolKey<?> key : this.scope.getKeys()) {
             if (key.getSymbolClass().equals(PredicateSymbol.class)) {
                 final PredicateSymbol symbol = (PredicateSymbol) this.scope
                         .resolveLocal(key);
-                if (symbol.getFirst() == null) {
+                if (symbol.getClauseCount() == 0 && !symbol.isDynamic()
+                        && !symbol.isBuiltin()) {
                     throw new InternalCompilerException(
                             "No clauses defined for predicate "
                                     + key.toString());
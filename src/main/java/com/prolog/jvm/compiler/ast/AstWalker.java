@@ -57,7 +57,19 @@ public enum AstWalker {
         Validate.argument(root.getNodeType() == TokenType.PROGRAM);
         final Iterator<Ast> it = root.iterator();
         while (it.hasNext()) {
-            clause(match(it, TokenType.IMPL), visitor);
+            final Ast next = it.next();
+            switch (next.getNodeType()) {
+            case DIRECTIVE:
+                directive(next, visitor);
+                break;
+            case IMPL:
+                clause(next, visitor);
+                break;
+            default:
+                throw new IllegalStateException("Expected a clause or a "
+                        + "directive, but found " + next.getNodeType()
+                        + " in " + next + ".");
+            }
         }
     }
 
@@ -86,6 +98,18 @@ public enum AstWalker {
         visitor.postVisitClause(root);
     }
 
+    /*
+     * The arguments of a directive are not terms to be compiled, and hence are
+     * left to the visitor to inspect.
+     */
+    private void directive(final Ast directive,
+            final PrologVisitor<Ast> visitor) {
+        assert directive != null;
+        assert visitor != null;
+        visitor.preVisitDirective(directive);
+        visitor.postVisitDirective(directive);
+    }
+
     private void clause(final Ast clause, final PrologVisitor<Ast> visitor) {
         assert clause != null;
         assert clause.getNodeType() == TokenType.IMPL;
@@ -138,6 +162,12 @@ public enum AstWalker {
         case NIL:
             visitor.visitConstant(term);
             break;
+        case INT:
+            visitor.visitInteger(term);
+            break;
+        case LIST:
+            list(term, visitor);
+            break;
         default:
             throw new IllegalArgumentException("Could not process " + term
                     + " as a term.");
@@ -160,6 +190,30 @@ public enum AstWalker {
         }
     }
 
+    /*
+     * Walks the spine of a list iteratively, so that long lists do not
+     * exhaust the call stack. Cells found in the tail of another are
+     * discovered through inVisitList, and finished along with the first cell.
+     */
+    private void list(final Ast list, final PrologVisitor<Ast> visitor) {
+        assert list != null;
+        assert visitor != null;
+        visitor.preVisitList(list);
+        Ast cell = list;
+        while (true) {
+            final Iterator<Ast> it = cell.iterator();
+            term(it.next(), visitor); // Walk the head
+            final Ast tail = it.next();
+            if (tail.getNodeType() != TokenType.LIST) {
+                term(tail, visitor);
+                break;
+            }
+            visitor.inVisitList(tail);
+            cell = tail;
+        }
+        visitor.postVisitList(list);
+    }
+
     private Ast match(final Iterator<Ast> it, final TokenType type) {
         assert it != null;
         assert it.hasNext();
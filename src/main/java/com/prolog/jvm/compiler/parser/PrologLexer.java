@@ -14,13 +14,14 @@ import com.prolog.jvm.exceptions.RecognitionException;
  * The following simplifications were made compared to the proposed ISO
  * standard:
  * <ul>
- * <li>Graphic tokens are not allowed to begin with {@code .}, {@code /} or
- * {@code :}. This ensures we can make do with a single lookahead character. To
- * compare, the proposed ISO standard only prohibited graphic tokens from
- * beginning with {@code /*}.
+ * <li>Graphic tokens are not allowed to begin with {@code .} or {@code :}.
+ * This ensures we can make do with a single lookahead character. To compare,
+ * the proposed ISO standard only prohibited graphic tokens from beginning with
+ * {@code /*}, which we likewise take to start a comment.
  * <li>No support for <code>{}</code> as an atom.
  * <li>No support for arbitrary characters inside single quotes as an atom.
- * <li>No support for numbers or character strings.
+ * <li>Numbers are limited to unsigned integers written in decimal notation.
+ * <li>No support for character strings.
  * <li>No reserved identifiers.
  * <li>Whitespace is always ignored. In particular, we do not prohibit it from
  * occurring between a functor and its opening bracket, nor do we demand a
@@ -64,6 +65,9 @@ public final class PrologLexer extends AbstractLexer {
             if (isCapitalLetter() || isSmallLetter() || getLookahead() == '_') {
                 return id();
             }
+            if (isDigit()) {
+                return integer();
+            }
             switch (getLookahead()) {
             case '%':
                 single(); // single-line comment
@@ -96,12 +100,22 @@ public final class PrologLexer extends AbstractLexer {
                 consumeNonLinefeed();
                 return Tokens.PERIOD;
             case '/':
+                consumeNonLinefeed(); // Consume '/'
+                if (getLookahead() != '*') {
+                    return graphic("/");
+                }
                 multi();
                 continue;
             case ':':
                 return implies();
             case '[':
-                return nil(); // Empty list
+                return lsquare(); // Empty list or start of a list
+            case ']':
+                consumeNonLinefeed();
+                return Tokens.RSQUARE;
+            case '|':
+                consumeNonLinefeed();
+                return Tokens.BAR;
             default:
                 throw RecognitionException.newInstance(getLookahead(),
                         getLine());
@@ -132,9 +146,8 @@ public final class PrologLexer extends AbstractLexer {
         consume();
     }
 
-    // Multiline comments.
+    // Multiline comments, the opening '/' having already been consumed.
     private void multi() throws IOException, RecognitionException {
-        consumeNonLinefeed(); // Consume '/'
         match('*');
         while (true) {
             if (getLookahead() == EOF) {
@@ -180,21 +193,39 @@ public final class PrologLexer extends AbstractLexer {
                 .getVar(buffer.toString());
     }
 
-    // Graphic tokens
-    private Token graphic() throws IOException {
+    // integer = {digit}- ; (* unsigned decimal integers *)
+    private Token integer() throws IOException {
         final StringBuilder buffer = new StringBuilder();
         do {
             buffer.append(getLookahead());
             consumeNonLinefeed();
-        } while (isGraphic());
+        } while (isDigit());
+        return Tokens.getInt(buffer.toString());
+    }
+
+    // Graphic tokens
+    private Token graphic() throws IOException {
+        return graphic("");
+    }
+
+    // Graphic tokens, starting with the specified prefix already consumed
+    private Token graphic(final String prefix) throws IOException {
+        final StringBuilder buffer = new StringBuilder(prefix);
+        while (isGraphic()) {
+            buffer.append(getLookahead());
+            consumeNonLinefeed();
+        }
         return Tokens.getAtom(buffer.toString());
     }
 
-    // nil = "[]" ;
-    private Token nil() throws IOException, RecognitionException {
+    // nil = "[]" ; Otherwise, a single "[" opening a non-empty list.
+    private Token lsquare() throws IOException {
         consumeNonLinefeed(); // Consumes '['
-        match(']');
-        return Tokens.NIL;
+        if (getLookahead() == ']') {
+            consumeNonLinefeed();
+            return Tokens.NIL;
+        }
+        return Tokens.LSQUARE;
     }
 
     /*
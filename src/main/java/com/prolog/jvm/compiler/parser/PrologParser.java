@@ -4,6 +4,11 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.prolog.jvm.compiler.ast.Ast;
 import com.prolog.jvm.compiler.visitor.PrologVisitor;
@@ -18,14 +23,57 @@ import com.prolog.jvm.exceptions.RecognitionException;
  * decoupled from the parsing logic itself. In contrast with Parr, however, we
  * achieve this effect not through subclassing, but rather through composition
  * with a {@link PrologVisitor}.
+ * <p>
+ * Terms may be written using a fixed set of standard operators for unification
+ * and arithmetic, being {@code =}, {@code \=}, {@code is}, {@code =:=},
+ * {@code =\=}, {@code <}, {@code >}, {@code =<} and {@code >=} (xfx, priority
+ * 700), {@code +} and {@code -} (yfx, 500), {@code *}, {@code //},
+ * {@code mod} and {@code rem} (yfx, 400), and prefix {@code -} (fy, 200). A
+ * minus sign directly preceding an integer is read as part of the latter. As
+ * an infix operator is only found after its left operand has been parsed, the
+ * visitor's actions for a term are recorded and replayed once the term is
+ * complete, the compound term formed by an operator being inserted before its
+ * left operand.
  *
  * @author Arno Bastenhof
  *
  */
 public final class PrologParser extends AbstractParser {
 
+    private static final String SLASH = "/";
+    private static final String MINUS = "-";
+
+    // Maximum priorities of arguments and of the operand of prefix minus
+    private static final int ARG_PRIORITY = 999;
+    private static final int PREFIX_PRIORITY = 200;
+
+    // Priority of the non-associative (xfx) infix operators, all others being
+    // left-associative (yfx)
+    private static final int XFX_PRIORITY = 700;
+
+    // Infix operators, mapped to their priorities
+    private static final Map<String,Integer> INFIX;
+
+    static {
+        final Map<String,Integer> map = new HashMap<>();
+        for (final String op : new String[] { "=", "\\=", "is", "=:=",
+                "=\\=", "<", ">", "=<", ">=" }) {
+            map.put(op, Integer.valueOf(XFX_PRIORITY));
+        }
+        for (final String op : new String[] { "+", MINUS }) {
+            map.put(op, Integer.valueOf(500));
+        }
+        for (final String op : new String[] { "*", "//", "mod", "rem" }) {
+            map.put(op, Integer.valueOf(400));
+        }
+        INFIX = Collections.unmodifiableMap(map);
+    }
+
     private final PrologVisitor<Token> visitor;
 
+    // Actions recorded for the goal or clause head being parsed
+    private final List<Event> events = new ArrayList<>();
+
     /**
      * Static factory method for obtaining a new {@link Parser} instance based
      * on the specified {@code input}.
@@ -54,16 +102,22 @@ public final class PrologParser extends AbstractParser {
     /**
      * Parses a Prolog program consisting of a sequence of one or more program
      * clauses, being either facts (e.g., {@code father(zeus,ares).}) or rules (
-     * {@code grandparent(X,Y) :- parent(X,Z), parent(Z,Y).}).
+     * {@code grandparent(X,Y) :- parent(X,Z), parent(Z,Y).}), possibly
+     * interspersed with directives (e.g., {@code :- dynamic father/2.}).
      *
      * @throws IOException
      */
-    // program = {clause}- ;
+    // program = {clause | directive}- ;
     public void parseProgram() throws IOException, RecognitionException {
         consume(); // Read the first token.
         do {
-            clause();
-        } while (getLookaheadType() == TokenType.ATOM);
+            if (getLookaheadType() == TokenType.IMPL) {
+                directive();
+            } else {
+                clause();
+            }
+        } while (getLookaheadType() == TokenType.ATOM
+                || getLookaheadType() == TokenType.IMPL);
         match(TokenType.EOF);
     }
 
@@ -91,11 +145,51 @@ public final class PrologParser extends AbstractParser {
 
     // === Remaining nonterminals (private) ===
 
+    /*
+     * directive = ":-", atom, indicator, {",", indicator}, "." ;
+     *
+     * The directive's name is visited as a constant, followed by its
+     * arguments.
+     */
+    private void directive() throws IOException, RecognitionException {
+        match(TokenType.IMPL);
+        this.visitor.preVisitDirective(Tokens.DIRECTIVE);
+        final Token name = getLookahead();
+        match(TokenType.ATOM);
+        this.visitor.visitConstant(name);
+        indicator(); // match first argument
+        while (getLookaheadType() == TokenType.COMMA) {
+            consume();
+            indicator(); // match subsequent arguments
+        }
+        match(TokenType.PERIOD);
+        this.visitor.postVisitDirective(Tokens.DIRECTIVE);
+    }
+
+    // indicator = atom, "/", integer ; (* predicate indicator *)
+    private void indicator() throws IOException, RecognitionException {
+        final Token name = getLookahead();
+        match(TokenType.ATOM);
+        final Token slash = getLookahead();
+        if (slash.getType() != TokenType.ATOM
+                || !SLASH.equals(slash.getText())) {
+            throw RecognitionException.newInstance(slash, getLine(),
+                    new String[] { SLASH });
+        }
+        consume();
+        this.visitor.preVisitCompound(slash);
+        this.visitor.visitConstant(name);
+        this.visitor.visitConstant(getLookahead());
+        match(TokenType.INT);
+        this.visitor.postVisitCompound(slash);
+    }
+
     // clause = structure, [":-", goals ], "." ;
     private void clause() throws IOException, RecognitionException {
         this.visitor.preVisitClause(Tokens.IMPL); // TODO Use imaginary token
                                                      // type?
         structure(); // match clause head
+        flush();
         this.visitor.inVisitClause(Tokens.IMPL);
         if (getLookaheadType() == TokenType.IMPL) {
             consume();
@@ -105,58 +199,195 @@ public final class PrologParser extends AbstractParser {
         this.visitor.postVisitClause(Tokens.IMPL);
     }
 
-    // goals = structure, {",", structure} ;
+    // goals = goal, {",", goal} ;
     private void goals() throws IOException, RecognitionException {
-        structure(); // match first goal
+        goal(); // match first goal
         while (getLookaheadType() == TokenType.COMMA) {
             consume();
-            final Token functor = structure(); // match subsequent goals
+            final Token functor = goal(); // match subsequent goals
             this.visitor.postVisitGoal(functor);
         }
     }
 
-    // term = "[]" | variable | structure ;
-    private void term() throws IOException, RecognitionException {
+    // goal = term ; (* an atom or compound term, of priority 999 at most *)
+    private Token goal() throws IOException, RecognitionException {
+        final Token start = getLookahead();
+        final Token functor = term(ARG_PRIORITY);
+        if (functor.getType() != TokenType.ATOM) {
+            throw RecognitionException.newInstance(start, getLine(),
+                    new String[] { TokenType.ATOM.toString() });
+        }
+        flush();
+        return functor;
+    }
+
+    /*
+     * term = primary, {infix, primary} ; (* of priority max at most *)
+     *
+     * Returns the principal token of the term, being its functor if it is
+     * compound.
+     */
+    private Token term(final int max) throws IOException,
+            RecognitionException {
+        final int start = this.events.size();
+        Token principal = getLookahead();
+        int priority = 0;
+        if (principal.getType() == TokenType.ATOM
+                && MINUS.equals(principal.getText())) {
+            consume();
+            priority = minus(principal, max);
+        } else {
+            primary();
+        }
+        while (getLookaheadType() == TokenType.ATOM) {
+            final Integer infix = INFIX.get(getLookahead().getText());
+            if (infix == null || infix.intValue() > max) {
+                break;
+            }
+            final int p = infix.intValue();
+            if (priority > (p == XFX_PRIORITY ? p - 1 : p)) {
+                break;
+            }
+            principal = getLookahead();
+            consume();
+            this.events.add(start, new Event(Action.PRE_COMPOUND, principal));
+            term(p - 1); // match right operand
+            record(Action.POST_COMPOUND, principal);
+            priority = p;
+        }
+        return principal;
+    }
+
+    /*
+     * Parses what follows an already consumed minus sign, being an integer,
+     * the operand of prefix minus, or the arguments of a compound term. If
+     * none of these apply, the sign is read as an atom. Returns the priority
+     * of the term thus formed.
+     */
+    private int minus(final Token minus, final int max) throws IOException,
+            RecognitionException {
+        switch (getLookaheadType()) {
+        case INT:
+            record(Action.INTEGER, Tokens.getInt(MINUS
+                    + getLookahead().getText()));
+            consume();
+            return 0;
+        case LBRACK:
+            arguments(minus);
+            return 0;
+        case VAR:
+            // Fall-through
+        case ATOM:
+            // Fall-through
+        case NIL:
+            // Fall-through
+        case LSQUARE:
+            if (max >= PREFIX_PRIORITY) {
+                record(Action.PRE_COMPOUND, minus);
+                term(PREFIX_PRIORITY);
+                record(Action.POST_COMPOUND, minus);
+                return PREFIX_PRIORITY;
+            }
+            record(Action.CONSTANT, minus);
+            return 0;
+        default:
+            record(Action.CONSTANT, minus);
+            return 0;
+        }
+    }
+
+    // primary = "[]" | variable | integer | structure | list | "(", term, ")"
+    private void primary() throws IOException, RecognitionException {
         switch (getLookaheadType()) {
         case VAR:
-            this.visitor.visitVariable(getLookahead());
+            record(Action.VARIABLE, getLookahead());
+            consume();
+            break;
+        case INT:
+            record(Action.INTEGER, getLookahead());
             consume();
             break;
         case ATOM:
             structure();
             break;
         case NIL:
-            this.visitor.visitConstant(getLookahead());
+            record(Action.CONSTANT, getLookahead());
             consume();
             break;
+        case LSQUARE:
+            list();
+            break;
+        case LBRACK:
+            consume();
+            term(ARG_PRIORITY);
+            match(TokenType.RBRACK);
+            break;
         default:
             throw RecognitionException.newInstance(
                     getLookahead(),
                     getLine(),
                     new String[] { TokenType.VAR.toString(),
                                    TokenType.ATOM.toString(),
-                                   TokenType.NIL.toString() });
+                                   TokenType.INT.toString(),
+                                   TokenType.NIL.toString(),
+                                   TokenType.LSQUARE.toString(),
+                                   TokenType.LBRACK.toString() });
+        }
+    }
+
+    /*
+     * list = "[", term, {",", term}, ["|", term], "]" ;
+     *
+     * Each element is visited as the head of a list cell, whose tail is formed
+     * by the remaining elements, ending in the term following the bar if
+     * present, or in the empty list otherwise.
+     */
+    private void list() throws IOException, RecognitionException {
+        match(TokenType.LSQUARE);
+        record(Action.PRE_LIST, Tokens.LIST);
+        term(ARG_PRIORITY); // match first element
+        int cells = 1;
+        while (getLookaheadType() == TokenType.COMMA) {
+            consume();
+            record(Action.PRE_LIST, Tokens.LIST);
+            term(ARG_PRIORITY); // match subsequent elements
+            cells++;
+        }
+        if (getLookaheadType() == TokenType.BAR) {
+            consume();
+            term(ARG_PRIORITY);
+        } else {
+            record(Action.CONSTANT, Tokens.NIL);
+        }
+        match(TokenType.RSQUARE);
+        while (cells-- > 0) {
+            record(Action.POST_LIST, Tokens.LIST);
         }
     }
 
     // structure = atom, ["(", term, {",", term}, ")"] ;
-    private Token structure() throws IOException, RecognitionException {
+    private void structure() throws IOException, RecognitionException {
         final Token functor = getLookahead();
         match(TokenType.ATOM);
         if (getLookaheadType() == TokenType.LBRACK) {
-            consume();
-            this.visitor.preVisitCompound(functor);
-            term();
-            while (getLookaheadType() == TokenType.COMMA) {
-                consume();
-                term();
-            }
-            match(TokenType.RBRACK);
-            this.visitor.postVisitCompound(functor);
+            arguments(functor);
         } else {
-            this.visitor.visitConstant(functor);
+            record(Action.CONSTANT, functor);
         }
-        return functor;
+    }
+
+    // Parses the arguments of a compound term, its functor already consumed
+    private void arguments(final Token functor) throws IOException,
+            RecognitionException {
+        match(TokenType.LBRACK);
+        record(Action.PRE_COMPOUND, functor);
+        term(ARG_PRIORITY);
+        while (getLookaheadType() == TokenType.COMMA) {
+            consume();
+            term(ARG_PRIORITY);
+        }
+        match(TokenType.RBRACK);
+        record(Action.POST_COMPOUND, functor);
     }
 
     // === Package-private diagnostic methods, for testing purposes ===
@@ -164,4 +395,80 @@ public final class PrologParser extends AbstractParser {
     boolean isDone() {
         return getLookaheadType() == TokenType.EOF;
     }
+
+    // === Recording of the visitor's actions ===
+
+    private void record(final Action action, final Token token) {
+        this.events.add(new Event(action, token));
+    }
+
+    // Replays the recorded actions on the visitor, in order
+    private void flush() {
+        for (final Event event : this.events) {
+            event.action.apply(this.visitor, event.token);
+        }
+        this.events.clear();
+    }
+
+    // The visitor's actions for terms
+    private enum Action {
+        PRE_COMPOUND {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.preVisitCompound(token);
+            }
+        },
+        POST_COMPOUND {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.postVisitCompound(token);
+            }
+        },
+        PRE_LIST {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.preVisitList(token);
+            }
+        },
+        POST_LIST {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.postVisitList(token);
+            }
+        },
+        CONSTANT {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.visitConstant(token);
+            }
+        },
+        VARIABLE {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.visitVariable(token);
+            }
+        },
+        INTEGER {
+            @Override
+            void apply(final PrologVisitor<Token> visitor, final Token token) {
+                visitor.visitInteger(token);
+            }
+        };
+
+        abstract void apply(PrologVisitor<Token> visitor, Token token);
+    }
+
+    // An action recorded together with the token it is to be applied to
+    private static final class Event {
+
+        private final Action action;
+        private final Token token;
+
+        private Event(final Action action, final Token token) {
+            assert action != null;
+            assert token != null;
+            this.action = action;
+            this.token = token;
+        }
+    }
 }
@@ -29,6 +29,12 @@ public enum TokenType {
      */
     ATOM,
 
+    /**
+     * The token type for an unsigned integer, consisting of one or more
+     * digits.
+     */
+    INT,
+
     /**
      * The token type for the empty list <code>[]</code>.
      */
@@ -63,6 +69,36 @@ public enum TokenType {
      */
     RBRACK,
 
+    /**
+     * The token type for the left square bracket <code>[</code>, indicating
+     * the start of a non-empty list.
+     */
+    LSQUARE,
+
+    /**
+     * The token type for the right square bracket <code>]</code>, indicating
+     * the end of a non-empty list.
+     */
+    RSQUARE,
+
+    /**
+     * The token type for the bar <code>|</code>, separating the elements of a
+     * list from its tail.
+     */
+    BAR,
+
+    /**
+     * The type for an imaginary token representing a list cell, having the
+     * list's head and tail as its children.
+     */
+    LIST,
+
+    /**
+     * The type for an imaginary token representing a directive, having the
+     * directive's name and arguments as its children.
+     */
+    DIRECTIVE,
+
     /**
      * The type for an imaginary token representing the root of an Abstract
      * Syntax Tree.
@@ -54,6 +54,39 @@ public final class Tokens {
      */
     public static final Token RBRACK = new PrologToken(TokenType.RBRACK, ")");
 
+    /**
+     * The {@link Token} corresponding to occurrences of a left square bracket
+     * in the source program.
+     */
+    public static final Token LSQUARE = new PrologToken(TokenType.LSQUARE,
+            "[");
+
+    /**
+     * The {@link Token} corresponding to occurrences of a right square bracket
+     * in the source program.
+     */
+    public static final Token RSQUARE = new PrologToken(TokenType.RSQUARE,
+            "]");
+
+    /**
+     * The {@link Token} corresponding to occurrences of a bar in the source
+     * program.
+     */
+    public static final Token BAR = new PrologToken(TokenType.BAR, "|");
+
+    /**
+     * The imaginary {@link Token} corresponding to a list cell in an
+     * {@link Ast}.
+     */
+    public static final Token LIST = new PrologToken(TokenType.LIST, "[|]");
+
+    /**
+     * The imaginary {@link Token} corresponding to a directive in an
+     * {@link Ast}.
+     */
+    public static final Token DIRECTIVE = new PrologToken(TokenType.DIRECTIVE,
+            ":-");
+
     /**
      * The imaginary {@link Token} corresponding to the root of an {@link Ast}.
      */
@@ -81,6 +114,17 @@ public final class Tokens {
         return new PrologToken(TokenType.VAR, requireNonNull(text));
     }
 
+    /**
+     * Static factory method for obtaining a {@link Token} of type
+     * {@link TokenType#INT}.
+     *
+     * @param text the matched input text; not allowed to be null
+     * @throws NullPointerException if {@code text == null}
+     */
+    public static final Token getInt(final String text) {
+        return new PrologToken(TokenType.INT, requireNonNull(text));
+    }
+
     // Private constructor to prevent instantiation
     private Tokens() {
         throw new AssertionError();
@@ -12,6 +12,16 @@ import com.prolog.jvm.compiler.ast.Ast;
  */
 public class BasicPrologVisitor<P> implements PrologVisitor<P> {
 
+    @Override
+    public void preVisitDirective(P param) {
+        // Does nothing.
+    }
+
+    @Override
+    public void postVisitDirective(P param) {
+        // Does nothing.
+    }
+
     @Override
     public void preVisitClause(P param) {
         // Does nothing.
@@ -47,6 +57,21 @@ public class BasicPrologVisitor<P> implements PrologVisitor<P> {
         // Does nothing.
     }
 
+    @Override
+    public void preVisitList(P param) {
+        // Does nothing.
+    }
+
+    @Override
+    public void inVisitList(P param) {
+        // Does nothing.
+    }
+
+    @Override
+    public void postVisitList(P param) {
+        // Does nothing.
+    }
+
     @Override
     public void visitConstant(P param) {
         // Does nothing.
@@ -57,4 +82,9 @@ public class BasicPrologVisitor<P> implements PrologVisitor<P> {
         // Does nothing.
     }
 
+    @Override
+    public void visitInteger(P param) {
+        // Does nothing.
+    }
+
 }
@@ -1,13 +1,17 @@
 package com.prolog.jvm.compiler.visitor;
 
+import static com.prolog.jvm.zip.util.Instructions.BUILTIN;
 import static com.prolog.jvm.zip.util.Instructions.CALL;
 import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
 import static com.prolog.jvm.zip.util.Instructions.ENTER;
 import static com.prolog.jvm.zip.util.Instructions.EXIT;
 import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
 import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.LIST;
 import static com.prolog.jvm.zip.util.Instructions.POP;
 import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.TAIL;
 import static com.prolog.jvm.zip.util.Instructions.VAR;
 import static java.util.Objects.requireNonNull;
 
@@ -77,7 +81,9 @@ public final class BytecodeGenerator extends AbstractSymbolVisitor {
 
     @Override
     public void postVisitGoal(Ast goal) {
-        writeGroundIns(PredicateSymbol.class, goal, CALL);
+        final PredicateSymbol symbol = getSymbol(goal, PredicateSymbol.class);
+        this.code.writeIns(symbol.isBuiltin() ? BUILTIN : CALL,
+                this.code.getConstantPoolIndex(symbol));
     }
 
     @Override
@@ -90,11 +96,32 @@ public final class BytecodeGenerator extends AbstractSymbolVisitor {
         this.code.writeIns(POP);
     }
 
+    @Override
+    public void preVisitList(Ast list) {
+        this.code.writeIns(LIST);
+    }
+
+    @Override
+    public void inVisitList(Ast list) {
+        this.code.writeIns(TAIL);
+    }
+
+    @Override
+    public void postVisitList(Ast list) {
+        this.code.writeIns(POP);
+    }
+
     @Override
     public void visitConstant(Ast constant) {
         writeGroundIns(FunctorSymbol.class, constant, CONSTANT);
     }
 
+    @Override
+    public void visitInteger(Ast integer) {
+        // Validated by the SymbolResolver
+        this.code.writeIns(INTEGER, Integer.parseInt(integer.getText()));
+    }
+
     @Override
     public void visitVariable(Ast var) {
         final VariableSymbol symbol = getSymbol(var, VariableSymbol.class);
@@ -0,0 +1,100 @@
+package com.prolog.jvm.compiler.visitor;
+
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.FUNC;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import com.prolog.jvm.compiler.ast.Ast;
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.Symbol;
+import com.prolog.jvm.zip.api.PrologBytecode;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * Visitor for a compiler pass following that of {@link SymbolResolver},
+ * recording the structure of each clause's head literal as the
+ * {@link ClauseSymbol#setHeadKeys(int[]) keys} of its arguments.
+ * <p>
+ * Whereas the clause index only looks at the first argument of a call, and
+ * ignores integers altogether, the keys allow the machine to rule out any
+ * clause whose head clashes with one of the call's instantiated arguments.
+ * A call finding only one remaining clause is thereby recognized as
+ * deterministic, and pushes no choice point. E.g., {@code fib(30, F)} only
+ * leaves the last of the clauses {@code fib(0, 0)}, {@code fib(1, 1)} and
+ * {@code fib(N, F) :- ...}, and a call to a predicate whose clauses are told
+ * apart by their second argument needs no choice point once the latter is
+ * bound. Which arguments are instantiated is only known at runtime, with the
+ * keys serving to decide it by a single comparison per argument.
+ *
+ * @author Arno Bastenhof
+ */
+public final class DeterminismAnalyzer extends AbstractSymbolVisitor {
+
+    private final PrologBytecode<?> code;
+
+    /**
+     *
+     * @param symbols a mapping of {@link Ast} nodes to the {@link Symbol}s to
+     * which they have been resolved; not allowed to be null
+     * @param code the bytecode whose constant pool holds the functors the
+     * keys refer to; not allowed to be null
+     * @throws NullPointerException if {@code symbols == null || code == null}
+     */
+    public DeterminismAnalyzer(final Map<Ast,Symbol> symbols,
+            final PrologBytecode<?> code) {
+        super(symbols);
+        this.code = requireNonNull(code);
+    }
+
+    @Override
+    public void preVisitClause(Ast clause) {
+        final ClauseSymbol symbol = getSymbol(clause, ClauseSymbol.class);
+        final Ast literal = clause.iterator().next();
+        final int[] keys = new int[symbol.getParams()];
+        boolean selective = false;
+        final Iterator<Ast> it = literal.iterator();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = getKey(it.next());
+            selective |= keys[i] != 0;
+        }
+        symbol.setHeadKeys(selective ? keys : null);
+    }
+
+    @Override
+    public void postVisitUnitClause(Ast clause) {
+        // Does nothing.
+    }
+
+    // Returns the key for the specified head argument
+    private int getKey(final Ast arg) {
+        switch (arg.getNodeType()) {
+        case VAR:
+            return 0;
+        case INT: {
+            // Validated by the SymbolResolver
+            final int value = Integer.parseInt(arg.getText());
+            return PlWords.isSmallInt(value) ? getWord(INT, value) : 0;
+        }
+        case LIST:
+            return getWord(LIS, 0);
+        case NIL:
+            return getWord(CONS, getConstantPoolIndex(arg));
+        default:
+            return getWord(arg.iterator().hasNext() ? FUNC : CONS,
+                    getConstantPoolIndex(arg));
+        }
+    }
+
+    private int getConstantPoolIndex(final Ast node) {
+        return this.code.getConstantPoolIndex(getSymbol(node,
+                FunctorSymbol.class));
+    }
+
+}
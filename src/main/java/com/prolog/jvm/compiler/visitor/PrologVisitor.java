@@ -3,6 +3,7 @@ package com.prolog.jvm.compiler.visitor;
 import java.nio.file.FileVisitor;
 
 import com.prolog.jvm.compiler.ast.Ast;
+import com.prolog.jvm.compiler.ast.AstWalker;
 import com.prolog.jvm.compiler.parser.PrologParser;
 
 /**
@@ -22,6 +23,17 @@ import com.prolog.jvm.compiler.parser.PrologParser;
  */
 public interface PrologVisitor<P> {
 
+    /**
+     * Called upon discovery of a directive, before its arguments have been
+     * walked.
+     */
+    void preVisitDirective(P param);
+
+    /**
+     * Called when finishing a directive, after its arguments have been walked.
+     */
+    void postVisitDirective(P param);
+
     /**
      * Called upon discovery of a clause, before its head and goal literals have
      * been walked.
@@ -64,6 +76,25 @@ public interface PrologVisitor<P> {
      */
     void postVisitCompound(P param);
 
+    /**
+     * Called upon discovery of a list cell, before its head has been walked.
+     */
+    void preVisitList(P param);
+
+    /**
+     * Called upon discovery of a list cell in the tail of another, after the
+     * head of the latter has been walked. Only called by {@link AstWalker},
+     * which walks the spine of a list iteratively, the cells thus discovered
+     * being finished together with the first one.
+     */
+    void inVisitList(P param);
+
+    /**
+     * Called when finishing a list cell, after its head and tail have been
+     * walked.
+     */
+    void postVisitList(P param);
+
     /**
      * Called between the discovery and finishing of a constant.
      */
@@ -74,4 +105,9 @@ public interface PrologVisitor<P> {
      */
     void visitVariable(P param);
 
+    /**
+     * Called between the discovery and finishing of an integer.
+     */
+    void visitInteger(P param);
+
 }
@@ -1,12 +1,12 @@
 package com.prolog.jvm.compiler.visitor;
 
-import static com.prolog.jvm.zip.util.MemoryConstants.MIN_LOCAL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.QUERY_FRAME_INDEX;
 import static java.util.Objects.requireNonNull;
 
 import java.util.Map;
 
 import com.prolog.jvm.compiler.ast.Ast;
-import com.prolog.jvm.main.Factory;
+import com.prolog.jvm.main.PrologEngine;
 import com.prolog.jvm.symbol.Symbol;
 import com.prolog.jvm.symbol.VariableSymbol;
 
@@ -25,8 +25,9 @@ public final class QueryVariableTracker extends AbstractSymbolVisitor {
      * Constructor. Note the mapping {@code queryVars} from local stack
      * addresses to (query) variable names is declared as an external
      * dependency. It is recommended for client code not to instantiate this
-     * class directly, but rather invoke {@link Factory#newQueryCompiler()} to
-     * have its dependencies injected.
+     * class directly, but rather invoke
+     * {@link PrologEngine#newQueryCompiler()} to have its dependencies
+     * injected.
      *
      * @param symbols a mapping of {@link Ast} nodes to the {@link Symbol}s to
      * which they have been resolved; not allowed to be null
@@ -47,7 +48,7 @@ public final class QueryVariableTracker extends AbstractSymbolVisitor {
         // variables are scoped to the clause wherein they occur
         if (!this.queryVars.values().contains(var.getText())) {
             final VariableSymbol symbol = getSymbol(var, VariableSymbol.class);
-            final int address = MIN_LOCAL_INDEX + symbol.getOffset();
+            final int address = QUERY_FRAME_INDEX + symbol.getOffset();
             this.queryVars.put(address, var.getText());
         }
     }
@@ -42,6 +42,16 @@ public final class SourcePass extends BasicPrologVisitor<Token> {
         return this.builders.getLast().build();
     }
 
+    @Override
+    public void preVisitDirective(Token directive) {
+        push(directive);
+    }
+
+    @Override
+    public void postVisitDirective(Token param) {
+        pop();
+    }
+
     @Override
     public void preVisitClause(Token clause) {
         push(clause);
@@ -62,6 +72,16 @@ public final class SourcePass extends BasicPrologVisitor<Token> {
         pop();
     }
 
+    @Override
+    public void preVisitList(Token param) {
+        push(param);
+    }
+
+    @Override
+    public void postVisitList(Token param) {
+        pop();
+    }
+
     @Override
     public void visitConstant(Token constant) {
         this.builders.getFirst().addChild(Ast.getLeaf(constant));
@@ -72,6 +92,11 @@ public final class SourcePass extends BasicPrologVisitor<Token> {
         this.builders.getFirst().addChild(Ast.getLeaf(variable));
     }
 
+    @Override
+    public void visitInteger(Token integer) {
+        this.builders.getFirst().addChild(Ast.getLeaf(integer));
+    }
+
     // === Private implementation ===
 
     // Push a builder for a new intermediate AST node
@@ -8,7 +8,9 @@ import java.util.Iterator;
 import java.util.Map;
 
 import com.prolog.jvm.compiler.ast.Ast;
-import com.prolog.jvm.main.Factory;
+import com.prolog.jvm.exceptions.InternalCompilerException;
+import com.prolog.jvm.compiler.parser.TokenType;
+import com.prolog.jvm.main.PrologEngine;
 import com.prolog.jvm.symbol.ClauseSymbol;
 import com.prolog.jvm.symbol.FunctorSymbol;
 import com.prolog.jvm.symbol.PredicateSymbol;
@@ -27,6 +29,10 @@ import com.prolog.jvm.zip.util.Validate;
  */
 public final class SymbolResolver extends BasicPrologVisitor<Ast> {
 
+    // Names of the directives declaring predicates as dynamic or tabled
+    private static final String DYNAMIC = "dynamic";
+    private static final String TABLE = "table";
+
     // A mapping of AST nodes to the symbols to which they have been resolved
     private final Map<Ast,Symbol> symbols = new IdentityHashMap<>();
 
@@ -44,9 +50,9 @@ public final class SymbolResolver extends BasicPrologVisitor<Ast> {
      * previously found in the program, and which hence should still be
      * available in the {@code scope} that's passed in. It is recommended that
      * client code does not instantiate this class directly, but rather invoke
-     * one of the factory methods {@link Factory#newProgramCompiler()} or
-     * {@link Factory#newQueryCompiler()}, ensuring only instances of this class
-     * are used that satisfy the above guidelines.
+     * one of the factory methods {@link PrologEngine#newProgramCompiler()} or
+     * {@link PrologEngine#newQueryCompiler()}, ensuring only instances of this
+     * class are used that satisfy the above guidelines.
      *
      * @param scope the 'global' root scope; not allowed to be null
      * @throws NullPointerException if {@code scope == null}
@@ -71,6 +77,46 @@ public final class SymbolResolver extends BasicPrologVisitor<Ast> {
         return Collections.unmodifiableMap(this.symbols);
     }
 
+    @Override
+    public void preVisitDirective(Ast directive) {
+        final Iterator<Ast> it = directive.iterator();
+        final String name = it.next().getText();
+        final boolean dynamic = DYNAMIC.equals(name);
+        if (!dynamic && !TABLE.equals(name)) {
+            throw new InternalCompilerException("Unknown directive " + name);
+        }
+        while (it.hasNext()) {
+            final PredicateSymbol symbol = getDeclaredPredicate(it.next());
+            if (dynamic) {
+                symbol.setDynamic();
+            } else {
+                symbol.setTabled();
+            }
+        }
+    }
+
+    /*
+     * Returns the predicate symbol for the specified predicate indicator, being
+     * a compound term name/arity.
+     */
+    private PredicateSymbol getDeclaredPredicate(final Ast indicator) {
+        final Iterator<Ast> it = indicator.iterator();
+        final String text = it.next().getText();
+        final String digits = it.next().getText();
+        final int arity;
+        try {
+            arity = Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            throw new InternalCompilerException("Invalid arity " + digits);
+        }
+        final PredicateSymbol symbol = getPredicateSymbol(text, arity);
+        if (symbol.isBuiltin()) {
+            throw new InternalCompilerException(
+                    "Cannot declare built-in predicate " + symbol);
+        }
+        return symbol;
+    }
+
     @Override
     public void preVisitClause(Ast clause) {
         // Obtain the root node for the clause's head literal
@@ -152,6 +198,16 @@ public final class SymbolResolver extends BasicPrologVisitor<Ast> {
         this.symbols.put(variable, getVariableSymbol(variable));
     }
 
+    @Override
+    public void visitInteger(Ast integer) {
+        try {
+            Integer.parseInt(integer.getText());
+        } catch (NumberFormatException e) {
+            throw new InternalCompilerException("Integer out of range "
+                    + integer.getText());
+        }
+    }
+
     // === Symbol table management (TODO this would benefit from lambda's) ===
 
     /*
@@ -175,8 +231,13 @@ public final class SymbolResolver extends BasicPrologVisitor<Ast> {
     private PredicateSymbol getPredicateSymbol(Ast clause) {
         assert clause != null;
 
-        final String text = clause.getText();
-        final int arity = clause.getArity();
+        return getPredicateSymbol(clause.getText(), clause.getArity());
+    }
+
+    private PredicateSymbol getPredicateSymbol(final String text,
+            final int arity) {
+        assert text != null;
+
         return getGlobalSymbol(SymbolKeys.ofPredicate(text, arity),
                 new SymbolBuilder<PredicateSymbol>() {
                     @Override
@@ -223,29 +284,47 @@ public final class SymbolResolver extends BasicPrologVisitor<Ast> {
         // Define a new clause symbol.
         final ClauseSymbol symbol = new ClauseSymbol();
 
-        // See if a clause symbol for the same head literal was already defined
-        final SymbolKey<ClauseSymbol> clauseKey = SymbolKeys.ofClause(
-                literal.getText(), literal.getArity());
-        final ClauseSymbol prevSymbol = this.currentScope
-                .resolveGlobal(clauseKey);
-        // If so, set its next clause alternative.
-        if (prevSymbol != null) {
-            prevSymbol.setNext(symbol);
-        } else {
-            // Otherwise, retrieve the predicate symbol for this clause
-            final PredicateSymbol predSymbol = getPredicateSymbol(literal);
-            // and set the predicate's first clause alternative
-            predSymbol.setFirst(symbol);
+        // Retrieve the predicate symbol for this clause
+        final PredicateSymbol predSymbol = getPredicateSymbol(literal);
+
+        if (predSymbol.isBuiltin()) {
+            throw new InternalCompilerException(
+                    "Cannot define clauses for built-in predicate "
+                            + predSymbol);
         }
 
-        // Put the new clause symbol in the current scope, overriding the
-        // previous
-        // alternative for the same predicate if it existed.
-        this.currentScope.defineGlobal(clauseKey, symbol);
+        // Index the new clause on its first argument, adding it as the last
+        // alternative for its predicate
+        predSymbol.addClause(symbol, getIndexKey(literal));
 
         return symbol;
     }
 
+    /*
+     * Returns the functor symbol for the first argument of the specified head
+     * literal, or null if the latter is a variable or an integer or if there
+     * are no arguments, for use as a key in the predicate's clause index.
+     */
+    private FunctorSymbol getIndexKey(final Ast literal) {
+        assert literal != null;
+
+        final Iterator<Ast> it = literal.iterator();
+        if (!it.hasNext()) {
+            return null;
+        }
+        final Ast arg = it.next();
+        switch (arg.getNodeType()) {
+        case VAR:
+            // Fall-through
+        case INT:
+            return null;
+        case LIST:
+            return FunctorSymbol.LIST;
+        default:
+            return getFunctorSymbol(arg);
+        }
+    }
+
     // Strategy class for Symbol creation
     private abstract static class SymbolBuilder<T extends Symbol> {
         abstract T build();
@@ -0,0 +1,746 @@
+package com.prolog.jvm.main;
+
+import static com.prolog.jvm.zip.util.MemoryConstants.MAX_GLOBAL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MAX_HEAP_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MAX_LOCAL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MAX_PDL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MAX_SCRATCHPAD_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MAX_TRAIL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_GLOBAL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_HEAP_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_LOCAL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_PDL_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_SCRATCHPAD_INDEX;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_TRAIL_INDEX;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.prolog.jvm.compiler.AbstractCompiler;
+import com.prolog.jvm.compiler.ProgramCompiler;
+import com.prolog.jvm.compiler.QueryCompiler;
+import com.prolog.jvm.exceptions.RecognitionException;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.symbol.Scope;
+import com.prolog.jvm.symbol.SymbolKeys;
+import com.prolog.jvm.zip.AnswerTables;
+import com.prolog.jvm.zip.ArgumentIndexes;
+import com.prolog.jvm.zip.Arithmetic;
+import com.prolog.jvm.zip.BuiltinRegistry;
+import com.prolog.jvm.zip.ConstantPool;
+import com.prolog.jvm.zip.DecodedCode;
+import com.prolog.jvm.zip.DynamicDatabase;
+import com.prolog.jvm.zip.JitZipInterpreter;
+import com.prolog.jvm.zip.PredecodedZipInterpreter;
+import com.prolog.jvm.zip.ProgramImage;
+import com.prolog.jvm.zip.PrologBytecodeImpl;
+import com.prolog.jvm.zip.PrologBytecodeImpl.MementoImpl;
+import com.prolog.jvm.zip.TermInspection;
+import com.prolog.jvm.zip.VirtualMemory;
+import com.prolog.jvm.zip.ZipFacadeImpl;
+import com.prolog.jvm.zip.ZipInterpreterImpl;
+import com.prolog.jvm.zip.api.AnswerIterator;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.GcStats;
+import com.prolog.jvm.zip.api.IndexStats;
+import com.prolog.jvm.zip.api.MemoryArea;
+import com.prolog.jvm.zip.api.PrologBytecode;
+import com.prolog.jvm.zip.api.Term;
+import com.prolog.jvm.zip.api.TrailStats;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.api.ZipInterpreter;
+import com.prolog.jvm.zip.util.MemoryConstants;
+
+/**
+ * A self-contained instance of the ZIP machine, owning its own virtual memory,
+ * constant pool and compiled program, together with the compilers and
+ * interpreter operating thereon. Distinct engines share no mutable state, so
+ * that several programs or queries can be run concurrently within the same JVM
+ * by giving each thread an engine of its own. A single engine, however, is not
+ * thread-safe, and should be confined to one thread at a time.
+ * <p>
+ * Instances are obtained through a {@link Builder}, which also allows for
+ * configuring the sizes of the memory areas.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class PrologEngine {
+
+    private final VirtualMemory memory;
+    private final List<Object> constantPool;
+    private final PrologBytecode<MementoImpl> bytecode;
+    private final MementoImpl bytecodeMemento;
+    private final ZipFacade facade;
+    private final ZipInterpreter interpreter;
+
+    // Built-in predicates, defined in every root scope
+    private final BuiltinRegistry builtins = new BuiltinRegistry();
+    private final DynamicDatabase database;
+    private final AnswerTables tables;
+    private final ArgumentIndexes indexes;
+
+    /*
+     * During compilation, clause-, functor- and predicate symbols are resolved
+     * against the 'global' root scope. Since, however, programs and queries are
+     * compiled separately, we have to cache this scope in between.
+     */
+    private Scope rootScope;
+
+    /*
+     * Bytecode state just past the compiled program, taken when the first
+     * query is run through query(String). Each such query is compiled from
+     * there, overwriting the code for the one before.
+     */
+    private MementoImpl programMemento;
+
+    // Handle for the query last run through query(String), if any
+    private AnswerIterator answers;
+
+    /*
+     * Tracks the names of query variables and the local stack addresses at
+     * which said variables are allocated, ordered by the latter so that
+     * answers list their bindings in a fixed order.
+     */
+    private final Map<Integer,String> queryVars = new TreeMap<>();
+
+    // Private constructor to force instantiation through the Builder
+    private PrologEngine(final Builder builder) {
+        this.constantPool = new ConstantPool();
+        // First element of constant pool is reserved
+        this.constantPool.add(null);
+
+        // Virtual memory
+        this.memory = new VirtualMemory();
+        final MemoryArea heap = this.memory.newArea(MIN_HEAP_INDEX,
+                MIN_HEAP_INDEX + builder.heapSize - 1);
+
+        final DecodedCode decoded = new DecodedCode();
+        this.bytecode = new PrologBytecodeImpl(this.constantPool, heap,
+                decoded);
+
+        // Keep a memento of the bytecode in still pristine condition
+        this.bytecodeMemento = this.bytecode.createMemento();
+
+        this.indexes = new ArgumentIndexes(builder.indexLimit);
+        this.database = new DynamicDatabase(this.bytecode, this.indexes);
+        this.database.defineBuiltins(this.builtins);
+        Arithmetic.defineBuiltins(this.builtins);
+        new TermInspection(this.bytecode).defineBuiltins(this.builtins);
+        this.tables = new AnswerTables(this.bytecode);
+        this.tables.defineBuiltins(this.builtins);
+        this.builtins.defineAll(builder.builtins);
+
+        this.facade = new ZipFacadeImpl.Builder()
+                .setConstants(Collections.unmodifiableList(this.constantPool))
+                .setHeap(heap)
+                .setGlobalStack(this.memory.newArea(MIN_GLOBAL_INDEX,
+                        MIN_GLOBAL_INDEX + builder.globalStackSize - 1))
+                .setLocalStack(this.memory.newArea(MIN_LOCAL_INDEX,
+                        MIN_LOCAL_INDEX + builder.localStackSize - 1))
+                .setWordStore(this.memory.newArea(MIN_GLOBAL_INDEX,
+                        MIN_LOCAL_INDEX + builder.localStackSize - 1))
+                .setTrailStack(this.memory.newArea(MIN_TRAIL_INDEX,
+                        MIN_TRAIL_INDEX + builder.trailSize - 1))
+                .setPdl(this.memory.newArea(MIN_PDL_INDEX, MAX_PDL_INDEX))
+                .setScratchpad(this.memory.newArea(MIN_SCRATCHPAD_INDEX,
+                        MAX_SCRATCHPAD_INDEX))
+                .setGcThreshold((int) ((long) builder.globalStackSize
+                        * builder.gcHighWaterMark / 100)).build();
+
+        final Map<Integer,String> vars = Collections
+                .unmodifiableMap(this.queryVars);
+        switch (builder.interpreter) {
+        case PREDECODED:
+            this.interpreter = new PredecodedZipInterpreter(this.facade, vars,
+                    this.builtins, this.tables, this.indexes, decoded);
+            break;
+        case JIT:
+            this.interpreter = new JitZipInterpreter(this.facade, vars,
+                    this.builtins, this.tables, this.indexes, decoded,
+                    builder.jitThreshold);
+            break;
+        case DEFAULT:
+            // Fall-through
+        default:
+            this.interpreter = new ZipInterpreterImpl(this.facade, vars,
+                    this.builtins, this.tables, this.indexes);
+        }
+    }
+
+    /**
+     * Returns a representation of the compiled bytecode instructions for a
+     * program and query, using addresses {@link MemoryConstants#MIN_HEAP_INDEX}
+     * up to but excluding {@code MIN_HEAP_INDEX + heapSize} for its code
+     * memory, where {@code heapSize} is as configured through the
+     * {@link Builder}.
+     * <p>
+     * This method is guaranteed to return the same instance upon each of its
+     * invocations.
+     */
+    public PrologBytecode<MementoImpl> getBytecode() {
+        return this.bytecode;
+    }
+
+    /**
+     * Returns this engine's {@link ZipFacade}, based on the following bounds
+     * for its {@link MemoryArea}s, where the sizes are those configured through
+     * the {@link Builder}:
+     * <ul>
+     * <li>Addresses {@link MemoryConstants#MIN_GLOBAL_INDEX} up to but
+     * excluding {@code MIN_GLOBAL_INDEX + globalStackSize} for the global
+     * stack.
+     * <li>Addresses {@link MemoryConstants#MIN_LOCAL_INDEX} up to but excluding
+     * {@code MIN_LOCAL_INDEX + localStackSize} for the local stack.
+     * <li>Addresses {@link MemoryConstants#MIN_TRAIL_INDEX} up to but excluding
+     * {@code MIN_TRAIL_INDEX + trailSize} for the trail stack.
+     * <li>Addresses {@link MemoryConstants#MIN_PDL_INDEX} up to and including
+     * {@link MemoryConstants#MAX_PDL_INDEX} for the Push-Down List.
+     * <li>Addresses {@link MemoryConstants#MIN_SCRATCHPAD_INDEX} up to and
+     * including {@link MemoryConstants#MAX_SCRATCHPAD_INDEX} for the
+     * scratchpad.
+     * </ul>
+     * Memory is allocated lazily, in proportion to the parts of these areas
+     * that are actually used. This method is guaranteed to return the same
+     * instance upon each of its invocations.
+     */
+    public ZipFacade getMachine() {
+        return this.facade;
+    }
+
+    /**
+     * Returns this engine's {@link ZipInterpreter}, guaranteed to be the same
+     * upon each invocation.
+     */
+    public ZipInterpreter getInterpreter() {
+        return this.interpreter;
+    }
+
+    /**
+     * Returns a new {@link AbstractCompiler} instance for Prolog programs,
+     * replacing any program that was compiled before.
+     */
+    public AbstractCompiler newProgramCompiler() {
+        closeAnswers();
+        this.rootScope = newRootScope();
+        this.programMemento = null;
+        this.bytecode.release();
+        this.bytecode.setMemento(this.bytecodeMemento);
+        return new ProgramCompiler(this.bytecode, this.rootScope);
+    }
+
+    /**
+     * Returns a new {@link AbstractCompiler} instance for Prolog programs whose
+     * clauses are to be added to the program compiled or loaded before. Their
+     * code is appended to the latter's, and clauses for predicates that were
+     * already defined are added as their last alternatives, updating the
+     * clause indices accordingly. Hence, the cost of compilation is
+     * proportional only to the size of the added clauses. Any answers tabled
+     * and indexes built on arguments other than the first so far are
+     * discarded.
+     * <p>
+     * Any handle obtained through {@link #query(String)} is closed, and the
+     * code for its query discarded. Should compilation fail, the program is
+     * left in an unspecified state, and ought to be replaced.
+     *
+     * @throws IllegalStateException if no program was compiled yet
+     */
+    public AbstractCompiler newConsultCompiler() {
+        if (this.rootScope == null) {
+            throw new IllegalStateException();
+        }
+        closeAnswers();
+        if (this.programMemento != null) {
+            this.bytecode.setMemento(this.programMemento);
+            this.programMemento = null;
+        }
+        this.tables.clear();
+        this.indexes.clear();
+        return new ProgramCompiler(this.bytecode, this.rootScope);
+    }
+
+    /**
+     * Writes an image of the compiled program to the file at the specified
+     * {@code path}, from which it may later be restored through
+     * {@link #loadProgram(Path)} without compiling it again. Clauses added
+     * at runtime for dynamic predicates are included. Any handle obtained
+     * through {@link #query(String)} is closed first.
+     *
+     * @param path the file to write to, replacing it if it exists; not allowed
+     * to be null
+     * @throws NullPointerException if {@code path == null}
+     * @throws IllegalStateException if no program was compiled yet
+     * @throws IOException
+     * @see ProgramImage
+     */
+    public void saveProgram(final Path path) throws IOException {
+        requireNonNull(path);
+        if (this.rootScope == null) {
+            throw new IllegalStateException();
+        }
+        closeAnswers();
+        if (this.programMemento != null) {
+            // Discard the code for the last query
+            this.bytecode.setMemento(this.programMemento);
+        }
+        try (final DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            ProgramImage.write(out, this.bytecode, this.constantPool,
+                    this.rootScope);
+        }
+    }
+
+    /**
+     * Restores the program from the image at the specified {@code path},
+     * replacing any program that was compiled or loaded before. The file is
+     * memory-mapped, rather than read through a stream.
+     *
+     * @param path the image written by {@link #saveProgram(Path)}; not allowed
+     * to be null
+     * @throws NullPointerException if {@code path == null}
+     * @throws IOException if the file could not be read or does not contain a
+     * valid image, in which case no program is loaded
+     * @see ProgramImage
+     */
+    public void loadProgram(final Path path) throws IOException {
+        requireNonNull(path);
+        closeAnswers();
+        final Scope scope = newRootScope();
+        this.rootScope = null;
+        this.programMemento = null;
+        this.bytecode.release();
+        this.bytecode.setMemento(this.bytecodeMemento);
+        try (final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            ProgramImage.read(channel.map(MapMode.READ_ONLY, 0,
+                    channel.size()), this.bytecode, scope);
+        } catch (IOException e) {
+            this.bytecode.setMemento(this.bytecodeMemento);
+            throw e;
+        }
+        this.rootScope = scope;
+    }
+
+    // Returns a new root scope, in which the built-in predicates are defined,
+    // and discards the tables and indexes for the program it replaces
+    private Scope newRootScope() {
+        this.tables.clear();
+        this.indexes.clear();
+        final Scope scope = Scope.newRootInstance();
+        for (final PredicateSymbol symbol : this.builtins.getSymbols()) {
+            scope.defineGlobal(SymbolKeys.ofPredicate(symbol.getName(),
+                    symbol.getArity()), symbol);
+        }
+        this.database.setScope(scope);
+        return scope;
+    }
+
+    /**
+     * Returns a new {@link AbstractCompiler} instance for Prolog queries.
+     *
+     * @throws IllegalStateException if no program was compiled yet
+     */
+    public AbstractCompiler newQueryCompiler() {
+        if (this.rootScope == null) {
+            throw new IllegalStateException();
+        }
+        this.queryVars.clear();
+        return new QueryCompiler(this.bytecode, Scope.copyOf(this.rootScope),
+                this.queryVars);
+    }
+
+    /**
+     * Compiles the specified {@code query} and starts solving it, returning a
+     * handle through which its answers may be pulled one at a time. Any handle
+     * previously obtained from this engine is closed, and the code for its
+     * query is overwritten.
+     *
+     * @param query the source text of the query; not allowed to be null
+     * @throws NullPointerException if {@code query == null}
+     * @throws IllegalStateException if no program was compiled yet
+     * @throws RecognitionException if {@code query} could not be parsed
+     * @throws IOException
+     */
+    public AnswerIterator query(final String query) throws IOException,
+            RecognitionException {
+        requireNonNull(query);
+        closeAnswers();
+        final AbstractCompiler compiler = newQueryCompiler();
+        if (this.programMemento == null) {
+            this.programMemento = this.bytecode.createMemento();
+        } else {
+            this.bytecode.setMemento(this.programMemento);
+        }
+        final int queryAddr = this.bytecode.getCodeSize();
+        try (final Reader reader = new StringReader(query)) {
+            compiler.compile(reader);
+        }
+        this.answers = this.interpreter.solve(queryAddr);
+        return this.answers;
+    }
+
+    /**
+     * Compiles the specified {@code query} and returns all of its answers, up
+     * to {@code maxAnswers}, in the order in which they were found.
+     *
+     * @param query the source text of the query; not allowed to be null
+     * @param maxAnswers the maximum number of answers to return
+     * @throws NullPointerException if {@code query == null}
+     * @throws IllegalArgumentException if {@code maxAnswers <= 0}
+     * @throws IllegalStateException if no program was compiled yet
+     * @throws RecognitionException if {@code query} could not be parsed
+     * @throws IOException
+     * @see #query(String)
+     */
+    public List<Map<String,Term>> findAll(final String query,
+            final int maxAnswers) throws IOException, RecognitionException {
+        if (maxAnswers <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final List<Map<String,Term>> result = new ArrayList<>();
+        try (final AnswerIterator it = query(query)) {
+            while (result.size() < maxAnswers && it.hasNext()) {
+                result.add(it.next());
+            }
+        }
+        return result;
+    }
+
+    // Closes the handle for the query last run through query(String), if any
+    private void closeAnswers() {
+        if (this.answers != null) {
+            this.answers.close();
+            this.answers = null;
+        }
+    }
+
+    /**
+     * Returns an immutable view of the correspondence between the names of
+     * query variables and their local stack addresses, used for writing out
+     * answers. Repeated invocations of this method are guaranteed to return
+     * views of the same map. Moreover, the latter is cleared every time
+     * {@link #newQueryCompiler()} is called, and filled after
+     * {@link AbstractCompiler#compile(Reader)} is invoked on the instance
+     * returned thereby.
+     */
+    public Map<Integer,String> getQueryVars() {
+        return Collections.unmodifiableMap(this.queryVars);
+    }
+
+    /**
+     * Returns the number of words of virtual memory currently allocated by
+     * this engine.
+     */
+    public long getAllocatedMemory() {
+        return this.memory.getAllocatedSize();
+    }
+
+    /**
+     * Returns the statistics gathered by the garbage collector for the global
+     * stack.
+     */
+    public GcStats getGcStats() {
+        return this.facade.getGcStats();
+    }
+
+    /**
+     * Returns the statistics gathered on the trail.
+     */
+    public TrailStats getTrailStats() {
+        return this.facade.getTrailStats();
+    }
+
+    /**
+     * Returns the statistics gathered on the indexes built upon demand for
+     * arguments other than the first.
+     *
+     * @see Builder#setIndexLimit(int)
+     */
+    public IndexStats getIndexStats() {
+        return this.indexes.getStats();
+    }
+
+    /**
+     * Enumerates the available implementations of {@link ZipInterpreter}.
+     *
+     * @author Arno Bastenhof
+     *
+     */
+    public enum Interpreter {
+
+        /**
+         * Fetches and decodes each instruction from code memory at runtime.
+         *
+         * @see ZipInterpreterImpl
+         */
+        DEFAULT,
+
+        /**
+         * Dispatches on instructions that were decoded at compile-time.
+         *
+         * @see PredecodedZipInterpreter
+         */
+        PREDECODED,
+
+        /**
+         * Dispatches on instructions that were decoded at compile-time, while
+         * compiling frequently called predicates into JVM bytecode.
+         *
+         * @see JitZipInterpreter
+         * @see Builder#setJitThreshold(int)
+         */
+        JIT;
+    }
+
+    /**
+     * Builder for {@link PrologEngine}s.
+     *
+     * @author Arno Bastenhof
+     *
+     */
+    public static final class Builder {
+
+        /**
+         * The default size of the global stack, in words.
+         */
+        public static final int DEFAULT_GLOBAL_STACK_SIZE =
+                MAX_GLOBAL_INDEX - MIN_GLOBAL_INDEX + 1;
+
+        /**
+         * The default size of the local stack, in words.
+         */
+        public static final int DEFAULT_LOCAL_STACK_SIZE =
+                MAX_LOCAL_INDEX - MIN_LOCAL_INDEX + 1;
+
+        /**
+         * The default size of the trail, in words.
+         */
+        public static final int DEFAULT_TRAIL_SIZE =
+                MAX_TRAIL_INDEX - MIN_TRAIL_INDEX + 1;
+
+        /**
+         * The default size of the heap (i.e., code memory), in words.
+         */
+        public static final int DEFAULT_HEAP_SIZE = 1000000;
+
+        /**
+         * The default percentage of the global stack that may be in use
+         * before garbage is collected.
+         */
+        public static final int DEFAULT_GC_HIGH_WATER_MARK = 75;
+
+        /**
+         * The default number of calls after which a predicate is compiled by
+         * {@link Interpreter#JIT}.
+         */
+        public static final int DEFAULT_JIT_THRESHOLD = 1000;
+
+        /**
+         * The default number of clause references that may be held by the
+         * indexes on arguments other than the first.
+         */
+        public static final int DEFAULT_INDEX_LIMIT = 1000000;
+
+        private static final String INVALID_SIZE = "Invalid %s size %d: "
+                + "must lie between 1 and %d";
+        private static final String INVALID_PERCENTAGE = "Invalid high-water "
+                + "mark %d: must lie between 0 and 100";
+        private static final String INVALID_LIMIT = "Invalid index limit "
+                + "%d: must not be negative";
+        private static final String INVALID_THRESHOLD = "Invalid JIT "
+                + "threshold %d: must be at least 1";
+
+        private Interpreter interpreter = Interpreter.DEFAULT;
+        private int globalStackSize = DEFAULT_GLOBAL_STACK_SIZE;
+        private int localStackSize = DEFAULT_LOCAL_STACK_SIZE;
+        private int trailSize = DEFAULT_TRAIL_SIZE;
+        private int heapSize = DEFAULT_HEAP_SIZE;
+        private int gcHighWaterMark = DEFAULT_GC_HIGH_WATER_MARK;
+        private int jitThreshold = DEFAULT_JIT_THRESHOLD;
+        private int indexLimit = DEFAULT_INDEX_LIMIT;
+        private final BuiltinRegistry builtins = new BuiltinRegistry();
+
+        /**
+         * Selects the {@link ZipInterpreter} implementation to be used, being
+         * {@link Interpreter#DEFAULT} if left unspecified.
+         *
+         * @param interpreter the interpreter; not allowed to be null
+         * @return this builder
+         * @throws NullPointerException if {@code interpreter == null}
+         */
+        public Builder setInterpreter(final Interpreter interpreter) {
+            this.interpreter = requireNonNull(interpreter);
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the global stack, in words, being
+         * {@link #DEFAULT_GLOBAL_STACK_SIZE} if left unspecified.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code size <= 0} or if
+         * {@code size} exceeds {@link #DEFAULT_GLOBAL_STACK_SIZE}, being the
+         * number of addresses reserved for the global stack
+         */
+        public Builder setGlobalStackSize(final int size) {
+            this.globalStackSize = checkSize("global stack", size,
+                    MAX_GLOBAL_INDEX - MIN_GLOBAL_INDEX + 1);
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the local stack, in words, being
+         * {@link #DEFAULT_LOCAL_STACK_SIZE} if left unspecified.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code size <= 0} or if
+         * {@code size} exceeds {@link #DEFAULT_LOCAL_STACK_SIZE}, being the
+         * number of addresses reserved for the local stack
+         */
+        public Builder setLocalStackSize(final int size) {
+            this.localStackSize = checkSize("local stack", size,
+                    MAX_LOCAL_INDEX - MIN_LOCAL_INDEX + 1);
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the trail, in words, being
+         * {@link #DEFAULT_TRAIL_SIZE} if left unspecified.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code size <= 0} or if
+         * {@code size} exceeds {@link #DEFAULT_TRAIL_SIZE}, being the number
+         * of addresses reserved for the trail
+         */
+        public Builder setTrailSize(final int size) {
+            this.trailSize = checkSize("trail", size,
+                    MAX_TRAIL_INDEX - MIN_TRAIL_INDEX + 1);
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of the heap (i.e., code memory), in words,
+         * being {@link #DEFAULT_HEAP_SIZE} if left unspecified.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code size <= 0} or if
+         * {@code size} exceeds the number of addresses reserved for the heap
+         */
+        public Builder setHeapSize(final int size) {
+            this.heapSize = checkSize("heap", size,
+                    MAX_HEAP_INDEX - MIN_HEAP_INDEX + 1);
+            return this;
+        }
+
+        /**
+         * Sets the percentage of the global stack that may be in use before
+         * garbage is collected, being {@link #DEFAULT_GC_HIGH_WATER_MARK} if
+         * left unspecified. A value of 0 disables garbage collection.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code percentage < 0 ||
+         * percentage > 100}
+         */
+        public Builder setGcHighWaterMark(final int percentage) {
+            if (percentage < 0 || percentage > 100) {
+                throw new IllegalArgumentException(String.format(
+                        INVALID_PERCENTAGE, percentage));
+            }
+            this.gcHighWaterMark = percentage;
+            return this;
+        }
+
+        /**
+         * Sets the number of calls after which {@link Interpreter#JIT}
+         * compiles a predicate, being {@link #DEFAULT_JIT_THRESHOLD} if left
+         * unspecified. Ignored by the other interpreters.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code calls < 1}
+         */
+        public Builder setJitThreshold(final int calls) {
+            if (calls < 1) {
+                throw new IllegalArgumentException(String.format(
+                        INVALID_THRESHOLD, calls));
+            }
+            this.jitThreshold = calls;
+            return this;
+        }
+
+        /**
+         * Sets the number of clause references that may be held by the
+         * indexes built upon demand for calls leaving their first argument
+         * unbound while binding others, being {@link #DEFAULT_INDEX_LIMIT} if
+         * left unspecified. A value of 0 disables these indexes.
+         *
+         * @return this builder
+         * @throws IllegalArgumentException if {@code limit < 0}
+         * @see ArgumentIndexes
+         */
+        public Builder setIndexLimit(final int limit) {
+            if (limit < 0) {
+                throw new IllegalArgumentException(String.format(
+                        INVALID_LIMIT, limit));
+            }
+            this.indexLimit = limit;
+            return this;
+        }
+
+        /**
+         * Defines a predicate implemented in Java, which programs and queries
+         * may call like any other predicate, but for which they may not
+         * define clauses. Its implementation is invoked directly by the
+         * interpreter, making it suitable for helper predicates that are
+         * called frequently.
+         *
+         * @param name the predicate's name; not allowed to be null
+         * @param arity the predicate's arity; must be {@code >= 0}
+         * @param builtin the predicate's implementation; not allowed to be
+         * null
+         * @return this builder
+         * @throws NullPointerException if {@code name == null ||
+         * builtin == null}
+         * @throws IllegalArgumentException if {@code arity < 0}, or if a
+         * predicate with the same name and arity was already defined through
+         * this builder
+         */
+        public Builder defineBuiltin(final String name, final int arity,
+                final Builtin builtin) {
+            this.builtins.define(name, arity, builtin);
+            return this;
+        }
+
+        private static int checkSize(final String area, final int size,
+                final int max) {
+            if (size <= 0 || size > max) {
+                throw new IllegalArgumentException(String.format(
+                        INVALID_SIZE, area, size, max));
+            }
+            return size;
+        }
+
+        /**
+         * Returns a new {@link PrologEngine} as configured by this builder.
+         *
+         * @throws IllegalArgumentException if a predicate defined through
+         * {@link #defineBuiltin} is already built into the engine
+         */
+        public PrologEngine build() {
+            return new PrologEngine(this);
+        }
+    }
+}
@@ -6,9 +6,13 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
 
 import com.prolog.jvm.exceptions.InternalCompilerException;
 import com.prolog.jvm.exceptions.RecognitionException;
+import com.prolog.jvm.zip.ProgramImage;
 
 /**
  * Main (executable) class for Prolog-JVM, kicking off the {@link Repl}.
@@ -19,20 +23,78 @@ import com.prolog.jvm.exceptions.RecognitionException;
 public final class PrologJvm {
 
     private static final String WELCOME = "Welcome to prolog-jvm.\n";
-    private static final String HELP = "Usage: java PrologJvm <file name>.";
+    private static final String HELP = "Usage: java PrologJvm [options] "
+            + "<file name> [<file name> ...].\nThe first file contains either "
+            + "source code or a program image, to which the clauses in the "
+            + "remaining files are added.\nOptions:\n"
+            + "  -interpreter=default|predecoded|jit\n"
+            + "  -jit=<calls>      number of calls after which the jit "
+            + "interpreter compiles a predicate\n"
+            + "  -global=<words>   maximum global stack size\n"
+            + "  -local=<words>    maximum local stack size\n"
+            + "  -trail=<words>    maximum trail size\n"
+            + "  -heap=<words>     maximum code memory size\n"
+            + "  -gc=<percentage>  global stack usage triggering garbage "
+            + "collection (0 disables it)\n"
+            + "  -index=<entries>  maximum size of the indexes on arguments "
+            + "other than the first (0 disables them)\n"
+            + "  -all[=<n>]        write all answers (at most n) without "
+            + "prompting\n"
+            + "  -save=<image>     write the compiled program to an image and "
+            + "exit";
+    private static final String INTERPRETER_OPTION = "-interpreter=";
+    private static final String JIT_OPTION = "-jit=";
+    private static final String GLOBAL_OPTION = "-global=";
+    private static final String LOCAL_OPTION = "-local=";
+    private static final String TRAIL_OPTION = "-trail=";
+    private static final String HEAP_OPTION = "-heap=";
+    private static final String GC_OPTION = "-gc=";
+    private static final String INDEX_OPTION = "-index=";
+    private static final String ALL_OPTION = "-all";
+    private static final String SAVE_OPTION = "-save=";
 
     /**
      * Main method.
      *
-     * @param args command-line parameter for the program to be loaded
+     * @param args command-line parameters, consisting of zero or more options
+     * followed by the program to be loaded and any files to be consulted
+     * thereafter
      */
     public static final void main(String[] args) {
-        if (args.length == 0) {
+        final PrologEngine.Builder builder = new PrologEngine.Builder();
+        int maxAnswers = Repl.INTERACTIVE;
+        Path image = null;
+        int i = 0;
+        try {
+            for (; i < args.length - 1 && args[i].startsWith("-"); i++) {
+                if (args[i].startsWith(ALL_OPTION)) {
+                    maxAnswers = parseMaxAnswers(args[i]);
+                } else if (args[i].startsWith(SAVE_OPTION)) {
+                    image = Paths.get(args[i].substring(SAVE_OPTION.length()));
+                } else {
+                    parseOption(builder, args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage() == null ? HELP : e.getMessage());
+            return;
+        }
+        if (i >= args.length) {
             System.out.println(HELP); // print help message
             return;
         }
-        try (final Reader program = new FileReader(args[0])) {
-            Factory.newProgramCompiler().compile(program);
+        final PrologEngine engine = builder.build();
+        try {
+            load(engine, Paths.get(args[i]));
+            for (i++; i < args.length; i++) {
+                try (final Reader clauses = new FileReader(args[i])) {
+                    engine.newConsultCompiler().compile(clauses);
+                }
+            }
+            if (image != null) {
+                engine.saveProgram(image);
+                return;
+            }
         } catch (IOException | RecognitionException e) {
             e.printStackTrace();
             return;
@@ -42,9 +104,69 @@ public final class PrologJvm {
         System.out.println(WELCOME);
         try (final Reader reader = new InputStreamReader(System.in);
                 Writer writer = new PrintWriter(System.out)) {
-            Repl.INSTANCE.run(reader, writer);
+            new Repl(engine, maxAnswers).run(reader, writer);
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    // Loads the program at the specified path, being either an image or
+    // source code to be compiled
+    private static void load(final PrologEngine engine, final Path path)
+            throws IOException, RecognitionException {
+        if (ProgramImage.isImage(path)) {
+            engine.loadProgram(path);
+            return;
+        }
+        try (final Reader program = new FileReader(path.toFile())) {
+            engine.newProgramCompiler().compile(program);
+        }
+    }
+
+    // Configures builder according to the specified command-line option,
+    // throwing an IllegalArgumentException if it is not recognized
+    private static void parseOption(final PrologEngine.Builder builder,
+            final String option) {
+        if (option.startsWith(INTERPRETER_OPTION)) {
+            final String name = option.substring(INTERPRETER_OPTION.length());
+            builder.setInterpreter(PrologEngine.Interpreter.valueOf(name
+                    .toUpperCase(Locale.ROOT)));
+        } else if (option.startsWith(JIT_OPTION)) {
+            builder.setJitThreshold(parseSize(option, JIT_OPTION));
+        } else if (option.startsWith(GLOBAL_OPTION)) {
+            builder.setGlobalStackSize(parseSize(option, GLOBAL_OPTION));
+        } else if (option.startsWith(LOCAL_OPTION)) {
+            builder.setLocalStackSize(parseSize(option, LOCAL_OPTION));
+        } else if (option.startsWith(TRAIL_OPTION)) {
+            builder.setTrailSize(parseSize(option, TRAIL_OPTION));
+        } else if (option.startsWith(HEAP_OPTION)) {
+            builder.setHeapSize(parseSize(option, HEAP_OPTION));
+        } else if (option.startsWith(GC_OPTION)) {
+            builder.setGcHighWaterMark(parseSize(option, GC_OPTION));
+        } else if (option.startsWith(INDEX_OPTION)) {
+            builder.setIndexLimit(parseSize(option, INDEX_OPTION));
+        } else {
+            throw new IllegalArgumentException(HELP);
+        }
+    }
+
+    // Returns the maximum number of answers per query for the -all option,
+    // throwing an IllegalArgumentException if it is malformed
+    private static int parseMaxAnswers(final String option) {
+        if (option.equals(ALL_OPTION)) {
+            return Integer.MAX_VALUE;
+        }
+        if (!option.startsWith(ALL_OPTION + "=")) {
+            throw new IllegalArgumentException(HELP);
+        }
+        final int result = parseSize(option, ALL_OPTION + "=");
+        if (result <= 0) {
+            throw new IllegalArgumentException(HELP);
+        }
+        return result;
+    }
+
+    private static int parseSize(final String option, final String prefix) {
+        return Integer.parseInt(option.substring(prefix.length()));
+    }
 }
@@ -13,17 +13,53 @@ import java.io.Writer;
 import com.prolog.jvm.zip.PrologBytecodeImpl.MementoImpl;
 
 /**
- * Class implementing the Read-Eval-Print Loop.
+ * Class implementing the Read-Eval-Print Loop for a {@link PrologEngine}.
  *
  * @author Arno Bastenhof
  *
  */
-public enum Repl {
+public final class Repl {
 
     /**
-     * The unique instance for this class.
+     * The value for {@code maxAnswers} selecting interactive mode.
      */
-    INSTANCE;
+    public static final int INTERACTIVE = 0;
+
+    private final PrologEngine engine;
+    private final int maxAnswers;
+
+    /**
+     * Creates a REPL in interactive mode, prompting the user after each answer
+     * whether to look for another.
+     *
+     * @param engine the engine against which queries are to be run, expected
+     * to have a program compiled already; not allowed to be null
+     * @throws NullPointerException if {@code engine == null}
+     */
+    public Repl(final PrologEngine engine) {
+        this(engine, INTERACTIVE);
+    }
+
+    /**
+     * Creates a REPL that writes up to {@code maxAnswers} answers for each
+     * query in one go, or that runs in interactive mode if {@code maxAnswers}
+     * equals {@link #INTERACTIVE}. In the former case, output is only flushed
+     * once per query.
+     *
+     * @param engine the engine against which queries are to be run, expected
+     * to have a program compiled already; not allowed to be null
+     * @param maxAnswers the maximum number of answers to write per query, or
+     * {@link #INTERACTIVE}
+     * @throws NullPointerException if {@code engine == null}
+     * @throws IllegalArgumentException if {@code maxAnswers < 0}
+     */
+    public Repl(final PrologEngine engine, final int maxAnswers) {
+        if (maxAnswers < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.engine = requireNonNull(engine);
+        this.maxAnswers = maxAnswers;
+    }
 
     /**
      * Executes the Read-Eval-Print Loop.
@@ -39,27 +75,39 @@ public enum Repl {
         requireNonNull(in);
         requireNonNull(out);
 
-        // the code address where compiled queries will be stored
-        final int queryAddr = Factory.getBytecode().getCodeSize();
-
         // bytecode state prior to the compilation of any queries
-        final MementoImpl m = Factory.getBytecode().createMemento();
+        final MementoImpl m = this.engine.getBytecode().createMemento();
 
         try (final BufferedReader reader = new BufferedReader(in)) {
             String userInput;
             out.append(PROMPT).flush();
             while (!HALT.equals(userInput = reader.readLine())) {
+                // the code address where the query will be stored, lying past
+                // any code retained by previous queries
+                this.engine.getBytecode().setMemento(m);
+                final int queryAddr = this.engine.getBytecode().getCodeSize();
                 try (final StringReader sr = new StringReader(userInput)) {
-                    Factory.newQueryCompiler().compile(sr);
+                    this.engine.newQueryCompiler().compile(sr);
                 } catch (Exception e) {
                     out.append(e.getMessage()).append('\n').append(PROMPT)
                             .flush();
                     continue;
                 }
-                Factory.getInterpreter().execute(queryAddr, reader, out);
-                Factory.getBytecode().setMemento(m);
+                try {
+                    if (this.maxAnswers == INTERACTIVE) {
+                        this.engine.getInterpreter().execute(queryAddr,
+                                reader, out);
+                    } else {
+                        this.engine.getInterpreter().executeAll(queryAddr,
+                                out, this.maxAnswers);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Raised by built-in predicates for invalid arguments
+                    out.append(e.getMessage()).append('\n');
+                }
                 out.append(PROMPT).flush();
             }
         }
+        this.engine.getBytecode().setMemento(m);
     }
 }
@@ -0,0 +1,146 @@
+package com.prolog.jvm.symbol;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A switch-on-term index over the clauses of a single predicate, keyed on the
+ * principal functor of their first head argument. Its purpose is to narrow down
+ * the clause alternatives that are tried upon calling a predicate to only those
+ * whose heads may possibly match the (dereferenced) first argument of the call,
+ * in the spirit of the {@code switch_on_term} instructions of the WAM (see
+ * [1]).
+ * <p>
+ * Clauses are added either last or first, each together with its key, being
+ * the {@link FunctorSymbol} for the first head argument if the latter is a
+ * constant or a compound term, or null if it is a variable (or if the head has
+ * no arguments). Clauses may also be removed again, as happens for dynamic
+ * predicates. Lookups return the matching clauses as an immutable snapshot
+ * array that is cached until the next change affecting it, allowing them to be
+ * shared freely between choice points. Hence, a call that is underway is not
+ * affected by clauses that are added or removed later on, conforming to the
+ * logical update view of ISO Prolog.
+ * <p>
+ * Changes only invalidate the cached lookups for the key involved (together
+ * with those for unbound first arguments), whereas removed clauses are
+ * discarded lazily by the {@link ClauseList}s holding them.
+ * <p>
+ * [1] Aït-Kaci, Hassan. "Warren's Abstract Machine A Tutorial Reconstruction."
+ * (1999).
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ClauseIndex {
+
+    // All clauses, in program order
+    private final ClauseList clauses = new ClauseList();
+
+    // Clauses whose first head argument is a variable
+    private final ClauseList varClauses = new ClauseList();
+
+    // Clauses whose first head argument has the key, interleaved with those
+    // from varClauses while respecting program order
+    private final Map<FunctorSymbol,ClauseList> keyClauses = new HashMap<>();
+
+    /**
+     * Adds the specified {@code clause} to this index as its last clause.
+     *
+     * @param clause the clause to be added; not allowed to be null
+     * @param key the functor of the first head argument of {@code clause}, or
+     * null if it is a variable or if {@code clause} has no parameters
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public void add(final ClauseSymbol clause, final FunctorSymbol key) {
+        insert(clause, key, false);
+    }
+
+    /**
+     * Adds the specified {@code clause} to this index as its first clause.
+     *
+     * @param clause the clause to be added; not allowed to be null
+     * @param key the functor of the first head argument of {@code clause}, or
+     * null if it is a variable or if {@code clause} has no parameters
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public void addFirst(final ClauseSymbol clause, final FunctorSymbol key) {
+        insert(clause, key, true);
+    }
+
+    private void insert(final ClauseSymbol clause, final FunctorSymbol key,
+            final boolean first) {
+        requireNonNull(clause);
+        clause.setKey(key);
+        this.clauses.add(clause, first);
+        if (key == null) {
+            this.varClauses.add(clause, first);
+            for (final ClauseList bucket : this.keyClauses.values()) {
+                bucket.add(clause, first);
+            }
+        } else {
+            ClauseList bucket = this.keyClauses.get(key);
+            if (bucket == null) {
+                bucket = new ClauseList();
+                for (final ClauseSymbol c : this.varClauses.toArray()) {
+                    bucket.add(c, false);
+                }
+                this.keyClauses.put(key, bucket);
+            }
+            bucket.add(clause, first);
+        }
+    }
+
+    /**
+     * Removes the specified {@code clause} from this index, marking it as
+     * {@link ClauseSymbol#isErased() erased}. Arrays returned by earlier
+     * lookups are left unchanged.
+     *
+     * @param clause a clause previously added to this index; not allowed to
+     * be null
+     * @return false if {@code clause} was already removed, or true otherwise
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public boolean remove(final ClauseSymbol clause) {
+        if (clause.isErased()) {
+            return false;
+        }
+        clause.erase();
+        this.clauses.erase();
+        final FunctorSymbol key = clause.getKey();
+        if (key == null) {
+            this.varClauses.erase();
+            for (final ClauseList bucket : this.keyClauses.values()) {
+                bucket.erase();
+            }
+        } else {
+            this.keyClauses.get(key).erase();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the clauses that may match a call whose first argument has the
+     * specified principal functor, in program order. The returned array is
+     * shared and must not be modified.
+     *
+     * @param key the principal functor of the dereferenced first argument of
+     * the call, or null if the latter is an unbound variable or if the called
+     * predicate has no parameters
+     */
+    public ClauseSymbol[] lookup(final FunctorSymbol key) {
+        if (key == null) {
+            return this.clauses.toArray();
+        }
+        final ClauseList bucket = this.keyClauses.get(key);
+        return bucket != null ? bucket.toArray() : this.varClauses.toArray();
+    }
+
+    /**
+     * Returns the number of clauses in this index.
+     */
+    public int size() {
+        return this.clauses.size();
+    }
+}
@@ -0,0 +1,90 @@
+package com.prolog.jvm.symbol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sequence of clauses, some of which may have been
+ * {@link ClauseSymbol#isErased() erased}, together with a cached snapshot
+ * array of those that were not. The snapshot is an immutable array that is
+ * only rebuilt upon the first lookup following a change, allowing it to be
+ * shared freely between choice points. Erased clauses are only dropped from
+ * the sequence once they make up more than half of it, keeping the cost of
+ * adding or removing a clause constant when amortized over a sequence of such
+ * operations.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ClauseList {
+
+    private static final ClauseSymbol[] EMPTY = new ClauseSymbol[0];
+
+    private ArrayDeque<ClauseSymbol> deque = new ArrayDeque<>();
+    private int erased; // number of erased clauses in deque
+    private ClauseSymbol[] cache;
+
+    /**
+     * Adds the specified {@code clause} to this list.
+     *
+     * @param clause the clause to be added; not allowed to be null
+     * @param first whether to add {@code clause} at the front of this list,
+     * rather than at its end
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public void add(final ClauseSymbol clause, final boolean first) {
+        if (first) {
+            this.deque.addFirst(clause);
+        } else {
+            this.deque.addLast(clause);
+        }
+        this.cache = null;
+    }
+
+    /**
+     * Registers that one of the clauses in this list was erased.
+     */
+    public void erase() {
+        this.cache = null;
+        if (++this.erased * 2 > this.deque.size()) {
+            final ArrayDeque<ClauseSymbol> live = new ArrayDeque<>();
+            for (final ClauseSymbol clause : this.deque) {
+                if (!clause.isErased()) {
+                    live.addLast(clause);
+                }
+            }
+            this.deque = live;
+            this.erased = 0;
+        }
+    }
+
+    /**
+     * Returns the number of clauses in this list that were not erased.
+     */
+    public int size() {
+        return this.deque.size() - this.erased;
+    }
+
+    /**
+     * Returns the clauses in this list that were not erased, in order. The
+     * returned array is shared and must not be modified.
+     */
+    public ClauseSymbol[] toArray() {
+        if (this.cache == null) {
+            if (this.erased == 0) {
+                this.cache = this.deque.isEmpty() ? EMPTY : this.deque
+                        .toArray(EMPTY);
+            } else {
+                final List<ClauseSymbol> live = new ArrayList<>(size());
+                for (final ClauseSymbol clause : this.deque) {
+                    if (!clause.isErased()) {
+                        live.add(clause);
+                    }
+                }
+                this.cache = live.isEmpty() ? EMPTY : live.toArray(EMPTY);
+            }
+        }
+        return this.cache;
+    }
+}
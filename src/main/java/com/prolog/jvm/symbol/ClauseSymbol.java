@@ -1,7 +1,5 @@
 package com.prolog.jvm.symbol;
 
-import static java.util.Objects.requireNonNull;
-
 import com.prolog.jvm.zip.util.Validate;
 
 /**
@@ -22,7 +20,9 @@ public final class ClauseSymbol implements Symbol {
     private int params;         // number of parameters
     private int locals;         // number of local variables
     private int heapptr;        // offset into heap
-    private ClauseSymbol next;  // next clause alternative
+    private FunctorSymbol key;  // index key
+    private int[] headKeys;     // keys of the head arguments, if any
+    private boolean erased;     // whether removed from its predicate
 
     /**
      * Sets the number of parameters for the clause represented by this symbol,
@@ -63,14 +63,32 @@ public final class ClauseSymbol implements Symbol {
     }
 
     /**
-     * Sets the next clause alternative
+     * Sets the keys of the head arguments of the clause represented by this
+     * symbol, allowing calls whose arguments clash with them to skip this
+     * clause without trying it. The key of an argument is the word for its
+     * principal functor: a CONS- or INT-tagged word for an atom or a small
+     * integer, the FUNC-tagged word heading a compound term, or an LIS-tagged
+     * word with value 0 for a list cell. Variables and boxed integers have
+     * key 0, being compatible with any argument.
      *
-     * @param next clause symbol for the next alternative; not allowed to be
-     * null
-     * @throws NullPointerException if {@code next == null}
+     * @param keys the keys of the head arguments, or null if they are all
+     * {@code 0}; the array is not copied and must not be modified afterwards
+     * @throws IllegalArgumentException if {@code keys != null &&
+     * keys.length != getParams()}
      */
-    public void setNext(final ClauseSymbol next) {
-        this.next = requireNonNull(next);
+    public void setHeadKeys(final int[] keys) {
+        Validate.argument(keys == null || keys.length == this.params);
+        this.headKeys = keys;
+    }
+
+    // Sets the key with which this clause was added to a ClauseIndex
+    void setKey(final FunctorSymbol key) {
+        this.key = key;
+    }
+
+    // Marks this clause as removed from its ClauseIndex
+    void erase() {
+        this.erased = true;
     }
 
     /**
@@ -99,12 +117,29 @@ public final class ClauseSymbol implements Symbol {
     }
 
     /**
-     * Returns the next clause alternative. If there is none (which can only be
-     * the case if {@link #setNext(ClauseSymbol)} was never invoked), null is
-     * returned instead.
+     * Returns the functor of the first head argument of the clause represented
+     * by this symbol, as used for indexing it, or null if the former is a
+     * variable or if there are no arguments.
+     */
+    public FunctorSymbol getKey() {
+        return this.key;
+    }
+
+    /**
+     * Returns the keys set through {@link #setHeadKeys(int[])}, or null if
+     * none were set. The returned array is shared and must not be modified.
+     */
+    public int[] getHeadKeys() {
+        return this.headKeys;
+    }
+
+    /**
+     * Returns whether the clause represented by this symbol was removed from
+     * its predicate (e.g., by {@code retract/1}). Calls that were already
+     * underway at that moment may still try it as an alternative.
      */
-    public ClauseSymbol getNext() {
-        return this.next;
+    public boolean isErased() {
+        return this.erased;
     }
 
 }
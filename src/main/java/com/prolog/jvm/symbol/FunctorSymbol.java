@@ -20,6 +20,13 @@ public final class FunctorSymbol implements Symbol {
      */
     public static final FunctorSymbol NIL = new FunctorSymbol("[]", 0);
 
+    /**
+     * A constant for the list constructor. Lists are not represented by
+     * compound terms, but by dedicated list cells; this symbol only serves as
+     * the key under which clauses are indexed on a list argument.
+     */
+    public static final FunctorSymbol LIST = new FunctorSymbol("[|]", 2);
+
     private final String name;
     private final int arity;
 
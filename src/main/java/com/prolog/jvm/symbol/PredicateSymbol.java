@@ -18,38 +18,186 @@ import com.prolog.jvm.zip.util.Validate;
  */
 public final class PredicateSymbol implements Symbol {
 
-    private final String name;  // kept for debugging purposes
+    private final String name;  // the predicate's name
+    private final int arity;    // number of parameters
 
-    private ClauseSymbol first; // first clause alternative
+    private boolean dynamic;    // whether clauses may be added at runtime
+    private int builtin = -1;   // index of the Java implementation, if any
+    private boolean tabled;     // whether answers are tabled
+    private int calls;          // number of calls counted when profiling
+
+    private final ClauseIndex index = new ClauseIndex(); // clause index
 
     public PredicateSymbol(final String text, final int arity) {
-        this.name = requireNonNull(text) + "/" + Integer.toString(arity);
+        this.name = requireNonNull(text);
+        this.arity = arity;
+    }
+
+    /**
+     * Returns the name of the predicate represented by this symbol.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the arity of the predicate represented by this symbol.
+     */
+    public int getArity() {
+        return this.arity;
+    }
+
+    /**
+     * Marks the predicate represented by this symbol as dynamic, meaning that
+     * its clauses may be added or removed at runtime. Dynamic predicates are
+     * allowed to have no clauses, in which case calls to them simply fail.
+     */
+    public void setDynamic() {
+        this.dynamic = true;
+    }
+
+    /**
+     * Returns whether the predicate represented by this symbol was marked as
+     * dynamic.
+     */
+    public boolean isDynamic() {
+        return this.dynamic;
+    }
+
+    /**
+     * Marks the predicate represented by this symbol as built-in, meaning that
+     * it is implemented by the machine rather than by clauses.
+     *
+     * @param index the index by which the machine looks up the predicate's
+     * implementation; must be {@code >= 0}
+     * @throws IllegalArgumentException if {@code index < 0}
+     */
+    public void setBuiltin(final int index) {
+        Validate.argument(index >= 0);
+        this.builtin = index;
+    }
+
+    /**
+     * Returns whether the predicate represented by this symbol was marked as
+     * built-in.
+     */
+    public boolean isBuiltin() {
+        return this.builtin != -1;
+    }
+
+    /**
+     * Returns the index set through {@link #setBuiltin(int)}, or -1 if the
+     * predicate represented by this symbol is not built-in.
+     */
+    public int getBuiltinIndex() {
+        return this.builtin;
     }
 
     /**
-     * Sets the first clause alternative for the predicate represented by this
+     * Marks the predicate represented by this symbol as tabled, meaning that
+     * the answers to its calls are computed once and stored in tables, rather
+     * than by resolving against its clauses upon each call.
+     */
+    public void setTabled() {
+        this.tabled = true;
+    }
+
+    /**
+     * Returns whether the predicate represented by this symbol was marked as
+     * tabled.
+     */
+    public boolean isTabled() {
+        return this.tabled;
+    }
+
+    /**
+     * Adds the specified {@code clause} to the {@link ClauseIndex} for the
+     * predicate represented by this symbol, as its last alternative.
+     *
+     * @param clause the clause to be added; not allowed to be null
+     * @param key the functor of the first head argument of {@code clause}, or
+     * null if it is a variable or if the predicate has arity 0
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public void addClause(final ClauseSymbol clause, final FunctorSymbol key) {
+        this.index.add(clause, key);
+        this.calls = 0;
+    }
+
+    /**
+     * Adds the specified {@code clause} to the {@link ClauseIndex} for the
+     * predicate represented by this symbol, as its first alternative.
+     *
+     * @param clause the clause to be added; not allowed to be null
+     * @param key the functor of the first head argument of {@code clause}, or
+     * null if it is a variable or if the predicate has arity 0
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public void addFirstClause(final ClauseSymbol clause,
+            final FunctorSymbol key) {
+        this.index.addFirst(clause, key);
+        this.calls = 0;
+    }
+
+    /**
+     * Removes the specified {@code clause} from the {@link ClauseIndex} for the
+     * predicate represented by this symbol. Calls that are already underway
+     * may still try it as an alternative.
+     *
+     * @param clause a clause of the predicate represented by this symbol; not
+     * allowed to be null
+     * @return false if {@code clause} was already removed, or true otherwise
+     * @throws NullPointerException if {@code clause == null}
+     */
+    public boolean removeClause(final ClauseSymbol clause) {
+        this.calls = 0;
+        return this.index.remove(clause);
+    }
+
+    /**
+     * Returns the number of clauses of the predicate represented by this
      * symbol.
+     */
+    public int getClauseCount() {
+        return this.index.size();
+    }
+
+    /**
+     * Returns the clause alternatives that may match a call whose first
+     * argument has the specified principal functor, in program order. The
+     * returned array is shared and must not be modified.
      *
-     * @param first first clause alternative; not allowed to be null
-     * @throws NullPointerException if {@code first == null}
-     * @throws IllegalStateException if the first clause alternative was already
-     * set
+     * @param key the principal functor of the dereferenced first argument of
+     * the call, or null if the latter is an unbound variable or if the
+     * predicate has arity 0
      */
-    public void setFirst(final ClauseSymbol first) {
-        Validate.state(this.first == null);
-        this.first = requireNonNull(first);
+    public ClauseSymbol[] getAlternatives(final FunctorSymbol key) {
+        return this.index.lookup(key);
     }
 
     /**
-     * Returns the first clause alternative for the predicate represented by
-     * this symbol.
+     * Counts a call to the predicate represented by this symbol, for the
+     * purpose of profiling, and returns the number of calls counted so far.
+     * The count saturates at {@link Integer#MAX_VALUE}, and starts anew
+     * whenever a clause is added or removed.
      */
-    public ClauseSymbol getFirst() {
-        return this.first;
+    public int countCall() {
+        if (this.calls < Integer.MAX_VALUE) {
+            this.calls++;
+        }
+        return this.calls;
+    }
+
+    /**
+     * Resets the number of calls counted for the predicate represented by this
+     * symbol, as when code compiled for the latter was discarded.
+     */
+    public void resetCalls() {
+        this.calls = 0;
     }
 
     @Override
     public String toString() {
-        return this.name;
+        return this.name + "/" + Integer.toString(this.arity);
     }
 }
@@ -2,6 +2,7 @@ package com.prolog.jvm.zip;
 
 import java.util.List;
 
+import com.prolog.jvm.main.PrologEngine;
 import com.prolog.jvm.zip.api.MemoryArea;
 import com.prolog.jvm.zip.api.ZipFacade;
 
@@ -16,9 +17,9 @@ import com.prolog.jvm.zip.api.ZipFacade;
   * the validation of any invariants on the constructed object.
   * <p>
   * For production, it is recommended that a reference to a {@link ZipFacade} be
-  * obtained through the corresponding static factory method on {@link Factory},
-  * which uses a {@code Builder} under water and ensures all properties are
-  * initialized before invoking build. Test classes, in contrast, can use a
+  * obtained through {@link PrologEngine#getMachine()}, which uses a
+  * {@code Builder} under water and ensures all properties are initialized
+  * before invoking build. Test classes, in contrast, can use a
   * {@code Builder} to create a new {@link ZipFacade} for each unit test,
   * tweaked to the particular conditions assessed thereby (e.g., through mocking
   * the various {@link MemoryArea}s).
@@ -75,6 +76,12 @@ public abstract class AbstractZipBuilder<T extends AbstractZipBuilder<T>> {
      */
     protected MemoryArea scratchpad;
 
+    /**
+     * The number of words the global stack may grow to before garbage is
+     * collected. Defaults to 0, disabling garbage collection.
+     */
+    protected int gcThreshold;
+
     /**
      * Builds a {@link ZipFacade} instance.
      */
@@ -152,4 +159,18 @@ public abstract class AbstractZipBuilder<T extends AbstractZipBuilder<T>> {
         this.scratchpad = scratchpad;
         return this.instance;
     }
+
+    /**
+     * Sets the number of words the global stack may grow to before garbage
+     * is collected, with 0 disabling garbage collection altogether.
+     *
+     * @throws IllegalArgumentException if {@code gcThreshold < 0}
+     */
+    public final T setGcThreshold(final int gcThreshold) {
+        if (gcThreshold < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.gcThreshold = gcThreshold;
+        return this.instance;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,954 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.Instructions.ARG;
+import static com.prolog.jvm.zip.util.Instructions.COPY;
+import static com.prolog.jvm.zip.util.Instructions.MATCH;
+import static com.prolog.jvm.zip.util.MemoryConstants.QUERY_FRAME_INDEX;
+import static com.prolog.jvm.zip.util.PlWords.BIG;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+import static com.prolog.jvm.zip.util.ReplConstants.FAILURE;
+import static com.prolog.jvm.zip.util.ReplConstants.NEXT_ANSWER;
+import static com.prolog.jvm.zip.util.ReplConstants.SUCCESS;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.prolog.jvm.exceptions.BacktrackException;
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.zip.api.AnswerIterator;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.StepEvent;
+import com.prolog.jvm.zip.api.StepListener;
+import com.prolog.jvm.zip.api.Term;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.api.ZipInterpreter;
+import com.prolog.jvm.zip.util.Instructions;
+import com.prolog.jvm.zip.util.IntList;
+import com.prolog.jvm.zip.util.PlWords;
+import com.prolog.jvm.zip.util.Terms;
+
+/**
+ * Skeletal implementation of a {@link ZipInterpreter}, as described in [1] and
+ * [2], containing the implementations of the individual instructions as well
+ * as the logic for writing answers. Subclasses decide how instructions and
+ * their operands are fetched and decoded, by implementing
+ * {@link #step(int, BufferedReader, Writer)}.
+ * <p>
+ * [1] Bowen, David L., Lawrence Byrd, and William F. Clocksin. A portable
+ * Prolog compiler. Department of Artificial Intelligence, University of
+ * Edinburgh, 1983.
+ * <p>
+ * [2] Clocksin, William F. "Design and simulation of a sequential Prolog
+ * machine." New Generation Computing 3.1 (1985): 101-120.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+/*
+ * Implementation notes: for the outside world, the ZIP interpreter is an
+ * external iterator over the answers to a query, exposed through the solve
+ * method, with execute layered on top for the benefit of the REPL. Finding an
+ * answer iteratively calls a step method for executing the next instruction,
+ * which additionally stores information in the interpreter's instance fields
+ * about how the VM state was mutated. The run method, in turn, may read these
+ * instance fields in between steps in order to, say, output debugging
+ * information. In other words, the interpreter is also an external iterator
+ * over its steps, while at the same time being its own (and only) client.
+ *
+ * Said information is only recorded if at least one listener was registered
+ * at the time an answer was asked for. Otherwise, the event field is null, and
+ * no event objects, bindings lists or operand strings are created at all.
+ */
+public abstract class AbstractZipInterpreter implements ZipInterpreter {
+
+    /**
+     * A facade for the ZIP's internals.
+     */
+    protected final ZipFacade facade;
+
+    // Names of query variables, keyed by their local stack addresses
+    private final Map<Integer,String> queryVars;
+
+    // Implementations of built-in predicates, indexed as by their symbols
+    private final Builtin[] builtins;
+
+    // Tables for the answers to tabled predicates
+    private final AnswerTables tables;
+
+    // Indexes on arguments other than the first
+    private final ArgumentIndexes indexes;
+
+    private StepEventImpl event;
+    private final Set<StepListener> listeners;
+
+    // Handle for the query being solved, or null if there is none
+    private Answers current;
+
+    // Number of instructions that failed, causing the machine to backtrack
+    private int failures;
+
+    /**
+     *
+     * @param facade a facade for the ZIP's internals; not allowed to be null
+     * @param queryVars the names of the variables of the query being
+     * executed, keyed by their local stack addresses; not allowed to be null
+     * @param builtins the registry defining the predicates marked as
+     * {@link PredicateSymbol#isBuiltin() built-in}; not allowed to be null
+     * @param tables the tables for the predicates marked as
+     * {@link PredicateSymbol#isTabled() tabled}; not allowed to be null
+     * @param indexes the indexes on arguments other than the first, built
+     * upon demand; not allowed to be null
+     */
+    protected AbstractZipInterpreter(final ZipFacade facade,
+            final Map<Integer,String> queryVars,
+            final BuiltinRegistry builtins,
+            final AnswerTables tables, final ArgumentIndexes indexes) {
+        this.facade = requireNonNull(facade);
+        this.queryVars = requireNonNull(queryVars);
+        this.builtins = builtins.toArray();
+        this.tables = requireNonNull(tables);
+        this.indexes = requireNonNull(indexes);
+        this.listeners = new HashSet<>();
+    }
+
+    // === Listener registration API ===
+
+    @Override
+    public final void register(final StepListener listener) {
+        this.listeners.add(requireNonNull(listener));
+    }
+
+    @Override
+    public final void unregister(final StepListener listener) {
+        this.listeners.remove(requireNonNull(listener));
+    }
+
+    // === Fetch/Decode/Execute ===
+
+    @Override
+    public void execute(final int queryAddr, final BufferedReader in,
+            final Writer out) throws Exception {
+        final Answers answers = new Answers(queryAddr);
+        try {
+            while (answers.advance()) {
+                // If writeAnswer returns true, look for more
+                if (!writeAnswer(in, out)) {
+                    // else, we're done
+                    out.write(SUCCESS);
+                    return;
+                }
+            }
+            out.write(FAILURE);
+        } finally {
+            answers.close();
+        }
+    }
+
+    @Override
+    public void executeAll(final int queryAddr, final Writer out,
+            final int maxAnswers) throws Exception {
+        requireNonNull(out);
+        if (maxAnswers <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final Answers answers = new Answers(queryAddr);
+        try {
+            int count = 0;
+            while (count < maxAnswers && answers.advance()) {
+                count++;
+                // No query variables means there's only one answer to write
+                if (!writeBindings(out)) {
+                    break;
+                }
+                out.write('\n');
+            }
+            out.write(count > 0 ? SUCCESS : FAILURE);
+        } finally {
+            answers.close();
+        }
+    }
+
+    @Override
+    public AnswerIterator solve(final int queryAddr) {
+        return new Answers(queryAddr);
+    }
+
+    /*
+     * Executes instructions starting from the specified stack address until
+     * an answer is found, notifying the listeners of each step.
+     *
+     * Throws a BacktrackException if no answer could be found due to there
+     * being no choice point left to backtrack to.
+     */
+    private void run(final int stackAddr) throws Exception {
+        int addr = stackAddr;
+        try {
+            if (this.listeners.isEmpty()) {
+                // No events are recorded, keeping the inner loop tight
+                this.event = null;
+                while ((addr = step(addr)) >= 0) {
+                    // Nothing to do
+                }
+            } else {
+                this.event = new StepEventImpl();
+                while ((addr = step(addr)) >= 0) {
+                    // Notify listeners
+                    for (final StepListener listener : this.listeners) {
+                        listener.handleEvent(this.event);
+                    }
+                    // Reset event
+                    this.event = new StepEventImpl();
+                }
+            }
+        } finally {
+            this.event = null;
+        }
+    }
+
+    /**
+     * Template method for fetching, decoding and executing a single
+     * instruction. Implementations are to call
+     * {@link #startEvent(int, int, int)} and {@link #setOperand(Object)} for
+     * recording the step, and dispatch on the instruction by invoking one of
+     * the protected instruction implementations declared by this class.
+     *
+     * @param stackAddr the global- or local stack address to match against or
+     * copy to
+     * @return the global- or local stack address for the next step, or a
+     * negative number if an answer was found
+     * @throws BacktrackException if backtracking failed due to there being no
+     * choice point
+     */
+    protected abstract int step(int stackAddr) throws BacktrackException;
+
+    /**
+     * Records the start of a step in the current {@link StepEvent}.
+     *
+     * @param stackAddr the global- or local stack address to match against or
+     * copy to
+     * @param codeAddr the code address to report for the current instruction
+     * @param operator the bitwise disjunction of the machine mode and opcode
+     */
+    protected final void startEvent(final int stackAddr, final int codeAddr,
+            final int operator) {
+        if (this.event != null) {
+            this.event.stackAddress = stackAddr;
+            this.event.codeAddress = codeAddr;
+            this.event.opcode = Instructions.getOpcode(operator);
+            this.event.mode = Instructions.getMode(operator);
+        }
+    }
+
+    /**
+     * Records the symbolic operand of the current instruction in the current
+     * {@link StepEvent}.
+     */
+    protected final void setOperand(final Object operand) {
+        if (this.event != null) {
+            this.event.operand = operand;
+        }
+    }
+
+    /**
+     * Records the numeric operand of the current instruction in the current
+     * {@link StepEvent}. Its conversion to a string is deferred until the
+     * operand is requested by a listener.
+     *
+     * @param operand the operand
+     * @param isAddress whether {@code operand} is a (local stack) address, as
+     * opposed to a size
+     */
+    protected final void setOperand(final int operand,
+            final boolean isAddress) {
+        if (this.event != null) {
+            this.event.numericOperand = operand;
+            this.event.isAddress = isAddress;
+            this.event.isNumeric = true;
+        }
+    }
+
+    // Returns the list for recording bindings made during the current step,
+    // or null if no events are being recorded
+    private IntList bindings() {
+        return this.event == null ? null : this.event.bindings;
+    }
+
+    // Records a binding made during the current step
+    private void record(final int address) {
+        if (this.event != null) {
+            this.event.bindings.add(address);
+        }
+    }
+
+    /**
+     * Returns whether the current step is being recorded for the registered
+     * listeners.
+     */
+    protected final boolean isRecording() {
+        return this.event != null;
+    }
+
+    /*
+     * Returns the number of instructions that failed so far. Code executing
+     * several instructions in a row compares it before and after each one
+     * that may fail, so as to learn whether the machine backtracked.
+     */
+    final int getFailures() {
+        return this.failures;
+    }
+
+    // Backtracks upon failure of the current instruction
+    private int fail() throws BacktrackException {
+        this.failures++;
+        return this.facade.backtrack(bindings());
+    }
+
+    // === Instruction implementations ===
+
+    /**
+     * Implements {@code FUNCTOR} in {@code MATCH} mode.
+     *
+     * @param stackAddr the address to match against
+     * @param index the constant pool index of the functor
+     * @return the address for the next step
+     */
+    protected final int matchFunctor(final int stackAddr, final int index)
+            throws BacktrackException {
+        final int word = this.facade.getWordAt(stackAddr);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final int address = PlWords.getValue(word);
+            this.facade.trail(address);
+            final int functor = this.facade.pushFunctor(index);
+            this.facade.setWord(address, functor);
+            record(address);
+            this.facade.pushOnScratchpad(stackAddr + 1);
+            this.facade.setMode(COPY);
+            return PlWords.getValue(functor) + 1;
+        }
+        case STR: {
+            final int globalAddr = PlWords.getValue(word);
+            if (index != PlWords.getValue(this.facade.getWordAt(globalAddr))) {
+                return fail();
+            }
+            this.facade.pushOnScratchpad(stackAddr + 1);
+            return globalAddr + 1;
+        }
+        default:
+            return fail();
+        }
+    }
+
+    /**
+     * Implements {@code LIST} and {@code TAIL} in {@code MATCH} mode.
+     *
+     * @param stackAddr the address to match against
+     * @param isTail whether the instruction is {@code TAIL}, in which case no
+     * return address is saved on the scratchpad
+     * @return the address for the next step
+     */
+    protected final int matchList(final int stackAddr, final boolean isTail)
+            throws BacktrackException {
+        final int word = this.facade.getWordAt(stackAddr);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final int address = PlWords.getValue(word);
+            this.facade.trail(address);
+            final int list = this.facade.pushList();
+            this.facade.setWord(address, list);
+            record(address);
+            if (!isTail) {
+                this.facade.pushOnScratchpad(stackAddr + 1);
+            }
+            this.facade.setMode(COPY);
+            return PlWords.getValue(list);
+        }
+        case LIS: {
+            if (!isTail) {
+                this.facade.pushOnScratchpad(stackAddr + 1);
+            }
+            return PlWords.getValue(word);
+        }
+        default:
+            return fail();
+        }
+    }
+
+    /**
+     * Implements {@code CONSTANT} in {@code MATCH} mode.
+     *
+     * @param stackAddr the address to match against
+     * @param index the constant pool index of the constant
+     * @return the address for the next step
+     */
+    protected final int matchConstant(final int stackAddr, final int index)
+            throws BacktrackException {
+        final int word = this.facade.getWordAt(stackAddr);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final int address = PlWords.getValue(word);
+            this.facade.setWord(address, getWord(CONS, index));
+            this.facade.trail(address);
+            record(address);
+            break;
+        }
+        case CONS: {
+            if (index != PlWords.getValue(word)) {
+                return fail();
+            }
+            break;
+        }
+        default:
+            return fail();
+        }
+        return stackAddr + 1;
+    }
+
+    /**
+     * Implements {@code INTEGER} in {@code MATCH} mode.
+     *
+     * @param stackAddr the address to match against
+     * @param value the integer
+     * @return the address for the next step
+     */
+    protected final int matchInteger(final int stackAddr, final int value)
+            throws BacktrackException {
+        final int word = this.facade.getWordAt(stackAddr);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final int address = PlWords.getValue(word);
+            this.facade.setWord(address, this.facade.pushInteger(value));
+            this.facade.trail(address);
+            record(address);
+            break;
+        }
+        case INT:
+            // Fall-through
+        case BIG: {
+            if (value != this.facade.getInteger(word)) {
+                return fail();
+            }
+            break;
+        }
+        default:
+            return fail();
+        }
+        return stackAddr + 1;
+    }
+
+    /**
+     * Implements {@code FIRSTVAR} and {@code VAR} in {@code MATCH} mode.
+     *
+     * @param firstOccurrence whether the instruction is {@code FIRSTVAR}
+     * @param addr the address to match against
+     * @param localAddr the local stack address of the variable
+     * @return the address for the next step
+     */
+    protected final int matchVariable(final boolean firstOccurrence,
+            final int addr, final int localAddr) throws BacktrackException {
+        if (firstOccurrence) {
+            this.facade.setWord(localAddr, this.facade.getWordAt(addr));
+            record(localAddr);
+        } else if (!this.facade.unify(localAddr, addr, bindings())) {
+            return fail();
+        }
+        return addr + 1;
+    }
+
+    /**
+     * Implements {@code CONSTANT} in {@code ARG} and {@code COPY} mode.
+     *
+     * @param addr the address to copy to
+     * @param index the constant pool index of the constant
+     * @return the address for the next step
+     */
+    protected final int copyConstant(final int addr, final int index) {
+        this.facade.setWord(addr, getWord(CONS, index));
+        record(addr);
+        return addr + 1;
+    }
+
+    /**
+     * Implements {@code INTEGER} in {@code ARG} and {@code COPY} mode.
+     *
+     * @param addr the address to copy to
+     * @param value the integer
+     * @return the address for the next step
+     */
+    protected final int copyInteger(final int addr, final int value) {
+        this.facade.setWord(addr, this.facade.pushInteger(value));
+        record(addr);
+        return addr + 1;
+    }
+
+    /**
+     * Implements {@code FIRSTVAR} and {@code VAR} in {@code ARG} mode.
+     *
+     * @param firstOccurrence whether the instruction is {@code FIRSTVAR}
+     * @param addr the address to copy to
+     * @param localAddr the local stack address of the variable
+     * @return the address for the next step
+     */
+    protected final int argVariable(final boolean firstOccurrence,
+            final int addr, final int localAddr) {
+        int word = 0;
+        if (firstOccurrence) {
+            word = getWord(REF, localAddr);
+            this.facade.setWord(localAddr, word);
+        } else {
+            word = this.facade.getWordAt(localAddr);
+        }
+        this.facade.setWord(addr, word);
+        record(addr);
+        return addr + 1;
+    }
+
+    /**
+     * Implements {@code FIRSTVAR} and {@code VAR} in {@code COPY} mode.
+     *
+     * @param firstOccurrence whether the instruction is {@code FIRSTVAR}
+     * @param globalAddr the global stack address to copy to
+     * @param localAddr the local stack address of the variable
+     * @return the address for the next step
+     */
+    protected final int copyVariable(final boolean firstOccurrence,
+            final int globalAddr, final int localAddr) {
+        if (firstOccurrence) {
+            this.facade.setWord(localAddr, this.facade.getWordAt(globalAddr));
+            record(localAddr);
+        } else {
+            record(this.facade.bind(globalAddr, localAddr));
+        }
+        return globalAddr + 1;
+    }
+
+    /**
+     * Implements {@code FUNCTOR} in {@code ARG} and {@code COPY} mode.
+     *
+     * @param stackAddr the address to copy to
+     * @param index the constant pool index of the functor
+     * @return the address for the next step
+     */
+    protected final int argFunctor(final int stackAddr, final int index) {
+        final int word = this.facade.pushFunctor(index);
+        this.facade.setWord(stackAddr, word);
+        record(stackAddr);
+        this.facade.pushOnScratchpad(stackAddr + 1);
+        this.facade.setMode(COPY);
+        return PlWords.getValue(word) + 1;
+    }
+
+    /**
+     * Implements {@code LIST} in {@code ARG} and {@code COPY} mode, and
+     * {@code TAIL} in {@code COPY} mode.
+     *
+     * @param stackAddr the address to copy to
+     * @param isTail whether the instruction is {@code TAIL}, in which case no
+     * return address is saved on the scratchpad
+     * @return the address for the next step
+     */
+    protected final int argList(final int stackAddr, final boolean isTail) {
+        final int word = this.facade.pushList();
+        this.facade.setWord(stackAddr, word);
+        record(stackAddr);
+        if (!isTail) {
+            this.facade.pushOnScratchpad(stackAddr + 1);
+        }
+        this.facade.setMode(COPY);
+        return PlWords.getValue(word);
+    }
+
+    /**
+     * Implements {@code ENTER}.
+     *
+     * @param size the frame size of the clause being entered
+     * @return the address for the next step
+     */
+    protected final int enterClause(final int size) {
+        // The old target frame becomes the new source frame
+        this.facade.pushSourceFrame(size);
+
+        // Set machine mode to ARG
+        this.facade.setMode(ARG);
+
+        // Push a new target frame for the first goal
+        return this.facade.pushTargetFrame();
+    }
+
+    /**
+     * Implements {@code CALL}.
+     *
+     * @param stackAddr the address just past the last argument in the target
+     * frame
+     * @param symbol the called predicate
+     * @param isLastCall whether the call is immediately followed by
+     * {@code EXIT}, allowing for last-call optimization
+     * @return the address for the next step
+     */
+    protected final int callPredicate(final int stackAddr,
+            final PredicateSymbol symbol, final boolean isLastCall)
+            throws BacktrackException {
+        // Reclaim global stack cells if needed, while the arguments are still
+        // the only part of the target frame in use
+        final int arity = symbol.getArity();
+        this.facade.collectGarbage(arity);
+
+        // Tabled predicates tell calls apart by their return addresses, which
+        // are to be read before last-call optimization replaces them
+        final int returnAddr = this.facade.getProgramCounter();
+
+        // Discard the source frame if possible
+        final int argAddr = isLastCall ? this.facade.lastCall(arity)
+                : stackAddr - arity;
+
+        // Select the clause alternatives matching the first argument, or
+        // another bound argument if the first is unbound, or those decided
+        // upon by the answer tables
+        final ClauseSymbol[] alternatives = symbol.isTabled()
+                ? this.tables.getAlternatives(this.facade, symbol, argAddr,
+                        returnAddr)
+                : getAlternatives(symbol, argAddr);
+
+        // Skip the alternatives whose heads clash with the arguments. None
+        // means the call fails without trying any clause.
+        final int first = HeadKeys.next(this.facade, alternatives, 0,
+                argAddr);
+        if (first == -1) {
+            return fail();
+        }
+
+        // Push a choice point only if another alternative may match
+        final int next = HeadKeys.next(this.facade, alternatives, first + 1,
+                argAddr);
+        if (next != -1) {
+            this.facade.pushChoicePoint(alternatives, next);
+        }
+
+        // Set the machine mode and jump to the first matching clause
+        // alternative for the called predicate
+        this.facade.setMode(MATCH);
+        return this.facade.jump(alternatives[first].getHeapptr());
+    }
+
+    // Returns the alternatives for a call to a predicate that is not tabled
+    private ClauseSymbol[] getAlternatives(final PredicateSymbol symbol,
+            final int argAddr) {
+        if (symbol.getArity() == 0) {
+            return symbol.getAlternatives(null);
+        }
+        final FunctorSymbol key = Facts.getIndexKey(this.facade, argAddr);
+        return key == null ? this.indexes.getAlternatives(this.facade, symbol,
+                argAddr) : symbol.getAlternatives(key);
+    }
+
+    /**
+     * Implements {@code BUILTIN}. The predicate's implementation is executed
+     * on the spot, after which the machine proceeds as though a unit clause
+     * was exited.
+     *
+     * @param stackAddr the address just past the last argument in the target
+     * frame
+     * @param symbol the called predicate
+     * @return the address for the next step
+     */
+    protected final int callBuiltin(final int stackAddr,
+            final PredicateSymbol symbol) throws BacktrackException {
+        final int arity = symbol.getArity();
+        this.facade.collectGarbage(arity);
+        if (!this.builtins[symbol.getBuiltinIndex()].call(this.facade,
+                stackAddr - arity)) {
+            return fail();
+        }
+        this.facade.jump(this.facade.getProgramCounter());
+        return exitUnitClause(arity);
+    }
+
+    /**
+     * Implements {@code EXIT}.
+     *
+     * @return the address for the next step, or a negative number if an
+     * answer was found
+     */
+    protected final int exitClause() {
+        // If popSourceFrame returns true, we have an answer
+        if (this.facade.popSourceFrame()) {
+            return -1;
+        }
+        // If we're not done yet, push a new target frame
+        return this.facade.pushTargetFrame();
+    }
+
+    /**
+     * Implements {@code RETURN}.
+     *
+     * @param size the frame size of the unit clause being exited
+     * @return the address for the next step
+     */
+    protected final int exitUnitClause(final int size) {
+        this.facade.setMode(ARG);
+        this.facade.popTargetFrame(size);
+        return this.facade.pushTargetFrame();
+    }
+
+    // == Answers ===
+
+    // Returns whether to backtrack and look for more answers
+    private boolean writeAnswer(final BufferedReader in, final Writer out)
+            throws IOException {
+        // No query variables means nothing to print and no backtracking to do
+        if (!writeBindings(out)) {
+            return false;
+        }
+        out.write(' ');
+        out.flush();
+        return NEXT_ANSWER.equals(in.readLine());
+    }
+
+    // Writes the bindings of the query variables, separated by spaces, while
+    // returning false if there are none
+    private boolean writeBindings(final Writer out) throws IOException {
+        final Map<String,Term> answer = getAnswer();
+        boolean first = true;
+        for (final Map.Entry<String,Term> binding : answer.entrySet()) {
+            if (!first) {
+                out.write(' ');
+            }
+            out.append(binding.getKey()).write(" = ");
+            out.write(binding.getValue().toString());
+            first = false;
+        }
+        return !first;
+    }
+
+    // Returns the terms bound to the query variables, keyed by their names
+    private Map<String,Term> getAnswer() {
+        // Unbound variables not occurring in the query are named on the fly,
+        // which is why a copy is made of queryVars. This guarantees that
+        // multiple invocations of this method for alternative answers to the
+        // same query are mutually independent.
+        final Map<Integer,String> qVars = new HashMap<>(this.queryVars);
+        final Map<String,Term> result = new LinkedHashMap<>();
+        for (final Map.Entry<Integer,String> var : this.queryVars.entrySet()) {
+            result.put(var.getValue(), getTerm(qVars, var.getKey().intValue()));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private String getVarName(final Map<Integer,String> qVars, final int var) {
+        final Integer address = Integer.valueOf(var);
+        String result = qVars.get(address);
+        if (result == null) {
+            result = "?" + qVars.keySet().size();
+            qVars.put(address, result);
+        }
+        return result;
+    }
+
+    private Term getTerm(final Map<Integer,String> qVars, final int addr) {
+        final int word = this.facade.getWordAt(addr);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            return Terms.getVariable(getVarName(qVars, PlWords.getValue(word)));
+        }
+        case STR: {
+            final int globalAddr = PlWords.getValue(word);
+            final int index = PlWords.getValue(this.facade.getWordAt(
+                    globalAddr));
+            final FunctorSymbol symbol = this.facade.getConstant(index,
+                    FunctorSymbol.class);
+            assert symbol.getArity() > 0;
+            final Term[] args = new Term[symbol.getArity()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = getTerm(qVars, globalAddr + i + 1);
+            }
+            return Terms.getCompound(symbol.getName(), args);
+        }
+        case CONS: {
+            final int index = PlWords.getValue(word);
+            final FunctorSymbol symbol = this.facade.getConstant(index,
+                    FunctorSymbol.class);
+            assert symbol.getArity() == 0;
+            return Terms.getAtom(symbol.getName());
+        }
+        case LIS: {
+            return getList(qVars, PlWords.getValue(word));
+        }
+        case INT:
+            // Fall-through
+        case BIG:
+            return Terms.getInteger(this.facade.getInteger(word));
+        default:
+            throw new IllegalArgumentException(PlWords.toString(word));
+        }
+    }
+
+    // Returns the list starting with the cell at the specified address,
+    // walking its spine iteratively
+    private Term getList(final Map<Integer,String> qVars, final int addr) {
+        final List<Term> heads = new ArrayList<>();
+        int cell = addr;
+        while (true) {
+            heads.add(getTerm(qVars, cell));
+            final int tail = this.facade.getWordAt(cell + 1);
+            if (PlWords.getTag(tail) != LIS) {
+                break;
+            }
+            cell = PlWords.getValue(tail);
+        }
+        Term result = getTerm(qVars, cell + 1);
+        for (int i = heads.size() - 1; i >= 0; i--) {
+            result = Terms.getList(heads.get(i), result);
+        }
+        return result;
+    }
+
+    // === Nested classes ===
+
+    /*
+     * Handle for the query being solved. At most one handle per interpreter
+     * is open at any time, being the one referenced by the current field.
+     */
+    private final class Answers implements AnswerIterator {
+
+        private boolean started; // Whether an answer was looked for yet
+        private boolean ready; // Whether an answer awaits being taken
+
+        private Answers(final int queryAddr) {
+            final Answers previous = AbstractZipInterpreter.this.current;
+            if (previous != null) {
+                previous.close();
+            }
+            AbstractZipInterpreter.this.current = this;
+            AbstractZipInterpreter.this.facade.reset(queryAddr);
+            AbstractZipInterpreter.this.tables.reset();
+        }
+
+        private boolean isOpen() {
+            return AbstractZipInterpreter.this.current == this;
+        }
+
+        // Looks for the next answer, returning whether one was found
+        private boolean advance() throws Exception {
+            if (!isOpen()) {
+                return false;
+            }
+            try {
+                // Backtrack into the search if an answer was found before
+                final int stackAddr = this.started
+                        ? AbstractZipInterpreter.this.facade.backtrack(null)
+                        : QUERY_FRAME_INDEX;
+                this.started = true;
+                run(stackAddr);
+                return true;
+            } catch (final BacktrackException e) {
+                close();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!this.ready) {
+                try {
+                    this.ready = advance();
+                } catch (final RuntimeException e) {
+                    close();
+                    throw e;
+                } catch (final Exception e) {
+                    close();
+                    throw new IllegalStateException(e);
+                }
+            }
+            return this.ready;
+        }
+
+        @Override
+        public Map<String,Term> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.ready = false;
+            return getAnswer();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            this.ready = false;
+            if (isOpen()) {
+                AbstractZipInterpreter.this.current = null;
+            }
+        }
+    }
+
+    private static class StepEventImpl implements StepEvent {
+
+        private int stackAddress;
+        private int codeAddress;
+        private int opcode;
+        private Object operand;
+        private int numericOperand;
+        private boolean isNumeric;
+        private boolean isAddress;
+        private int mode;
+        private final IntList bindings = new IntList();
+
+        @Override
+        public int getStackAddress() {
+            return this.stackAddress;
+        }
+
+        @Override
+        public int getCodeAddress() {
+            return this.codeAddress;
+        }
+
+        @Override
+        public int getOpcode() {
+            return this.opcode;
+        }
+
+        @Override
+        public Object getOperand() {
+            if (this.isNumeric && this.operand == null) {
+                this.operand = this.isAddress ? Integer
+                        .toHexString(this.numericOperand) : Integer
+                        .toString(this.numericOperand);
+            }
+            return this.operand;
+        }
+
+        @Override
+        public int getMode() {
+            return this.mode;
+        }
+
+        @Override
+        public Iterable<Integer> getBindings() {
+            return this.bindings;
+        }
+    }
+
+}
@@ -0,0 +1,435 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.Instructions.CALL;
+import static com.prolog.jvm.zip.util.Instructions.ENTER;
+import static com.prolog.jvm.zip.util.Instructions.EXIT;
+import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
+import static com.prolog.jvm.zip.util.Instructions.VAR;
+import static com.prolog.jvm.zip.util.PlWords.BIG;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.prolog.jvm.symbol.ClauseIndex;
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.PrologBytecode;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.IntList;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * The answer tables for the predicates marked as
+ * {@link PredicateSymbol#isTabled() tabled}, evaluated through linear tabling
+ * (see [1]). Calls to a tabled predicate are grouped by their variants, i.e.,
+ * up to the renaming of variables, with each variant having a table of its
+ * own. The first call of a variant (its pioneer) computes all of its answers
+ * before returning any of them, by repeatedly resolving against the
+ * predicate's clauses until no new answers are found. Meanwhile, variant calls
+ * made during this evaluation (its followers) only consume the answers found
+ * so far, rather than recursing. Left-recursive predicates therefore terminate
+ * for as long as they have finitely many answers, while later calls of the
+ * same variant reuse its table.
+ * <p>
+ * A table is complete once its evaluation has reached a fixpoint without
+ * having consumed answers from an older table still being evaluated. If it
+ * did, it is instead evaluated anew during each iteration of the oldest such
+ * table (its leader), being completed together with the latter. This
+ * approximates the strongly connected components of SLG resolution (see
+ * [2]) without suspending and resuming calls, which the ZIP cannot do.
+ * <p>
+ * Each tabled predicate is evaluated by two driver clauses written to code
+ * memory upon its first call, being equivalent to
+ * <pre>
+ * p(X1, ..., Xn) :- p(X1, ..., Xn), p(X1, ..., Xn).
+ * p(X1, ..., Xn) :- p(X1, ..., Xn).
+ * </pre>
+ * Their calls are told apart by their return addresses. The first resolves
+ * against the predicate's own clauses, the second adds the answer thus found
+ * to the table being evaluated before failing, and the third either starts
+ * another iteration or completes the table. Answers are stored as compiled
+ * facts in a {@link ClauseIndex}, so that consuming them amounts to ordinary
+ * resolution, and followers see an immutable snapshot. All such code is
+ * {@link PrologBytecode#retain(int, boolean) retained}.
+ * <p>
+ * Tables are not updated when clauses are added to or removed from the
+ * predicates they depend on, and should be abolished through
+ * {@code abolish_all_tables/0} if this matters.
+ * <p>
+ * [1] Zhou, Neng-Fa, et al. "Linear tabling strategies and optimizations."
+ * Theory and Practice of Logic Programming 8.1 (2008): 81-109.
+ * <p>
+ * [2] Chen, Weidong, and David S. Warren. "Tabled evaluation with delaying
+ * for general logic programs." Journal of the ACM 43.1 (1996): 20-74.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class AnswerTables {
+
+    private static final String ABOLISH = "abolish_all_tables";
+
+    private static final ClauseSymbol[] FAIL = new ClauseSymbol[0];
+
+    private final PrologBytecode<?> code;
+
+    // Driver clauses and tables for each tabled predicate called so far
+    private final Map<PredicateSymbol,Driver> drivers = new HashMap<>();
+
+    // Tables being evaluated, the most recent last
+    private final Deque<Table> pioneers = new ArrayDeque<>();
+
+    // Tables evaluated while depending on an older one still being evaluated
+    private final List<Table> incomplete = new ArrayList<>();
+
+    private int clock;   // number of evaluations started so far
+    private int answers; // number of answers added so far
+
+    /**
+     * @param code the bytecode to which driver clauses and answers are to be
+     * written; not allowed to be null
+     * @throws NullPointerException if {@code code == null}
+     */
+    public AnswerTables(final PrologBytecode<?> code) {
+        this.code = requireNonNull(code);
+    }
+
+    /**
+     * Defines {@code abolish_all_tables/0} in the specified registry.
+     *
+     * @param builtins the registry to define the built-in predicate in; not
+     * allowed to be null
+     * @throws NullPointerException if {@code builtins == null}
+     */
+    public void defineBuiltins(final BuiltinRegistry builtins) {
+        builtins.define(ABOLISH, 0, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                if (!AnswerTables.this.pioneers.isEmpty()) {
+                    throw new IllegalArgumentException(ABOLISH
+                            + "/0: tables are being evaluated");
+                }
+                for (final Driver driver : AnswerTables.this.drivers
+                        .values()) {
+                    driver.tables.clear();
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Discards all tables and driver clauses, as needed when the program is
+     * replaced or extended.
+     */
+    public void clear() {
+        this.drivers.clear();
+        this.pioneers.clear();
+        this.incomplete.clear();
+    }
+
+    /**
+     * Prepares for solving a new query, discarding the state of evaluations
+     * left unfinished by the previous one (e.g., due to an exception). The
+     * answers they found are kept, while their tables are evaluated anew
+     * upon their next call.
+     */
+    public void reset() {
+        for (final Table table : this.pioneers) {
+            table.state = State.INCOMPLETE;
+        }
+        this.pioneers.clear();
+        this.incomplete.clear();
+    }
+
+    /**
+     * Returns the clause alternatives to try for a call to the specified
+     * tabled predicate, being either its driver clauses, its own clauses,
+     * the answers from a table or none at all.
+     *
+     * @param facade the facade for the ZIP's internals
+     * @param symbol the called predicate
+     * @param argAddr the local stack address of the call's first argument
+     * @param returnAddr the code address just past the call
+     */
+    public ClauseSymbol[] getAlternatives(final ZipFacade facade,
+            final PredicateSymbol symbol, final int argAddr,
+            final int returnAddr) {
+        Driver driver = this.drivers.get(symbol);
+        if (driver == null) {
+            driver = new Driver(symbol);
+            this.drivers.put(symbol, driver);
+        }
+        if (returnAddr == driver.evaluate) {
+            return symbol.getAlternatives(getIndexKey(facade, argAddr,
+                    symbol.getArity()));
+        }
+        if (returnAddr == driver.add) {
+            addAnswer(facade, argAddr, symbol.getArity());
+            return FAIL;
+        }
+        if (returnAddr == driver.iterate) {
+            return iterate(facade, driver, argAddr, symbol.getArity());
+        }
+        return call(facade, driver, argAddr, symbol.getArity());
+    }
+
+    // Returns the alternatives for a call from outside the driver clauses
+    private ClauseSymbol[] call(final ZipFacade facade, final Driver driver,
+            final int argAddr, final int arity) {
+        final Variant variant = new Variant(facade, argAddr, arity);
+        Table table = driver.tables.get(variant);
+        if (table == null) {
+            table = new Table();
+            driver.tables.put(variant, table);
+        }
+        switch (table.state) {
+        case COMPLETE:
+            return table.getAnswers(facade, argAddr, arity);
+        case EVALUATING: {
+            // A follower, making the current evaluation depend on the table
+            final Table current = this.pioneers.getLast();
+            current.link = Math.min(current.link, table.dfn);
+            return table.getAnswers(facade, argAddr, arity);
+        }
+        default:
+            // A pioneer
+            table.state = State.EVALUATING;
+            table.dfn = ++this.clock;
+            table.link = table.dfn;
+            table.iteration = this.answers;
+            this.pioneers.addLast(table);
+            return driver.clauses;
+        }
+    }
+
+    // Adds an answer to the table being evaluated, unless it is a variant of
+    // one found before
+    private void addAnswer(final ZipFacade facade, final int argAddr,
+            final int arity) {
+        final Table table = this.pioneers.getLast();
+        if (table.variants.add(new Variant(facade, argAddr, arity))) {
+            final ClauseSymbol answer = Facts.compile(this.code, facade,
+                    argAddr, arity);
+            table.answers.add(answer, getIndexKey(facade, argAddr, arity));
+            this.answers++;
+        }
+    }
+
+    // Either starts a new iteration for the table being evaluated, or ends its
+    // evaluation and returns its answers
+    private ClauseSymbol[] iterate(final ZipFacade facade,
+            final Driver driver, final int argAddr, final int arity) {
+        final Table table = this.pioneers.getLast();
+        if (table.iteration != this.answers) {
+            // New answers were found, from which others may yet follow
+            table.iteration = this.answers;
+            return driver.clauses;
+        }
+        this.pioneers.removeLast();
+        if (table.link < table.dfn) {
+            // Answers may still be missing until the leader is complete
+            table.state = State.INCOMPLETE;
+            this.incomplete.add(table);
+            final Table current = this.pioneers.getLast();
+            current.link = Math.min(current.link, table.link);
+        } else {
+            // A leader, completing the tables that depend on it
+            table.state = State.COMPLETE;
+            final Iterator<Table> it = this.incomplete.iterator();
+            while (it.hasNext()) {
+                final Table dependent = it.next();
+                if (dependent.dfn > table.dfn) {
+                    if (dependent.state == State.INCOMPLETE) {
+                        dependent.state = State.COMPLETE;
+                    }
+                    it.remove();
+                }
+            }
+        }
+        return table.getAnswers(facade, argAddr, arity);
+    }
+
+    private static FunctorSymbol getIndexKey(final ZipFacade facade,
+            final int argAddr, final int arity) {
+        return arity == 0 ? null : Facts.getIndexKey(facade, argAddr);
+    }
+
+    // === Nested classes ===
+
+    private enum State {
+        INCOMPLETE, EVALUATING, COMPLETE;
+    }
+
+    /*
+     * The driver clauses of a tabled predicate, together with the return
+     * addresses of their calls and the tables for its variant calls.
+     */
+    private final class Driver {
+
+        private final ClauseSymbol[] clauses = new ClauseSymbol[2];
+        private final int evaluate;
+        private final int add;
+        private final int iterate;
+        private final Map<Variant,Table> tables = new HashMap<>();
+
+        private Driver(final PredicateSymbol symbol) {
+            final PrologBytecode<?> c = AnswerTables.this.code;
+            final int arity = symbol.getArity();
+            final int index = c.getConstantPoolIndex(symbol);
+            final int address = c.getCodeSize();
+            this.clauses[0] = writeHead(arity);
+            this.evaluate = writeCall(index, arity);
+            this.add = writeCall(index, arity);
+            c.writeIns(EXIT);
+            this.clauses[1] = writeHead(arity);
+            this.iterate = writeCall(index, arity);
+            c.writeIns(EXIT);
+            c.retain(address, false);
+        }
+
+        // Writes the head of a driver clause, copying the arguments into
+        // local variables, and returns its symbol
+        private ClauseSymbol writeHead(final int arity) {
+            final PrologBytecode<?> c = AnswerTables.this.code;
+            final ClauseSymbol clause = new ClauseSymbol();
+            clause.setParams(arity);
+            clause.setLocals(arity);
+            clause.setHeapptr(c.getCodeSize());
+            for (int i = 0; i < arity; i++) {
+                c.writeIns(FIRSTVAR, arity + i);
+            }
+            c.writeIns(ENTER, 2 * arity);
+            return clause;
+        }
+
+        // Writes a call with the local variables as its arguments, and
+        // returns its return address
+        private int writeCall(final int index, final int arity) {
+            final PrologBytecode<?> c = AnswerTables.this.code;
+            for (int i = 0; i < arity; i++) {
+                c.writeIns(VAR, arity + i);
+            }
+            c.writeIns(CALL, index);
+            return c.getCodeSize();
+        }
+    }
+
+    // The table for a variant call
+    private static final class Table {
+
+        private State state = State.INCOMPLETE;
+        private int dfn;       // order in which its evaluation started
+        private int link;      // smallest dfn of the tables it depends on
+        private int iteration; // number of answers at the iteration's start
+        private final ClauseIndex answers = new ClauseIndex();
+        private final Set<Variant> variants = new HashSet<>();
+
+        private ClauseSymbol[] getAnswers(final ZipFacade facade,
+                final int argAddr, final int arity) {
+            return this.answers.lookup(getIndexKey(facade, argAddr, arity));
+        }
+    }
+
+    /*
+     * A sequence of terms up to the renaming of variables, encoded as the
+     * words found by traversing them in pre-order, with variables numbered in
+     * order of their first occurrence and boxed integers replaced by their
+     * values.
+     */
+    private static final class Variant {
+
+        private final int[] words;
+        private final int hash;
+
+        private Variant(final ZipFacade facade, final int args,
+                final int arity) {
+            final IntList out = new IntList();
+            final Map<Integer,Integer> vars = new HashMap<>();
+            for (int i = 0; i < arity; i++) {
+                encode(facade, args + i, out, vars);
+            }
+            this.words = new int[out.size()];
+            for (int i = 0; i < this.words.length; i++) {
+                this.words[i] = out.get(i);
+            }
+            this.hash = Arrays.hashCode(this.words);
+        }
+
+        private static void encode(final ZipFacade facade, final int addr,
+                final IntList out, final Map<Integer,Integer> vars) {
+            int cell = addr;
+            while (true) {
+                final int word = facade.getWordAt(cell);
+                final int value = PlWords.getValue(word);
+                switch (PlWords.getTag(word)) {
+                case REF: {
+                    Integer n = vars.get(Integer.valueOf(value));
+                    if (n == null) {
+                        n = Integer.valueOf(vars.size());
+                        vars.put(Integer.valueOf(value), n);
+                    }
+                    out.add(getWord(REF, n.intValue()));
+                    return;
+                }
+                case CONS:
+                    // Fall-through
+                case INT:
+                    out.add(word);
+                    return;
+                case BIG:
+                    out.add(getWord(BIG, 0));
+                    out.add(facade.getInteger(word));
+                    return;
+                case STR: {
+                    final int functor = facade.getWordAt(value);
+                    out.add(functor);
+                    final int arity = facade.getConstant(PlWords.getValue(
+                            functor), FunctorSymbol.class).getArity();
+                    for (int i = 1; i < arity; i++) {
+                        encode(facade, value + i, out, vars);
+                    }
+                    cell = value + arity; // Last argument
+                    break;
+                }
+                case LIS:
+                    // Walk the spine iteratively
+                    out.add(getWord(LIS, 0));
+                    encode(facade, value, out, vars);
+                    cell = value + 1;
+                    break;
+                default:
+                    throw new AssertionError();
+                }
+            }
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Variant
+                    && Arrays.equals(this.words, ((Variant) obj).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package com.prolog.jvm.zip;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.prolog.jvm.symbol.ClauseIndex;
+import com.prolog.jvm.symbol.ClauseList;
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.zip.api.IndexStats;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.IntMap;
+
+/**
+ * Indexes on the arguments of predicates other than the first, built upon
+ * demand. Whereas the {@link ClauseIndex} only looks at a call's first
+ * argument, a call leaving the latter unbound while binding another one, such
+ * as {@code father(X, harmonia)}, otherwise has to consider all of the
+ * predicate's clauses, each being compared with the call's arguments through
+ * its {@link ClauseSymbol#getHeadKeys() head keys}.
+ * <p>
+ * Upon such a call, an index is built for every bound argument, hashing the
+ * {@link HeadKeys} of the clauses' head arguments at its position. Each key
+ * maps to the clauses whose head argument has that key or is a variable, in
+ * program order, while calls with any other key only consider the latter. Of
+ * the bound arguments, the one selecting the fewest clauses decides the
+ * alternatives for the call. Keys are looked up without boxing them, and
+ * indexes are only built for predicates with enough clauses for hashing to
+ * outperform the comparison of head keys.
+ * <p>
+ * Indexes are kept until the program is replaced or consulted, clauses added
+ * or removed at runtime being {@link #add(PredicateSymbol, ClauseSymbol,
+ * boolean) added} to and {@link #remove(PredicateSymbol, ClauseSymbol)
+ * removed} from them in place. As with the {@link ClauseIndex}, each key's
+ * clauses are held by a {@link ClauseList}, whose snapshots remain unaffected
+ * by later changes.
+ * <p>
+ * The total number of clause references held by indexes is subject to a limit,
+ * beyond which no more indexes are built. A position whose index would exceed
+ * it is not indexed until the indexes are cleared, while one that has no
+ * clause heads with keys at all is not indexed until a clause with a key is
+ * added.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ArgumentIndexes {
+
+    // Number of clauses below which no indexes are built
+    private static final int MIN_CLAUSES = 8;
+
+    // Markers for positions that are not indexed, either for holding no keys
+    // or for exceeding the limit
+    private static final Position NO_KEYS = new Position();
+    private static final Position REJECTED = new Position();
+
+    // Maximum number of clause references held by all indexes
+    private final int limit;
+
+    // Indexes for each predicate called with an unbound first argument
+    private final Map<PredicateSymbol,Indexes> indexes = new HashMap<>();
+
+    private final IndexStatsImpl stats = new IndexStatsImpl();
+
+    /**
+     *
+     * @param limit the maximum number of clause references held by all
+     * indexes, with {@code 0} disabling them altogether; must be {@code >= 0}
+     * @throws IllegalArgumentException if {@code limit < 0}
+     */
+    public ArgumentIndexes(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException();
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Discards all indexes, as needed when the program is replaced or when
+     * clauses are consulted.
+     */
+    public void clear() {
+        this.indexes.clear();
+        this.stats.size = 0;
+    }
+
+    /**
+     * Returns the statistics gathered on the indexes.
+     */
+    public IndexStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * Adds the specified clause to the indexes for its predicate, as done for
+     * {@code assertz/1} and {@code asserta/1} after adding it to the latter's
+     * {@link ClauseIndex}.
+     *
+     * @param symbol the predicate of {@code clause}
+     * @param clause the added clause
+     * @param first whether {@code clause} was added as the first alternative,
+     * rather than as the last
+     */
+    void add(final PredicateSymbol symbol, final ClauseSymbol clause,
+            final boolean first) {
+        final Indexes entry = this.indexes.get(symbol);
+        if (entry == null) {
+            return;
+        }
+        for (int i = 0; i < entry.positions.length; i++) {
+            final Position position = entry.positions[i];
+            if (position == NO_KEYS) {
+                if (getKey(clause, i) != 0) {
+                    // Worth building upon the next call
+                    entry.positions[i] = null;
+                }
+            } else if (position != null && position != REJECTED) {
+                resize(entry, i, position.add(clause, getKey(clause, i),
+                        first));
+            }
+        }
+    }
+
+    /**
+     * Removes the specified clause from the indexes for its predicate, as done
+     * for {@code retract/1} after {@link ClauseSymbol#isErased() erasing} it
+     * from the latter's {@link ClauseIndex}.
+     *
+     * @param symbol the predicate of {@code clause}
+     * @param clause the removed clause
+     */
+    void remove(final PredicateSymbol symbol, final ClauseSymbol clause) {
+        assert clause.isErased();
+        final Indexes entry = this.indexes.get(symbol);
+        if (entry == null) {
+            return;
+        }
+        for (int i = 0; i < entry.positions.length; i++) {
+            final Position position = entry.positions[i];
+            if (position != null && position != NO_KEYS
+                    && position != REJECTED) {
+                resize(entry, i, -position.remove(getKey(clause, i)));
+            }
+        }
+    }
+
+    // Accounts for the clause references added to (or, if negative, removed
+    // from) the index at the specified position, discarding it if the limit
+    // is exceeded
+    private void resize(final Indexes entry, final int i, final int delta) {
+        entry.positions[i].size += delta;
+        entry.size += delta;
+        this.stats.size += delta;
+        if (this.stats.size > this.limit) {
+            final int size = entry.positions[i].size;
+            entry.size -= size;
+            this.stats.size -= size;
+            entry.positions[i] = REJECTED;
+            this.stats.rejections++;
+        }
+    }
+
+    /**
+     * Returns the clause alternatives that may match a call to the specified
+     * predicate whose first argument is either unbound or an integer, as
+     * selected by the indexes on its bound arguments. The returned array is
+     * shared and must not be modified.
+     *
+     * @param facade the facade through which the arguments are read
+     * @param symbol the called predicate, having at least one parameter
+     * @param args the address of the first argument of the call
+     */
+    ClauseSymbol[] getAlternatives(final ZipFacade facade,
+            final PredicateSymbol symbol, final int args) {
+        final ClauseSymbol[] clauses = symbol.getAlternatives(null);
+        if (clauses.length < MIN_CLAUSES || this.limit == 0) {
+            return clauses;
+        }
+        Indexes entry = this.indexes.get(symbol);
+        if (entry == null) {
+            entry = new Indexes(symbol.getArity());
+            this.indexes.put(symbol, entry);
+        }
+        ClauseSymbol[] result = clauses;
+        for (int i = 0; i < entry.positions.length; i++) {
+            final int key = HeadKeys.getKey(facade, args + i);
+            if (key != 0) {
+                final Position position = getPosition(entry, clauses, i);
+                if (position != NO_KEYS && position != REJECTED) {
+                    final ClauseSymbol[] selected = position.lookup(key);
+                    if (selected.length < result.length) {
+                        result = selected;
+                    }
+                }
+            }
+        }
+        if (result != clauses) {
+            this.stats.hits++;
+        }
+        return result;
+    }
+
+    // Returns the index at the specified position, building it from the
+    // predicate's clauses if needed
+    private Position getPosition(final Indexes entry,
+            final ClauseSymbol[] clauses, final int i) {
+        Position position = entry.positions[i];
+        if (position == null) {
+            position = build(clauses, i);
+            entry.positions[i] = position;
+            entry.size += position.size;
+            this.stats.size += position.size;
+        }
+        return position;
+    }
+
+    // Builds the index for the specified position, unless it holds no keys or
+    // would exceed the limit
+    private Position build(final ClauseSymbol[] clauses, final int i) {
+        // Collect the keys, so as to learn the index's size upfront
+        final IntMap<Boolean> keys = new IntMap<>();
+        int vars = 0;
+        for (final ClauseSymbol clause : clauses) {
+            final int key = getKey(clause, i);
+            if (key == 0) {
+                vars++;
+            } else {
+                keys.put(key, Boolean.TRUE);
+            }
+        }
+        if (keys.isEmpty()) {
+            return NO_KEYS;
+        }
+        final long size = (long) clauses.length - vars + (long) vars
+                * (keys.size() + 1);
+        if (size > this.limit - this.stats.size) {
+            this.stats.rejections++;
+            return REJECTED;
+        }
+
+        // Distribute the clauses over the keys in program order
+        final Position position = new Position();
+        for (final ClauseSymbol clause : clauses) {
+            position.size += position.add(clause, getKey(clause, i), false);
+        }
+        assert position.size == size;
+        this.stats.builds++;
+        return position;
+    }
+
+    private static int getKey(final ClauseSymbol clause, final int i) {
+        final int[] keys = clause.getHeadKeys();
+        return keys == null ? 0 : keys[i];
+    }
+
+    // The indexes for a single predicate
+    private static final class Indexes {
+
+        private final Position[] positions;
+        private int size;
+
+        private Indexes(final int arity) {
+            this.positions = new Position[arity];
+        }
+    }
+
+    // The index for a single argument position
+    private static final class Position {
+
+        private final IntMap<ClauseList> buckets = new IntMap<>();
+        private final ClauseList varClauses = new ClauseList();
+        private int size;
+
+        private ClauseSymbol[] lookup(final int key) {
+            final ClauseList bucket = this.buckets.get(key);
+            return (bucket == null ? this.varClauses : bucket).toArray();
+        }
+
+        // Adds a clause with the specified key, returning the number of
+        // clause references added
+        private int add(final ClauseSymbol clause, final int key,
+                final boolean first) {
+            if (key == 0) {
+                this.varClauses.add(clause, first);
+                for (final ClauseList bucket : this.buckets.values()) {
+                    bucket.add(clause, first);
+                }
+                return this.buckets.size() + 1;
+            }
+            ClauseList bucket = this.buckets.get(key);
+            int added = 1;
+            if (bucket == null) {
+                bucket = new ClauseList();
+                for (final ClauseSymbol c : this.varClauses.toArray()) {
+                    bucket.add(c, false);
+                }
+                added += this.varClauses.size();
+                this.buckets.put(key, bucket);
+            }
+            bucket.add(clause, first);
+            return added;
+        }
+
+        // Registers the erasure of a clause with the specified key, returning
+        // the number of clause references removed
+        private int remove(final int key) {
+            if (key == 0) {
+                this.varClauses.erase();
+                for (final ClauseList bucket : this.buckets.values()) {
+                    bucket.erase();
+                }
+                return this.buckets.size() + 1;
+            }
+            this.buckets.get(key).erase();
+            return 1;
+        }
+    }
+
+    // Statistics gathered on the indexes
+    private static final class IndexStatsImpl implements IndexStats {
+
+        private long hits;
+        private int builds;
+        private int rejections;
+        private int size;
+
+        @Override
+        public long getHits() {
+            return this.hits;
+        }
+
+        @Override
+        public int getBuilds() {
+            return this.builds;
+        }
+
+        @Override
+        public int getRejections() {
+            return this.rejections;
+        }
+
+        @Override
+        public int getSize() {
+            return this.size;
+        }
+    }
+}
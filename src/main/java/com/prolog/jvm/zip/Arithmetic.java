@@ -0,0 +1,239 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.PlWords.BIG;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * The built-in predicates {@code is/2} for evaluating arithmetic expressions,
+ * and {@code =:=/2}, {@code =\=/2}, {@code </2}, {@code >/2}, {@code =</2} and
+ * {@code >=/2} for comparing their values.
+ * <p>
+ * Expressions are built from integers using the binary functions {@code +},
+ * {@code -}, {@code *}, {@code //} (truncating), {@code mod} (taking the sign
+ * of the divisor), {@code rem} (taking the sign of the dividend), {@code min}
+ * and {@code max}, and the unary functions {@code -}, {@code +}, {@code abs}
+ * and {@code sign}. They are evaluated directly on the words found on the
+ * global- and local stacks, without building any intermediate terms. Integers
+ * are limited to 32 bits, with results that overflow being reported as errors
+ * rather than wrapping around.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class Arithmetic {
+
+    private static final String IS = "is";
+
+    // Private constructor to prevent instantiation
+    private Arithmetic() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Defines {@code is/2} and the arithmetic comparisons in the specified
+     * registry.
+     *
+     * @param builtins the registry to define the built-in predicates in; not
+     * allowed to be null
+     * @throws NullPointerException if {@code builtins == null}
+     */
+    public static void defineBuiltins(final BuiltinRegistry builtins) {
+        builtins.define(IS, 2, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return unify(facade, argAddress, eval(facade, argAddress + 1,
+                        IS));
+            }
+        });
+        for (final Comparison comparison : Comparison.values()) {
+            builtins.define(comparison.name, 2, comparison);
+        }
+    }
+
+    // Unifies the term at the specified address with an integer
+    private static boolean unify(final ZipFacade facade, final int address,
+            final int value) {
+        final int word = facade.getWordAt(address);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final int var = PlWords.getValue(word);
+            facade.setWord(var, facade.pushInteger(value));
+            facade.trail(var);
+            return true;
+        }
+        case INT:
+            // Fall-through
+        case BIG:
+            return facade.getInteger(word) == value;
+        default:
+            return false;
+        }
+    }
+
+    // === Evaluation ===
+
+    // Evaluates the expression at the specified address
+    private static int eval(final ZipFacade facade, final int address,
+            final String caller) {
+        final int word = facade.getWordAt(address);
+        switch (PlWords.getTag(word)) {
+        case INT:
+            // Fall-through
+        case BIG:
+            return facade.getInteger(word);
+        case REF:
+            throw new IllegalArgumentException(caller
+                    + "/2: arguments are not sufficiently instantiated");
+        case CONS:
+            throw notAFunction(caller, facade.getConstant(PlWords.getValue(
+                    word), FunctorSymbol.class));
+        case STR: {
+            final int addr = PlWords.getValue(word);
+            final FunctorSymbol functor = facade.getConstant(PlWords.getValue(
+                    facade.getWordAt(addr)), FunctorSymbol.class);
+            switch (functor.getArity()) {
+            case 1:
+                return eval(functor, eval(facade, addr + 1, caller), caller);
+            case 2:
+                return eval(functor, eval(facade, addr + 1, caller),
+                        eval(facade, addr + 2, caller), caller);
+            default:
+                throw notAFunction(caller, functor);
+            }
+        }
+        default:
+            throw notAFunction(caller, FunctorSymbol.LIST);
+        }
+    }
+
+    // Applies a unary function
+    private static int eval(final FunctorSymbol functor, final int x,
+            final String caller) {
+        switch (functor.getName()) {
+        case "-":
+            return checkRange(-(long) x, caller);
+        case "+":
+            return x;
+        case "abs":
+            return checkRange(Math.abs((long) x), caller);
+        case "sign":
+            return Integer.signum(x);
+        default:
+            throw notAFunction(caller, functor);
+        }
+    }
+
+    // Applies a binary function
+    private static int eval(final FunctorSymbol functor, final int x,
+            final int y, final String caller) {
+        switch (functor.getName()) {
+        case "+":
+            return checkRange((long) x + y, caller);
+        case "-":
+            return checkRange((long) x - y, caller);
+        case "*":
+            return checkRange((long) x * y, caller);
+        case "//":
+            checkDivisor(y, caller);
+            return checkRange((long) x / y, caller);
+        case "mod": {
+            checkDivisor(y, caller);
+            final int r = x % y;
+            return r != 0 && (r ^ y) < 0 ? r + y : r;
+        }
+        case "rem":
+            checkDivisor(y, caller);
+            return x % y;
+        case "min":
+            return Math.min(x, y);
+        case "max":
+            return Math.max(x, y);
+        default:
+            throw notAFunction(caller, functor);
+        }
+    }
+
+    private static int checkRange(final long value, final String caller) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(caller
+                    + "/2: integer overflow");
+        }
+        return (int) value;
+    }
+
+    private static void checkDivisor(final int divisor, final String caller) {
+        if (divisor == 0) {
+            throw new IllegalArgumentException(caller
+                    + "/2: division by zero");
+        }
+    }
+
+    private static IllegalArgumentException notAFunction(final String caller,
+            final FunctorSymbol functor) {
+        return new IllegalArgumentException(caller + "/2: " + functor
+                + " is not a function");
+    }
+
+    // === Comparisons ===
+
+    private enum Comparison implements Builtin {
+        EQUAL("=:=") {
+            @Override
+            boolean compare(final int x, final int y) {
+                return x == y;
+            }
+        },
+        NOT_EQUAL("=\\=") {
+            @Override
+            boolean compare(final int x, final int y) {
+                return x != y;
+            }
+        },
+        LESS("<") {
+            @Override
+            boolean compare(final int x, final int y) {
+                return x < y;
+            }
+        },
+        GREATER(">") {
+            @Override
+            boolean compare(final int x, final int y) {
+                return x > y;
+            }
+        },
+        LESS_OR_EQUAL("=<") {
+            @Override
+            boolean compare(final int x, final int y) {
+                return x <= y;
+            }
+        },
+        GREATER_OR_EQUAL(">=") {
+            @Override
+            boolean compare(final int x, final int y) {
+                return x >= y;
+            }
+        };
+
+        private final String name;
+
+        private Comparison(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean call(final ZipFacade facade, final int argAddress) {
+            return compare(eval(facade, argAddress, this.name),
+                    eval(facade, argAddress + 1, this.name));
+        }
+
+        abstract boolean compare(int x, int y);
+    }
+}
@@ -0,0 +1,108 @@
+package com.prolog.jvm.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.symbol.SymbolKey;
+import com.prolog.jvm.symbol.SymbolKeys;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.util.Validate;
+
+/**
+ * A registry of the predicates implemented in Java, keyed by their names and
+ * arities. Each is assigned a {@link PredicateSymbol} that is marked as
+ * {@link PredicateSymbol#isBuiltin() built-in}, with its
+ * {@link PredicateSymbol#getBuiltinIndex() index} pointing to its
+ * implementation. The compiler calls these predicates through the
+ * {@code BUILTIN} instruction rather than through {@code CALL}, allowing the
+ * interpreter to invoke their implementations by a plain array access.
+ * <p>
+ * Besides the predicates defined by the machine itself, a registry may be used
+ * for defining predicates of one's own through
+ * {@link com.prolog.jvm.main.PrologEngine.Builder#defineBuiltin}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class BuiltinRegistry {
+
+    private final Map<SymbolKey<PredicateSymbol>,PredicateSymbol> symbols =
+            new LinkedHashMap<>();
+    private final List<Builtin> builtins = new ArrayList<>();
+
+    /**
+     * Defines a built-in predicate with the specified name and arity, returning
+     * the symbol by which it is to be called.
+     *
+     * @param name the predicate's name; not allowed to be null
+     * @param arity the predicate's arity; must be {@code >= 0}
+     * @param builtin the predicate's implementation; not allowed to be null
+     * @throws NullPointerException if {@code name == null || builtin == null}
+     * @throws IllegalArgumentException if {@code arity < 0}, or if a built-in
+     * predicate with the same name and arity was already defined
+     */
+    public PredicateSymbol define(final String name, final int arity,
+            final Builtin builtin) {
+        requireNonNull(builtin);
+        final SymbolKey<PredicateSymbol> key = SymbolKeys.ofPredicate(name,
+                arity);
+        if (this.symbols.containsKey(key)) {
+            throw new IllegalArgumentException("Built-in predicate " + name
+                    + "/" + arity + " was already defined");
+        }
+        final PredicateSymbol symbol = new PredicateSymbol(name, arity);
+        symbol.setBuiltin(this.builtins.size());
+        this.builtins.add(builtin);
+        this.symbols.put(key, symbol);
+        return symbol;
+    }
+
+    /**
+     * Defines all built-in predicates from the specified registry in this one.
+     *
+     * @param registry the registry whose predicates are to be copied; not
+     * allowed to be null
+     * @throws NullPointerException if {@code registry == null}
+     * @throws IllegalArgumentException if {@code registry} defines a predicate
+     * that was already defined in this registry
+     */
+    public void defineAll(final BuiltinRegistry registry) {
+        for (final PredicateSymbol symbol : registry.symbols.values()) {
+            define(symbol.getName(), symbol.getArity(), registry.get(symbol));
+        }
+    }
+
+    /**
+     * Returns the implementation of the specified built-in predicate.
+     *
+     * @param symbol a symbol returned by {@link #define}
+     * @throws IllegalArgumentException if {@code symbol} is not built-in
+     */
+    public Builtin get(final PredicateSymbol symbol) {
+        Validate.argument(symbol.isBuiltin());
+        return this.builtins.get(symbol.getBuiltinIndex());
+    }
+
+    /**
+     * Returns the implementations of the predicates defined so far, indexed by
+     * their {@link PredicateSymbol#getBuiltinIndex() indices}.
+     */
+    public Builtin[] toArray() {
+        return this.builtins.toArray(new Builtin[this.builtins.size()]);
+    }
+
+    /**
+     * Returns an unmodifiable view of the symbols for the predicates defined
+     * so far, in the order of their definition.
+     */
+    public Collection<PredicateSymbol> getSymbols() {
+        return Collections.unmodifiableCollection(this.symbols.values());
+    }
+}
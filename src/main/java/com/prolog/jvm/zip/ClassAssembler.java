@@ -0,0 +1,425 @@
+package com.prolog.jvm.zip;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal assembler for JVM class files, supporting just what is needed by
+ * {@link JitCompiler}: a class without fields or interfaces, whose methods
+ * operate on {@code int} locals and call other methods through constant pool
+ * references.
+ * <p>
+ * Classes are written in version 49 of the class file format, which predates
+ * the {@code StackMapTable} attribute. This leaves the computation of stack
+ * map frames to the verifier, at the expense of a slower verification of the
+ * generated code upon loading.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+final class ClassAssembler {
+
+    // === Opcodes ===
+
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD_0 = 0x2A;
+    static final int ISTORE = 0x36;
+    static final int IAND = 0x7E;
+    static final int IUSHR = 0x7C;
+    static final int IF_ICMPEQ = 0x9F;
+    static final int IF_ICMPNE = 0xA0;
+    static final int GOTO = 0xA7;
+    static final int TABLESWITCH = 0xAA;
+    static final int IRETURN = 0xAC;
+    static final int RETURN = 0xB1;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESPECIAL = 0xB7;
+
+    // === Access flags ===
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    // === Constant pool tags ===
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int VERSION = 49;
+
+    /**
+     * The largest size of a method's code, in bytes.
+     */
+    static final int MAX_CODE_SIZE = 65535;
+
+    // Constant pool, with its entries keyed by their contents for reuse
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(this.pool);
+    private final Map<String,Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+
+    private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+    private final DataOutputStream methodsOut =
+            new DataOutputStream(this.methods);
+    private int methodCount;
+
+    /**
+     *
+     * @param name the internal name of the class to assemble, e.g.
+     * {@code java/lang/Object}; not allowed to be null
+     * @param superName the internal name of its superclass; not allowed to be
+     * null
+     * @throws NullPointerException if {@code name == null ||
+     * superName == null}
+     */
+    ClassAssembler(final String name, final String superName) {
+        this.thisClass = classRef(requireNonNull(name));
+        this.superClass = classRef(requireNonNull(superName));
+    }
+
+    // === Constant pool ===
+
+    private int utf8(final String value) {
+        final String key = "U" + value;
+        Integer index = this.entries.get(key);
+        if (index == null) {
+            index = newEntry(key);
+            write(CONSTANT_UTF8);
+            try {
+                this.poolOut.writeUTF(value);
+            } catch (final IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+        return index.intValue();
+    }
+
+    private int classRef(final String name) {
+        final String key = "C" + name;
+        Integer index = this.entries.get(key);
+        if (index == null) {
+            final int nameIndex = utf8(name);
+            index = newEntry(key);
+            write(CONSTANT_CLASS);
+            writeShort(nameIndex);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Returns the constant pool index of the specified {@code int} constant.
+     */
+    int integer(final int value) {
+        final String key = "I" + value;
+        Integer index = this.entries.get(key);
+        if (index == null) {
+            index = newEntry(key);
+            write(CONSTANT_INTEGER);
+            writeShort(value >>> 16);
+            writeShort(value);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Returns the constant pool index of a reference to the specified method.
+     *
+     * @param owner the internal name of the class declaring the method
+     * @param name the method's name
+     * @param descriptor the method's descriptor, e.g. {@code (II)I}
+     */
+    int methodRef(final String owner, final String name,
+            final String descriptor) {
+        final String key = "M" + owner + '.' + name + descriptor;
+        Integer index = this.entries.get(key);
+        if (index == null) {
+            final int classIndex = classRef(owner);
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            final int natIndex = newEntry("N" + name + descriptor);
+            write(CONSTANT_NAME_AND_TYPE);
+            writeShort(nameIndex);
+            writeShort(descriptorIndex);
+            index = newEntry(key);
+            write(CONSTANT_METHODREF);
+            writeShort(classIndex);
+            writeShort(natIndex);
+        }
+        return index.intValue();
+    }
+
+    private Integer newEntry(final String key) {
+        final Integer index = Integer.valueOf(this.poolCount++);
+        this.entries.put(key, index);
+        return index;
+    }
+
+    private void write(final int b) {
+        this.pool.write(b);
+    }
+
+    private void writeShort(final int s) {
+        this.pool.write(s >>> 8);
+        this.pool.write(s);
+    }
+
+    // === Methods ===
+
+    /**
+     * Adds a method with the specified code.
+     *
+     * @param access the method's access flags
+     * @param name the method's name
+     * @param descriptor the method's descriptor
+     * @param maxStack the maximum depth of the operand stack
+     * @param maxLocals the number of local variable slots, including those
+     * for {@code this} and the parameters
+     * @param code the method's code; not allowed to be null
+     * @throws IllegalArgumentException if {@code code} exceeds
+     * {@link #MAX_CODE_SIZE}
+     */
+    void addMethod(final int access, final String name,
+            final String descriptor, final int maxStack, final int maxLocals,
+            final Code code) {
+        if (code.size() > MAX_CODE_SIZE) {
+            throw new IllegalArgumentException();
+        }
+        final byte[] bytes = code.toByteArray();
+        try {
+            final DataOutputStream out = this.methodsOut;
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1); // attributes_count
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + bytes.length); // attribute_length
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0); // exception_table_length
+            out.writeShort(0); // attributes_count
+        } catch (final IOException e) {
+            throw new AssertionError(e);
+        }
+        this.methodCount++;
+    }
+
+    /**
+     * Returns the assembled class file.
+     */
+    byte[] toByteArray() {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(result);
+        try {
+            out.writeInt(MAGIC);
+            out.writeShort(0); // minor_version
+            out.writeShort(VERSION);
+            out.writeShort(this.poolCount);
+            this.pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(this.thisClass);
+            out.writeShort(this.superClass);
+            out.writeShort(0); // interfaces_count
+            out.writeShort(0); // fields_count
+            out.writeShort(this.methodCount);
+            this.methods.writeTo(out);
+            out.writeShort(0); // attributes_count
+        } catch (final IOException e) {
+            throw new AssertionError(e);
+        }
+        return result.toByteArray();
+    }
+
+    // === Code ===
+
+    /**
+     * Buffer for the code of a method. Branch targets are represented by
+     * {@link Label}s, which may be placed after the branches to them were
+     * written, the latter being patched once the code is complete.
+     */
+    static final class Code {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        // Offsets of the branches yet to be patched, and their targets
+        private final List<int[]> branches = new ArrayList<>();
+        private final List<Label> targets = new ArrayList<>();
+
+        /**
+         * Returns the number of bytes written so far.
+         */
+        int size() {
+            return this.size;
+        }
+
+        /**
+         * Writes an instruction without operands.
+         */
+        void op(final int opcode) {
+            writeByte(opcode);
+        }
+
+        /**
+         * Writes an instruction taking a local variable index.
+         */
+        void local(final int opcode, final int index) {
+            assert index < 256;
+            writeByte(opcode);
+            writeByte(index);
+        }
+
+        /**
+         * Writes a method invocation.
+         *
+         * @param opcode {@link #INVOKEVIRTUAL} or {@link #INVOKESPECIAL}
+         * @param index the constant pool index of the method reference
+         */
+        void invoke(final int opcode, final int index) {
+            writeByte(opcode);
+            writeShort(index);
+        }
+
+        /**
+         * Pushes the specified {@code int}, using the shortest instruction
+         * available for it.
+         *
+         * @param assembler the assembler owning the constant pool
+         * @param value the value to push
+         */
+        void push(final ClassAssembler assembler, final int value) {
+            if (value >= -1 && value <= 5) {
+                writeByte(ICONST_0 + value);
+            } else if (value == (byte) value) {
+                writeByte(BIPUSH);
+                writeByte(value);
+            } else if (value == (short) value) {
+                writeByte(SIPUSH);
+                writeShort(value);
+            } else {
+                writeByte(LDC_W);
+                writeShort(assembler.integer(value));
+            }
+        }
+
+        /**
+         * Writes a branch to the specified label.
+         */
+        void branch(final int opcode, final Label label) {
+            this.branches.add(new int[] { this.size, this.size + 1, 2 });
+            this.targets.add(label);
+            writeByte(opcode);
+            writeShort(0);
+        }
+
+        /**
+         * Writes a {@code tableswitch} instruction over the values {@code 0}
+         * up to {@code labels.length}, jumping to the first label for any
+         * other value.
+         */
+        void tableswitch(final Label[] labels) {
+            final int start = this.size;
+            writeByte(TABLESWITCH);
+            while (this.size % 4 != 0) {
+                writeByte(0);
+            }
+            addBranch(start, labels[0]);
+            writeInt(0);
+            writeInt(labels.length - 1);
+            for (final Label label : labels) {
+                addBranch(start, label);
+            }
+        }
+
+        private void addBranch(final int start, final Label label) {
+            this.branches.add(new int[] { start, this.size, 4 });
+            this.targets.add(label);
+            writeInt(0);
+        }
+
+        /**
+         * Places the specified label at the current offset.
+         */
+        void mark(final Label label) {
+            assert label.offset == -1;
+            label.offset = this.size;
+        }
+
+        /**
+         * Returns the code written so far, with all branches patched.
+         *
+         * @throws IllegalStateException if a branch target was not placed
+         */
+        byte[] toByteArray() {
+            for (int i = 0; i < this.branches.size(); i++) {
+                final int[] branch = this.branches.get(i);
+                final Label target = this.targets.get(i);
+                if (target.offset == -1) {
+                    throw new IllegalStateException();
+                }
+                final int offset = target.offset - branch[0];
+                if (branch[2] == 2) {
+                    this.bytes[branch[1]] = (byte) (offset >>> 8);
+                    this.bytes[branch[1] + 1] = (byte) offset;
+                } else {
+                    for (int j = 0; j < 4; j++) {
+                        this.bytes[branch[1] + j] = (byte) (offset
+                                >>> (24 - 8 * j));
+                    }
+                }
+            }
+            return Arrays.copyOf(this.bytes, this.size);
+        }
+
+        private void writeByte(final int b) {
+            ensureCapacity(this.size + 1);
+            this.bytes[this.size++] = (byte) b;
+        }
+
+        private void writeShort(final int s) {
+            writeByte(s >>> 8);
+            writeByte(s);
+        }
+
+        private void writeInt(final int i) {
+            writeShort(i >>> 16);
+            writeShort(i);
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(capacity,
+                        this.bytes.length * 2));
+            }
+        }
+    }
+
+    /**
+     * A branch target within a {@link Code} buffer.
+     */
+    static final class Label {
+        private int offset = -1;
+    }
+}
@@ -0,0 +1,206 @@
+package com.prolog.jvm.zip;
+
+import com.prolog.jvm.exceptions.BacktrackException;
+import com.prolog.jvm.symbol.PredicateSymbol;
+
+/**
+ * Superclass of the JVM classes generated by {@link JitCompiler}, each of which
+ * executes the instructions of a predicate's clauses. Instructions are carried
+ * out by the same implementations as used by the interpreter, which the
+ * generated code invokes through the protected methods declared here, passing
+ * their operands as constants. What is saved is the fetching and decoding of
+ * instructions and the dispatch on their opcodes, as well as the updating of
+ * the program counter in between them.
+ * <p>
+ * This class is public only for the generated classes to be able to extend it,
+ * being loaded by a class loader of their own. It is not meant to be extended
+ * otherwise.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public abstract class CompiledPredicate {
+
+    private JitZipInterpreter interpreter;
+    private PredicateSymbol symbol;
+
+    /**
+     * Constructor to be invoked by generated subclasses only.
+     */
+    protected CompiledPredicate() {
+        // Initialized by init
+    }
+
+    // Binds this code to the interpreter executing it and the predicate it
+    // was compiled for
+    final void init(final JitZipInterpreter interpreter,
+            final PredicateSymbol symbol) {
+        assert this.interpreter == null;
+        this.interpreter = interpreter;
+        this.symbol = symbol;
+    }
+
+    // Returns the predicate this code was compiled for
+    final PredicateSymbol getSymbol() {
+        return this.symbol;
+    }
+
+    /**
+     * Executes the instructions starting from the specified entry point, up to
+     * and including the first that leaves the clause, or until one fails.
+     *
+     * @param entry the entry point, its upper 16 bits identifying the method
+     * containing it and its lower 16 bits numbering it within the latter
+     * @param stackAddr the global- or local stack address to match against or
+     * copy to
+     * @return the global- or local stack address for the next step, or a
+     * negative number if an answer was found
+     * @throws BacktrackException if backtracking failed due to there being no
+     * choice point
+     */
+    public abstract int execute(int entry, int stackAddr)
+            throws BacktrackException;
+
+    // === Machine state ===
+
+    /**
+     * Returns the machine mode.
+     */
+    protected final int mode() {
+        return this.interpreter.facade.getMode();
+    }
+
+    /**
+     * Returns the number of instructions that failed so far.
+     */
+    protected final int failures() {
+        return this.interpreter.getFailures();
+    }
+
+    // === Instructions ===
+
+    // Each of the following invokes the interpreter's implementation of the
+    // instruction of the same name, resolving the offsets of variables in the
+    // current frame to their addresses
+
+    protected final int matchFunctor(final int stackAddr, final int index)
+            throws BacktrackException {
+        return this.interpreter.matchFunctor(stackAddr, index);
+    }
+
+    protected final int matchList(final int stackAddr)
+            throws BacktrackException {
+        return this.interpreter.matchList(stackAddr, false);
+    }
+
+    protected final int matchTail(final int stackAddr)
+            throws BacktrackException {
+        return this.interpreter.matchList(stackAddr, true);
+    }
+
+    protected final int matchConstant(final int stackAddr, final int index)
+            throws BacktrackException {
+        return this.interpreter.matchConstant(stackAddr, index);
+    }
+
+    protected final int matchInteger(final int stackAddr, final int value)
+            throws BacktrackException {
+        return this.interpreter.matchInteger(stackAddr, value);
+    }
+
+    protected final int matchFirstVariable(final int addr, final int offset)
+            throws BacktrackException {
+        return this.interpreter.matchVariable(true, addr, getAddress(offset));
+    }
+
+    protected final int matchVariable(final int addr, final int offset)
+            throws BacktrackException {
+        return this.interpreter.matchVariable(false, addr,
+                getAddress(offset));
+    }
+
+    protected final int copyConstant(final int addr, final int index) {
+        return this.interpreter.copyConstant(addr, index);
+    }
+
+    protected final int copyInteger(final int addr, final int value) {
+        return this.interpreter.copyInteger(addr, value);
+    }
+
+    protected final int argFirstVariable(final int addr, final int offset) {
+        return this.interpreter.argVariable(true, addr, getAddress(offset));
+    }
+
+    protected final int argVariable(final int addr, final int offset) {
+        return this.interpreter.argVariable(false, addr, getAddress(offset));
+    }
+
+    protected final int copyFirstVariable(final int globalAddr,
+            final int offset) {
+        return this.interpreter.copyVariable(true, globalAddr,
+                getAddress(offset));
+    }
+
+    protected final int copyVariable(final int globalAddr, final int offset) {
+        return this.interpreter.copyVariable(false, globalAddr,
+                getAddress(offset));
+    }
+
+    protected final int argFunctor(final int stackAddr, final int index) {
+        return this.interpreter.argFunctor(stackAddr, index);
+    }
+
+    protected final int argList(final int stackAddr) {
+        return this.interpreter.argList(stackAddr, false);
+    }
+
+    protected final int argTail(final int stackAddr) {
+        return this.interpreter.argList(stackAddr, true);
+    }
+
+    protected final int pop() {
+        return this.interpreter.facade.popFromScratchpad();
+    }
+
+    protected final int enterClause(final int size) {
+        return this.interpreter.enterClause(size);
+    }
+
+    protected final int exitUnitClause(final int size) {
+        return this.interpreter.exitUnitClause(size);
+    }
+
+    protected final int exitClause() {
+        return this.interpreter.exitClause();
+    }
+
+    /**
+     * Implements {@code CALL}.
+     *
+     * @param stackAddr the address just past the last argument in the target
+     * frame
+     * @param codeAddr the code address of the instruction
+     * @param isLastCall whether the call is immediately followed by
+     * {@code EXIT}
+     */
+    protected final int callPredicate(final int stackAddr, final int codeAddr,
+            final boolean isLastCall) throws BacktrackException {
+        return this.interpreter.callAt(stackAddr, codeAddr, isLastCall);
+    }
+
+    /**
+     * Implements {@code BUILTIN}.
+     *
+     * @param stackAddr the address just past the last argument in the target
+     * frame
+     * @param codeAddr the code address of the instruction
+     */
+    protected final int callBuiltin(final int stackAddr, final int codeAddr)
+            throws BacktrackException {
+        return this.interpreter.callBuiltinAt(stackAddr, codeAddr);
+    }
+
+    private int getAddress(final int offset) {
+        return this.interpreter.facade.getVariableAddress(offset);
+    }
+}
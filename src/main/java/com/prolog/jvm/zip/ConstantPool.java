@@ -0,0 +1,99 @@
+package com.prolog.jvm.zip;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * A {@link List} implementation for the runtime constant pool, interning its
+ * entries in a hash table so that {@link #indexOf(Object)} (and hence
+ * {@link #contains(Object)}) run in constant time. This matters since
+ * functors are looked up by index both during code generation and while
+ * building terms at runtime, and a linear scan would make either degrade
+ * quadratically in the number of distinct atoms and functors.
+ * <p>
+ * Only the operations needed for maintaining a constant pool are supported:
+ * elements can be appended and removed from the end (e.g., through
+ * {@code subList(from, size()).clear()}), but not inserted or replaced in the
+ * middle. Null elements are permitted.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ConstantPool extends AbstractList<Object> implements
+        RandomAccess {
+
+    private final List<Object> entries = new ArrayList<>();
+    private final Map<Object,Integer> indices = new HashMap<>();
+
+    @Override
+    public Object get(final int index) {
+        return this.entries.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Appends the specified element to the end of this pool.
+     *
+     * @throws UnsupportedOperationException if {@code index != size()}
+     */
+    @Override
+    public void add(final int index, final Object element) {
+        if (index != this.entries.size()) {
+            throw new UnsupportedOperationException();
+        }
+        this.entries.add(element);
+        if (!this.indices.containsKey(element)) {
+            this.indices.put(element, Integer.valueOf(index));
+        }
+        this.modCount++;
+    }
+
+    @Override
+    public int indexOf(final Object obj) {
+        final Integer index = this.indices.get(obj);
+        return index == null ? -1 : index.intValue();
+    }
+
+    @Override
+    public boolean contains(final Object obj) {
+        return this.indices.containsKey(obj);
+    }
+
+    @Override
+    protected void removeRange(final int fromIndex, final int toIndex) {
+        if (toIndex == this.entries.size()) {
+            // Only the tail is removed, so the remaining indices still hold
+            for (int i = fromIndex; i < toIndex; i++) {
+                final Object element = this.entries.get(i);
+                final Integer index = this.indices.get(element);
+                if (index != null && index.intValue() == i) {
+                    this.indices.remove(element);
+                }
+            }
+            this.entries.subList(fromIndex, toIndex).clear();
+        } else {
+            this.entries.subList(fromIndex, toIndex).clear();
+            rebuild();
+        }
+        this.modCount++;
+    }
+
+    // Recomputes all interned indices from scratch
+    private void rebuild() {
+        this.indices.clear();
+        for (int i = 0; i < this.entries.size(); i++) {
+            final Object element = this.entries.get(i);
+            if (!this.indices.containsKey(element)) {
+                this.indices.put(element, Integer.valueOf(i));
+            }
+        }
+    }
+}
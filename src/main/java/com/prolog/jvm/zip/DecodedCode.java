@@ -0,0 +1,153 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_HEAP_INDEX;
+
+import java.util.Arrays;
+
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+
+/**
+ * A pre-decoded shadow of code memory, kept in sync by
+ * {@link PrologBytecodeImpl} as instructions are written. For every code
+ * address at which an instruction starts, it stores the latter's opcode and raw
+ * operand, as well as the resolved constant pool entry for symbolic operands
+ * (i.e., the {@link FunctorSymbol} for {@code FUNCTOR} and {@code CONSTANT},
+ * and the {@link PredicateSymbol} for {@code CALL} and {@code BUILTIN}), each
+ * kept in an array of its own type so as to be read without a cast. This
+ * allows the
+ * {@link PredecodedZipInterpreter} to fetch an instruction together with its
+ * operand by plain array accesses, instead of going through code memory and
+ * the constant pool on every step.
+ * <p>
+ * Arrays are indexed by code address minus {@code MIN_HEAP_INDEX} and grow on
+ * demand.
+ * <p>
+ * Additionally, the entry points of the clauses that were compiled by a
+ * {@link JitCompiler} are recorded, being the code addresses of their first
+ * instructions and of those following their calls. Writing an instruction at
+ * an entry point discards the latter, as when the code of a retracted clause
+ * is reused, and resets the calls counted for the compiled predicate so that
+ * it may be compiled anew.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class DecodedCode {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private int[] opcodes = new int[INITIAL_CAPACITY];
+    private int[] operands = new int[INITIAL_CAPACITY];
+    private FunctorSymbol[] functors = new FunctorSymbol[INITIAL_CAPACITY];
+    private PredicateSymbol[] predicates = new PredicateSymbol[
+            INITIAL_CAPACITY];
+
+    // Compiled code for entry points, and the entries it assigned them
+    private CompiledPredicate[] compiled = new CompiledPredicate[
+            INITIAL_CAPACITY];
+    private int[] entries = new int[INITIAL_CAPACITY];
+
+    /**
+     * Records the instruction starting at the specified code {@code address}.
+     *
+     * @param address the code address of the opcode
+     * @param opcode the opcode
+     * @param operand the raw operand, or 0 if there is none
+     * @param symbol the resolved constant pool entry for {@code operand}, or
+     * null if the latter is not a constant pool index
+     */
+    void write(final int address, final int opcode, final int operand,
+            final Object symbol) {
+        final int i = address - MIN_HEAP_INDEX;
+        if (i >= this.opcodes.length) {
+            grow(i + 1);
+        }
+        final CompiledPredicate compiled = this.compiled[i];
+        if (compiled != null) {
+            compiled.getSymbol().resetCalls();
+            this.compiled[i] = null;
+        }
+        this.opcodes[i] = opcode;
+        this.operands[i] = operand;
+        this.functors[i] = symbol instanceof FunctorSymbol
+                ? (FunctorSymbol) symbol : null;
+        this.predicates[i] = symbol instanceof PredicateSymbol
+                ? (PredicateSymbol) symbol : null;
+    }
+
+    /**
+     * Returns the opcode of the instruction at the specified code
+     * {@code address}.
+     */
+    public int getOpcode(final int address) {
+        return this.opcodes[address - MIN_HEAP_INDEX];
+    }
+
+    /**
+     * Returns the raw operand of the instruction at the specified code
+     * {@code address}.
+     */
+    public int getOperand(final int address) {
+        return this.operands[address - MIN_HEAP_INDEX];
+    }
+
+    /**
+     * Returns the functor resolved for the operand of the {@code FUNCTOR} or
+     * {@code CONSTANT} instruction at the specified code {@code address}, or
+     * null if there is no such instruction.
+     */
+    public FunctorSymbol getFunctor(final int address) {
+        return this.functors[address - MIN_HEAP_INDEX];
+    }
+
+    /**
+     * Returns the predicate resolved for the operand of the {@code CALL} or
+     * {@code BUILTIN} instruction at the specified code {@code address}, or
+     * null if there is no such instruction.
+     */
+    public PredicateSymbol getPredicate(final int address) {
+        return this.predicates[address - MIN_HEAP_INDEX];
+    }
+
+    /**
+     * Returns the compiled code for the entry point at the specified code
+     * {@code address}, or null if there is none.
+     */
+    CompiledPredicate getCompiled(final int address) {
+        return this.compiled[address - MIN_HEAP_INDEX];
+    }
+
+    /**
+     * Returns the entry assigned by the {@link #getCompiled(int) compiled
+     * code} to the entry point at the specified code {@code address}.
+     */
+    int getEntry(final int address) {
+        return this.entries[address - MIN_HEAP_INDEX];
+    }
+
+    /**
+     * Records an entry point of compiled code.
+     *
+     * @param address the code address of the entry point
+     * @param code the compiled code
+     * @param entry the entry assigned to {@code address} by {@code code}
+     */
+    void setCompiled(final int address, final CompiledPredicate code,
+            final int entry) {
+        final int i = address - MIN_HEAP_INDEX;
+        assert i < this.opcodes.length;
+        this.compiled[i] = code;
+        this.entries[i] = entry;
+    }
+
+    private void grow(final int minCapacity) {
+        final int capacity = Math.max(minCapacity, this.opcodes.length * 2);
+        this.opcodes = Arrays.copyOf(this.opcodes, capacity);
+        this.operands = Arrays.copyOf(this.operands, capacity);
+        this.functors = Arrays.copyOf(this.functors, capacity);
+        this.predicates = Arrays.copyOf(this.predicates, capacity);
+        this.compiled = Arrays.copyOf(this.compiled, capacity);
+        this.entries = Arrays.copyOf(this.entries, capacity);
+    }
+}
@@ -0,0 +1,348 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
+import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
+import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.LIST;
+import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.TAIL;
+import static com.prolog.jvm.zip.util.Instructions.VAR;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.symbol.Scope;
+import com.prolog.jvm.symbol.SymbolKeys;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.PrologBytecode;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.IntList;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * The built-in predicates {@code assertz/1}, {@code asserta/1} and
+ * {@code retract/1} for adding and removing the clauses of dynamic predicates
+ * at runtime.
+ * <p>
+ * Added clauses are limited to facts, and are compiled into the same code as
+ * the compiler would have generated for them, which is
+ * {@link PrologBytecode#retain(int, boolean) retained} so as to outlive the
+ * query that added them. A predicate that does not exist yet is defined in the
+ * root scope the first time a clause is added to it, and becomes available to
+ * queries compiled afterwards. Calls that were underway at the time a clause
+ * was added or removed are not affected thereby (i.e., the logical update
+ * view), as the clause alternatives they try are taken from immutable
+ * snapshots (see {@link com.prolog.jvm.symbol.ClauseIndex}).
+ * <p>
+ * {@code retract/1} removes the first fact (in program order) whose head
+ * unifies with its argument, keeping the resulting bindings. Contrary to ISO
+ * Prolog, it does not retry upon backtracking, nor does it remove rules. The
+ * code of a removed clause that was added at runtime (rather than compiled
+ * along with the program) is {@link PrologBytecode#free(int) freed} for
+ * reuse by the clauses added later, though only once the choice points that
+ * existed at the time of its removal, and that may still try it, are gone (as
+ * told by {@link ZipFacade#getChoicePointEpoch()}). Hence, a predicate whose
+ * clauses are replaced over and over again takes up bounded code memory.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class DynamicDatabase {
+
+    private static final String ASSERTZ = "assertz";
+    private static final String ASSERTA = "asserta";
+    private static final String RETRACT = "retract";
+
+    private final PrologBytecode<?> code;
+
+    // Indexes on arguments other than the first, kept up to date with the
+    // clauses added and removed
+    private final ArgumentIndexes indexes;
+
+    // Root scope for looking up and defining predicates
+    private Scope scope;
+
+    // Clauses added through assertz/1 and asserta/1 and not yet removed,
+    // whose code was retained
+    private final Set<ClauseSymbol> added = new HashSet<>();
+
+    // Code addresses of removed clauses that may still be tried, each
+    // followed by the choice point epoch at the time of removal
+    private final IntList removed = new IntList();
+
+    /**
+     * @param code the bytecode to which added clauses are to be written; not
+     * allowed to be null
+     * @param indexes the indexes on arguments other than the first, to be
+     * updated as clauses are added and removed; not allowed to be null
+     * @throws NullPointerException if {@code code == null || indexes == null}
+     */
+    public DynamicDatabase(final PrologBytecode<?> code,
+            final ArgumentIndexes indexes) {
+        this.code = requireNonNull(code);
+        this.indexes = requireNonNull(indexes);
+    }
+
+    /**
+     * Sets the root scope against which the program was compiled, used for
+     * looking up the predicates whose clauses are added or removed.
+     *
+     * @param scope the root scope; not allowed to be null
+     * @throws NullPointerException if {@code scope == null}
+     */
+    public void setScope(final Scope scope) {
+        this.scope = requireNonNull(scope);
+        this.added.clear();
+        this.removed.clear();
+    }
+
+    /**
+     * Defines {@code assertz/1}, {@code asserta/1} and {@code retract/1} in the
+     * specified registry.
+     *
+     * @param builtins the registry to define the built-in predicates in; not
+     * allowed to be null
+     * @throws NullPointerException if {@code builtins == null}
+     */
+    public void defineBuiltins(final BuiltinRegistry builtins) {
+        builtins.define(ASSERTZ, 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return add(facade, argAddress, false);
+            }
+        });
+        builtins.define(ASSERTA, 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return add(facade, argAddress, true);
+            }
+        });
+        builtins.define(RETRACT, 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return retract(facade, argAddress);
+            }
+        });
+    }
+
+    // === assertz/1 and asserta/1 ===
+
+    private boolean add(final ZipFacade facade, final int argAddr,
+            final boolean first) {
+        final String caller = first ? ASSERTA : ASSERTZ;
+        final int head = facade.getWordAt(argAddr);
+        final FunctorSymbol functor = getFunctor(facade, head, caller);
+        PredicateSymbol predicate = getPredicate(functor, caller);
+        if (predicate == null) {
+            predicate = new PredicateSymbol(functor.getName(),
+                    functor.getArity());
+            this.scope.defineGlobal(SymbolKeys.ofPredicate(functor.getName(),
+                    functor.getArity()), predicate);
+        }
+
+        // Compile the fact
+        freeRemoved(facade);
+        final int arity = functor.getArity();
+        final int base = PlWords.getValue(head);
+        final ClauseSymbol clause = Facts.compile(this.code, facade, base + 1,
+                arity);
+
+        // Add it to its predicate
+        final FunctorSymbol key = arity == 0 ? null : Facts.getIndexKey(
+                facade, base + 1);
+        predicate.setDynamic();
+        this.added.add(clause);
+        if (first) {
+            predicate.addFirstClause(clause, key);
+        } else {
+            predicate.addClause(clause, key);
+        }
+        this.indexes.add(predicate, clause, first);
+        return true;
+    }
+
+    // === retract/1 ===
+
+    private boolean retract(final ZipFacade facade, final int argAddr) {
+        final int head = facade.getWordAt(argAddr);
+        final FunctorSymbol functor = getFunctor(facade, head, RETRACT);
+        final PredicateSymbol predicate = getPredicate(functor, RETRACT);
+        if (predicate == null) {
+            return false;
+        }
+        final int arity = functor.getArity();
+        final int base = PlWords.getValue(head);
+        final ClauseSymbol[] alternatives = predicate.getAlternatives(
+                arity == 0 ? null : Facts.getIndexKey(facade, base + 1));
+        final IntList bindings = new IntList();
+        for (final ClauseSymbol clause : alternatives) {
+            if (matches(facade, clause, head, bindings)) {
+                predicate.setDynamic();
+                if (predicate.removeClause(clause)) {
+                    this.indexes.remove(predicate, clause);
+                }
+                if (this.added.remove(clause)) {
+                    this.removed.add(clause.getHeapptr());
+                    this.removed.add(facade.getChoicePointEpoch());
+                    freeRemoved(facade);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Frees the code of the removed clauses that can no longer be tried, their
+     * removal having taken place in the absence of choice points, or in an
+     * epoch that has since ended.
+     */
+    private void freeRemoved(final ZipFacade facade) {
+        final int epoch = facade.getChoicePointEpoch();
+        int j = 0;
+        for (int i = 0; i < this.removed.size(); i += 2) {
+            final int address = this.removed.get(i);
+            final int removal = this.removed.get(i + 1);
+            if (removal == -1 || removal != epoch) {
+                this.code.free(address);
+            } else {
+                this.removed.set(j++, address);
+                this.removed.set(j++, removal);
+            }
+        }
+        this.removed.truncate(j);
+    }
+
+    /*
+     * Returns whether the specified clause is a fact whose head unifies with
+     * the term whose dereferenced word is given. To this end, the head is
+     * first rebuilt on the global stack from the clause's code. If unification
+     * fails, the bindings made in the attempt are undone.
+     */
+    private boolean matches(final ZipFacade facade, final ClauseSymbol clause,
+            final int head, final IntList bindings) {
+        int pc = clause.getHeapptr();
+        if (PlWords.getTag(head) == CONS) {
+            return this.code.read(pc) == RETURN;
+        }
+        final int base = PlWords.getValue(head);
+        final int copy = PlWords.getValue(facade.pushFunctor(PlWords
+                .getValue(facade.getWordAt(base))));
+        final int arity = clause.getParams();
+        final int[] vars = new int[arity + clause.getLocals()];
+        for (int i = 1; i <= arity; i++) {
+            pc = readTerm(facade, pc, copy + i, vars);
+        }
+        if (this.code.read(pc) != RETURN) {
+            return false; // Not a fact
+        }
+        bindings.clear();
+        for (int i = 1; i <= arity; i++) {
+            if (!facade.unify(copy + i, base + i, bindings)) {
+                for (int j = 0; j < bindings.size(); j++) {
+                    final int address = bindings.get(j);
+                    facade.setWord(address, getWord(REF, address));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Builds the term whose code starts at the specified address into the
+     * given (unbound) global stack cell, returning the address of the next
+     * instruction. The addresses of variables are recorded in vars, indexed
+     * by their offsets.
+     */
+    private int readTerm(final ZipFacade facade, int pc, final int cell,
+            final int[] vars) {
+        final int opcode = this.code.read(pc++);
+        switch (opcode) {
+        case CONSTANT:
+            facade.setWord(cell, getWord(CONS, this.code.read(pc++)));
+            return pc;
+        case INTEGER:
+            facade.setWord(cell, facade.pushInteger(this.code.read(pc++)));
+            return pc;
+        case FIRSTVAR:
+            vars[this.code.read(pc++)] = cell;
+            return pc;
+        case VAR:
+            facade.setWord(cell, getWord(REF, vars[this.code.read(pc++)]));
+            return pc;
+        case FUNCTOR: {
+            final int index = this.code.read(pc++);
+            final int word = facade.pushFunctor(index);
+            facade.setWord(cell, word);
+            final int arity = facade.getConstant(index, FunctorSymbol.class)
+                    .getArity();
+            for (int i = 1; i <= arity; i++) {
+                pc = readTerm(facade, pc, PlWords.getValue(word) + i, vars);
+            }
+            return pc + 1; // Skip POP
+        }
+        case LIST: {
+            int word = facade.pushList();
+            facade.setWord(cell, word);
+            pc = readTerm(facade, pc, PlWords.getValue(word), vars);
+            while (this.code.read(pc) == TAIL) {
+                final int tail = PlWords.getValue(word) + 1;
+                word = facade.pushList();
+                facade.setWord(tail, word);
+                pc = readTerm(facade, pc + 1, PlWords.getValue(word), vars);
+            }
+            pc = readTerm(facade, pc, PlWords.getValue(word) + 1, vars);
+            return pc + 1; // Skip POP
+        }
+        default:
+            throw new IllegalStateException("Unexpected opcode " + opcode);
+        }
+    }
+
+    // === Helper methods ===
+
+    /*
+     * Returns the principal functor of the clause head whose dereferenced word
+     * is given, throwing an exception if the latter is not an atom or a
+     * compound term.
+     */
+    private static FunctorSymbol getFunctor(final ZipFacade facade,
+            final int head, final String caller) {
+        switch (PlWords.getTag(head)) {
+        case CONS:
+            return facade.getConstant(PlWords.getValue(head),
+                    FunctorSymbol.class);
+        case STR:
+            return facade.getConstant(PlWords.getValue(facade.getWordAt(
+                    PlWords.getValue(head))), FunctorSymbol.class);
+        case REF:
+            throw new IllegalArgumentException(caller
+                    + "/1: argument is not sufficiently instantiated");
+        default:
+            throw new IllegalArgumentException(caller
+                    + "/1: argument is not callable");
+        }
+    }
+
+    // Returns the predicate for the specified functor, or null if none exists
+    private PredicateSymbol getPredicate(final FunctorSymbol functor,
+            final String caller) {
+        final PredicateSymbol predicate = this.scope.resolveGlobal(SymbolKeys
+                .ofPredicate(functor.getName(), functor.getArity()));
+        if (predicate != null && predicate.isBuiltin()) {
+            throw new IllegalArgumentException(caller
+                    + "/1: cannot modify built-in predicate " + predicate);
+        }
+        return predicate;
+    }
+}
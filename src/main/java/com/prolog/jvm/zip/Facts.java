@@ -0,0 +1,155 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
+import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
+import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.LIST;
+import static com.prolog.jvm.zip.util.Instructions.POP;
+import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.TAIL;
+import static com.prolog.jvm.zip.util.Instructions.VAR;
+import static com.prolog.jvm.zip.util.PlWords.BIG;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.zip.api.PrologBytecode;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * Utility class for compiling facts at runtime from terms residing on the
+ * global- and local stacks, as needed for clauses added to dynamic predicates
+ * and for the answers stored in tables.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+final class Facts {
+
+    // Private constructor to prevent instantiation
+    private Facts() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Writes the code for a fact to {@code code}, being the same as the
+     * compiler would have generated for it, and returns its clause symbol. The
+     * code is {@link PrologBytecode#retain(int, boolean) retained}, possibly
+     * being moved to freed space, while the caller remains responsible for
+     * adding the clause to a predicate.
+     *
+     * @param code the bytecode to write to
+     * @param facade the facade through which the arguments are read
+     * @param args the address of the first of the fact's {@code arity}
+     * consecutive head arguments
+     * @param arity the number of head arguments
+     */
+    static ClauseSymbol compile(final PrologBytecode<?> code,
+            final ZipFacade facade, final int args, final int arity) {
+        final ClauseSymbol clause = new ClauseSymbol();
+        clause.setParams(arity);
+        clause.setHeadKeys(HeadKeys.of(facade, args, arity));
+        final int address = code.getCodeSize();
+        final Map<Integer,Integer> vars = new HashMap<>();
+        for (int i = 0; i < arity; i++) {
+            writeTerm(code, facade, args + i, arity, vars);
+        }
+        clause.setLocals(vars.size());
+        code.writeIns(RETURN, arity + vars.size());
+        clause.setHeapptr(code.retain(address, true));
+        return clause;
+    }
+
+    /*
+     * Writes the code for the term at the specified address, as it would occur
+     * as an argument in the head of a fact. Variables are assigned offsets in
+     * order of their first occurrence, starting just past the parameters.
+     */
+    private static void writeTerm(final PrologBytecode<?> code,
+            final ZipFacade facade, final int addr, final int params,
+            final Map<Integer,Integer> vars) {
+        final int word = facade.getWordAt(addr);
+        final int value = PlWords.getValue(word);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final Integer offset = vars.get(Integer.valueOf(value));
+            if (offset == null) {
+                final int next = params + vars.size();
+                vars.put(Integer.valueOf(value), Integer.valueOf(next));
+                code.writeIns(FIRSTVAR, next);
+            } else {
+                code.writeIns(VAR, offset.intValue());
+            }
+            break;
+        }
+        case CONS:
+            code.writeIns(CONSTANT, value);
+            break;
+        case INT:
+            // Fall-through
+        case BIG:
+            code.writeIns(INTEGER, facade.getInteger(word));
+            break;
+        case STR: {
+            final int index = PlWords.getValue(facade.getWordAt(value));
+            code.writeIns(FUNCTOR, index);
+            final int arity = facade.getConstant(index, FunctorSymbol.class)
+                    .getArity();
+            for (int i = 1; i <= arity; i++) {
+                writeTerm(code, facade, value + i, params, vars);
+            }
+            code.writeIns(POP);
+            break;
+        }
+        case LIS: {
+            // Walk the spine iteratively, as the compiler does
+            code.writeIns(LIST);
+            int cell = value;
+            writeTerm(code, facade, cell, params, vars);
+            int tail = facade.getWordAt(cell + 1);
+            while (PlWords.getTag(tail) == LIS) {
+                code.writeIns(TAIL);
+                cell = PlWords.getValue(tail);
+                writeTerm(code, facade, cell, params, vars);
+                tail = facade.getWordAt(cell + 1);
+            }
+            writeTerm(code, facade, cell + 1, params, vars);
+            code.writeIns(POP);
+            break;
+        }
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    /**
+     * Returns the principal functor of the term at the specified address, or
+     * null if the latter is an unbound variable or an integer, for use as a
+     * key in a {@link com.prolog.jvm.symbol.ClauseIndex}.
+     */
+    static FunctorSymbol getIndexKey(final ZipFacade facade,
+            final int address) {
+        final int word = facade.getWordAt(address);
+        switch (PlWords.getTag(word)) {
+        case CONS:
+            return facade.getConstant(PlWords.getValue(word),
+                    FunctorSymbol.class);
+        case STR:
+            return facade.getConstant(PlWords.getValue(facade.getWordAt(
+                    PlWords.getValue(word))), FunctorSymbol.class);
+        case LIS:
+            return FunctorSymbol.LIST;
+        default:
+            return null;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * Utility class for comparing the arguments of a call with the
+ * {@link ClauseSymbol#getHeadKeys() head keys} of its clause alternatives,
+ * skipping those whose heads cannot match. Used for deciding whether a call
+ * leaves a choice point, both upon calling and upon backtracking.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+final class HeadKeys {
+
+    // Private constructor to prevent instantiation
+    private HeadKeys() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the index of the first clause in {@code alternatives}, starting
+     * from {@code from}, whose head keys do not clash with the arguments of
+     * the call, or -1 if there is none.
+     *
+     * @param facade the facade through which the arguments are read
+     * @param alternatives the clause alternatives for the call
+     * @param from the index of the first alternative to consider
+     * @param args the address of the first argument of the call
+     */
+    static int next(final ZipFacade facade, final ClauseSymbol[] alternatives,
+            final int from, final int args) {
+        for (int i = from; i < alternatives.length; i++) {
+            if (mayMatch(facade, alternatives[i].getHeadKeys(), args)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean mayMatch(final ZipFacade facade, final int[] keys,
+            final int args) {
+        if (keys == null) {
+            return true;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                final int key = getKey(facade, args + i);
+                if (key != 0 && key != keys[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the head keys for a fact whose arguments are the terms at the
+     * specified addresses, or null if they are all {@code 0}.
+     *
+     * @param facade the facade through which the arguments are read
+     * @param args the address of the first of {@code arity} consecutive
+     * arguments
+     * @param arity the number of arguments
+     */
+    static int[] of(final ZipFacade facade, final int args, final int arity) {
+        final int[] keys = new int[arity];
+        boolean selective = false;
+        for (int i = 0; i < arity; i++) {
+            keys[i] = getKey(facade, args + i);
+            selective |= keys[i] != 0;
+        }
+        return selective ? keys : null;
+    }
+
+    /**
+     * Returns the key for the term at the specified address, or {@code 0} if
+     * it is an unbound variable or a boxed integer.
+     */
+    static int getKey(final ZipFacade facade, final int address) {
+        final int word = facade.getWordAt(address);
+        switch (PlWords.getTag(word)) {
+        case CONS:
+            // Fall-through
+        case INT:
+            return word;
+        case STR:
+            return facade.getWordAt(PlWords.getValue(word));
+        case LIS:
+            return getWord(LIS, 0);
+        default:
+            return 0;
+        }
+    }
+}
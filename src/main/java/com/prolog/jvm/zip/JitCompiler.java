@@ -0,0 +1,533 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.ClassAssembler.ACC_FINAL;
+import static com.prolog.jvm.zip.ClassAssembler.ACC_PRIVATE;
+import static com.prolog.jvm.zip.ClassAssembler.ACC_PUBLIC;
+import static com.prolog.jvm.zip.ClassAssembler.ALOAD_0;
+import static com.prolog.jvm.zip.ClassAssembler.GOTO;
+import static com.prolog.jvm.zip.ClassAssembler.IAND;
+import static com.prolog.jvm.zip.ClassAssembler.IF_ICMPEQ;
+import static com.prolog.jvm.zip.ClassAssembler.IF_ICMPNE;
+import static com.prolog.jvm.zip.ClassAssembler.ILOAD;
+import static com.prolog.jvm.zip.ClassAssembler.INVOKESPECIAL;
+import static com.prolog.jvm.zip.ClassAssembler.INVOKEVIRTUAL;
+import static com.prolog.jvm.zip.ClassAssembler.IRETURN;
+import static com.prolog.jvm.zip.ClassAssembler.ISTORE;
+import static com.prolog.jvm.zip.ClassAssembler.IUSHR;
+import static com.prolog.jvm.zip.ClassAssembler.MAX_CODE_SIZE;
+import static com.prolog.jvm.zip.util.Instructions.BUILTIN;
+import static com.prolog.jvm.zip.util.Instructions.CALL;
+import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
+import static com.prolog.jvm.zip.util.Instructions.ENTER;
+import static com.prolog.jvm.zip.util.Instructions.EXIT;
+import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
+import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.LIST;
+import static com.prolog.jvm.zip.util.Instructions.MATCH;
+import static com.prolog.jvm.zip.util.Instructions.POP;
+import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.TAIL;
+import static com.prolog.jvm.zip.util.Instructions.VAR;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.zip.ClassAssembler.Code;
+import com.prolog.jvm.zip.ClassAssembler.Label;
+import com.prolog.jvm.zip.util.IntList;
+
+/**
+ * Translates the clauses of a predicate into a JVM class extending
+ * {@link CompiledPredicate}, whose code carries out their instructions
+ * without fetching, decoding or dispatching on them. This amounts to
+ * subroutine threading: each instruction remains a call to its implementation
+ * in the interpreter, unification itself not being specialized to the terms
+ * occurring in the clauses.
+ * <p>
+ * Which implementation to invoke for an instruction is mostly decided at
+ * compile-time, based on where it occurs in its clause: the head's outermost
+ * arguments are always matched and the body's always copied as arguments,
+ * while instructions following a call are reached only upon returning from
+ * it. Only for the instructions nested within structures in the head does the
+ * mode depend on whether the argument was bound, the generated code testing
+ * it at runtime. Of the instructions that may fail, each is followed by a test
+ * of whether the machine backtracked, in which case the generated code
+ * returns, leaving it to the interpreter to resume from the alternative
+ * clause.
+ * <p>
+ * The clauses are distributed over as many methods as needed for each to
+ * remain small enough for being compiled to machine code by the JVM. Each
+ * clause has an entry point at its first instruction and at each instruction
+ * following a {@code CALL}, control returning to the interpreter in between.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+final class JitCompiler {
+
+    private static final String SUPER_NAME =
+            "com/prolog/jvm/zip/CompiledPredicate";
+    private static final String CLASS_PREFIX = "com/prolog/jvm/zip/Compiled";
+
+    // Size in bytes up to which clauses are added to the same method, leaving
+    // room below the largest method size still compiled by HotSpot (8000)
+    private static final int METHOD_SIZE = 7000;
+
+    // Local variables of the generated methods
+    private static final int ENTRY = 1;
+    private static final int ADDR = 2;
+    private static final int FAILURES = 3;
+
+    private static final int MAX_STACK = 4;
+    private static final int MAX_LOCALS = 4;
+
+    private final DecodedCode code;
+
+    // Number of classes generated
+    private int count;
+
+    /**
+     *
+     * @param code the decoded instructions to compile; not allowed to be null
+     * @throws NullPointerException if {@code code == null}
+     */
+    JitCompiler(final DecodedCode code) {
+        this.code = requireNonNull(code);
+    }
+
+    /**
+     * Returns the number of predicates compiled so far.
+     */
+    int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Compiles the clauses of the specified predicate, recording their entry
+     * points in the {@link DecodedCode}. Nothing is compiled if the predicate
+     * has no clauses, or if its code would exceed the limits of the class file
+     * format.
+     *
+     * @param symbol the predicate; not allowed to be null
+     * @param interpreter the interpreter executing the compiled code; not
+     * allowed to be null
+     * @return whether the predicate was compiled
+     */
+    boolean compile(final PredicateSymbol symbol,
+            final JitZipInterpreter interpreter) {
+        assert interpreter != null;
+        final ClauseSymbol[] clauses = symbol.getAlternatives(null);
+        if (symbol.isBuiltin() || clauses.length == 0) {
+            return false;
+        }
+        final String name = CLASS_PREFIX + (this.count + 1);
+        final ClassAssembler assembler = new ClassAssembler(name, SUPER_NAME);
+        addConstructor(assembler);
+
+        // Entry points for each method
+        final List<IntList> methods = new ArrayList<>();
+
+        Code method = null;
+        Label dispatch = null;
+        List<Label> labels = null;
+        for (final ClauseSymbol clause : clauses) {
+            if (method == null) {
+                method = new Code();
+                dispatch = new Label();
+                labels = new ArrayList<>();
+                methods.add(new IntList());
+                method.branch(GOTO, dispatch);
+            }
+            if (writeClause(assembler, method, clause.getHeapptr(), labels,
+                    methods.get(methods.size() - 1)) == -1) {
+                return false;
+            }
+            if (method.size() >= METHOD_SIZE) {
+                if (!addMethod(assembler, methods.size() - 1, method, dispatch,
+                        labels)) {
+                    return false;
+                }
+                method = null;
+            }
+        }
+        if (method != null && !addMethod(assembler, methods.size() - 1,
+                method, dispatch, labels)) {
+            return false;
+        }
+        addExecute(assembler, name, methods.size());
+
+        final CompiledPredicate compiled = load(name.replace('/', '.'),
+                assembler.toByteArray());
+        compiled.init(interpreter, symbol);
+        for (int k = 0; k < methods.size(); k++) {
+            final IntList entries = methods.get(k);
+            for (int i = 0; i < entries.size(); i++) {
+                this.code.setCompiled(entries.get(i), compiled, k << 16 | i);
+            }
+        }
+        this.count++;
+        return true;
+    }
+
+    // === Class structure ===
+
+    private static void addConstructor(final ClassAssembler assembler) {
+        final Code init = new Code();
+        init.op(ALOAD_0);
+        init.invoke(INVOKESPECIAL, assembler.methodRef(SUPER_NAME, "<init>",
+                "()V"));
+        init.op(ClassAssembler.RETURN);
+        assembler.addMethod(ACC_PUBLIC, "<init>", "()V", 1, 1, init);
+    }
+
+    // Adds the public execute method, dispatching to the method for an entry
+    private static void addExecute(final ClassAssembler assembler,
+            final String name, final int methods) {
+        final Code execute = new Code();
+        final Label[] labels = newLabels(methods);
+        execute.local(ILOAD, ENTRY);
+        execute.push(assembler, 16);
+        execute.op(IUSHR);
+        execute.tableswitch(labels);
+        for (int k = 0; k < methods; k++) {
+            execute.mark(labels[k]);
+            execute.op(ALOAD_0);
+            execute.local(ILOAD, ENTRY);
+            execute.push(assembler, 0xFFFF);
+            execute.op(IAND);
+            execute.local(ILOAD, ADDR);
+            execute.invoke(INVOKESPECIAL, assembler.methodRef(name,
+                    getMethodName(k), "(II)I"));
+            execute.op(IRETURN);
+        }
+        assembler.addMethod(ACC_PUBLIC, "execute", "(II)I", MAX_STACK,
+                MAX_LOCALS - 1, execute);
+    }
+
+    // Completes the method numbered k by appending the dispatch on its entry
+    // points, returning false if it grew too large
+    private static boolean addMethod(final ClassAssembler assembler,
+            final int k, final Code method, final Label dispatch,
+            final List<Label> labels) {
+        method.mark(dispatch);
+        method.local(ILOAD, ENTRY);
+        method.tableswitch(labels.toArray(new Label[labels.size()]));
+        // The branch to the dispatch only has a 16-bit offset, and entries
+        // only have 16 bits for numbering the entry points within a method
+        if (method.size() > Short.MAX_VALUE || labels.size() > 0xFFFF) {
+            return false;
+        }
+        assert method.size() <= MAX_CODE_SIZE;
+        assembler.addMethod(ACC_PRIVATE | ACC_FINAL, getMethodName(k),
+                "(II)I", MAX_STACK, MAX_LOCALS, method);
+        return true;
+    }
+
+    private static String getMethodName(final int k) {
+        return "clauses" + k;
+    }
+
+    private static Label[] newLabels(final int length) {
+        final Label[] result = new Label[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = new Label();
+        }
+        return result;
+    }
+
+    // === Clauses ===
+
+    /*
+     * Writes the code for the clause starting at the specified code address,
+     * adding a label to labels and the code address to entries for each of
+     * its entry points. Returns the code address following the clause, or -1
+     * if it contains an instruction that cannot be compiled.
+     */
+    private int writeClause(final ClassAssembler assembler, final Code method,
+            final int start, final List<Label> labels, final IntList entries) {
+        final Writer writer = new Writer(assembler, method);
+        writer.enter(start, labels, entries);
+        boolean isHead = true;
+        int depth = 0;
+        int pc = start;
+        while (true) {
+            final int opcode = this.code.getOpcode(pc);
+            final int operand = this.code.getOperand(pc);
+            final int next = pc + (opcode == POP || opcode == LIST
+                    || opcode == TAIL || opcode == EXIT ? 1 : 2);
+            switch (opcode) {
+            case FUNCTOR:
+                if (!isHead) {
+                    writer.apply("argFunctor", operand);
+                } else if (depth == 0) {
+                    writer.match("matchFunctor", operand);
+                } else {
+                    writer.matchOrCopy("matchFunctor", "argFunctor", operand);
+                }
+                depth++;
+                break;
+            case LIST:
+                if (!isHead) {
+                    writer.apply("argList");
+                } else if (depth == 0) {
+                    writer.match("matchList");
+                } else {
+                    writer.matchOrCopy("matchList", "argList");
+                }
+                depth++;
+                break;
+            case TAIL:
+                if (isHead) {
+                    writer.matchOrCopy("matchTail", "argTail");
+                } else {
+                    writer.apply("argTail");
+                }
+                break;
+            case POP:
+                writer.pop();
+                depth--;
+                break;
+            case CONSTANT:
+                if (!isHead) {
+                    writer.apply("copyConstant", operand);
+                } else if (depth == 0) {
+                    writer.match("matchConstant", operand);
+                } else {
+                    writer.matchOrCopy("matchConstant", "copyConstant",
+                            operand);
+                }
+                break;
+            case INTEGER:
+                if (!isHead) {
+                    writer.apply("copyInteger", operand);
+                } else if (depth == 0) {
+                    writer.match("matchInteger", operand);
+                } else {
+                    writer.matchOrCopy("matchInteger", "copyInteger",
+                            operand);
+                }
+                break;
+            case FIRSTVAR:
+                // Fall-through
+            case VAR: {
+                final String suffix = opcode == VAR ? "Variable"
+                        : "FirstVariable";
+                if (!isHead) {
+                    writer.apply((depth == 0 ? "arg" : "copy") + suffix,
+                            operand);
+                } else if (depth == 0) {
+                    writer.match("match" + suffix, operand);
+                } else {
+                    writer.matchOrCopy("match" + suffix, "copy" + suffix,
+                            operand);
+                }
+                break;
+            }
+            case ENTER:
+                writer.enterClause(operand);
+                isHead = false;
+                break;
+            case RETURN:
+                writer.leave("exitUnitClause", "(I)I", operand);
+                return next;
+            case EXIT:
+                writer.leave("exitClause", "()I", 0);
+                return next;
+            case CALL:
+                writer.call(pc, this.code.getOpcode(next) == EXIT);
+                writer.enter(next, labels, entries);
+                break;
+            case BUILTIN:
+                writer.builtin(pc);
+                break;
+            default:
+                return -1;
+            }
+            pc = next;
+        }
+    }
+
+    /*
+     * Writes the instructions of a clause to the code of a method. Each
+     * instruction is written as an invocation of the method implementing it,
+     * passing the address stored in the local variable ADDR along with its
+     * operand, and storing the result as the address for the next one.
+     */
+    private static final class Writer {
+
+        private final ClassAssembler assembler;
+        private final Code method;
+
+        private Writer(final ClassAssembler assembler, final Code method) {
+            this.assembler = assembler;
+            this.method = method;
+        }
+
+        // Starts an entry point at the specified code address
+        private void enter(final int pc, final List<Label> labels,
+                final IntList entries) {
+            final Label label = new Label();
+            this.method.mark(label);
+            labels.add(label);
+            entries.add(pc);
+            // Snapshot the number of failures for telling whether the
+            // instructions that follow caused the machine to backtrack
+            this.method.op(ALOAD_0);
+            invoke("failures", "()I");
+            this.method.local(ISTORE, FAILURES);
+        }
+
+        // Writes an instruction that may not fail
+        private void apply(final String name, final int operand) {
+            this.method.op(ALOAD_0);
+            this.method.local(ILOAD, ADDR);
+            this.method.push(this.assembler, operand);
+            invoke(name, "(II)I");
+            this.method.local(ISTORE, ADDR);
+        }
+
+        // Writes an instruction without operand that may not fail
+        private void apply(final String name) {
+            this.method.op(ALOAD_0);
+            this.method.local(ILOAD, ADDR);
+            invoke(name, "(I)I");
+            this.method.local(ISTORE, ADDR);
+        }
+
+        // Writes an instruction that may fail
+        private void match(final String name, final int operand) {
+            apply(name, operand);
+            checkFailure();
+        }
+
+        // Writes an instruction without operand that may fail
+        private void match(final String name) {
+            apply(name);
+            checkFailure();
+        }
+
+        // Writes an instruction whose implementation depends on the mode
+        private void matchOrCopy(final String match, final String copy,
+                final int operand) {
+            final Label isCopy = new Label();
+            final Label end = new Label();
+            testMode(isCopy);
+            match(match, operand);
+            this.method.branch(GOTO, end);
+            this.method.mark(isCopy);
+            apply(copy, operand);
+            this.method.mark(end);
+        }
+
+        // Writes an instruction without operand whose implementation depends
+        // on the mode
+        private void matchOrCopy(final String match, final String copy) {
+            final Label isCopy = new Label();
+            final Label end = new Label();
+            testMode(isCopy);
+            match(match);
+            this.method.branch(GOTO, end);
+            this.method.mark(isCopy);
+            apply(copy);
+            this.method.mark(end);
+        }
+
+        // Branches to the specified label unless in MATCH mode
+        private void testMode(final Label isCopy) {
+            this.method.op(ALOAD_0);
+            invoke("mode", "()I");
+            this.method.push(this.assembler, MATCH);
+            this.method.branch(IF_ICMPNE, isCopy);
+        }
+
+        private void pop() {
+            this.method.op(ALOAD_0);
+            invoke("pop", "()I");
+            this.method.local(ISTORE, ADDR);
+        }
+
+        private void enterClause(final int size) {
+            this.method.op(ALOAD_0);
+            this.method.push(this.assembler, size);
+            invoke("enterClause", "(I)I");
+            this.method.local(ISTORE, ADDR);
+        }
+
+        // Writes an instruction leaving the clause, returning its result
+        private void leave(final String name, final String descriptor,
+                final int size) {
+            this.method.op(ALOAD_0);
+            if (descriptor.equals("(I)I")) {
+                this.method.push(this.assembler, size);
+            }
+            invoke(name, descriptor);
+            this.method.op(IRETURN);
+        }
+
+        private void call(final int pc, final boolean isLastCall) {
+            this.method.op(ALOAD_0);
+            this.method.local(ILOAD, ADDR);
+            this.method.push(this.assembler, pc);
+            this.method.push(this.assembler, isLastCall ? 1 : 0);
+            invoke("callPredicate", "(IIZ)I");
+            this.method.op(IRETURN);
+        }
+
+        private void builtin(final int pc) {
+            apply("callBuiltin", pc);
+            checkFailure();
+        }
+
+        // Returns the address if the number of failures changed since the
+        // last entry point
+        private void checkFailure() {
+            final Label success = new Label();
+            this.method.op(ALOAD_0);
+            invoke("failures", "()I");
+            this.method.local(ILOAD, FAILURES);
+            this.method.branch(IF_ICMPEQ, success);
+            this.method.local(ILOAD, ADDR);
+            this.method.op(IRETURN);
+            this.method.mark(success);
+        }
+
+        private void invoke(final String name, final String descriptor) {
+            this.method.invoke(INVOKEVIRTUAL, this.assembler.methodRef(
+                    SUPER_NAME, name, descriptor));
+        }
+    }
+
+    // === Loading ===
+
+    // Loads and instantiates the generated class
+    private static CompiledPredicate load(final String name,
+            final byte[] bytes) {
+        try {
+            return new Loader().define(name, bytes).asSubclass(
+                    CompiledPredicate.class).getDeclaredConstructor()
+                    .newInstance();
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * Class loader for a single generated class, allowing the latter to be
+     * unloaded once its code was discarded. Delegates to the loader of
+     * CompiledPredicate for resolving the superclass.
+     */
+    private static final class Loader extends ClassLoader {
+
+        private Loader() {
+            super(CompiledPredicate.class.getClassLoader());
+        }
+
+        private Class<?> define(final String name, final byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.prolog.jvm.zip;
+
+import java.util.Map;
+
+import com.prolog.jvm.exceptions.BacktrackException;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.api.ZipInterpreter;
+
+/**
+ * Implementation of a {@link ZipInterpreter} that counts the calls to each
+ * predicate, and compiles the clauses of those called often enough into JVM
+ * bytecode through a {@link JitCompiler}. Instructions for which compiled code
+ * exists are executed by the latter, while the remaining ones are interpreted
+ * as by the {@link PredecodedZipInterpreter}. This includes all instructions
+ * of the query, as well as those executed while a
+ * {@link com.prolog.jvm.zip.api.StepListener} is registered, the compiled
+ * code not recording its steps.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class JitZipInterpreter extends PredecodedZipInterpreter {
+
+    private final DecodedCode code;
+    private final JitCompiler compiler;
+
+    // Number of calls after which a predicate is compiled
+    private final int threshold;
+
+    /**
+     *
+     * @param facade a facade for the ZIP's internals; not allowed to be null
+     * @param queryVars the names of the variables of the query being
+     * executed, keyed by their local stack addresses; not allowed to be null
+     * @param builtins the registry defining the predicates marked as
+     * {@link PredicateSymbol#isBuiltin() built-in}; not allowed to be null
+     * @param tables the tables for the predicates marked as
+     * {@link PredicateSymbol#isTabled() tabled}; not allowed to be null
+     * @param indexes the indexes on arguments other than the first, built
+     * upon demand; not allowed to be null
+     * @param code the decoded instructions for the code memory accessed by
+     * {@code facade}; not allowed to be null
+     * @param threshold the number of calls after which a predicate is
+     * compiled; must be {@code >= 1}
+     * @throws IllegalArgumentException if {@code threshold < 1}
+     */
+    public JitZipInterpreter(final ZipFacade facade,
+            final Map<Integer,String> queryVars,
+            final BuiltinRegistry builtins, final AnswerTables tables,
+            final ArgumentIndexes indexes, final DecodedCode code,
+            final int threshold) {
+        super(facade, queryVars, builtins, tables, indexes, code);
+        if (threshold < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.code = code;
+        this.compiler = new JitCompiler(code);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the number of predicates compiled so far, including those whose
+     * code was since discarded.
+     */
+    public int getCompiledCount() {
+        return this.compiler.getCount();
+    }
+
+    // === Fetch/Decode/Execute ===
+
+    // Steps start at the entry points of compiled code, being the first
+    // instructions of clauses and those following calls
+    @Override
+    protected int step(final int stackAddr) throws BacktrackException {
+        if (!isRecording()) {
+            final int pc = this.facade.getProgramCounter();
+            final CompiledPredicate compiled = this.code.getCompiled(pc);
+            if (compiled != null) {
+                return compiled.execute(this.code.getEntry(pc), stackAddr);
+            }
+        }
+        return super.step(stackAddr);
+    }
+
+    // Counts a call to the specified predicate, compiling it once it becomes
+    // hot
+    @Override
+    protected void profile(final PredicateSymbol symbol) {
+        if (symbol.countCall() == this.threshold) {
+            this.compiler.compile(symbol, this);
+        }
+    }
+
+    // === Instructions invoked by compiled code ===
+
+    /*
+     * Implements the CALL at the specified code address. The program counter
+     * is set past the instruction first, it being saved as the return address.
+     */
+    final int callAt(final int stackAddr, final int codeAddr,
+            final boolean isLastCall) throws BacktrackException {
+        final PredicateSymbol symbol = this.code.getPredicate(codeAddr);
+        profile(symbol);
+        this.facade.setProgramCounter(codeAddr + 2);
+        return callPredicate(stackAddr, symbol, isLastCall);
+    }
+
+    /*
+     * Implements the BUILTIN at the specified code address. The program
+     * counter is set past the instruction first, execution resuming there.
+     */
+    final int callBuiltinAt(final int stackAddr, final int codeAddr)
+            throws BacktrackException {
+        this.facade.setProgramCounter(codeAddr + 2);
+        return callBuiltin(stackAddr, this.code.getPredicate(codeAddr));
+    }
+}
@@ -0,0 +1,260 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.Instructions.ARG;
+import static com.prolog.jvm.zip.util.Instructions.BUILTIN;
+import static com.prolog.jvm.zip.util.Instructions.CALL;
+import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
+import static com.prolog.jvm.zip.util.Instructions.COPY;
+import static com.prolog.jvm.zip.util.Instructions.ENTER;
+import static com.prolog.jvm.zip.util.Instructions.EXIT;
+import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
+import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.LIST;
+import static com.prolog.jvm.zip.util.Instructions.MATCH;
+import static com.prolog.jvm.zip.util.Instructions.POP;
+import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.TAIL;
+import static com.prolog.jvm.zip.util.Instructions.VAR;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Map;
+
+import com.prolog.jvm.exceptions.BacktrackException;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.api.ZipInterpreter;
+import com.prolog.jvm.zip.util.Instructions;
+
+/**
+ * Implementation of a {@link ZipInterpreter} that dispatches on instructions
+ * that were decoded ahead of time into a {@link DecodedCode}, rather than
+ * reading them from code memory. Each step thus costs a few array accesses for
+ * obtaining the opcode and its operand, with symbolic operands already
+ * resolved against the constant pool. Moreover, the instructions of a clause
+ * are executed by a single loop, holding the program counter and machine mode
+ * in local variables. Apart from that, its behavior is identical to that of
+ * {@link ZipInterpreterImpl}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public class PredecodedZipInterpreter extends AbstractZipInterpreter {
+
+    private final DecodedCode code;
+
+    /**
+     *
+     * @param facade a facade for the ZIP's internals; not allowed to be null
+     * @param queryVars the names of the variables of the query being
+     * executed, keyed by their local stack addresses; not allowed to be null
+     * @param builtins the registry defining the predicates marked as
+     * {@link PredicateSymbol#isBuiltin() built-in}; not allowed to be null
+     * @param tables the tables for the predicates marked as
+     * {@link PredicateSymbol#isTabled() tabled}; not allowed to be null
+     * @param indexes the indexes on arguments other than the first, built
+     * upon demand; not allowed to be null
+     * @param code the decoded instructions for the code memory accessed by
+     * {@code facade}; not allowed to be null
+     */
+    public PredecodedZipInterpreter(final ZipFacade facade,
+            final Map<Integer,String> queryVars,
+            final BuiltinRegistry builtins,
+            final AnswerTables tables, final ArgumentIndexes indexes,
+            final DecodedCode code) {
+        super(facade, queryVars, builtins, tables, indexes);
+        this.code = requireNonNull(code);
+    }
+
+    // === Fetch/Decode/Execute ===
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unless the step is being recorded, this implementation goes on to
+     * execute the instructions following the first one, up to and including
+     * the first that leaves the current clause or fails. Meanwhile, the
+     * program counter and the machine mode are kept in local variables, the
+     * former being written back only once the loop is left, and the latter
+     * being read anew only after instructions that may change it. Each call
+     * thus starts at a clause's first instruction, or at one following a
+     * call.
+     */
+    @Override
+    protected int step(final int stackAddr) throws BacktrackException {
+        final boolean isRecording = isRecording();
+        final int failures = getFailures();
+        int pc = this.facade.getProgramCounter();
+        int mode = this.facade.getMode();
+        int addr = stackAddr;
+        do {
+            final int operator = mode | this.code.getOpcode(pc);
+            startEvent(addr, pc + 1, operator);
+            switch (operator) {
+            case MATCH | FUNCTOR:
+                addr = matchFunctor(addr, getFunctorOperand(pc));
+                mode = this.facade.getMode();
+                pc += 2;
+                break;
+            case MATCH | CONSTANT:
+                addr = matchConstant(addr, getFunctorOperand(pc));
+                pc += 2;
+                break;
+            case MATCH | INTEGER:
+                addr = matchInteger(addr, getIntegerOperand(pc));
+                pc += 2;
+                break;
+            case MATCH | FIRSTVAR:
+                addr = matchVariable(true, addr, getVarOperand(pc));
+                pc += 2;
+                break;
+            case MATCH | VAR:
+                addr = matchVariable(false, addr, getVarOperand(pc));
+                pc += 2;
+                break;
+            case MATCH | ENTER:
+                addr = enterClause(getSizeOperand(pc));
+                mode = this.facade.getMode();
+                pc += 2;
+                break;
+            case MATCH | RETURN:
+                this.facade.setProgramCounter(pc + 2);
+                return exitUnitClause(getSizeOperand(pc));
+            case MATCH | LIST:
+                addr = matchList(addr, false);
+                mode = this.facade.getMode();
+                pc++;
+                break;
+            case MATCH | TAIL:
+                addr = matchList(addr, true);
+                mode = this.facade.getMode();
+                pc++;
+                break;
+            case ARG | LIST:
+                // Fall-through
+            case COPY | LIST:
+                addr = argList(addr, false);
+                mode = this.facade.getMode();
+                pc++;
+                break;
+            case COPY | TAIL:
+                addr = argList(addr, true);
+                mode = this.facade.getMode();
+                pc++;
+                break;
+            case MATCH | POP:
+                // Fall-through
+            case COPY | POP:
+                addr = this.facade.popFromScratchpad();
+                mode = this.facade.getMode();
+                pc++;
+                break;
+            case COPY | FUNCTOR:
+                // Fall-through
+            case ARG | FUNCTOR:
+                addr = argFunctor(addr, getFunctorOperand(pc));
+                mode = this.facade.getMode();
+                pc += 2;
+                break;
+            case COPY | CONSTANT:
+                // Fall-through
+            case ARG | CONSTANT:
+                addr = copyConstant(addr, getFunctorOperand(pc));
+                pc += 2;
+                break;
+            case COPY | INTEGER:
+                // Fall-through
+            case ARG | INTEGER:
+                addr = copyInteger(addr, getIntegerOperand(pc));
+                pc += 2;
+                break;
+            case COPY | FIRSTVAR:
+                addr = copyVariable(true, addr, getVarOperand(pc));
+                pc += 2;
+                break;
+            case COPY | VAR:
+                addr = copyVariable(false, addr, getVarOperand(pc));
+                pc += 2;
+                break;
+            case ARG | FIRSTVAR:
+                addr = argVariable(true, addr, getVarOperand(pc));
+                pc += 2;
+                break;
+            case ARG | VAR:
+                addr = argVariable(false, addr, getVarOperand(pc));
+                pc += 2;
+                break;
+            case ARG | CALL: {
+                final PredicateSymbol symbol = getPredicateOperand(pc);
+                profile(symbol);
+                this.facade.setProgramCounter(pc + 2);
+                return callPredicate(addr, symbol,
+                        this.code.getOpcode(pc + 2) == EXIT);
+            }
+            case ARG | BUILTIN: {
+                final PredicateSymbol symbol = getPredicateOperand(pc);
+                this.facade.setProgramCounter(pc + 2);
+                return callBuiltin(addr, symbol);
+            }
+            case ARG | EXIT:
+                this.facade.setProgramCounter(pc + 1);
+                return exitClause();
+            default:
+                throw new IllegalArgumentException(Instructions.toString(
+                        operator));
+            }
+            // Backtracking already set the program counter and mode
+            if (getFailures() != failures) {
+                return addr;
+            }
+        } while (!isRecording);
+        this.facade.setProgramCounter(pc);
+        return addr;
+    }
+
+    /**
+     * Hook invoked upon executing a {@code CALL} to the specified predicate,
+     * before the program counter is set past the instruction. This
+     * implementation does nothing.
+     */
+    protected void profile(final PredicateSymbol symbol) {
+        // Does nothing.
+    }
+
+    // === Convenience methods for reading pre-decoded operands ===
+
+    // operand for FUNCTOR and CONSTANT, returned as a constant pool index
+    private int getFunctorOperand(final int pc) {
+        setOperand(this.code.getFunctor(pc));
+        return this.code.getOperand(pc);
+    }
+
+    // operand for CALL and BUILTIN
+    private PredicateSymbol getPredicateOperand(final int pc) {
+        final PredicateSymbol symbol = this.code.getPredicate(pc);
+        setOperand(symbol);
+        return symbol;
+    }
+
+    // operand for FIRSTVAR and VAR, returned as a local stack address
+    private int getVarOperand(final int pc) {
+        final int address = this.facade.getVariableAddress(
+                this.code.getOperand(pc));
+        setOperand(address, true);
+        return address;
+    }
+
+    // operand for INTEGER
+    private int getIntegerOperand(final int pc) {
+        final int value = this.code.getOperand(pc);
+        setOperand(value, false);
+        return value;
+    }
+
+    // operand for ENTER and RETURN
+    private int getSizeOperand(final int pc) {
+        final int size = this.code.getOperand(pc);
+        setOperand(size, false);
+        return size;
+    }
+}
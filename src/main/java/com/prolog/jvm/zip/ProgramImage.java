@@ -0,0 +1,373 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.Instructions.BUILTIN;
+import static com.prolog.jvm.zip.util.Instructions.CALL;
+import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
+import static com.prolog.jvm.zip.util.Instructions.ENTER;
+import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
+import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.VAR;
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_HEAP_INDEX;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.PredicateSymbol;
+import com.prolog.jvm.symbol.Scope;
+import com.prolog.jvm.symbol.SymbolKey;
+import com.prolog.jvm.symbol.SymbolKeys;
+import com.prolog.jvm.zip.api.PrologBytecode;
+
+/**
+ * Utility class for writing a compiled program to a binary image and for
+ * restoring it from one, so that a program need only be compiled once. An
+ * image captures the three parts of a program's state that survive
+ * compilation: the predicate- and clause symbols, the constant pool and the
+ * bytecode.
+ * <p>
+ * All integers are written in big-endian order, and strings as their length
+ * in bytes followed by their UTF-8 encoding. An image consists of:
+ * <ol>
+ * <li>The magic number {@link #MAGIC} and the format {@link #VERSION}.
+ * <li>The number of predicates, followed for each by its name, its arity, a
+ * byte of flags telling whether it is dynamic, built-in or tabled, its number
+ * of clauses and, for each clause in program order, its number of parameters,
+ * its number of local variables, its heap offset, its index key (a flag,
+ * followed by the functor's name and arity if set) and its head keys (their
+ * number, being 0 if not set, followed by as many words). Built-in predicates
+ * are not restored from the image, but looked up in the scope it is read into.
+ * <li>The size of the constant pool, followed for each entry after the first
+ * (reserved) one by a tag and either a functor's name and arity, or the
+ * position of a predicate in the above table.
+ * <li>The code size, followed by the words of code memory from
+ * {@link com.prolog.jvm.zip.util.MemoryConstants#MIN_HEAP_INDEX} onwards.
+ * </ol>
+ * Clauses added to dynamic predicates at runtime are included, while those
+ * removed are not. Answer tables are not, being recomputed upon demand.
+ * <p>
+ * Restoring an image is a single pass over its contents, proportional to its
+ * size. Since the bytecode is replayed through {@link PrologBytecode}, any
+ * pre-decoded shadow of code memory is rebuilt along the way.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ProgramImage {
+
+    /**
+     * The magic number with which every image starts.
+     */
+    public static final int MAGIC = 0x504A564D; // "PJVM"
+
+    /**
+     * The version of the image format.
+     */
+    public static final int VERSION = 6;
+
+    // Tags for constant pool entries
+    private static final byte FUNCTOR_TAG = 0;
+    private static final byte PREDICATE_TAG = 1;
+
+    // Flags for predicates
+    private static final byte DYNAMIC_FLAG = 1;
+    private static final byte BUILTIN_FLAG = 2;
+    private static final byte TABLED_FLAG = 4;
+
+    private static final String INVALID_IMAGE = "Invalid program image: %s";
+
+    // Private constructor to prevent instantiation
+    private ProgramImage() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns whether the file at the specified {@code path} starts with
+     * {@link #MAGIC}, suggesting it contains an image rather than source code.
+     *
+     * @param path the file to check; not allowed to be null
+     * @throws NullPointerException if {@code path == null}
+     * @throws IOException
+     */
+    public static boolean isImage(final Path path) throws IOException {
+        try (final DataInputStream in = new DataInputStream(
+                Files.newInputStream(path))) {
+            return in.readInt() == MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes an image of the program compiled into {@code code}, whose
+     * predicates were resolved against {@code scope}.
+     *
+     * @param out the target to write to; not allowed to be null
+     * @param code the compiled program; not allowed to be null
+     * @param constants the constant pool of {@code code}; not allowed to be
+     * null
+     * @param scope the root scope against which the program was compiled; not
+     * allowed to be null
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalStateException if the constant pool contains an entry
+     * other than a {@link FunctorSymbol} or a {@link PredicateSymbol}
+     * @throws IOException
+     */
+    public static void write(final DataOutput out, final PrologBytecode<?> code,
+            final List<Object> constants, final Scope scope)
+            throws IOException {
+        requireNonNull(out);
+        requireNonNull(code);
+        requireNonNull(scope);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+
+        // Predicate table
+        final List<PredicateSymbol> predicates = new ArrayList<>();
+        for (final SymbolKey<?> key : scope.getKeys()) {
+            if (key.getSymbolClass().equals(PredicateSymbol.class)) {
+                predicates.add((PredicateSymbol) scope.resolveLocal(key));
+            }
+        }
+        final Map<PredicateSymbol,Integer> positions = new IdentityHashMap<>();
+        out.writeInt(predicates.size());
+        for (final PredicateSymbol predicate : predicates) {
+            positions.put(predicate, Integer.valueOf(positions.size()));
+            writeString(out, predicate.getName());
+            out.writeInt(predicate.getArity());
+            writePredicate(out, predicate);
+        }
+
+        // Constant pool
+        out.writeInt(constants.size());
+        for (int i = 1; i < constants.size(); i++) {
+            final Object entry = constants.get(i);
+            if (entry instanceof FunctorSymbol) {
+                out.writeByte(FUNCTOR_TAG);
+                writeFunctor(out, (FunctorSymbol) entry);
+            } else if (entry instanceof PredicateSymbol) {
+                out.writeByte(PREDICATE_TAG);
+                out.writeInt(positions.get(entry).intValue());
+            } else {
+                throw new IllegalStateException(String.valueOf(entry));
+            }
+        }
+
+        // Code memory
+        final int size = code.getCodeSize();
+        out.writeInt(size);
+        for (int address = MIN_HEAP_INDEX; address < size; address++) {
+            out.writeInt(code.read(address));
+        }
+    }
+
+    /**
+     * Restores the program contained in the image read from {@code in},
+     * writing its bytecode to {@code code} and defining its predicate-, clause-
+     * and functor symbols in {@code scope}. Both are expected to be pristine,
+     * as left by {@link PrologBytecode#setMemento(PrologBytecode.Memento)} and
+     * {@link Scope#newRootInstance()}, respectively, except for the built-in
+     * predicates, which must already be defined in {@code scope}.
+     *
+     * @param in the image, positioned at its start; not allowed to be null
+     * @param code the target for the restored bytecode; not allowed to be null
+     * @param scope the root scope for the restored symbols; not allowed to be
+     * null
+     * @throws NullPointerException if any argument is null
+     * @throws IOException if {@code in} does not contain a valid image
+     */
+    public static void read(final ByteBuffer in, final PrologBytecode<?> code,
+            final Scope scope) throws IOException {
+        requireNonNull(in);
+        requireNonNull(code);
+        requireNonNull(scope);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw invalid("wrong magic number");
+            }
+            final int version = in.getInt();
+            if (version != VERSION) {
+                throw invalid("unsupported version " + version);
+            }
+
+            // Predicate table
+            final PredicateSymbol[] predicates = new PredicateSymbol[in
+                    .getInt()];
+            for (int i = 0; i < predicates.length; i++) {
+                predicates[i] = readPredicate(in, scope);
+            }
+
+            // Constant pool
+            final int poolSize = in.getInt();
+            for (int i = 1; i < poolSize; i++) {
+                final Object entry;
+                final byte tag = in.get();
+                if (tag == FUNCTOR_TAG) {
+                    final FunctorSymbol functor = readFunctor(in);
+                    scope.defineGlobal(SymbolKeys.ofFunctor(functor.getName(),
+                            functor.getArity()), functor);
+                    entry = functor;
+                } else if (tag == PREDICATE_TAG) {
+                    entry = predicates[in.getInt()];
+                } else {
+                    throw invalid("unknown tag " + tag);
+                }
+                if (code.getConstantPoolIndex(entry) != i) {
+                    throw invalid("duplicate constant " + entry);
+                }
+            }
+
+            // Code memory, replayed instruction by instruction
+            final int size = in.getInt();
+            while (code.getCodeSize() < size) {
+                final int opcode = in.getInt();
+                if (hasOperand(opcode)) {
+                    code.writeIns(opcode, in.getInt());
+                } else {
+                    code.writeIns(opcode); // throws IllegalArgumentException
+                }
+            }
+            if (code.getCodeSize() != size) {
+                throw invalid("truncated instruction");
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException(String.format(INVALID_IMAGE, e), e);
+        }
+    }
+
+    // Writes the flags and clauses of the specified predicate
+    private static void writePredicate(final DataOutput out,
+            final PredicateSymbol predicate) throws IOException {
+        out.writeByte((predicate.isDynamic() ? DYNAMIC_FLAG : 0)
+                | (predicate.isBuiltin() ? BUILTIN_FLAG : 0)
+                | (predicate.isTabled() ? TABLED_FLAG : 0));
+        final ClauseSymbol[] clauses = predicate.getAlternatives(null);
+        out.writeInt(clauses.length);
+        for (final ClauseSymbol c : clauses) {
+            out.writeInt(c.getParams());
+            out.writeInt(c.getLocals());
+            out.writeInt(c.getHeapptr());
+            final FunctorSymbol key = c.getKey();
+            out.writeBoolean(key != null);
+            if (key != null) {
+                writeFunctor(out, key);
+            }
+            final int[] keys = c.getHeadKeys();
+            out.writeInt(keys == null ? 0 : keys.length);
+            if (keys != null) {
+                for (final int k : keys) {
+                    out.writeInt(k);
+                }
+            }
+        }
+    }
+
+    // Reads a predicate and its clauses, defining them in the specified scope
+    private static PredicateSymbol readPredicate(final ByteBuffer in,
+            final Scope scope) throws IOException {
+        final String name = readString(in);
+        final int arity = in.getInt();
+        final byte flags = in.get();
+        final int count = in.getInt();
+        final SymbolKey<PredicateSymbol> key = SymbolKeys.ofPredicate(name,
+                arity);
+        if ((flags & BUILTIN_FLAG) != 0) {
+            final PredicateSymbol builtin = scope.resolveGlobal(key);
+            if (builtin == null || !builtin.isBuiltin() || count != 0) {
+                throw invalid("unknown built-in " + name + "/" + arity);
+            }
+            return builtin;
+        }
+        final PredicateSymbol predicate = new PredicateSymbol(name, arity);
+        if ((flags & DYNAMIC_FLAG) != 0) {
+            predicate.setDynamic();
+        }
+        if ((flags & TABLED_FLAG) != 0) {
+            predicate.setTabled();
+        }
+        if (count < 0 || count == 0 && !predicate.isDynamic()) {
+            throw invalid("no clauses for " + predicate);
+        }
+        for (int i = 0; i < count; i++) {
+            final ClauseSymbol clause = new ClauseSymbol();
+            clause.setParams(in.getInt());
+            clause.setLocals(in.getInt());
+            clause.setHeapptr(in.getInt());
+            final FunctorSymbol index = in.get() != 0 ? readFunctor(in)
+                    : null;
+            final int[] keys = new int[in.getInt()];
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = in.getInt();
+            }
+            clause.setHeadKeys(keys.length == 0 ? null : keys);
+            predicate.addClause(clause, index);
+        }
+        scope.defineGlobal(key, predicate);
+        return predicate;
+    }
+
+    private static void writeFunctor(final DataOutput out,
+            final FunctorSymbol functor) throws IOException {
+        writeString(out, functor.getName());
+        out.writeInt(functor.getArity());
+    }
+
+    private static FunctorSymbol readFunctor(final ByteBuffer in) {
+        final String name = readString(in);
+        final int arity = in.getInt();
+        if (arity < 0) {
+            throw new IllegalArgumentException("negative arity");
+        }
+        return FunctorSymbol.valueOf(name, arity);
+    }
+
+    private static void writeString(final DataOutput out, final String str)
+            throws IOException {
+        final byte[] bytes = str.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static boolean hasOperand(final int opcode) {
+        switch (opcode) {
+        case FUNCTOR:
+        case CONSTANT:
+        case INTEGER:
+        case FIRSTVAR:
+        case VAR:
+        case CALL:
+        case BUILTIN:
+        case ENTER:
+        case RETURN:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private static IOException invalid(final String reason) {
+        return new IOException(String.format(INVALID_IMAGE, reason));
+    }
+}
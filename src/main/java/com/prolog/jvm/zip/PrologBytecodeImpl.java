@@ -1,26 +1,41 @@
 package com.prolog.jvm.zip;
 
+import static com.prolog.jvm.zip.util.Instructions.BUILTIN;
 import static com.prolog.jvm.zip.util.Instructions.CALL;
 import static com.prolog.jvm.zip.util.Instructions.CONSTANT;
 import static com.prolog.jvm.zip.util.Instructions.ENTER;
 import static com.prolog.jvm.zip.util.Instructions.EXIT;
 import static com.prolog.jvm.zip.util.Instructions.FIRSTVAR;
 import static com.prolog.jvm.zip.util.Instructions.FUNCTOR;
+import static com.prolog.jvm.zip.util.Instructions.INTEGER;
+import static com.prolog.jvm.zip.util.Instructions.LIST;
 import static com.prolog.jvm.zip.util.Instructions.POP;
 import static com.prolog.jvm.zip.util.Instructions.RETURN;
+import static com.prolog.jvm.zip.util.Instructions.TAIL;
 import static com.prolog.jvm.zip.util.Instructions.VAR;
 import static java.util.Objects.requireNonNull;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import com.prolog.jvm.zip.PrologBytecodeImpl.MementoImpl;
 import com.prolog.jvm.zip.api.MemoryArea;
 import com.prolog.jvm.zip.api.PrologBytecode;
 import com.prolog.jvm.zip.util.Instructions;
+import com.prolog.jvm.zip.util.IntList;
 import com.prolog.jvm.zip.util.MemoryConstants;
 
 /**
  * Implementation of {@link PrologBytecode}.
+ * <p>
+ * Retained code lies below {@link #getCodeSize()}, possibly interleaved with
+ * the code for earlier queries. Upon {@link #setMemento(PrologBytecode.Memento)
+ * restoring a memento}, the latter is discarded and its space added to that of
+ * any freed code. Such space is filled with {@link Instructions#POP}, so that
+ * code memory remains a valid instruction sequence, and adjacent spaces are
+ * coalesced. Movable code is placed in the first freed space it fits.
  *
  * @author Arno Bastenhof
  *
@@ -29,13 +44,47 @@ public final class PrologBytecodeImpl implements PrologBytecode<MementoImpl> {
 
     private final MemoryArea code;
     private final List<Object> constants;
+    private final DecodedCode decoded;
 
     private int codeptr = MemoryConstants.MIN_HEAP_INDEX;
 
+    // Code and constants below these bounds survive setMemento
+    private int retainedCodeptr = MemoryConstants.MIN_HEAP_INDEX;
+    private int retainedPoolSize;
+
+    // Start of the code written since the last memento was created or
+    // restored, or since code was last retained in place
+    private int unretained = MemoryConstants.MIN_HEAP_INDEX;
+
+    // Sizes of the retained code blocks, keyed on their addresses
+    private final Map<Integer,Integer> retained = new HashMap<>();
+
+    // Sizes of the freed spaces, keyed on their addresses
+    private final TreeMap<Integer,Integer> freed = new TreeMap<>();
+
+    // Addresses and sizes of the code in between retained code, to be freed
+    // upon the next setMemento
+    private final IntList discarded = new IntList();
+
     public PrologBytecodeImpl(final List<Object> constants,
             final MemoryArea code) {
+        this(constants, code, null);
+    }
+
+    /**
+     * Creates a {@link PrologBytecode} that additionally records every written
+     * instruction in the specified {@link DecodedCode}.
+     *
+     * @param constants the constant pool; not allowed to be null
+     * @param code the code memory; not allowed to be null
+     * @param decoded the pre-decoded shadow of {@code code}, or null if none
+     * need be maintained
+     */
+    public PrologBytecodeImpl(final List<Object> constants,
+            final MemoryArea code, final DecodedCode decoded) {
         this.constants = requireNonNull(constants);
         this.code = requireNonNull(code);
+        this.decoded = decoded;
     }
 
     @Override
@@ -45,14 +94,23 @@ public final class PrologBytecodeImpl implements PrologBytecode<MementoImpl> {
 
     @Override
     public void writeIns(final int opcode, final int operand) {
-        writeOpcode(opcode, FUNCTOR, CONSTANT, FIRSTVAR, VAR, CALL,
-                ENTER, RETURN);
+        writeOpcode(opcode, FUNCTOR, CONSTANT, INTEGER, FIRSTVAR, VAR, CALL,
+                BUILTIN, ENTER, RETURN);
+        if (this.decoded != null) {
+            final boolean isSymbolic = opcode == FUNCTOR || opcode == CONSTANT
+                    || opcode == CALL || opcode == BUILTIN;
+            this.decoded.write(this.codeptr - 1, opcode, operand,
+                    isSymbolic ? this.constants.get(operand) : null);
+        }
         this.code.writeTo(this.codeptr++, operand);
     }
 
     @Override
     public void writeIns(final int opcode) {
-        writeOpcode(opcode, POP, EXIT);
+        writeOpcode(opcode, POP, LIST, TAIL, EXIT);
+        if (this.decoded != null) {
+            this.decoded.write(this.codeptr - 1, opcode, 0, null);
+        }
     }
 
     /*
@@ -87,13 +145,116 @@ public final class PrologBytecodeImpl implements PrologBytecode<MementoImpl> {
 
     @Override
     public MementoImpl createMemento() {
+        this.unretained = this.codeptr;
         return new MementoImpl(this.codeptr, this.constants.size());
     }
 
     @Override
     public void setMemento(final MementoImpl memento) {
-        this.codeptr = memento.codeptr;
-        this.constants.subList(memento.poolSize, this.constants.size()).clear();
+        for (int i = 0; i < this.discarded.size(); i += 2) {
+            addFreed(this.discarded.get(i), this.discarded.get(i + 1));
+        }
+        this.discarded.clear();
+        this.codeptr = Math.max(memento.codeptr, this.retainedCodeptr);
+        this.unretained = this.codeptr;
+        this.constants.subList(Math.max(memento.poolSize,
+                this.retainedPoolSize), this.constants.size()).clear();
+    }
+
+    @Override
+    public int retain(final int address, final boolean movable) {
+        if (address < this.unretained || address > this.codeptr) {
+            throw new IllegalArgumentException();
+        }
+        final int size = this.codeptr - address;
+        this.retainedPoolSize = this.constants.size();
+        if (movable) {
+            for (final Map.Entry<Integer,Integer> e : this.freed.entrySet()) {
+                final int space = e.getValue().intValue();
+                if (space >= size) {
+                    final int target = e.getKey().intValue();
+                    this.freed.remove(e.getKey());
+                    if (space > size) {
+                        this.freed.put(Integer.valueOf(target + size),
+                                Integer.valueOf(space - size));
+                    }
+                    copy(address, target);
+                    this.retained.put(Integer.valueOf(target),
+                            Integer.valueOf(size));
+                    return target;
+                }
+            }
+        }
+        if (address > this.unretained) {
+            this.discarded.add(this.unretained);
+            this.discarded.add(address - this.unretained);
+        }
+        this.retained.put(Integer.valueOf(address), Integer.valueOf(size));
+        this.retainedCodeptr = this.codeptr;
+        this.unretained = this.codeptr;
+        return address;
+    }
+
+    @Override
+    public void free(final int address) {
+        final Integer size = this.retained.remove(Integer.valueOf(address));
+        if (size == null) {
+            throw new IllegalArgumentException();
+        }
+        addFreed(address, size.intValue());
+    }
+
+    @Override
+    public void release() {
+        this.retainedCodeptr = MemoryConstants.MIN_HEAP_INDEX;
+        this.retainedPoolSize = 0;
+        this.retained.clear();
+        this.freed.clear();
+        this.discarded.clear();
+    }
+
+    /*
+     * Moves the instructions written from the specified address onwards to
+     * the given target address, restoring the code size to the former.
+     */
+    private void copy(final int address, final int target) {
+        final int end = this.codeptr;
+        this.codeptr = target;
+        for (int pc = address; pc < end;) {
+            final int opcode = this.code.readFrom(pc++);
+            if (opcode == POP || opcode == LIST || opcode == TAIL
+                    || opcode == EXIT) {
+                writeIns(opcode);
+            } else {
+                writeIns(opcode, this.code.readFrom(pc++));
+            }
+        }
+        this.codeptr = address;
+    }
+
+    // Fills the specified space and adds it to the freed ones, coalescing it
+    // with those adjacent to it
+    private void addFreed(final int address, final int size) {
+        final int end = this.codeptr;
+        for (this.codeptr = address; this.codeptr < address + size;) {
+            writeIns(POP);
+        }
+        this.codeptr = end;
+        int start = address;
+        int space = size;
+        final Map.Entry<Integer,Integer> lower = this.freed.lowerEntry(
+                Integer.valueOf(address));
+        if (lower != null && lower.getKey().intValue() + lower.getValue()
+                .intValue() == address) {
+            start = lower.getKey().intValue();
+            space += lower.getValue().intValue();
+        }
+        final Integer upper = this.freed.remove(Integer.valueOf(address
+                + size));
+        if (upper != null) {
+            space += upper.intValue();
+        }
+        this.freed.put(Integer.valueOf(start), Integer.valueOf(space));
     }
 
     /**
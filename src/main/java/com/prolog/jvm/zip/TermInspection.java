@@ -0,0 +1,261 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.PlWords.BIG;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.REF;
+import static com.prolog.jvm.zip.util.PlWords.STR;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+import static java.util.Objects.requireNonNull;
+
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.PrologBytecode;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.IntList;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * The built-in predicates for unifying, testing and taking apart terms: the
+ * unification {@code =/2} and its negation {@code \=/2}, the type tests
+ * {@code var/1}, {@code nonvar/1}, {@code atom/1} and {@code integer/1}, and
+ * {@code functor/3} and {@code arg/3}. Lists are treated as compound terms
+ * with the functor {@link FunctorSymbol#LIST}.
+ * <p>
+ * Functors built by {@code functor/3} are added to the constant pool for as
+ * long as the query that built them lasts, or longer if they end up in clauses
+ * added through {@link DynamicDatabase}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class TermInspection {
+
+    private static final String FUNCTOR = "functor";
+    private static final String ARG = "arg";
+
+    private final PrologBytecode<?> code;
+
+    // Addresses bound by \=/2, which are reset afterwards
+    private final IntList bindings = new IntList();
+
+    /**
+     *
+     * @param code the bytecode whose constant pool receives the functors built
+     * by {@code functor/3}; not allowed to be null
+     * @throws NullPointerException if {@code code == null}
+     */
+    public TermInspection(final PrologBytecode<?> code) {
+        this.code = requireNonNull(code);
+    }
+
+    /**
+     * Defines the built-in predicates for unifying, testing and taking apart
+     * terms in the specified registry.
+     *
+     * @param builtins the registry to define the built-in predicates in; not
+     * allowed to be null
+     * @throws NullPointerException if {@code builtins == null}
+     */
+    public void defineBuiltins(final BuiltinRegistry builtins) {
+        builtins.define("=", 2, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return facade.unify(argAddress, argAddress + 1, null);
+            }
+        });
+        builtins.define("\\=", 2, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return !unifiable(facade, argAddress, argAddress + 1);
+            }
+        });
+        builtins.define("var", 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return getTag(facade, argAddress) == REF;
+            }
+        });
+        builtins.define("nonvar", 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return getTag(facade, argAddress) != REF;
+            }
+        });
+        builtins.define("atom", 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return getTag(facade, argAddress) == CONS;
+            }
+        });
+        builtins.define("integer", 1, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                final int tag = getTag(facade, argAddress);
+                return tag == INT || tag == BIG;
+            }
+        });
+        builtins.define(FUNCTOR, 3, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return functor(facade, argAddress);
+            }
+        });
+        builtins.define(ARG, 3, new Builtin() {
+            @Override
+            public boolean call(final ZipFacade facade, final int argAddress) {
+                return arg(facade, argAddress);
+            }
+        });
+    }
+
+    // === \=/2 ===
+
+    // Returns whether the specified terms unify, undoing any bindings made
+    private boolean unifiable(final ZipFacade facade, final int address1,
+            final int address2) {
+        this.bindings.clear();
+        final boolean result = facade.unify(address1, address2,
+                this.bindings);
+        for (int i = 0; i < this.bindings.size(); i++) {
+            final int address = this.bindings.get(i);
+            facade.setWord(address, getWord(REF, address));
+        }
+        return result;
+    }
+
+    // === functor/3 ===
+
+    private boolean functor(final ZipFacade facade, final int argAddr) {
+        final int word = facade.getWordAt(argAddr);
+        switch (PlWords.getTag(word)) {
+        case STR: {
+            final int index = PlWords.getValue(facade.getWordAt(PlWords
+                    .getValue(word)));
+            final FunctorSymbol functor = facade.getConstant(index,
+                    FunctorSymbol.class);
+            return decompose(facade, argAddr, functor);
+        }
+        case LIS:
+            return decompose(facade, argAddr, FunctorSymbol.LIST);
+        case REF:
+            return construct(facade, argAddr, PlWords.getValue(word));
+        default:
+            // Atomic terms are their own names, with arity 0
+            return unifyAtomic(facade, argAddr + 1, word)
+                    && unifyAtomic(facade, argAddr + 2,
+                            facade.pushInteger(0));
+        }
+    }
+
+    // Unifies the name and arity of a compound term with those of its functor
+    private boolean decompose(final ZipFacade facade, final int argAddr,
+            final FunctorSymbol functor) {
+        final int name = getWord(CONS, this.code.getConstantPoolIndex(
+                FunctorSymbol.valueOf(functor.getName())));
+        return unifyAtomic(facade, argAddr + 1, name)
+                && unifyAtomic(facade, argAddr + 2,
+                        facade.pushInteger(functor.getArity()));
+    }
+
+    // Binds the specified variable to a term with the given name and arity
+    private boolean construct(final ZipFacade facade, final int argAddr,
+            final int var) {
+        final int name = facade.getWordAt(argAddr + 1);
+        final int arity = facade.getWordAt(argAddr + 2);
+        final int nameTag = PlWords.getTag(name);
+        final int arityTag = PlWords.getTag(arity);
+        if (nameTag == REF || arityTag == REF) {
+            throw new IllegalArgumentException(FUNCTOR
+                    + "/3: arguments are not sufficiently instantiated");
+        }
+        if (arityTag != INT && arityTag != BIG
+                || facade.getInteger(arity) < 0) {
+            throw new IllegalArgumentException(FUNCTOR
+                    + "/3: arity must be a non-negative integer");
+        }
+        final int n = facade.getInteger(arity);
+        final int term;
+        if (n == 0) {
+            if (nameTag != CONS && nameTag != INT && nameTag != BIG) {
+                throw new IllegalArgumentException(FUNCTOR
+                        + "/3: name must be atomic");
+            }
+            term = name;
+        } else if (nameTag != CONS) {
+            throw new IllegalArgumentException(FUNCTOR
+                    + "/3: name must be an atom");
+        } else {
+            final String text = facade.getConstant(PlWords.getValue(name),
+                    FunctorSymbol.class).getName();
+            final FunctorSymbol functor = FunctorSymbol.valueOf(text, n);
+            term = functor.equals(FunctorSymbol.LIST) ? facade.pushList()
+                    : facade.pushFunctor(this.code.getConstantPoolIndex(
+                            functor));
+        }
+        facade.setWord(var, term);
+        facade.trail(var);
+        return true;
+    }
+
+    // === arg/3 ===
+
+    private boolean arg(final ZipFacade facade, final int argAddr) {
+        final int n = facade.getWordAt(argAddr);
+        final int term = facade.getWordAt(argAddr + 1);
+        final int nTag = PlWords.getTag(n);
+        final int termTag = PlWords.getTag(term);
+        if (nTag == REF || termTag == REF) {
+            throw new IllegalArgumentException(ARG
+                    + "/3: arguments are not sufficiently instantiated");
+        }
+        if (nTag != INT && nTag != BIG) {
+            throw new IllegalArgumentException(ARG
+                    + "/3: position must be an integer");
+        }
+        final int index = facade.getInteger(n);
+        final int base = PlWords.getValue(term);
+        switch (termTag) {
+        case STR: {
+            final int arity = facade.getConstant(PlWords.getValue(facade
+                    .getWordAt(base)), FunctorSymbol.class).getArity();
+            // Arguments follow the functor cell
+            return index >= 1 && index <= arity
+                    && facade.unify(base + index, argAddr + 2, null);
+        }
+        case LIS:
+            // Head and tail are stored at base and base + 1
+            return (index == 1 || index == 2)
+                    && facade.unify(base + index - 1, argAddr + 2, null);
+        default:
+            throw new IllegalArgumentException(ARG
+                    + "/3: term must be compound");
+        }
+    }
+
+    // === Helper methods ===
+
+    private static int getTag(final ZipFacade facade, final int address) {
+        return PlWords.getTag(facade.getWordAt(address));
+    }
+
+    // Unifies the term at the specified address with an atomic word
+    private static boolean unifyAtomic(final ZipFacade facade,
+            final int address, final int atomic) {
+        final int word = facade.getWordAt(address);
+        switch (PlWords.getTag(word)) {
+        case REF: {
+            final int var = PlWords.getValue(word);
+            facade.setWord(var, atomic);
+            facade.trail(var);
+            return true;
+        }
+        case BIG:
+            return PlWords.getTag(atomic) == BIG
+                    && facade.getInteger(word) == facade.getInteger(atomic);
+        default:
+            return word == atomic;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.MemoryConstants.MEMORY_SIZE;
+
+import java.util.Arrays;
+
+import com.prolog.jvm.zip.api.MemoryArea;
+
+/**
+ * The virtual memory of a single ZIP machine, partitioned into
+ * {@link MemoryArea}s by {@link #newArea(int, int)}.
+ * <p>
+ * Rather than allocating an array spanning the whole virtual address space up
+ * front, memory is divided into fixed-size pages that are only allocated when
+ * first written to. Reading from a page that was never written to yields 0.
+ * Hence, the memory footprint of a machine is proportional to the parts of its
+ * memory areas that are actually used, allowing the latter to be sized
+ * generously without paying for it at startup.
+ * <p>
+ * Pages are never released once allocated, not even when the stacks they
+ * belong to shrink again through backtracking or garbage collection. Hence,
+ * {@link #getAllocatedSize()} only grows, and reflects the highest addresses
+ * reached in each memory area over the lifetime of the machine.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class VirtualMemory {
+
+    private static final int PAGE_BITS = 14;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS; // in words
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int INITIAL_PAGES = 16;
+
+    private static final String INVALID_AREA =
+            "Invalid area %d - %d; addresses range from 0 to %d";
+
+    // Page table, grown on demand. Unallocated pages are null.
+    private int[][] pages = new int[INITIAL_PAGES][];
+
+    /**
+     * Returns a {@link MemoryArea} for the virtual addresses {@code lower} up
+     * to and including {@code upper}, throwing an
+     * {@link IndexOutOfBoundsException} upon being accessed outside these
+     * bounds.
+     *
+     * @throws IllegalArgumentException if {@code lower < 0 || lower > upper ||
+     * upper >= MemoryConstants.MEMORY_SIZE}
+     */
+    public MemoryArea newArea(final int lower, final int upper) {
+        if (lower < 0 || lower > upper || upper >= MEMORY_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    INVALID_AREA, lower, upper, MEMORY_SIZE - 1));
+        }
+        return new Area(lower, upper);
+    }
+
+    /**
+     * Returns the number of words currently allocated.
+     */
+    public long getAllocatedSize() {
+        long result = 0;
+        for (final int[] page : this.pages) {
+            if (page != null) {
+                result += page.length;
+            }
+        }
+        return result;
+    }
+
+    private int read(final int address) {
+        final int index = address >>> PAGE_BITS;
+        if (index >= this.pages.length) {
+            return 0;
+        }
+        final int[] page = this.pages[index];
+        return page == null ? 0 : page[address & PAGE_MASK];
+    }
+
+    private void write(final int address, final int value) {
+        final int index = address >>> PAGE_BITS;
+        if (index >= this.pages.length) {
+            this.pages = Arrays.copyOf(this.pages,
+                    Math.max(index + 1, this.pages.length * 2));
+        }
+        int[] page = this.pages[index];
+        if (page == null) {
+            page = new int[PAGE_SIZE];
+            this.pages[index] = page;
+        }
+        page[address & PAGE_MASK] = value;
+    }
+
+    // A region of virtual memory
+    private final class Area implements MemoryArea {
+
+        private static final String OUT_OF_BOUNDS = "%d out of bounds %d - %d";
+
+        private final int lower, upper;
+
+        private Area(final int lower, final int upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override
+        public int readFrom(final int address) {
+            checkBounds(address);
+            return read(address);
+        }
+
+        @Override
+        public void writeTo(final int address, final int value) {
+            checkBounds(address);
+            write(address, value);
+        }
+
+        private void checkBounds(final int address) {
+            if (address < this.lower || address > this.upper) {
+                throw new IndexOutOfBoundsException(String.format(
+                        OUT_OF_BOUNDS, address, this.lower, this.upper));
+            }
+        }
+    }
+}
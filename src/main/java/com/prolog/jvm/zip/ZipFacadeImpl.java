@@ -3,6 +3,7 @@ package com.prolog.jvm.zip;
 import static com.prolog.jvm.zip.util.Instructions.ARG;
 import static com.prolog.jvm.zip.util.Instructions.COPY;
 import static com.prolog.jvm.zip.util.Instructions.MATCH;
+import static com.prolog.jvm.zip.util.MemoryConstants.FRAME_HEADER_SIZE;
 import static com.prolog.jvm.zip.util.MemoryConstants.MAX_HEAP_INDEX;
 import static com.prolog.jvm.zip.util.MemoryConstants.MAX_LOCAL_INDEX;
 import static com.prolog.jvm.zip.util.MemoryConstants.MIN_GLOBAL_INDEX;
@@ -11,23 +12,28 @@ import static com.prolog.jvm.zip.util.MemoryConstants.MIN_LOCAL_INDEX;
 import static com.prolog.jvm.zip.util.MemoryConstants.MIN_PDL_INDEX;
 import static com.prolog.jvm.zip.util.MemoryConstants.MIN_SCRATCHPAD_INDEX;
 import static com.prolog.jvm.zip.util.MemoryConstants.MIN_TRAIL_INDEX;
+import static com.prolog.jvm.zip.util.PlWords.BIG;
 import static com.prolog.jvm.zip.util.PlWords.CONS;
 import static com.prolog.jvm.zip.util.PlWords.FUNC;
+import static com.prolog.jvm.zip.util.PlWords.INT;
 import static com.prolog.jvm.zip.util.PlWords.LIS;
 import static com.prolog.jvm.zip.util.PlWords.REF;
 import static com.prolog.jvm.zip.util.PlWords.STR;
 import static com.prolog.jvm.zip.util.PlWords.getWord;
 import static java.util.Objects.requireNonNull;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import com.prolog.jvm.exceptions.BacktrackException;
 import com.prolog.jvm.symbol.ClauseSymbol;
 import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.zip.api.GcStats;
 import com.prolog.jvm.zip.api.MemoryArea;
+import com.prolog.jvm.zip.api.TrailStats;
 import com.prolog.jvm.zip.api.ZipFacade;
 import com.prolog.jvm.zip.util.Instructions;
+import com.prolog.jvm.zip.util.IntList;
 import com.prolog.jvm.zip.util.MemoryConstants;
 import com.prolog.jvm.zip.util.PlWords;
 import com.prolog.jvm.zip.util.Validate;
@@ -59,16 +65,46 @@ public class ZipFacadeImpl implements ZipFacade {
     private final MemoryArea pdl;
     private final MemoryArea scratchpad;
 
+    // Frames on the local stack are addressed by their first variable slot,
+    // with their headers stored in the words just below. The offsets of the
+    // header fields are listed next, NONE denoting the absence of a frame. The
+    // header size is given by MemoryConstants.FRAME_HEADER_SIZE.
+    private static final int SIZE = 1;      // No. of arguments and local vars
+    private static final int CP = 2;        // Continuation program counter
+    private static final int CL = 3;        // Continuation local frame
+    private static final int BP = 4;        // Backtrack clause pointer
+    private static final int BG = 5;        // Backtrack global stack top
+    private static final int BL = 6;        // Backtrack local frame
+    private static final int BT = 7;        // Backtrack trail top
+    private static final int NONE = 0;
+
     // Machine registers
     private int mode;                       // Processor mode (PM)
     private int programctr;                 // Program counter (PC)
-    private ActivationRecord targetfrm;     // Target (local) frame (L)
-    private ActivationRecord sourcefrm;     // Source (local) frame (CL)
+    private int targetfrm;                  // Target (local) frame (L)
+    private int sourcefrm;                  // Source (local) frame (CL)
     private int globalptr;                  // Global stack top (G0)
     private int trailptr;                   // Trail top (TR0)
-    private ActivationRecord choicepnt;     // Backtrack (local) frame (BL)
+    private int choicepnt;                  // Backtrack (local) frame (BL)
+    private int choicetop;                  // End of choicepnt's arguments
     private int pdlptr;                     // Push-Down List top
     private int scratchpadptr;              // Scratchpad top
+    private int derefword;                  // Word found by last deref
+
+    // Clause alternatives of the choice points, from the oldest to the most
+    // recent. Being references rather than words, these are kept aside from
+    // the local stack, though popped in the same order as the choice points.
+    private ClauseSymbol[][] alternatives = new ClauseSymbol[16][];
+    private int choicedepth;
+    private int choiceepoch; // see getChoicePointEpoch()
+
+    // Garbage collection
+    private int gcthreshold;        // High-water mark in words (0: disabled)
+    private int gctrigger;          // Global stack usage triggering the next GC
+    private final GcStatsImpl gcstats = new GcStatsImpl();
+
+    // Trail statistics
+    private final TrailStatsImpl trailstats = new TrailStatsImpl();
 
     /**
      * Constructor. Note no null checks are done on any of the supplied
@@ -125,10 +161,22 @@ public class ZipFacadeImpl implements ZipFacade {
      * This method is intended to be overridden by mock implementations.
      */
     protected int getBacktrackGlobalPointer() {
-        return this.choicepnt != null ? this.choicepnt.globalptr
+        return this.choicepnt != NONE ? getHeader(this.choicepnt, BG)
                 : MIN_GLOBAL_INDEX;
     }
 
+    /**
+     * Returns the address following the arguments of the most recent choice
+     * point, or {@link MemoryConstants#MIN_LOCAL_INDEX} if no choice point was
+     * pushed on the local stack. Invoked by {@link #bind(int, int)} to
+     * determine whether trailing is needed.
+     * <p>
+     * This method is intended to be overridden by mock implementations.
+     */
+    protected int getBacktrackLocalPointer() {
+        return this.choicetop;
+    }
+
     /**
      * Returns the smallest address in virtual memory for use by the Push-Down
      * List, being invoked by {@link #unifiable(int, int)} to determine whether
@@ -155,13 +203,17 @@ public class ZipFacadeImpl implements ZipFacade {
         }
         this.mode = MATCH;
         this.programctr = queryAddr;
-        this.targetfrm = null;
-        this.sourcefrm = null;
+        this.targetfrm = NONE;
+        this.sourcefrm = NONE;
         this.globalptr = MIN_GLOBAL_INDEX;
         this.trailptr = MIN_TRAIL_INDEX;
-        this.choicepnt = null;
+        this.choicepnt = NONE;
+        this.choicetop = MIN_LOCAL_INDEX;
+        Arrays.fill(this.alternatives, 0, this.choicedepth, null);
+        this.choicedepth = 0;
         this.pdlptr = MIN_PDL_INDEX;
         this.scratchpadptr = MIN_SCRATCHPAD_INDEX;
+        this.gctrigger = this.gcthreshold;
 
         pushTargetFrame();
     }
@@ -176,6 +228,11 @@ public class ZipFacadeImpl implements ZipFacade {
         this.mode = mode;
     }
 
+    @Override
+    public final int getMode() {
+        return this.mode;
+    }
+
     // === Constant pool ===
 
     @Override
@@ -190,7 +247,8 @@ public class ZipFacadeImpl implements ZipFacade {
     }
 
     // Returns the index for the specified constant pool entry, throwing
-    // and exception if not found.
+    // and exception if not found. Runs in constant time if the constant pool
+    // is a ConstantPool.
     private int getConstantPoolIndex(final Object obj) {
         assert obj != null;
         final int index = this.constants.indexOf(obj);
@@ -207,27 +265,34 @@ public class ZipFacadeImpl implements ZipFacade {
         return this.mode | this.heap.readFrom(this.programctr++);
     }
 
+    @Override
+    public final int peekOperator() {
+        return this.mode | this.heap.readFrom(this.programctr);
+    }
+
     @Override
     public final int fetchOperand(final boolean isVariable) {
         final int result = this.heap.readFrom(this.programctr++);
-        if (!isVariable) {
-            return result;
-        }
+        return isVariable ? getVariableAddress(result) : result;
+    }
+
+    @Override
+    public final int getVariableAddress(final int offset) {
         int m = this.mode;
         while (true) {
             switch (m) {
             case MATCH: {
-                return result + this.targetfrm.localptr;
+                return offset + this.targetfrm;
             }
             case ARG: {
-                return result + this.sourcefrm.localptr;
+                return offset + this.sourcefrm;
             }
             case COPY: {
                 m = this.scratchpad.readFrom(MIN_SCRATCHPAD_INDEX + 1);
                 if (m != COPY) {
                     continue;
-                } // Else, fall-through
-            }
+                }
+            } // Else, fall-through
             default:
                 throw new IllegalStateException(Instructions.modeToString(m));
             }
@@ -237,12 +302,12 @@ public class ZipFacadeImpl implements ZipFacade {
     @Override
     public final int jump(final int address) {
         // API sacrifices preconditions for performance, so use asserts instead
-        assert this.targetfrm != null;
+        assert this.targetfrm != NONE;
         assert address >= MIN_HEAP_INDEX && address <= MAX_HEAP_INDEX;
 
-        this.targetfrm.programctr = this.programctr;
+        setHeader(this.targetfrm, CP, this.programctr);
         this.programctr = address;
-        return this.targetfrm.localptr;
+        return this.targetfrm;
     }
 
     @Override
@@ -250,6 +315,14 @@ public class ZipFacadeImpl implements ZipFacade {
         return this.programctr;
     }
 
+    @Override
+    public final void setProgramCounter(final int address) {
+        // API sacrifices preconditions for performance, so use asserts instead
+        assert address >= MIN_HEAP_INDEX && address <= MAX_HEAP_INDEX;
+
+        this.programctr = address;
+    }
+
     // === Global stack ===
 
     @Override
@@ -258,18 +331,67 @@ public class ZipFacadeImpl implements ZipFacade {
         assert symbol != null;
         assert symbol.getArity() > 0;
 
+        return pushFunctor(getConstantPoolIndex(symbol), symbol.getArity());
+    }
+
+    @Override
+    public final int pushFunctor(final int index) {
+        return pushFunctor(index,
+                getConstant(index, FunctorSymbol.class).getArity());
+    }
+
+    private int pushFunctor(final int index, final int arity) {
+        // API sacrifices preconditions for performance, so use asserts instead
+        assert arity > 0;
+
         final int result = getWord(STR, this.globalptr);
-        this.wordStore.writeTo(this.globalptr++,
-                getWord(FUNC, getConstantPoolIndex(symbol)));
+        this.globalStack.writeTo(this.globalptr++, getWord(FUNC, index));
         // Push arguments as unbound variables
         // (needed when executing FIRSTVAR in COPY mode)
-        for (int i = 0; i < symbol.getArity(); i++) {
+        for (int i = 0; i < arity; i++) {
             final int word = getWord(REF, this.globalptr);
-            this.wordStore.writeTo(this.globalptr++, word);
+            this.globalStack.writeTo(this.globalptr++, word);
+        }
+        return result;
+    }
+
+    @Override
+    public final int pushList() {
+        final int result = getWord(LIS, this.globalptr);
+        // Push the head and tail as unbound variables
+        // (needed when executing FIRSTVAR in COPY mode)
+        for (int i = 0; i < 2; i++) {
+            final int word = getWord(REF, this.globalptr);
+            this.globalStack.writeTo(this.globalptr++, word);
+        }
+        return result;
+    }
+
+    @Override
+    public final int pushInteger(final int value) {
+        if (PlWords.isSmallInt(value)) {
+            return getWord(INT, value);
         }
+        final int result = getWord(BIG, this.globalptr);
+        this.globalStack.writeTo(this.globalptr++, getWord(INT, value >> 16));
+        this.globalStack.writeTo(this.globalptr++, getWord(INT,
+                value & 0xFFFF));
         return result;
     }
 
+    @Override
+    public final int getInteger(final int word) {
+        // API sacrifices preconditions for performance, so use asserts instead
+        assert PlWords.getTag(word) == INT || PlWords.getTag(word) == BIG;
+
+        if (PlWords.getTag(word) == INT) {
+            return PlWords.getIntValue(word);
+        }
+        final int box = PlWords.getValue(word);
+        return PlWords.getIntValue(this.wordStore.readFrom(box)) << 16
+                | PlWords.getIntValue(this.wordStore.readFrom(box + 1));
+    }
+
     @Override
     public final void setWord(final int address, final FunctorSymbol symbol) {
         // API sacrifices preconditions for performance, so use asserts instead
@@ -288,15 +410,14 @@ public class ZipFacadeImpl implements ZipFacade {
     public final int pushTargetFrame() {
         // Determine the address in the local stack at which to push
         int address = MIN_LOCAL_INDEX;
-        if (this.sourcefrm != null) {
-            if (this.choicepnt != null
-                    && this.sourcefrm.localptr < this.choicepnt.localptr) {
-                address = this.choicepnt.localptr + this.choicepnt.size;
-            } else {
-                address = this.sourcefrm.localptr + this.sourcefrm.size;
-            }
+        if (this.sourcefrm != NONE) {
+            final int frame = this.sourcefrm < this.choicepnt
+                    ? this.choicepnt : this.sourcefrm;
+            address = frame + getHeader(frame, SIZE);
         }
-        this.targetfrm = new ActivationRecord(address);
+        address += FRAME_HEADER_SIZE;
+        initHeader(address);
+        this.targetfrm = address;
         return address;
     }
 
@@ -306,26 +427,89 @@ public class ZipFacadeImpl implements ZipFacade {
         assert size >= 0;
 
         // Note this target frame might be a choice point
-        this.targetfrm.size = size;
-        this.targetfrm.sourcefrm = this.sourcefrm;
+        setHeader(this.targetfrm, SIZE, size);
+        setHeader(this.targetfrm, CL, this.sourcefrm);
 
         // Set the program counter
-        this.programctr = this.targetfrm.programctr;
+        this.programctr = getHeader(this.targetfrm, CP);
 
         // Make sure this target frame is not reused as such
-        this.targetfrm = null;
+        this.targetfrm = NONE;
     }
 
     @Override
-    public final void pushChoicePoint(final ClauseSymbol clause) {
+    public final void pushChoicePoint(final ClauseSymbol[] alternatives,
+            final int index) {
         // API sacrifices preconditions for performance, so use asserts instead
-        assert clause != null;
-
-        this.targetfrm.clause = clause;
-        this.targetfrm.globalptr = this.globalptr;
-        this.targetfrm.trailptr = this.trailptr;
-        this.targetfrm.backtrackfrm = this.choicepnt;
+        assert alternatives != null;
+        assert index > 0 && index < alternatives.length;
+
+        if (this.choicedepth == 0) {
+            this.choiceepoch = this.choiceepoch + 1 & Integer.MAX_VALUE;
+        } else if (this.choicedepth == this.alternatives.length) {
+            this.alternatives = Arrays.copyOf(this.alternatives,
+                    this.choicedepth * 2);
+        }
+        this.alternatives[this.choicedepth++] = alternatives;
+        setHeader(this.targetfrm, BP, index);
+        setHeader(this.targetfrm, BG, this.globalptr);
+        setHeader(this.targetfrm, BT, this.trailptr);
+        setHeader(this.targetfrm, BL, this.choicepnt);
         this.choicepnt = this.targetfrm;
+        this.choicetop = this.targetfrm + alternatives[0].getParams();
+    }
+
+    @Override
+    public final int getChoicePointEpoch() {
+        return this.choicedepth == 0 ? -1 : this.choiceepoch;
+    }
+
+    @Override
+    public final int lastCall(final int arity) {
+        // API sacrifices preconditions for performance, so use asserts instead
+        assert arity >= 0;
+
+        // The query's frame is needed for writing answers, while a source frame
+        // protected by a choice point may still be backtracked into
+        final int frame = this.sourcefrm;
+        final int caller = getHeader(frame, CL);
+        if (caller == NONE || this.choicepnt >= frame) {
+            return this.targetfrm;
+        }
+
+        // Resolve the arguments so that none refer to the source frame. Since
+        // bindings only ever point from younger to older cells, no other
+        // references to the source frame exist.
+        final int from = this.targetfrm;
+        final int lower = frame;
+        final int upper = lower + getHeader(frame, SIZE);
+        for (int i = from; i < from + arity; i++) {
+            final int address = deref(i);
+            int word = this.derefword;
+            if (PlWords.getTag(word) == REF && address >= lower
+                    && address < upper) {
+                // Move the unbound variable to the global stack
+                word = getWord(REF, this.globalptr);
+                this.globalStack.writeTo(this.globalptr++, word);
+                this.wordStore.writeTo(address, word);
+                trail(address);
+            }
+            this.localStack.writeTo(i, word);
+        }
+
+        // Move the arguments to the place of the source frame, whose header
+        // is reused after reading the continuation from it
+        for (int i = 0; i < arity; i++) {
+            this.localStack.writeTo(lower + i,
+                    this.localStack.readFrom(from + i));
+        }
+        this.programctr = getHeader(frame, CP);
+        initHeader(lower);
+        this.targetfrm = lower;
+
+        // Return to the caller of the current clause
+        this.sourcefrm = caller;
+        return lower;
     }
 
     @Override
@@ -333,22 +517,41 @@ public class ZipFacadeImpl implements ZipFacade {
         // API sacrifices preconditions for performance, so use asserts instead
         assert size >= 0;
 
-        this.targetfrm.size = size;
-        this.targetfrm.sourcefrm = this.sourcefrm; // Can be null!
+        setHeader(this.targetfrm, SIZE, size);
+        setHeader(this.targetfrm, CL, this.sourcefrm); // Can be NONE!
         this.sourcefrm = this.targetfrm;
     }
 
     @Override
     public final boolean popSourceFrame() {
         // No continuation local frame means we're done.
-        if (this.sourcefrm.sourcefrm == null) {
+        final int caller = getHeader(this.sourcefrm, CL);
+        if (caller == NONE) {
             return true;
         }
-        this.programctr = this.sourcefrm.programctr;
-        this.sourcefrm = this.sourcefrm.sourcefrm;
+        this.programctr = getHeader(this.sourcefrm, CP);
+        this.sourcefrm = caller;
         return false;
     }
 
+    // Initializes the header of a newly pushed target frame, which has not yet
+    // been entered and does not yet continue any source frame
+    private void initHeader(final int frame) {
+        assert frame - FRAME_HEADER_SIZE >= MIN_LOCAL_INDEX;
+        assert frame <= MAX_LOCAL_INDEX;
+        setHeader(frame, SIZE, 0);
+        setHeader(frame, CL, NONE);
+    }
+
+    private int getHeader(final int frame, final int field) {
+        return this.localStack.readFrom(frame - field);
+    }
+
+    private void setHeader(final int frame, final int field,
+            final int value) {
+        this.localStack.writeTo(frame - field, value);
+    }
+
     // === Scratchpad methods ===
 
     @Override
@@ -372,9 +575,24 @@ public class ZipFacadeImpl implements ZipFacade {
     @Override
     public void trail(final int address) {
         assert address >= MIN_GLOBAL_INDEX && address <= MAX_LOCAL_INDEX;
-        if (address < getBacktrackGlobalPointer() || isLocal(address)) {
-            this.trailStack.writeTo(this.trailptr++, address);
+        if (isLocal(address)) {
+            // Frames pushed after the most recent choice point are discarded
+            // upon backtracking, as are the locals of its own frame, which
+            // are initialized again by the next clause alternative
+            if (address >= getBacktrackLocalPointer()) {
+                this.trailstats.avoidedEntries++;
+                return;
+            }
+        } else if (address >= getBacktrackGlobalPointer()) {
+            return;
         }
+        this.trailStack.writeTo(this.trailptr++, address);
+        this.trailstats.record(this.trailptr - MIN_TRAIL_INDEX);
+    }
+
+    @Override
+    public final TrailStats getTrailStats() {
+        return this.trailstats;
     }
 
     /*
@@ -384,27 +602,40 @@ public class ZipFacadeImpl implements ZipFacade {
      * private for testing purposes.
      */
     final void unwindTrail(final int from, final int to,
-            final List<Integer> vars) {
+            final IntList vars) {
         assert from > 0;
         assert from <= to;
-        assert vars != null;
-        assert vars.isEmpty();
+        assert vars == null || vars.isEmpty();
         for (int i = from; i < to; i++) {
             final int address = this.trailStack.readFrom(i);
             this.wordStore.writeTo(address, getWord(REF, address));
-            vars.add(address);
+            if (vars != null) {
+                vars.add(address);
+            }
         }
         this.trailptr = from;
     }
 
     // === Dereferencing, binding and unification ===
 
-    private int deref(final int address) {
+    // Follows the chain of references starting at the specified address,
+    // returning the address at its end and storing the word found there in
+    // derefword, so that callers need not read it a second time. Implemented
+    // by a loop rather than by recursion, as to let the length of a chain be
+    // limited only by the size of the word store.
+    private int deref(int address) {
         assert address >= MIN_GLOBAL_INDEX && address <= MAX_LOCAL_INDEX;
-        final int word = this.wordStore.readFrom(address);
-        final int tag = PlWords.getTag(word);
-        final int value = PlWords.getValue(word);
-        return (tag == REF && value != address) ? deref(value) : address;
+        int word = this.wordStore.readFrom(address);
+        while (PlWords.getTag(word) == REF) {
+            final int value = PlWords.getValue(word);
+            if (value == address) {
+                break; // unbound
+            }
+            address = value;
+            word = this.wordStore.readFrom(address);
+        }
+        this.derefword = word;
+        return address;
     }
 
     @Override
@@ -412,7 +643,8 @@ public class ZipFacadeImpl implements ZipFacade {
         // API sacrifices preconditions for performance, so use asserts instead
         assert address >= MIN_GLOBAL_INDEX && address <= MAX_LOCAL_INDEX;
 
-        return this.wordStore.readFrom(deref(address));
+        deref(address);
+        return this.derefword;
     }
 
     @Override
@@ -431,18 +663,23 @@ public class ZipFacadeImpl implements ZipFacade {
         assert address2 >= MIN_GLOBAL_INDEX && address2 <= MAX_LOCAL_INDEX;
 
         address1 = deref(address1);
+        final int w1 = this.derefword;
         address2 = deref(address2);
-        final int t1 = PlWords.getTag(this.wordStore.readFrom(address1));
-        final int t2 = PlWords.getTag(this.wordStore.readFrom(address2));
+        return bindDereferenced(address1, w1, address2, this.derefword);
+    }
+
+    // Binds two dereferenced addresses, given the words stored at each
+    private int bindDereferenced(final int address1, final int w1,
+            final int address2, final int w2) {
+        final int t1 = PlWords.getTag(w1);
+        final int t2 = PlWords.getTag(w2);
         if (t1 == REF && (t2 != REF || address2 < address1)) {
-            final int word = this.wordStore.readFrom(address2);
-            this.wordStore.writeTo(address1, word);
+            this.wordStore.writeTo(address1, w2);
             trail(address1);
             return address1;
         }
         if (t2 == REF) {
-            final int word = this.wordStore.readFrom(address1);
-            this.wordStore.writeTo(address2, word);
+            this.wordStore.writeTo(address2, w1);
             trail(address2);
             return address2;
         }
@@ -451,40 +688,65 @@ public class ZipFacadeImpl implements ZipFacade {
 
     @Override
     public final List<Integer> unifiable(final int a1, final int a2) {
+        final IntList bindings = new IntList();
+        return unify(a1, a2, bindings) ? bindings.toList() : null;
+    }
+
+    @Override
+    public final boolean unify(final int a1, final int a2,
+            final IntList bindings) {
         // API sacrifices preconditions for performance, so use asserts instead
         assert a1 >= MIN_GLOBAL_INDEX && a1 <= MAX_LOCAL_INDEX;
         assert a2 >= MIN_GLOBAL_INDEX && a2 <= MAX_LOCAL_INDEX;
 
-        final List<Integer> bindings = new ArrayList<>();
         this.pdl.writeTo(this.pdlptr++, a1); // push
         this.pdl.writeTo(this.pdlptr++, a2); // push
+        // On failure, the PDL is emptied before returning, so that pairs left
+        // on it are not mistaken for those of the next unification
         while (this.pdlptr != getMinPdlIndex()) {
             final int d1 = deref(this.pdl.readFrom(--this.pdlptr)); // pop
+            final int w1 = this.derefword;
             final int d2 = deref(this.pdl.readFrom(--this.pdlptr)); // pop
-            final int w1 = this.wordStore.readFrom(d1);
+            final int w2 = this.derefword;
             final int t1 = PlWords.getTag(w1);
             if (t1 == REF) {
-                bindings.add(bind(d1, d2));
+                final int bound = bindDereferenced(d1, w1, d2, w2);
+                if (bindings != null) {
+                    bindings.add(bound);
+                }
                 continue;
             }
-            final int w2 = this.wordStore.readFrom(d2);
             final int t2 = PlWords.getTag(w2);
             final int v1 = PlWords.getValue(w1);
             final int v2 = PlWords.getValue(w2);
             switch (t2) {
             case REF: {
-                bindings.add(bind(d1, d2));
+                final int bound = bindDereferenced(d1, w1, d2, w2);
+                if (bindings != null) {
+                    bindings.add(bound);
+                }
                 continue;
             }
-            case CONS: {
-                if (t1 != CONS || v1 != v2) {
-                    return null;
+            case CONS:
+                // Fall-through
+            case INT: {
+                if (t1 != t2 || v1 != v2) {
+                    this.pdlptr = getMinPdlIndex();
+                    return false;
+                }
+                continue;
+            }
+            case BIG: {
+                if (t1 != BIG || getInteger(w1) != getInteger(w2)) {
+                    this.pdlptr = getMinPdlIndex();
+                    return false;
                 }
                 continue;
             }
             case LIS: {
                 if (t1 != LIS) {
-                    return null;
+                    this.pdlptr = getMinPdlIndex();
+                    return false;
                 }
                 this.pdl.writeTo(this.pdlptr++, v1); // push
                 this.pdl.writeTo(this.pdlptr++, v2); // push
@@ -494,12 +756,14 @@ public class ZipFacadeImpl implements ZipFacade {
             }
             case STR: {
                 if (t1 != STR) {
-                    return null;
+                    this.pdlptr = getMinPdlIndex();
+                    return false;
                 }
                 final int f1 = PlWords.getValue(this.wordStore.readFrom(v1));
                 final int f2 = PlWords.getValue(this.wordStore.readFrom(v2));
                 if (f1 != f2) {
-                    return null;
+                    this.pdlptr = getMinPdlIndex();
+                    return false;
                 }
                 final int arity = getConstant(f1, FunctorSymbol.class)
                         .getArity();
@@ -513,69 +777,349 @@ public class ZipFacadeImpl implements ZipFacade {
                 throw new AssertionError();
             }
         }
-        return bindings;
+        return true;
     }
 
     // === Backtracking ===
 
     @Override
-    public final int backtrack(final List<Integer> vars)
+    public final int backtrack(final IntList vars)
             throws BacktrackException {
         // Validate preconditions
-        requireNonNull(vars);
-        Validate.argument(vars.isEmpty());
+        Validate.argument(vars == null || vars.isEmpty());
 
         // No choice point means nowhere to backtrack to
-        if (this.choicepnt == null) {
+        if (this.choicepnt == NONE) {
             throw new BacktrackException();
         }
 
         // Restore machine state and unwind the trail
+        final int frame = this.choicepnt;
         this.mode = MATCH;
-        this.programctr = this.choicepnt.clause.getHeapptr();
-        if (this.choicepnt.sourcefrm != null) { // choicepnt != targetfrm
-            this.sourcefrm = this.choicepnt.sourcefrm;
-            this.targetfrm = this.choicepnt;
+        final ClauseSymbol[] alternatives =
+                this.alternatives[this.choicedepth - 1];
+        final int alternative = getHeader(frame, BP);
+        this.programctr = alternatives[alternative].getHeapptr();
+        final int caller = getHeader(frame, CL);
+        if (caller != NONE) { // choicepnt != targetfrm
+            this.sourcefrm = caller;
+            this.targetfrm = frame;
         }
-        unwindTrail(this.choicepnt.trailptr, this.trailptr, vars);
-        this.globalptr = this.choicepnt.globalptr;
-        this.trailptr = this.choicepnt.trailptr;
+        unwindTrail(getHeader(frame, BT), this.trailptr, vars);
+        this.globalptr = getHeader(frame, BG);
 
-        // See if there's a next clause alternative
-        final ClauseSymbol next = this.choicepnt.clause.getNext();
+        // See if there's a next clause alternative that may match the
+        // arguments, which are back in the state they were in upon the call
         // If so, record it in the current choice point
-        if (next != null) {
-            this.choicepnt.clause = next;
+        final int next = HeadKeys.next(this, alternatives, alternative + 1,
+                frame);
+        if (next != -1) {
+            setHeader(frame, BP, next);
         }
         // Otherwise, pop the current choice point
         else {
-            this.choicepnt = this.choicepnt.backtrackfrm; // Can be null!
+            this.choicepnt = getHeader(frame, BL); // Can be NONE!
+            this.alternatives[--this.choicedepth] = null;
+            this.choicetop = this.choicepnt == NONE ? MIN_LOCAL_INDEX
+                    : this.choicepnt + this.alternatives[this.choicedepth - 1]
+                            [0].getParams();
         }
 
         // Return the local stack frame address for the target frame
-        return this.targetfrm.localptr;
+        return this.targetfrm;
+    }
+
+    // === Garbage collection ===
+
+    @Override
+    public final boolean collectGarbage(final int arity) {
+        // API sacrifices preconditions for performance, so use asserts instead
+        assert arity >= 0;
+        assert this.targetfrm != NONE;
+
+        if (this.gcthreshold == 0
+                || this.globalptr - MIN_GLOBAL_INDEX < this.gctrigger) {
+            return false;
+        }
+        final long start = System.nanoTime();
+        final int size = this.globalptr - MIN_GLOBAL_INDEX;
+        final int live = compact(getLiveSlots(arity));
+        this.gcstats.record(size - live, System.nanoTime() - start);
+
+        // Leave room for at least half the threshold before collecting again,
+        // so as not to collect on every call when most cells survive
+        this.gctrigger = Math.max(this.gcthreshold,
+                live + this.gcthreshold / 2);
+        return true;
+    }
+
+    @Override
+    public final GcStats getGcStats() {
+        return this.gcstats;
     }
 
-    // Activation records are like stack frames, additionally holding machine
-    // state that is to be restored upon backtracking. As such, they do double
-    // duty as a memento for a ZipFacade, which in turn also acts as the
-    // caretaker.
-    private static final class ActivationRecord {
+    /*
+     * Compacts the global stack in the manner of a sliding collector, using
+     * the specified ranges of local stack slots and the trail as roots, and
+     * returns the number of cells that survived. Live cells are first marked
+     * in a bitmap, from which the new address of each cell is computed as the
+     * number of live cells below it. References are then updated, after which
+     * the live cells are slid down in order.
+     *
+     * Since frames are scanned in their entirety, slots that were not yet
+     * initialized are treated as roots as well. The words found
+     * in there may point anywhere, for which reason marking only follows
+     * pointers below the global stack top, and only treats a cell pointed to
+     * by an STR-tagged word as the start of a compound term if it is tagged
+     * FUNC. Such words are retained conservatively, and are overwritten before
+     * ever being read.
+     */
+    private int compact(final IntList slots) {
+        final int top = this.globalptr;
+        final long[] marks = new long[(top - MIN_GLOBAL_INDEX + 63) >>> 6];
+
+        // Mark the cells reachable from the local stack and the trail
+        final IntList stack = new IntList();
+        for (int j = 0; j < slots.size(); j += 2) {
+            for (int i = slots.get(j); i < slots.get(j + 1); i++) {
+                mark(this.wordStore.readFrom(i), top, marks, stack);
+            }
+        }
+        for (int i = MIN_TRAIL_INDEX; i < this.trailptr; i++) {
+            final int address = this.trailStack.readFrom(i);
+            if (address < top) {
+                mark(getWord(REF, address), top, marks, stack);
+            }
+        }
+        while (!stack.isEmpty()) {
+            mark(this.wordStore.readFrom(stack.removeLast()), top, marks,
+                    stack);
+        }
 
-        private int size;                     // No. of arguments and local vars
-        private int programctr;             // Continuation program counter (CP)
-        private ActivationRecord sourcefrm;     // Continuation local frame (CL)
-        private ClauseSymbol clause;            // Backtrack clause pointer (BP)
-        private int globalptr;                // Backtrack global stack top (BG)
-        private ActivationRecord backtrackfrm;     // Backtrack local frame (BL)
-        private int trailptr;                        // Backtrack trail top (BT)
-        private final int localptr;               // Memory offset for var slots
+        // Count the live cells preceding each block of 64 cells
+        final int[] counts = new int[marks.length];
+        int live = 0;
+        for (int i = 0; i < marks.length; i++) {
+            counts[i] = live;
+            live += Long.bitCount(marks[i]);
+        }
 
-        // Creates and initializes a target frame
-        private ActivationRecord(int localptr) {
-            assert localptr >= MIN_LOCAL_INDEX;
-            assert localptr <= MAX_LOCAL_INDEX;
-            this.localptr = localptr;
+        // Update the references held by the roots and the choice points
+        for (int j = 0; j < slots.size(); j += 2) {
+            for (int i = slots.get(j); i < slots.get(j + 1); i++) {
+                final int word = this.wordStore.readFrom(i);
+                final int moved = relocate(word, top, marks, counts);
+                if (moved != word) {
+                    this.wordStore.writeTo(i, moved);
+                }
+            }
+        }
+        for (int i = MIN_TRAIL_INDEX; i < this.trailptr; i++) {
+            final int address = this.trailStack.readFrom(i);
+            if (address < top) {
+                this.trailStack.writeTo(i, forward(address, marks, counts));
+            }
+        }
+        for (int frame = this.choicepnt; frame != NONE;
+                frame = getHeader(frame, BL)) {
+            final int globalptr = getHeader(frame, BG);
+            setHeader(frame, BG, globalptr < top
+                    ? forward(globalptr, marks, counts)
+                    : MIN_GLOBAL_INDEX + live);
+        }
+
+        // Slide the live cells down, updating their references on the way
+        int dest = MIN_GLOBAL_INDEX;
+        for (int i = 0; i < marks.length; i++) {
+            long bits = marks[i];
+            while (bits != 0) {
+                final int address = MIN_GLOBAL_INDEX + (i << 6)
+                        + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                final int word = this.wordStore.readFrom(address);
+                this.wordStore.writeTo(dest++,
+                        relocate(word, top, marks, counts));
+            }
+        }
+        this.globalptr = dest;
+        return live;
+    }
+
+    /*
+     * Returns the local stack slots that may still be read, as pairs of start
+     * (inclusive) and end (exclusive) addresses. These are the arguments of
+     * the target frame, and the slots of the frames reachable from the source
+     * frame and the choice points through their continuations. Frame headers
+     * are left out, their words not being terms. As continuations are
+     * shared, the frames visited so far are recorded in a bitmap, so that no
+     * slot is included twice.
+     */
+    private IntList getLiveSlots(final int arity) {
+        final int localTop = this.targetfrm + arity;
+        final long[] visited = new long[(localTop - MIN_LOCAL_INDEX + 63)
+                >>> 6];
+        final IntList slots = new IntList();
+        slots.add(this.targetfrm);
+        slots.add(localTop);
+        addFrames(this.sourcefrm, visited, slots);
+        for (int frame = this.choicepnt; frame != NONE;
+                frame = getHeader(frame, BL)) {
+            addFrames(frame, visited, slots);
+        }
+        return slots;
+    }
+
+    // Adds the slots of the specified frame and its continuations, up to the
+    // first frame already visited
+    private void addFrames(int frame, final long[] visited,
+            final IntList slots) {
+        while (frame != NONE) {
+            final int i = frame - MIN_LOCAL_INDEX;
+            final long bit = 1L << i;
+            if ((visited[i >>> 6] & bit) != 0) {
+                return;
+            }
+            visited[i >>> 6] |= bit;
+            slots.add(frame);
+            slots.add(frame + getHeader(frame, SIZE));
+            frame = getHeader(frame, CL);
+        }
+    }
+
+    // Marks the global stack cells directly referenced by the specified word,
+    // pushing those not yet marked on the stack
+    private void mark(final int word, final int top, final long[] marks,
+            final IntList stack) {
+        final int tag = PlWords.getTag(word);
+        final int value = PlWords.getValue(word);
+        if (value >= top) {
+            return; // Not a global stack address
+        }
+        switch (tag) {
+        case REF:
+            markCell(value, marks, stack);
+            break;
+        case LIS:
+            // Fall-through
+        case BIG:
+            markCell(value, marks, stack);
+            markCell(Math.min(value + 1, top - 1), marks, stack);
+            break;
+        case STR: {
+            markCell(value, marks, stack);
+            final int functor = this.wordStore.readFrom(value);
+            if (PlWords.getTag(functor) == FUNC) {
+                final int arity = getConstant(PlWords.getValue(functor),
+                        FunctorSymbol.class).getArity();
+                final int last = Math.min(value + arity, top - 1);
+                for (int i = value + 1; i <= last; i++) {
+                    markCell(i, marks, stack);
+                }
+            }
+            break;
+        }
+        default:
+            break;
+        }
+    }
+
+    private static void markCell(final int address, final long[] marks,
+            final IntList stack) {
+        final int i = address - MIN_GLOBAL_INDEX;
+        final long bit = 1L << i;
+        if ((marks[i >>> 6] & bit) == 0) {
+            marks[i >>> 6] |= bit;
+            stack.add(address);
+        }
+    }
+
+    // Returns the new address of the global stack cell at the specified
+    // address, being the number of live cells below it
+    private static int forward(final int address, final long[] marks,
+            final int[] counts) {
+        final int i = address - MIN_GLOBAL_INDEX;
+        final long below = marks[i >>> 6] & ((1L << i) - 1);
+        return MIN_GLOBAL_INDEX + counts[i >>> 6] + Long.bitCount(below);
+    }
+
+    // Returns the specified word, with its value forwarded if it refers to
+    // the global stack
+    private static int relocate(final int word, final int top,
+            final long[] marks, final int[] counts) {
+        final int tag = PlWords.getTag(word);
+        if (tag != REF && tag != STR && tag != LIS && tag != BIG) {
+            return word;
+        }
+        final int value = PlWords.getValue(word);
+        if (value >= top) {
+            return word;
+        }
+        return getWord(tag, forward(value, marks, counts));
+    }
+
+    // Statistics gathered by the garbage collector
+    private static final class GcStatsImpl implements GcStats {
+
+        private int collections;
+        private long reclaimedCells;
+        private long pauseTime;
+        private long maxPauseTime;
+
+        private void record(final int reclaimed, final long pause) {
+            this.collections++;
+            this.reclaimedCells += reclaimed;
+            this.pauseTime += pause;
+            this.maxPauseTime = Math.max(this.maxPauseTime, pause);
+        }
+
+        @Override
+        public int getCollections() {
+            return this.collections;
+        }
+
+        @Override
+        public long getReclaimedCells() {
+            return this.reclaimedCells;
+        }
+
+        @Override
+        public long getPauseTime() {
+            return this.pauseTime;
+        }
+
+        @Override
+        public long getMaxPauseTime() {
+            return this.maxPauseTime;
+        }
+    }
+
+    // Statistics gathered on the trail
+    private static final class TrailStatsImpl implements TrailStats {
+
+        private long entries;
+        private long avoidedEntries;
+        private int maxSize;
+
+        private void record(final int size) {
+            this.entries++;
+            if (size > this.maxSize) {
+                this.maxSize = size;
+            }
+        }
+
+        @Override
+        public long getEntries() {
+            return this.entries;
+        }
+
+        @Override
+        public long getAvoidedEntries() {
+            return this.avoidedEntries;
+        }
+
+        @Override
+        public int getMaxSize() {
+            return this.maxSize;
         }
     }
 
@@ -602,6 +1146,7 @@ public class ZipFacadeImpl implements ZipFacade {
             ZipFacadeImpl facade = new ZipFacadeImpl(this.constants, this.heap,
                     this.globalStack, this.localStack, this.wordStore,
                     this.trailStack, this.pdl, this.scratchpad);
+            facade.gcthreshold = this.gcThreshold;
 
             // Validate
             Validate.state(facade.constants != null);
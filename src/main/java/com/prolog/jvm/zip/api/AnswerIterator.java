@@ -0,0 +1,60 @@
+package com.prolog.jvm.zip.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A handle for a query being solved, through which its answers are pulled one
+ * at a time. Each answer maps the names of the query variables to the
+ * {@link Term}s bound to them, in an unmodifiable {@link Map}. Answers are
+ * computed lazily: the machine only backtracks into the search for the next
+ * answer when {@link #hasNext()} is called after the previous one was taken.
+ * In particular, a client may stop early by simply closing the handle.
+ * <p>
+ * A handle shares the machine with any other query run on the same
+ * {@link ZipInterpreter}, and is closed automatically as soon as another one
+ * is started. A closed handle has no more answers.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public interface AnswerIterator extends Iterator<Map<String,Term>>,
+        Closeable {
+
+    /**
+     * Returns whether the query has another answer, resuming execution to
+     * find one if needed.
+     *
+     * @throws IllegalStateException if a {@link StepListener} registered with
+     * the interpreter threw a checked exception, which is wrapped. The handle
+     * is closed in this case, as it is for any runtime exception thrown
+     */
+    @Override
+    boolean hasNext();
+
+    /**
+     * Returns the next answer.
+     *
+     * @throws java.util.NoSuchElementException if there are no more answers
+     * @throws IllegalStateException as for {@link #hasNext()}
+     */
+    @Override
+    Map<String,Term> next();
+
+    /**
+     * Not supported.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    void remove();
+
+    /**
+     * Stops looking for further answers. Closing an already closed handle has
+     * no effect.
+     */
+    @Override
+    void close();
+
+}
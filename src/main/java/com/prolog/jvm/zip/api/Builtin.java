@@ -0,0 +1,28 @@
+package com.prolog.jvm.zip.api;
+
+/**
+ * Callback interface for a predicate implemented in Java, rather than by
+ * clauses compiled into bytecode. A call to a built-in predicate is executed
+ * by the {@link ZipInterpreter} in a single step, as though it had been
+ * resolved against a unit clause, and without leaving behind a choice point.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public interface Builtin {
+
+    /**
+     * Executes a call with its arguments stored in the target frame, starting
+     * at {@code argAddress}. The latter may be dereferenced, bound and unified
+     * through the specified {@code facade}, while new terms may be built on the
+     * global stack.
+     *
+     * @param facade the facade for the ZIP's internals
+     * @param argAddress the local stack address of the first argument
+     * @return whether the call succeeded; if not, the interpreter backtracks
+     * @throws IllegalArgumentException if the arguments are not of the
+     * expected type
+     */
+    boolean call(ZipFacade facade, int argAddress);
+
+}
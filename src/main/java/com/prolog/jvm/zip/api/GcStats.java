@@ -0,0 +1,32 @@
+package com.prolog.jvm.zip.api;
+
+/**
+ * Interface describing the statistics gathered by the garbage collector for
+ * the global stack, accumulated over the lifetime of a {@link ZipFacade}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public interface GcStats {
+
+    /**
+     * Returns the number of collections performed.
+     */
+    int getCollections();
+
+    /**
+     * Returns the total number of global stack cells reclaimed.
+     */
+    long getReclaimedCells();
+
+    /**
+     * Returns the total time spent collecting garbage, in nanoseconds.
+     */
+    long getPauseTime();
+
+    /**
+     * Returns the longest time spent on a single collection, in nanoseconds.
+     */
+    long getMaxPauseTime();
+
+}
@@ -0,0 +1,36 @@
+package com.prolog.jvm.zip.api;
+
+/**
+ * Interface describing the statistics gathered on the indexes built on demand
+ * for arguments other than the first, accumulated over the lifetime of a
+ * {@link com.prolog.jvm.zip.ArgumentIndexes}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public interface IndexStats {
+
+    /**
+     * Returns the number of calls whose clause alternatives were selected
+     * through an argument index.
+     */
+    long getHits();
+
+    /**
+     * Returns the number of argument indexes built.
+     */
+    int getBuilds();
+
+    /**
+     * Returns the number of argument indexes that were not built for
+     * exceeding the limit on their size.
+     */
+    int getRejections();
+
+    /**
+     * Returns the number of clause references currently held by argument
+     * indexes.
+     */
+    int getSize();
+
+}
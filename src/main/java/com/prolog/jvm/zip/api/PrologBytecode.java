@@ -36,7 +36,8 @@ public interface PrologBytecode<M extends PrologBytecode.Memento> {
      * Writes an instruction taking no operands.
      *
      * @param opcode the instruction's opcode; must be one of
-     * {@link Instructions#POP} or {@link Instructions#EXIT}
+     * {@link Instructions#POP}, {@link Instructions#LIST},
+     * {@link Instructions#TAIL} or {@link Instructions#EXIT}
      * @throws IndexOutOfBoundsException if the heap has grown to its maximum
      * size
      * @throws IllegalArgumentException if {@code opcode} is not one of the
@@ -81,10 +82,57 @@ public interface PrologBytecode<M extends PrologBytecode.Memento> {
     M createMemento();
 
     /**
-     * Restores the state to that found in the specified {@code memento}.
+     * Restores the state to that found in the specified {@code memento}. Code
+     * and constants that were {@link #retain(int, boolean) retained} are kept,
+     * however, even if they were written after {@code memento} was created.
+     * Any other code written after {@code memento} is discarded, including
+     * that lying in between retained code, whose space becomes available for
+     * reuse.
      */
     void setMemento(M memento);
 
+    /**
+     * Retains the code written from the specified {@code address} onwards,
+     * together with all constants, protecting them from being discarded by
+     * {@link #setMemento(Memento)} until the code is {@link #free(int) freed}.
+     * Meant for code written while a query is executing, such as that for
+     * clauses added at runtime to a dynamic predicate, as to let it outlive
+     * the query. The code for the latter is not retained along with it.
+     * <p>
+     * If {@code movable}, the code is moved to the first freed space large
+     * enough to hold it, if any, in which case the code size is restored to
+     * {@code address}. This requires the code to be position-independent,
+     * i.e., not to contain any calls, whose return addresses would change.
+     *
+     * @param address the start of the code to retain, being at most
+     * {@link #getCodeSize()}
+     * @param movable whether the code may be moved
+     * @return the address at which the retained code starts
+     * @throws IllegalArgumentException if {@code address} lies outside of the
+     * code written since the last call to this method or to
+     * {@link #createMemento()} or {@link #setMemento(Memento)}
+     */
+    int retain(int address, boolean movable);
+
+    /**
+     * Frees the retained code starting at the specified {@code address},
+     * making its space available for reuse. Meant for code that can no longer
+     * be executed, such as that for clauses removed from dynamic predicates
+     * once no choice point can try them anymore.
+     *
+     * @param address the address returned by {@link #retain(int, boolean)}
+     * @throws IllegalArgumentException if {@code address} is not that of
+     * retained code
+     */
+    void free(int address);
+
+    /**
+     * Undoes {@link #retain(int, boolean)}, allowing
+     * {@link #setMemento(Memento)} to discard all code and constants again.
+     * Meant for invocation prior to replacing the program.
+     */
+    void release();
+
     /**
      * Marker interface for a memento, capturing a snapshot of the state of a
      * {@link PrologBytecode} implementation.
@@ -0,0 +1,52 @@
+package com.prolog.jvm.zip.api;
+
+/**
+ * Interface for an immutable, structured view of the terms bound to query
+ * variables, allowing answers to be inspected without having to parse their
+ * String representations.
+ * <p>
+ * Two terms are equal if they have the same type, name and arguments. Their
+ * String representations follow the syntax used by the REPL for writing
+ * answers.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public interface Term {
+
+    /**
+     * Returns the type of this term.
+     */
+    TermType getType();
+
+    /**
+     * Returns the name of this variable or atom, or the name of the functor of
+     * this compound term. For list cells, {@code [|]} is returned, and for
+     * integers their decimal representation.
+     */
+    String getName();
+
+    /**
+     * Returns the value of this integer.
+     *
+     * @throws IllegalStateException if {@code getType() !=}
+     * {@link TermType#INTEGER}
+     */
+    int getIntValue();
+
+    /**
+     * Returns the number of arguments of this term, being {@code 0} for
+     * variables, atoms and integers, and {@code 2} for list cells.
+     */
+    int getArity();
+
+    /**
+     * Returns the argument at the specified {@code index}, counting from 0.
+     * For list cells, the head is found at index 0 and the tail at index 1.
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index >=
+     * getArity()}
+     */
+    Term getArgument(int index);
+
+}
@@ -0,0 +1,39 @@
+package com.prolog.jvm.zip.api;
+
+/**
+ * An enumeration of the kinds of {@link Term}s that may occur in an answer.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public enum TermType {
+
+    /**
+     * The type of unbound variables. Their names are those used in the query
+     * if they occurred therein, or a fresh name starting with {@code ?}
+     * otherwise.
+     */
+    VARIABLE,
+
+    /**
+     * The type of atoms, including the empty list {@code []}.
+     */
+    ATOM,
+
+    /**
+     * The type of integers, named by their decimal representations.
+     */
+    INTEGER,
+
+    /**
+     * The type of compound terms, built from a functor with a non-zero arity.
+     */
+    COMPOUND,
+
+    /**
+     * The type of list cells, having the list's head and tail as their two
+     * arguments.
+     */
+    LIST;
+
+}
@@ -0,0 +1,30 @@
+package com.prolog.jvm.zip.api;
+
+/**
+ * Interface describing the statistics gathered on the trail, accumulated over
+ * the lifetime of a {@link ZipFacade}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public interface TrailStats {
+
+    /**
+     * Returns the total number of entries pushed on the trail.
+     */
+    long getEntries();
+
+    /**
+     * Returns the total number of bindings of local stack variables that were
+     * not trailed, the variables being newer than the most recent choice
+     * point.
+     */
+    long getAvoidedEntries();
+
+    /**
+     * Returns the largest number of entries held by the trail at any one
+     * time.
+     */
+    int getMaxSize();
+
+}
@@ -3,8 +3,10 @@ package com.prolog.jvm.zip.api;
 import java.util.List;
 
 import com.prolog.jvm.exceptions.BacktrackException;
+import com.prolog.jvm.symbol.ClauseIndex;
 import com.prolog.jvm.symbol.ClauseSymbol;
 import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.zip.util.IntList;
 
 /**
  * Facade for accessing the ZIP machine's runtime data structures.
@@ -43,6 +45,11 @@ public interface ZipFacade {
      */
     void setMode(int mode);
 
+    /**
+     * Returns the machine mode.
+     */
+    int getMode();
+
     // === Constant pool ===
 
     /**
@@ -68,6 +75,12 @@ public interface ZipFacade {
      */
     int fetchOperator();
 
+    /**
+     * Returns the bit-wise disjunction of the instruction at the program
+     * counter with the machine mode, without advancing the instruction pointer.
+     */
+    int peekOperator();
+
     /**
      * Reads an operand from code memory, advancing the instruction pointer as a
      * side effect. By passing {@code true} for {@code isVariable}, this
@@ -76,6 +89,12 @@ public interface ZipFacade {
      */
     int fetchOperand(boolean isVariable);
 
+    /**
+     * Returns the local stack address of the variable with the specified
+     * {@code offset}, relative to the frame implied by the machine mode.
+     */
+    int getVariableAddress(int offset);
+
     /**
      * Sets the instruction pointer to the specified {@code address} and saves
      * the return address in the current target frame, if it exists.
@@ -90,6 +109,12 @@ public interface ZipFacade {
      */
     int getProgramCounter();
 
+    /**
+     * Sets the PC register to the specified {@code address}. Contrary to
+     * {@link #jump(int)}, no return address is saved.
+     */
+    void setProgramCounter(int address);
+
     // === Global stack ===
 
     /**
@@ -100,6 +125,40 @@ public interface ZipFacade {
      */
     int pushFunctor(FunctorSymbol symbol);
 
+    /**
+     * Pushes the representation of a compound term on the global stack,
+     * bypassing the constant pool lookup performed by
+     * {@link #pushFunctor(FunctorSymbol)}.
+     *
+     * @param index the constant pool index of a symbol for a functor
+     * @return an STR-tagged word
+     */
+    int pushFunctor(int index);
+
+    /**
+     * Pushes a list cell on the global stack, consisting of two unbound
+     * variables for its head and tail.
+     *
+     * @return a LIS-tagged word
+     */
+    int pushList();
+
+    /**
+     * Returns the word representing the specified integer, being INT-tagged if
+     * the latter can be stored unboxed, or BIG-tagged otherwise, in which case
+     * its box is pushed on the global stack.
+     *
+     * @param value the integer to represent
+     * @return an INT- or BIG-tagged word
+     */
+    int pushInteger(int value);
+
+    /**
+     * Returns the integer represented by the specified INT- or BIG-tagged
+     * {@code word}, as returned by {@link #getWordAt(int)}.
+     */
+    int getInteger(int word);
+
     // === Local stack ===
 
     /**
@@ -123,9 +182,40 @@ public interface ZipFacade {
      * Sets the last choice point to the current target frame, storing therein
      * the current machine state.
      *
-     * @param clause the backtrack clause pointer
+     * @param alternatives the clause alternatives for the called predicate, as
+     * selected by its {@link ClauseIndex}
+     * @param index the position within {@code alternatives} of the backtrack
+     * clause
+     */
+    void pushChoicePoint(ClauseSymbol[] alternatives, int index);
+
+    /**
+     * Returns a number identifying the choice points that currently exist, or
+     * {@code -1} if there are none. A new number is taken whenever a choice
+     * point is pushed while there were none, so that once another number is
+     * returned, none of the clause alternatives held by the choice points at
+     * the time can be tried anymore.
      */
-    void pushChoicePoint(ClauseSymbol clause);
+    int getChoicePointEpoch();
+
+    /**
+     * Performs last-call optimization for the goal whose arguments were just
+     * pushed on the current target frame, being the last goal in the body of
+     * the clause for the current source frame. Provided the latter is not the
+     * query's frame and is not protected by a choice point, the source frame
+     * is discarded, and the target frame moved to its place. Unbound
+     * variables of the source frame that are still referenced by the
+     * arguments are first moved to the global stack. Moreover, the return
+     * address and continuation frame of the source frame are passed on to the
+     * target frame, so that the called predicate returns directly to the
+     * caller of the current clause.
+     * <p>
+     * If the source frame cannot be discarded, this method has no effect.
+     *
+     * @param arity the number of arguments pushed on the target frame
+     * @return the local stack address of the target frame
+     */
+    int lastCall(int arity);
 
     /**
      * Sets the last source frame to the current target frame, storing therein
@@ -196,9 +286,10 @@ public interface ZipFacade {
      * Trails the specified {@code address} if needed. I.e., if a choice point
      * has been allocated on the local stack and either: (a) {@code address} is
      * part of the global stack and occurs before the backtrack global stack
-     * top; or (b) it is part of the local stack. If neither condition applies,
+     * top; or (b) it is part of the local stack and occurs before the end of
+     * the most recent choice point's arguments. If neither condition applies,
      * trailing would have no effect as the contents at {@code address} would
-     * already be garbage-collected at backtracking.
+     * already be garbage-collected or initialized anew at backtracking.
      */
     void trail(int address);
 
@@ -213,19 +304,59 @@ public interface ZipFacade {
      */
     List<Integer> unifiable(int address1, int address2);
 
+    /**
+     * Attempts unification on the specified addresses and returns whether said
+     * attempt was successful. Contrary to {@link #unifiable(int, int)}, no
+     * allocations take place, as bound addresses are recorded in a primitive
+     * list supplied by the caller (if any).
+     *
+     * @param address1 a local- or global stack address
+     * @param address2 a local- or global stack address
+     * @param bindings a list for storing the addresses that were bound during
+     * unification, or null if these need not be recorded
+     */
+    boolean unify(int address1, int address2, IntList bindings);
+
     // === Backtracking ===
 
     /**
      * Performs backtracking, recording which variables were unbound in
-     * {@code vars}.
+     * {@code vars}, if non-null.
      *
      * @param vars a list for storing the addresses of variables that have
-     * become unbound during backtracking; must be empty and not allowed to be
-     * null
+     * become unbound during backtracking, which must be empty; or null if
+     * these need not be recorded
      * @throws BacktrackException if there was no choice point to backtrack to
-     * @throws IllegalArgumentException if {@code !vars.isEmpty()}
-     * @throws NullPointerException if {@code vars == null}
+     * @throws IllegalArgumentException if {@code vars != null &&
+     * !vars.isEmpty()}
+     */
+    int backtrack(IntList vars) throws BacktrackException;
+
+    // === Garbage collection ===
+
+    /**
+     * Compacts the global stack if its high-water mark has been reached,
+     * reclaiming the cells that are no longer reachable from the local stack
+     * frames, the choice points or the trail. Surviving cells keep their
+     * relative order, so that the segments of the global stack delimited by
+     * choice points are preserved. Meant to be invoked only at a point where
+     * no global stack addresses are held outside of the machine's memory
+     * areas, such as right before a call.
+     *
+     * @param arity the number of arguments pushed on the current target
+     * frame, which are treated as roots
+     * @return whether a collection was performed
+     */
+    boolean collectGarbage(int arity);
+
+    /**
+     * Returns the statistics gathered by the garbage collector.
+     */
+    GcStats getGcStats();
+
+    /**
+     * Returns the statistics gathered on the trail.
      */
-    int backtrack(List<Integer> vars) throws BacktrackException;
+    TrailStats getTrailStats();
 
 }
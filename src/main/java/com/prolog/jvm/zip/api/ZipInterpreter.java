@@ -25,11 +25,48 @@ public interface ZipInterpreter {
     void execute(int queryAddress, BufferedReader in, Writer out)
             throws Exception;
 
+    /**
+     * Commences the interpreter's fetch/decode/execute cycle after setting its
+     * program counter to the supplied {@code queryAddress}, writing all of the
+     * query's answers, up to {@code maxAnswers}, without prompting the user in
+     * between. Each answer is written on a line of its own, followed by a
+     * final line telling whether any answer was found. The output is not
+     * flushed, leaving it to the caller to decide when to do so.
+     *
+     * @param queryAddress the code memory address for a compiled query
+     * @param out the target for writing the answers to; not allowed to be
+     * null
+     * @param maxAnswers the maximum number of answers to write
+     * @throws NullPointerException if {@code out == null}
+     * @throws IllegalArgumentException if {@code maxAnswers <= 0}
+     * @throws Exception
+     */
+    void executeAll(int queryAddress, Writer out, int maxAnswers)
+            throws Exception;
+
+    /**
+     * Starts solving the query compiled at the specified {@code queryAddress},
+     * returning a handle through which its answers may be pulled one at a
+     * time. No instructions are executed until the first answer is asked for.
+     * Any handle previously returned by this method is closed, as it is upon
+     * each call to {@link #execute(int, BufferedReader, Writer)} and
+     * {@link #executeAll(int, Writer, int)}.
+     *
+     * @param queryAddress the code memory address for a compiled query
+     */
+    AnswerIterator solve(int queryAddress);
+
     /**
      * Registers the specified {@code listener} to receive notifications for
      * each instruction executed. The order in which listeners are notified is
      * unspecified, and need in particular not be dependent on the order in
      * which they were added.
+     * <p>
+     * Registration takes effect starting from the next call to
+     * {@link #execute(int, BufferedReader, Writer)}, or from the next time
+     * an answer is asked for through an {@link AnswerIterator}.
+     * Implementations are encouraged to avoid recording any step information
+     * when no listeners are registered.
      *
      * @throws NullPointerException if {@code listener == null}
      */
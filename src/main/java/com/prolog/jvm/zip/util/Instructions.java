@@ -50,6 +50,19 @@ public final class Instructions {
      */
     public static final int POP = 1;
 
+    /**
+     * Opcode for unifying a list cell, whose head and tail are unified by the
+     * instructions that follow, up to the matching {@link #POP}.
+     */
+    public static final int LIST = 2;
+
+    /**
+     * Opcode for unifying a list cell found in the tail of another. Contrary
+     * to {@link #LIST}, no return address is saved on the scratchpad, the
+     * whole spine of a list literal thus sharing a single {@link #POP}.
+     */
+    public static final int TAIL = 3;
+
     /**
      * Opcode for unifying a functor of some non-zero arity.
      */
@@ -60,6 +73,12 @@ public final class Instructions {
      */
     public static final int CONSTANT = 11;
 
+    /**
+     * Opcode for unifying an integer, taken as its operand. Contrary to
+     * {@link #CONSTANT}, the operand is not a constant pool index.
+     */
+    public static final int INTEGER = 10;
+
     /**
      * Opcode for unifying the first occurrence of a variable within some
      * clause.
@@ -77,6 +96,13 @@ public final class Instructions {
      */
     public static final int CALL = 17;
 
+    /**
+     * Opcode for calling a built-in predicate, whose implementation is invoked
+     * directly instead of resolving against clauses. Like for {@link #CALL},
+     * the operand is the constant pool index of the predicate.
+     */
+    public static final int BUILTIN = 18;
+
     /**
      * Opcode for executing the neck of a clause.
      */
@@ -115,11 +141,15 @@ public final class Instructions {
     static {
         final Map<Integer,String> map = new HashMap<>();
         map.put(Integer.valueOf(POP), "POP");
+        map.put(Integer.valueOf(LIST), "LIST");
+        map.put(Integer.valueOf(TAIL), "TAIL");
         map.put(Integer.valueOf(FUNCTOR), "FUNCTOR");
         map.put(Integer.valueOf(CONSTANT), "CONSTANT");
+        map.put(Integer.valueOf(INTEGER), "INTEGER");
         map.put(Integer.valueOf(FIRSTVAR), "FIRSTVAR");
         map.put(Integer.valueOf(VAR), "VAR");
         map.put(Integer.valueOf(CALL), "CALL");
+        map.put(Integer.valueOf(BUILTIN), "BUILTIN");
         map.put(Integer.valueOf(ENTER), "ENTER");
         map.put(Integer.valueOf(RETURN), "RETURN");
         map.put(Integer.valueOf(EXIT), "EXIT");
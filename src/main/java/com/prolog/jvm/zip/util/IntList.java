@@ -0,0 +1,154 @@
+package com.prolog.jvm.zip.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A growable list of primitive ints, used for recording addresses on the
+ * unification and backtracking paths without boxing them. Iteration, in
+ * contrast, does box its elements, and is meant only for the benefit of
+ * debugging tools.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class IntList implements Iterable<Integer> {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private int[] elements = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Appends the specified {@code element} to the end of this list.
+     */
+    public void add(final int element) {
+        if (this.size == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.size * 2);
+        }
+        this.elements[this.size++] = element;
+    }
+
+    /**
+     * Returns the element at the specified {@code index}.
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index >=
+     * size()}
+     */
+    public int get(final int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.elements[index];
+    }
+
+    /**
+     * Replaces the element at the specified {@code index}.
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index >=
+     * size()}
+     */
+    public void set(final int index, final int element) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.elements[index] = element;
+    }
+
+    /**
+     * Removes and returns the last element of this list, allowing it to be
+     * used as a stack.
+     *
+     * @throws IndexOutOfBoundsException if this list is empty
+     */
+    public int removeLast() {
+        if (this.size == 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        return this.elements[--this.size];
+    }
+
+    /**
+     * Returns whether this list contains the specified {@code element}.
+     */
+    public boolean contains(final int element) {
+        for (int i = 0; i < this.size; i++) {
+            if (this.elements[i] == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of elements in this list.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns whether this list is empty.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all elements from the specified {@code size} onwards.
+     *
+     * @throws IndexOutOfBoundsException if {@code size < 0 || size > size()}
+     */
+    public void truncate(final int size) {
+        if (size < 0 || size > this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+        this.size = size;
+    }
+
+    /**
+     * Removes all elements from this list, retaining its capacity.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Returns a new {@link List} containing the elements of this list.
+     */
+    public List<Integer> toList() {
+        final List<Integer> result = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            result.add(Integer.valueOf(this.elements[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < IntList.this.size;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return Integer.valueOf(IntList.this.elements[this.next++]);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
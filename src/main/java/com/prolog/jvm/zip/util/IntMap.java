@@ -0,0 +1,119 @@
+package com.prolog.jvm.zip.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A map from non-zero primitive ints to values, used for looking up machine
+ * words on the calling path without boxing them. Keys are hashed into an
+ * open-addressed table with linear probing, in which 0 marks an empty slot.
+ * Entries cannot be removed, only replaced.
+ *
+ * @author Arno Bastenhof
+ *
+ * @param <V> the type of the values
+ */
+public final class IntMap<V> {
+
+    private static final int INITIAL_BITS = 3;
+
+    // Multiplier for spreading the bits of keys over the table
+    private static final int PHI = 0x9E3779B9;
+
+    // Keys, and the indices of their values in the latter's list
+    private int[] keys = new int[1 << INITIAL_BITS];
+    private int[] indices = new int[1 << INITIAL_BITS];
+
+    // Number of bits discarded from a hash, leaving those for a table index
+    private int shift = Integer.SIZE - INITIAL_BITS;
+
+    // Values in the order in which their keys were added
+    private final List<V> values = new ArrayList<>();
+
+    /**
+     * Returns the value to which the specified {@code key} is mapped, or null
+     * if there is none.
+     */
+    public V get(final int key) {
+        final int i = find(key);
+        return this.keys[i] == 0 ? null : this.values.get(this.indices[i]);
+    }
+
+    /**
+     * Maps the specified {@code key} to the given {@code value}.
+     *
+     * @param key the key; must be {@code != 0}
+     * @param value the value; not allowed to be null
+     * @throws IllegalArgumentException if {@code key == 0}
+     * @throws NullPointerException if {@code value == null}
+     */
+    public void put(final int key, final V value) {
+        if (key == 0) {
+            throw new IllegalArgumentException();
+        }
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        final int i = find(key);
+        if (this.keys[i] != 0) {
+            this.values.set(this.indices[i], value);
+            return;
+        }
+        this.keys[i] = key;
+        this.indices[i] = this.values.size();
+        this.values.add(value);
+        // Keep the table at most half full
+        if (this.values.size() * 2 > this.keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Returns the number of keys in this map.
+     */
+    public int size() {
+        return this.values.size();
+    }
+
+    /**
+     * Returns whether this map is empty.
+     */
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+
+    /**
+     * Returns an unmodifiable view of the values in this map, in the order in
+     * which their keys were added.
+     */
+    public List<V> values() {
+        return Collections.unmodifiableList(this.values);
+    }
+
+    // Returns the slot holding the specified key, or the empty slot at which
+    // it is to be added
+    private int find(final int key) {
+        final int mask = this.keys.length - 1;
+        int i = key * PHI >>> this.shift;
+        while (this.keys[i] != 0 && this.keys[i] != key) {
+            i = i + 1 & mask;
+        }
+        return i;
+    }
+
+    private void rehash() {
+        final int[] oldKeys = this.keys;
+        final int[] oldIndices = this.indices;
+        this.keys = new int[oldKeys.length * 2];
+        this.indices = new int[oldKeys.length * 2];
+        this.shift--;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                final int i = find(oldKeys[j]);
+                this.keys[i] = oldKeys[j];
+                this.indices[i] = oldIndices[j];
+            }
+        }
+    }
+}
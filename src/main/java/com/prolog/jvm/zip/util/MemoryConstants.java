@@ -2,7 +2,9 @@ package com.prolog.jvm.zip.util;
 
 /**
  * Utility class containing constants delimiting the ZIP's various runtime
- * memory areas within a shared virtual address space.
+ * memory areas within a shared virtual address space. These only fix the
+ * largest range of addresses each area may occupy, whereas the actual size of
+ * an area may be configured to be smaller.
  *
  * @author Arno Bastenhof
  *
@@ -15,9 +17,9 @@ public final class MemoryConstants {
     }
 
     /**
-     * The total number of words that can be allocated in virtual memory.
+     * The total number of words that can be addressed in virtual memory.
      */
-    public static final int MEMORY_SIZE = 25000512;
+    public static final int MEMORY_SIZE = Integer.MAX_VALUE;
 
     /**
      * The smallest address in virtual memory for use by the global stack.
@@ -39,6 +41,19 @@ public final class MemoryConstants {
      */
     public static final int MAX_LOCAL_INDEX = 15999999;
 
+    /**
+     * The number of words taken up by the header of a frame on the local
+     * stack, being stored just below the frame's variable slots.
+     */
+    public static final int FRAME_HEADER_SIZE = 7;
+
+    /**
+     * The address of the first variable slot of the query's frame, being the
+     * bottommost frame on the local stack.
+     */
+    public static final int QUERY_FRAME_INDEX = MIN_LOCAL_INDEX
+            + FRAME_HEADER_SIZE;
+
     /**
      * The smallest address in virtual memory for use by the trail.
      */
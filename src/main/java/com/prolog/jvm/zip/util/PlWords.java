@@ -23,7 +23,12 @@ import java.util.Map;
  * although we have also neglected to introduce separate tags for words
  * representing bound and unbound variables. Instead, as with the WAM, we use
  * only a single tag, representing unbound variables by self references.
- * <ul>
+ * <li>Integers between {@link #MIN_INT} and {@link #MAX_INT} are stored
+ * unboxed, in the value of an INT-tagged word. Others are boxed on the global
+ * stack, the box consisting of two INT-tagged words for the integer's upper
+ * and lower 16 bits, so that the garbage collector need not tell it apart from
+ * any other cells.
+ * </ul>
  *
  * [1] Aït-Kaci, Hassan. "Warren's Abstract Machine A Tutorial Reconstruction."
  * (1999).
@@ -44,6 +49,16 @@ public final class PlWords {
     // Bitmask for extracting the value of a word
     private static final int VAL_MASK = ~(0xFF << 24);
 
+    /**
+     * The smallest integer that can be stored unboxed.
+     */
+    public static final int MIN_INT = -(1 << 23);
+
+    /**
+     * The largest integer that can be stored unboxed.
+     */
+    public static final int MAX_INT = (1 << 23) - 1;
+
     // === Tags ===
 
     /**
@@ -64,7 +79,6 @@ public final class PlWords {
      * Tag used for representing lists. The value points to a cell of two
      * adjacent machine words, representing the head resp. the tail of the list.
      */
-    // TODO Currently unused.
     public static final int LIS = 3;
 
     /**
@@ -78,6 +92,19 @@ public final class PlWords {
      */
     public static final int CONS = 5;
 
+    /**
+     * Tag used for representing integers between {@link #MIN_INT} and
+     * {@link #MAX_INT}, the value being their two's complement representation.
+     */
+    public static final int INT = 6;
+
+    /**
+     * Tag used for representing integers that do not fit in the value of a
+     * word. The value points to a box of two adjacent INT-tagged words,
+     * containing the upper and lower 16 bits of the integer.
+     */
+    public static final int BIG = 7;
+
     /**
      * Unmodifiable map containing the String representations for tags.
      */
@@ -90,6 +117,8 @@ public final class PlWords {
         map.put(LIS, "LIS");
         map.put(FUNC, "FUNCTOR");
         map.put(CONS, "CONS");
+        map.put(INT, "INT");
+        map.put(BIG, "BIG");
         TAGS = Collections.unmodifiableMap(map);
     }
 
@@ -103,6 +132,14 @@ public final class PlWords {
         return (tag << 24) | ((value << 8) >>> 8);
     }
 
+    /**
+     * Returns whether the specified integer can be stored unboxed, in the
+     * value of an {@link #INT}-tagged word.
+     */
+    public static boolean isSmallInt(final int value) {
+        return MIN_INT <= value && value <= MAX_INT;
+    }
+
     // === Accessors for extracting the tag and value from a word ===
 
     /**
@@ -113,6 +150,14 @@ public final class PlWords {
         return word & VAL_MASK;
     }
 
+    /**
+     * Returns the value of the supplied {@link #INT}-tagged {@code word} as a
+     * signed integer, extending the sign of its 24 lower-order bits.
+     */
+    public static int getIntValue(final int word) {
+        return (word << 8) >> 8;
+    }
+
     /**
      * Returns the tag of the supplied {@code word}, consisting of its most
      * significant byte.
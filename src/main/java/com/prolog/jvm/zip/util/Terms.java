@@ -0,0 +1,243 @@
+package com.prolog.jvm.zip.util;
+
+import static java.util.Objects.requireNonNull;
+
+import com.prolog.jvm.zip.api.Term;
+import com.prolog.jvm.zip.api.TermType;
+
+/**
+ * Utility class containing constants and static factory methods for
+ * {@link Term}s.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class Terms {
+
+    private static final String LIST_NAME = "[|]";
+    private static final Term[] NO_ARGS = new Term[0];
+
+    /**
+     * The {@link Term} for the empty list.
+     */
+    public static final Term NIL = getAtom("[]");
+
+    /**
+     * Static factory method for obtaining a {@link Term} of type
+     * {@link TermType#VARIABLE}.
+     *
+     * @param name the variable's name; not allowed to be null
+     * @throws NullPointerException if {@code name == null}
+     */
+    public static Term getVariable(final String name) {
+        return new TermImpl(TermType.VARIABLE, requireNonNull(name), NO_ARGS);
+    }
+
+    /**
+     * Static factory method for obtaining a {@link Term} of type
+     * {@link TermType#ATOM}.
+     *
+     * @param name the atom's name; not allowed to be null
+     * @throws NullPointerException if {@code name == null}
+     */
+    public static Term getAtom(final String name) {
+        return new TermImpl(TermType.ATOM, requireNonNull(name), NO_ARGS);
+    }
+
+    /**
+     * Static factory method for obtaining a {@link Term} of type
+     * {@link TermType#INTEGER}.
+     *
+     * @param value the integer's value
+     */
+    public static Term getInteger(final int value) {
+        return new TermImpl(TermType.INTEGER, Integer.toString(value),
+                NO_ARGS);
+    }
+
+    /**
+     * Static factory method for obtaining a {@link Term} of type
+     * {@link TermType#COMPOUND}.
+     *
+     * @param name the functor's name; not allowed to be null
+     * @param args the arguments; not allowed to be null or empty, nor to
+     * contain null elements
+     * @throws NullPointerException if {@code name == null || args == null},
+     * or if {@code args} contains null elements
+     * @throws IllegalArgumentException if {@code args.length == 0}
+     */
+    public static Term getCompound(final String name, final Term... args) {
+        requireNonNull(name);
+        if (args.length == 0) {
+            throw new IllegalArgumentException();
+        }
+        final Term[] copy = args.clone();
+        for (final Term arg : copy) {
+            requireNonNull(arg);
+        }
+        return new TermImpl(TermType.COMPOUND, name, copy);
+    }
+
+    /**
+     * Static factory method for obtaining a {@link Term} of type
+     * {@link TermType#LIST}.
+     *
+     * @param head the list's head; not allowed to be null
+     * @param tail the list's tail; not allowed to be null
+     * @throws NullPointerException if {@code head == null || tail == null}
+     */
+    public static Term getList(final Term head, final Term tail) {
+        return new TermImpl(TermType.LIST, LIST_NAME, new Term[] {
+                requireNonNull(head), requireNonNull(tail) });
+    }
+
+    // Private constructor to prevent instantiation
+    private Terms() {
+        throw new AssertionError();
+    }
+
+    /*
+     * Private implementation of the type Term.
+     *
+     * Lists may be long, for which reason equals, hashCode and toString
+     * iterate over the last argument of a term, rather than recurse on it.
+     */
+    private static final class TermImpl implements Term {
+
+        private final TermType type;
+        private final String name;
+        private final Term[] args;
+
+        private TermImpl(final TermType type, final String name,
+                final Term[] args) {
+            assert type != null;
+            assert name != null;
+            assert args != null;
+            this.type = type;
+            this.name = name;
+            this.args = args;
+        }
+
+        @Override
+        public TermType getType() {
+            return this.type;
+        }
+
+        @Override
+        public String getName() {
+            return this.name;
+        }
+
+        @Override
+        public int getIntValue() {
+            if (this.type != TermType.INTEGER) {
+                throw new IllegalStateException();
+            }
+            return Integer.parseInt(this.name);
+        }
+
+        @Override
+        public int getArity() {
+            return this.args.length;
+        }
+
+        @Override
+        public Term getArgument(final int index) {
+            return this.args[index]; // throws IndexOutOfBoundsException
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder buffer = new StringBuilder();
+            appendTo(buffer);
+            return buffer.toString();
+        }
+
+        private void appendTo(final StringBuilder buffer) {
+            TermImpl term = this;
+            int brackets = 0;
+            while (true) {
+                switch (term.type) {
+                case COMPOUND: {
+                    buffer.append(term.name).append('(');
+                    for (int i = 0; i < term.args.length - 1; i++) {
+                        ((TermImpl) term.args[i]).appendTo(buffer);
+                        buffer.append(", ");
+                    }
+                    brackets++;
+                    term = (TermImpl) term.args[term.args.length - 1];
+                    continue;
+                }
+                case LIST: {
+                    buffer.append('[');
+                    ((TermImpl) term.args[0]).appendTo(buffer);
+                    TermImpl tail = (TermImpl) term.args[1];
+                    while (tail.type == TermType.LIST) {
+                        buffer.append(", ");
+                        ((TermImpl) tail.args[0]).appendTo(buffer);
+                        tail = (TermImpl) tail.args[1];
+                    }
+                    if (!tail.equals(NIL)) {
+                        buffer.append('|');
+                        tail.appendTo(buffer);
+                    }
+                    buffer.append(']');
+                    break;
+                }
+                default:
+                    buffer.append(term.name);
+                }
+                break;
+            }
+            for (int i = 0; i < brackets; i++) {
+                buffer.append(')');
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            int result = 1;
+            Term term = this;
+            while (true) {
+                result = 31 * result + term.getType().hashCode();
+                result = 31 * result + term.getName().hashCode();
+                final int arity = term.getArity();
+                if (arity == 0) {
+                    return result;
+                }
+                for (int i = 0; i < arity - 1; i++) {
+                    result = 31 * result + term.getArgument(i).hashCode();
+                }
+                term = term.getArgument(arity - 1);
+            }
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof TermImpl)) {
+                return false;
+            }
+            TermImpl term1 = this;
+            TermImpl term2 = (TermImpl) obj;
+            while (term1 != term2) {
+                if (term1.type != term2.type || !term1.name.equals(term2.name)
+                        || term1.args.length != term2.args.length) {
+                    return false;
+                }
+                final int arity = term1.args.length;
+                if (arity == 0) {
+                    return true;
+                }
+                final int last = arity - 1;
+                for (int i = 0; i < last; i++) {
+                    if (!term1.args[i].equals(term2.args[i])) {
+                        return false;
+                    }
+                }
+                term1 = (TermImpl) term1.args[last];
+                term2 = (TermImpl) term2.args[last];
+            }
+            return true;
+        }
+    }
+}
@@ -42,18 +42,26 @@ public final class LexerTest {
         expectMatch(".", Tokens.PERIOD);
         expectMatch(":-", Tokens.IMPL);
         expectMatch("[]", Tokens.NIL);
+        expectMatch("[", Tokens.LSQUARE);
+        expectMatch("[a]", Tokens.LSQUARE);
+        expectMatch("]", Tokens.RSQUARE);
+        expectMatch("|", Tokens.BAR);
         expectMatch(VAR_UNDERSCORE, varUnderscoreToken);
         expectMatch(VAR_CAPITAL, varCapitalToken);
         expectMatch(CONSTANT, constantToken);
         expectMatch(GRAPHIC, graphicToken);
+        expectMatch("/", Tokens.getAtom("/"));
+        expectMatch("//2", Tokens.getAtom("//"));
+        expectMatch("42a", Tokens.getInt("42"));
         expectMatch(WHITESPACE + ".", Tokens.PERIOD);
         expectMatch(INLINE_COMMENT + ".", Tokens.PERIOD);
         expectMatch(MULTILINE_COMMENT + ".", Tokens.PERIOD);
     }
 
     @Test(expected = RecognitionException.class)
-    public void wrongSlash() throws IOException, RecognitionException {
-        expectException("/");
+    public void unterminatedComment() throws IOException,
+            RecognitionException {
+        expectException("/* ");
     }
 
     @Test(expected = RecognitionException.class)
@@ -61,14 +69,9 @@ public final class LexerTest {
         expectException(":");
     }
 
-    @Test(expected = RecognitionException.class)
-    public void wrongNil() throws IOException, RecognitionException {
-        expectException("[");
-    }
-
     @Test(expected = RecognitionException.class)
     public void unknownChar() throws IOException, RecognitionException {
-        expectException("|");
+        expectException("{");
     }
 
     private void expectMatch(final String input, final Token expected)
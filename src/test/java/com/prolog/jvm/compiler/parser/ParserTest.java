@@ -24,6 +24,9 @@ public final class ParserTest {
 
     private static final String PROGRAM = "program.pl"; // Class-path resource
     private static final String QUERY = "ancestor(zeus, X).";
+    private static final String DIRECTIVE = ":- dynamic memo/2, seen/1.\n"
+            + "memo(a, b).";
+    private static final String WRONG_DIRECTIVE = ":- dynamic memo.";
     private static final String WRONG_QUERY =
             "reverse(cons(a,cons(b,[])),cons(b,cons(a,[])).";
 
@@ -45,6 +48,16 @@ public final class ParserTest {
         parseQuery(WRONG_QUERY);
     }
 
+    @Test
+    public void directive() throws IOException, RecognitionException {
+        parseProgramText(DIRECTIVE);
+    }
+
+    @Test(expected = RecognitionException.class)
+    public void wrongDirective() throws IOException, RecognitionException {
+        parseProgramText(WRONG_DIRECTIVE);
+    }
+
     // === Private implementation ===
 
     private void parseProgram(final String program) throws IOException,
@@ -59,6 +72,16 @@ public final class ParserTest {
         }
     }
 
+    private void parseProgramText(final String program) throws IOException,
+            RecognitionException {
+        try (final Reader reader = new StringReader(program)) {
+            final PrologParser parser = PrologParser.newInstance(reader,
+                    VISITOR);
+            parser.parseProgram();
+            assertEquals(parser.isDone(), true);
+        }
+    }
+
     private void parseQuery(final String query) throws IOException,
             RecognitionException {
         try (final Reader reader = new StringReader(query)) {
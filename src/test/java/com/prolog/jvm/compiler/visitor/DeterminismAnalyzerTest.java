@@ -0,0 +1,90 @@
+package com.prolog.jvm.compiler.visitor;
+
+import static com.prolog.jvm.zip.util.MemoryConstants.MIN_HEAP_INDEX;
+import static com.prolog.jvm.zip.util.PlWords.CONS;
+import static com.prolog.jvm.zip.util.PlWords.FUNC;
+import static com.prolog.jvm.zip.util.PlWords.INT;
+import static com.prolog.jvm.zip.util.PlWords.LIS;
+import static com.prolog.jvm.zip.util.PlWords.getWord;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.prolog.jvm.compiler.ProgramCompiler;
+import com.prolog.jvm.symbol.ClauseSymbol;
+import com.prolog.jvm.symbol.FunctorSymbol;
+import com.prolog.jvm.symbol.Scope;
+import com.prolog.jvm.symbol.SymbolKeys;
+import com.prolog.jvm.zip.ConstantPool;
+import com.prolog.jvm.zip.PrologBytecodeImpl;
+import com.prolog.jvm.zip.VirtualMemory;
+
+/**
+ * Test class for {@link DeterminismAnalyzer}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class DeterminismAnalyzerTest {
+
+    // Heads covering every kind of key, including integers too large to be
+    // compared by a single word
+    private static final String PROGRAM = "p(a, 1).\n"
+            + "p(f(Y), [x]).\n"
+            + "p(X, Y).\n"
+            + "p([], 99999999).\n";
+
+    private PrologBytecodeImpl code;
+    private ClauseSymbol[] clauses;
+
+    @Before
+    public void setUp() throws Exception {
+        final ConstantPool constants = new ConstantPool();
+        // First element of constant pool is reserved
+        constants.add(null);
+        this.code = new PrologBytecodeImpl(constants, new VirtualMemory()
+                .newArea(MIN_HEAP_INDEX, MIN_HEAP_INDEX + 9999));
+        final Scope scope = Scope.newRootInstance();
+        try (final Reader reader = new StringReader(PROGRAM)) {
+            new ProgramCompiler(this.code, scope).compile(reader);
+        }
+        this.clauses = scope.resolveGlobal(SymbolKeys.ofPredicate("p", 2))
+                .getAlternatives(null);
+        assertEquals(4, this.clauses.length);
+    }
+
+    @Test
+    public void constants() {
+        assertArrayEquals(new int[] { getWord(CONS, index("a", 0)),
+                getWord(INT, 1) }, this.clauses[0].getHeadKeys());
+    }
+
+    @Test
+    public void structures() {
+        assertArrayEquals(new int[] { getWord(FUNC, index("f", 1)),
+                getWord(LIS, 0) }, this.clauses[1].getHeadKeys());
+    }
+
+    @Test
+    public void variables() {
+        assertNull(this.clauses[2].getHeadKeys());
+    }
+
+    @Test
+    public void bigIntegers() {
+        assertArrayEquals(new int[] { getWord(CONS, this.code
+                .getConstantPoolIndex(FunctorSymbol.NIL)), 0 },
+                this.clauses[3].getHeadKeys());
+    }
+
+    private int index(final String name, final int arity) {
+        return this.code.getConstantPoolIndex(FunctorSymbol.valueOf(name,
+                arity));
+    }
+}
@@ -0,0 +1,171 @@
+package com.prolog.jvm.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.prolog.jvm.zip.api.AnswerIterator;
+import com.prolog.jvm.zip.api.Term;
+import com.prolog.jvm.zip.api.TermType;
+import com.prolog.jvm.zip.util.Terms;
+
+/**
+ * Tests for pulling answers through an {@link AnswerIterator}, run against
+ * each of the available engines.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+@RunWith(Parameterized.class)
+public final class AnswerIteratorTest {
+
+    // Class-path resources
+    private static final String LISTS = "lists.pl";
+    private static final String PEANO = "peano.pl";
+
+    private static final Term A = Terms.getAtom("a");
+    private static final Term B = Terms.getAtom("b");
+
+    private final PrologEngine.Interpreter interpreter;
+
+    public AnswerIteratorTest(final PrologEngine.Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> interpreters() {
+        return Arrays.asList(new Object[][] {
+                { PrologEngine.Interpreter.DEFAULT },
+                { PrologEngine.Interpreter.PREDECODED },
+                { PrologEngine.Interpreter.JIT } });
+    }
+
+    @Test
+    public void allAnswers() throws Exception {
+        final PrologEngine engine = newEngine(LISTS);
+        try (final AnswerIterator answers = engine.query("app(X,Y,[a,b]).")) {
+            assertAnswer(answers.next(), Terms.NIL, list(A, B));
+            assertAnswer(answers.next(), list(A), list(B));
+            assertAnswer(answers.next(), list(A, B), Terms.NIL);
+            assertFalse(answers.hasNext());
+            assertFalse(answers.hasNext());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void noAnswers() throws Exception {
+        final PrologEngine engine = newEngine(LISTS);
+        try (final AnswerIterator answers = engine.query("app([a],[],[]).")) {
+            assertFalse(answers.hasNext());
+            answers.next();
+        }
+    }
+
+    @Test
+    public void structuredView() throws Exception {
+        final PrologEngine engine = newEngine(LISTS);
+        try (final AnswerIterator answers = engine.query("app([a],Y,Z).")) {
+            final Map<String,Term> answer = answers.next();
+            final Term y = answer.get("Y");
+            final Term z = answer.get("Z");
+            assertEquals(TermType.VARIABLE, y.getType());
+            assertEquals(TermType.LIST, z.getType());
+            assertEquals(2, z.getArity());
+            assertEquals(A, z.getArgument(0));
+            assertEquals(y, z.getArgument(1));
+            assertEquals("[a|" + y.getName() + "]", z.toString());
+        }
+    }
+
+    @Test
+    public void stopEarly() throws Exception {
+        // nat/1 has infinitely many answers, computed only when asked for
+        final PrologEngine engine = newEngine(PEANO);
+        final AnswerIterator answers = engine.query("nat(X).");
+        Term expected = Terms.getAtom("z");
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(answers.hasNext());
+            assertEquals(expected, answers.next().get("X"));
+            expected = Terms.getCompound("s", expected);
+        }
+        answers.close();
+        assertFalse(answers.hasNext());
+
+        // The engine can be reused after closing
+        try (final AnswerIterator next = engine.query("succ(X).")) {
+            assertTrue(next.hasNext());
+            assertEquals(TermType.COMPOUND, next.next().get("X").getType());
+        }
+    }
+
+    @Test
+    public void findAll() throws Exception {
+        final PrologEngine engine = newEngine(LISTS);
+        final List<Map<String,Term>> answers = engine.findAll(
+                "app(X,Y,[a,b]).", Integer.MAX_VALUE);
+        assertEquals(3, answers.size());
+        assertAnswer(answers.get(0), Terms.NIL, list(A, B));
+        assertAnswer(answers.get(1), list(A), list(B));
+        assertAnswer(answers.get(2), list(A, B), Terms.NIL);
+
+        // Only as many answers are computed as asked for
+        final PrologEngine peano = newEngine(PEANO);
+        assertEquals(5, peano.findAll("nat(X).", 5).size());
+        assertTrue(peano.findAll("nat(a).", 1).isEmpty());
+    }
+
+    @Test
+    public void newQueryClosesHandle() throws Exception {
+        final PrologEngine engine = newEngine(PEANO);
+        final AnswerIterator first = engine.query("nat(X).");
+        assertTrue(first.hasNext());
+        first.next();
+        try (final AnswerIterator second = engine.query("nat(z).")) {
+            assertFalse(first.hasNext());
+            assertTrue(second.next().isEmpty());
+            assertFalse(second.hasNext());
+        }
+    }
+
+    // === Private implementation ===
+
+    private static void assertAnswer(final Map<String,Term> answer,
+            final Term x, final Term y) {
+        assertEquals(2, answer.size());
+        assertEquals(x, answer.get("X"));
+        assertEquals(y, answer.get("Y"));
+    }
+
+    private static Term list(final Term... elements) {
+        Term result = Terms.NIL;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            result = Terms.getList(elements[i], result);
+        }
+        return result;
+    }
+
+    private PrologEngine newEngine(final String resource) throws Exception {
+        final PrologEngine engine = new PrologEngine.Builder()
+                .setInterpreter(this.interpreter).build();
+        try (final InputStream is = this.getClass().getResourceAsStream(
+                resource);
+                final Reader file = new InputStreamReader(is)) {
+            engine.newProgramCompiler().compile(file);
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,140 @@
+package com.prolog.jvm.main;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.prolog.jvm.zip.api.Term;
+
+/**
+ * Utility class for tests that compile a program into a {@link PrologEngine}
+ * and inspect the answers to their queries.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class Engines {
+
+    // Maximum number of answers collected, guarding against runaway queries
+    private static final int MAX_ANSWERS = 1000;
+
+    // Private constructor to prevent instantiation
+    private Engines() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns a new engine for the specified interpreter, into which the
+     * given program has been compiled.
+     *
+     * @param interpreter the interpreter to be used by the engine
+     * @param program the source text of the program
+     * @throws Exception if the program could not be compiled
+     */
+    public static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter, final String program)
+            throws Exception {
+        return newEngine(new PrologEngine.Builder().setInterpreter(
+                interpreter), program);
+    }
+
+    /**
+     * Returns a new engine built by the specified builder, into which the
+     * given program has been compiled.
+     *
+     * @param builder the builder for the engine
+     * @param program the source text of the program
+     * @throws Exception if the program could not be compiled
+     */
+    public static PrologEngine newEngine(final PrologEngine.Builder builder,
+            final String program) throws Exception {
+        final PrologEngine engine = builder.build();
+        try (final Reader reader = new StringReader(program)) {
+            engine.newProgramCompiler().compile(reader);
+        }
+        return engine;
+    }
+
+    /**
+     * Adds the specified clauses to the program compiled into the given
+     * engine.
+     *
+     * @param engine the engine to which the clauses are added
+     * @param clauses the source text of the clauses
+     * @throws Exception if the clauses could not be compiled
+     */
+    public static void consult(final PrologEngine engine,
+            final String clauses) throws Exception {
+        try (final Reader reader = new StringReader(clauses)) {
+            engine.newConsultCompiler().compile(reader);
+        }
+    }
+
+    /**
+     * Returns the bindings of the specified variable in all answers to the
+     * given query, in the order in which they were found.
+     *
+     * @param engine the engine to run the query on
+     * @param query the source text of the query
+     * @param var the name of a variable occurring in {@code query}
+     * @throws Exception if the query could not be compiled
+     */
+    public static List<String> findAll(final PrologEngine engine,
+            final String query, final String var) throws Exception {
+        final List<String> result = new ArrayList<>();
+        for (final Map<String,Term> answer : engine.findAll(query,
+                MAX_ANSWERS)) {
+            result.add(answer.get(var).toString());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of answers to the specified query.
+     *
+     * @param engine the engine to run the query on
+     * @param query the source text of the query
+     * @throws Exception if the query could not be compiled
+     */
+    public static int count(final PrologEngine engine, final String query)
+            throws Exception {
+        return engine.findAll(query, MAX_ANSWERS).size();
+    }
+
+    /**
+     * Runs the specified query, asserting that it succeeds.
+     *
+     * @param engine the engine to run the query on
+     * @param query the source text of the query
+     * @throws Exception if the query could not be compiled
+     */
+    public static void run(final PrologEngine engine, final String query)
+            throws Exception {
+        assertEquals(query, 1, engine.findAll(query, 1).size());
+    }
+
+    /**
+     * Runs the specified query, asserting that a built-in predicate rejects
+     * its arguments with the given message.
+     *
+     * @param engine the engine to run the query on
+     * @param query the source text of the query
+     * @param message the expected message of the
+     * {@link IllegalArgumentException}
+     * @throws Exception if the query could not be compiled
+     */
+    public static void assertError(final PrologEngine engine,
+            final String query, final String message) throws Exception {
+        try {
+            engine.findAll(query, 1);
+            fail(query);
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.prolog.jvm.main;
+
+import static com.prolog.jvm.main.Engines.findAll;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.prolog.jvm.exceptions.InternalCompilerException;
+import com.prolog.jvm.zip.api.AnswerIterator;
+import com.prolog.jvm.zip.api.Builtin;
+import com.prolog.jvm.zip.api.ZipFacade;
+import com.prolog.jvm.zip.util.PlWords;
+
+/**
+ * Test class for {@link PrologEngine}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class PrologEngineTest {
+
+    // Class-path resource
+    private static final String ANCESTRY = "ancestry.pl";
+
+    // Answers to father(zeus,X) before and after adding athena
+    private static final List<String> CHILDREN = Arrays.asList("ares",
+            "dionisius");
+    private static final List<String> MORE_CHILDREN = Arrays.asList("ares",
+            "dionisius", "athena");
+
+    // Unifies its second argument with twice the value of its first
+    private static final Builtin DOUBLE = new Builtin() {
+        @Override
+        public boolean call(final ZipFacade facade, final int argAddress) {
+            final int value = 2 * facade.getInteger(facade.getWordAt(
+                    argAddress));
+            final int word = facade.getWordAt(argAddress + 1);
+            if (PlWords.getTag(word) != PlWords.REF) {
+                return facade.getInteger(word) == value;
+            }
+            facade.setWord(PlWords.getValue(word), facade.pushInteger(value));
+            facade.trail(PlWords.getValue(word));
+            return true;
+        }
+    };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void consult() throws Exception {
+        final PrologEngine engine = newEngine();
+        assertEquals(CHILDREN, findAll(engine, "father(zeus,X).", "X"));
+
+        // New clauses come last, and are found through the clause index
+        Engines.consult(engine, "father(zeus, athena). father(cronus, zeus).");
+        assertEquals(MORE_CHILDREN, findAll(engine, "father(zeus,X).", "X"));
+        assertEquals(Arrays.asList("zeus"),
+                findAll(engine, "father(cronus,X).", "X"));
+        assertEquals(MORE_CHILDREN, findAll(engine, "grandparent(cronus,X).",
+                "X"));
+
+        // New predicates may call old ones, and vice versa
+        Engines.consult(engine, "sibling(X,Y) :- father(Z,X), father(Z,Y).");
+        assertEquals(MORE_CHILDREN, findAll(engine, "sibling(athena,X).", "X"));
+    }
+
+    @Test
+    public void consultWithOpenHandle() throws Exception {
+        final PrologEngine engine = newEngine();
+        final AnswerIterator answers = engine.query("father(zeus,X).");
+        answers.next();
+        Engines.consult(engine, "father(zeus, athena).");
+        assertFalse(answers.hasNext());
+        assertEquals(MORE_CHILDREN, findAll(engine, "father(zeus,X).", "X"));
+    }
+
+    @Test
+    public void consultImage() throws Exception {
+        final Path image = this.folder.newFile().toPath();
+        newEngine().saveProgram(image);
+        final PrologEngine engine = new PrologEngine.Builder().build();
+        engine.loadProgram(image);
+        Engines.consult(engine, "father(zeus, athena).");
+        assertEquals(MORE_CHILDREN, findAll(engine, "father(zeus,X).", "X"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void consultWithoutProgram() {
+        new PrologEngine.Builder().build().newConsultCompiler();
+    }
+
+    @Test
+    public void userBuiltin() throws Exception {
+        final PrologEngine engine = newEngine(new PrologEngine.Builder()
+                .defineBuiltin("double", 2, DOUBLE));
+        assertEquals(Arrays.asList("42"), findAll(engine, "double(21, X).",
+                "X"));
+        assertEquals(Arrays.asList("42"),
+                findAll(engine, "Y is 20 + 1, double(Y, X).", "X"));
+        assertEquals(Arrays.asList(), findAll(engine, "double(21, 41).", "X"));
+
+        // Built-in predicates are resolved anew when loading an image
+        Engines.consult(engine,
+                "quadruple(X, Y) :- double(X, Z), double(Z, Y).");
+        final Path image = this.folder.newFile().toPath();
+        engine.saveProgram(image);
+        final PrologEngine loaded = new PrologEngine.Builder().defineBuiltin(
+                "double", 2, DOUBLE).build();
+        loaded.loadProgram(image);
+        assertEquals(Arrays.asList("40"), findAll(loaded, "quadruple(10, X).",
+                "X"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void redefineBuiltin() {
+        new PrologEngine.Builder().defineBuiltin("is", 2, DOUBLE).build();
+    }
+
+    @Test(expected = InternalCompilerException.class)
+    public void clausesForUserBuiltin() throws Exception {
+        final PrologEngine engine = newEngine(new PrologEngine.Builder()
+                .defineBuiltin("double", 2, DOUBLE));
+        Engines.consult(engine, "double(1, 2).");
+    }
+
+    // === Private implementation ===
+
+    private PrologEngine newEngine() throws Exception {
+        return newEngine(new PrologEngine.Builder());
+    }
+
+    private PrologEngine newEngine(final PrologEngine.Builder builder)
+            throws Exception {
+        final PrologEngine engine = builder.build();
+        try (final InputStream is = this.getClass().getResourceAsStream(
+                ANCESTRY);
+                final Reader file = new InputStreamReader(is)) {
+            engine.newProgramCompiler().compile(file);
+        }
+        return engine;
+    }
+}
@@ -6,32 +6,68 @@ import static com.prolog.jvm.zip.util.ReplConstants.NEXT_ANSWER;
 import static com.prolog.jvm.zip.util.ReplConstants.PROMPT;
 import static com.prolog.jvm.zip.util.ReplConstants.SUCCESS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
 import com.prolog.jvm.exceptions.RecognitionException;
+import com.prolog.jvm.zip.api.GcStats;
+import com.prolog.jvm.zip.api.StepEvent;
+import com.prolog.jvm.zip.api.StepListener;
+import com.prolog.jvm.zip.api.TrailStats;
+import com.prolog.jvm.zip.util.Instructions;
 
 /**
- * Integration tests.
+ * Integration tests, run against each of the available engines.
  *
  * @author Arno Bastenhof
  *
  */
+@RunWith(Parameterized.class)
 public final class ReplTest {
 
     // Class-path resources
     private static final String EXAMPLE_1 = "ancestry.pl";
     private static final String EXAMPLE_2 = "lists.pl";
+    private static final String EXAMPLE_3 = "peano.pl";
+    private static final String EXAMPLE_4 = "garbage.pl";
+
+    private final PrologEngine.Interpreter interpreter;
+
+    public ReplTest(final PrologEngine.Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> interpreters() {
+        return Arrays.asList(new Object[][] {
+                { PrologEngine.Interpreter.DEFAULT },
+                { PrologEngine.Interpreter.PREDECODED },
+                { PrologEngine.Interpreter.JIT } });
+    }
 
     @Test
     public void ancestry() throws Exception {
-        ZipAssert.forFile(EXAMPLE_1)
+        ZipAssert.forFile(newEngine(), EXAMPLE_1)
             .prompt("grandparent(hera, harmonia).")
             .yes()
             .prompt("grandparent(dionisius, zeus).")
@@ -52,6 +88,14 @@ public final class ReplTest {
             .no()
             .prompt("ancestor(zeus,harmonia).")
             .yes()
+            .prompt("ancestor(X,harmonia).")
+            .binding("X", "ares")
+            .more()
+            .binding("X", "hera")
+            .more()
+            .binding("X", "zeus")
+            .more()
+            .no()
             .prompt("fathers(zeus,Y).")
             .error("No clauses defined for predicate fathers/2")
             .halt();
@@ -59,22 +103,22 @@ public final class ReplTest {
 
     @Test
     public void lists() throws Exception {
-        ZipAssert.forFile(EXAMPLE_2)
+        ZipAssert.forFile(newEngine(), EXAMPLE_2)
             .prompt("append([],X,Y).")
             .binding("X", "X")
             .binding("Y", "X")
             .more()
             .no()
             .prompt("append(cons(X,XS),YS,ZS).")
-            .binding("YS", "?4")
-            .binding("ZS", "cons(?5, ?4)")
-            .binding("X", "?5")
+            .binding("X", "?4")
             .binding("XS", "[]")
+            .binding("YS", "?5")
+            .binding("ZS", "cons(?4, ?5)")
             .more()
-            .binding("YS", "?4")
-            .binding("ZS", "cons(?5, cons(?6, ?4))")
-            .binding("X", "?5")
-            .binding("XS", "cons(?6, [])")
+            .binding("X", "?4")
+            .binding("XS", "cons(?5, [])")
+            .binding("YS", "?6")
+            .binding("ZS", "cons(?4, cons(?5, ?6))")
             .enough()
             .yes()
             .prompt("append(cons(a,[]),cons(b,[]),cons(a,cons(b,[]))).")
@@ -94,19 +138,239 @@ public final class ReplTest {
             .halt();
     }
 
+    @Test
+    public void listSyntax() throws Exception {
+        ZipAssert.forFile(newEngine(), EXAMPLE_2)
+            .prompt("rev([a,b,c],X).")
+            .binding("X", "[c, b, a]")
+            .more()
+            .no()
+            .prompt("app(X,Y,[a,b]).")
+            .binding("X", "[]")
+            .binding("Y", "[a, b]")
+            .more()
+            .binding("X", "[a]")
+            .binding("Y", "[b]")
+            .more()
+            .binding("X", "[a, b]")
+            .binding("Y", "[]")
+            .more()
+            .no()
+            .prompt("app([a|X],[c],[Y,b|Z]).")
+            .binding("X", "[b]")
+            .binding("Y", "a")
+            .binding("Z", "[c]")
+            .enough()
+            .yes()
+            .prompt("app([a],[b],cons(a,cons(b,[]))).")
+            .no()
+            .prompt("app([a|X],[b],Y).")
+            .binding("X", "[]")
+            .binding("Y", "[a, b]")
+            .enough()
+            .yes()
+            .prompt("app([a],Y,Z).")
+            .binding("Y", "?2")
+            .binding("Z", "[a|?2]")
+            .enough()
+            .yes()
+            .prompt("rev([a,b|X],Y.")
+            .error("<.;PERIOD> unexpected at line 1. Expected RBRACK.")
+            .halt();
+    }
+
+    @Test
+    public void allAnswers() throws Exception {
+        ZipAssert.forFile(newEngine(), EXAMPLE_2, Integer.MAX_VALUE)
+            .prompt("app(X,Y,[a,b]).")
+            .binding("X", "[]")
+            .binding("Y", "[a, b]")
+            .next()
+            .binding("X", "[a]")
+            .binding("Y", "[b]")
+            .next()
+            .binding("X", "[a, b]")
+            .binding("Y", "[]")
+            .next()
+            .yes()
+            .prompt("app([a],[b],[a,b]).")
+            .yes()
+            .prompt("app([a],[b],[b,a]).")
+            .no()
+            .halt();
+    }
+
+    @Test
+    public void maxAnswers() throws Exception {
+        // nat/1 has infinitely many answers
+        ZipAssert.forFile(newEngine(), EXAMPLE_3, 2)
+            .prompt("nat(X).")
+            .binding("X", "z")
+            .next()
+            .binding("X", "s(z)")
+            .next()
+            .yes()
+            .halt();
+    }
+
+    @Test
+    public void lastCall() throws Exception {
+        // Tail recursion runs in constant local stack space
+        final String nat = nat(100);
+        final PrologEngine engine = new PrologEngine.Builder()
+                .setInterpreter(this.interpreter).setLocalStackSize(50)
+                .build();
+        ZipAssert.forFile(engine, EXAMPLE_3)
+            .prompt("nat(" + nat + ").")
+            .yes()
+            .prompt("succ(X).")
+            .binding("X", "s(?1)")
+            .enough()
+            .yes()
+            .halt();
+    }
+
+    @Test
+    public void garbageCollection() throws Exception {
+        // Discarded structures exceed the global stack size many times over
+        final String nat = nat(30);
+        final PrologEngine engine = new PrologEngine.Builder()
+                .setInterpreter(this.interpreter).setGlobalStackSize(400)
+                .build();
+        ZipAssert.forFile(engine, EXAMPLE_4)
+            .prompt("count(" + nat + ", z, R).")
+            .binding("R", nat)
+            .enough()
+            .yes()
+            .halt();
+        final GcStats stats = engine.getGcStats();
+        assertTrue(stats.getCollections() > 0);
+        assertTrue(stats.getReclaimedCells() > 0);
+        assertTrue(stats.getPauseTime() >= stats.getMaxPauseTime());
+    }
+
+    @Test
+    public void trailing() throws Exception {
+        // app/3 leaves a choice point, newer variables being left untrailed
+        final PrologEngine engine = newEngine();
+        ZipAssert.forFile(engine, EXAMPLE_2)
+            .prompt("app(X, Y, [a]), rev([a, b, c, d, e, f, g, h], Z).")
+            .binding("X", "[]")
+            .binding("Y", "[a]")
+            .binding("Z", "[h, g, f, e, d, c, b, a]")
+            .enough()
+            .yes()
+            .halt();
+        final TrailStats stats = engine.getTrailStats();
+        // Only X, Y and Z precede the choice point
+        assertEquals(3, stats.getEntries());
+        assertEquals(3, stats.getMaxSize());
+        assertTrue(stats.getAvoidedEntries() > 0);
+    }
+
+    @Test
+    public void tracing() throws Exception {
+        final List<StepEvent> events = new ArrayList<>();
+        final StepListener listener = new StepListener() {
+            @Override
+            public void handleEvent(final StepEvent event) {
+                events.add(event);
+            }
+        };
+        final PrologEngine engine = newEngine();
+        engine.getInterpreter().register(listener);
+        try {
+            ZipAssert.forFile(engine, EXAMPLE_1)
+                .prompt("grandparent(hera, harmonia).")
+                .yes()
+                .halt();
+        } finally {
+            engine.getInterpreter().unregister(listener);
+        }
+        assertFalse(events.isEmpty());
+        for (final StepEvent event : events) {
+            final int opcode = event.getOpcode();
+            if (opcode == Instructions.CALL || opcode == Instructions.ENTER) {
+                assertNotNull(event.getOperand());
+            }
+        }
+    }
+
+    @Test
+    public void concurrentEngines() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        ZipAssert.forFile(newEngine(), EXAMPLE_1)
+                            .prompt("father(zeus,Y).")
+                            .binding("Y", "ares")
+                            .more()
+                            .binding("Y", "dionisius")
+                            .more()
+                            .no()
+                            .prompt("ancestor(zeus,harmonia).")
+                            .yes()
+                            .halt();
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Returns the successor notation for the specified natural number
+    private static String nat(final int n) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            result.append("s(");
+        }
+        result.append('z');
+        for (int i = 0; i < n; i++) {
+            result.append(')');
+        }
+        return result.toString();
+    }
+
+    private PrologEngine newEngine() {
+        return new PrologEngine.Builder().setInterpreter(this.interpreter)
+                .build();
+    }
+
     private static class ZipAssert {
 
         private final StringBuilder in = new StringBuilder();
         private final StringBuilder out = new StringBuilder();
+        private final PrologEngine engine;
         private final String fileName;
+        private final int maxAnswers;
 
-        private ZipAssert(final String fileName) {
+        private ZipAssert(final PrologEngine engine, final String fileName,
+                final int maxAnswers) {
+            assert engine != null;
             assert fileName != null;
+            this.engine = engine;
             this.fileName = fileName;
+            this.maxAnswers = maxAnswers;
         }
 
-        private static ZipAssert forFile(final String fileName) {
-            return new ZipAssert(fileName);
+        private static ZipAssert forFile(final PrologEngine engine,
+                final String fileName) {
+            return new ZipAssert(engine, fileName, Repl.INTERACTIVE);
+        }
+
+        // runs the queries in all-solutions mode
+        private static ZipAssert forFile(final PrologEngine engine,
+                final String fileName, final int maxAnswers) {
+            return new ZipAssert(engine, fileName, maxAnswers);
         }
 
         // records a query
@@ -140,6 +404,12 @@ public final class ReplTest {
             return this;
         }
 
+        // records the end of an alternative in all-solutions mode
+        private ZipAssert next() {
+            this.out.setCharAt(this.out.length() - 1, '\n');
+            return this;
+        }
+
         // records no further alternatives need be sought for
         private ZipAssert enough() {
             this.in.append('\n');
@@ -168,8 +438,8 @@ public final class ReplTest {
                     final Reader file = new InputStreamReader(is);
                     final Reader reader = new StringReader(queries);
                     final StringWriter writer = new StringWriter()) {
-                Factory.newProgramCompiler().compile(file);
-                Repl.INSTANCE.run(reader, writer);
+                this.engine.newProgramCompiler().compile(file);
+                new Repl(this.engine, this.maxAnswers).run(reader, writer);
                 result = writer.toString();
             } catch (RecognitionException e) {
                 throw new AssertionError();
@@ -0,0 +1,104 @@
+package com.prolog.jvm.symbol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link ClauseIndex}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ClauseIndexTest {
+
+    private static final FunctorSymbol A = FunctorSymbol.valueOf("a");
+    private static final FunctorSymbol B = FunctorSymbol.valueOf("b");
+    private static final FunctorSymbol F = FunctorSymbol.valueOf("f", 1);
+
+    @Test
+    public void lookup() {
+        final ClauseSymbol c1 = new ClauseSymbol(); // p(a, ...)
+        final ClauseSymbol c2 = new ClauseSymbol(); // p(X, ...)
+        final ClauseSymbol c3 = new ClauseSymbol(); // p(f(...), ...)
+        final ClauseSymbol c4 = new ClauseSymbol(); // p(a, ...)
+
+        final ClauseIndex index = new ClauseIndex();
+        index.add(c1, A);
+        index.add(c2, null);
+        index.add(c3, F);
+        index.add(c4, A);
+
+        assertArrayEquals(new ClauseSymbol[] { c1, c2, c3, c4 },
+                index.lookup(null));
+        assertArrayEquals(new ClauseSymbol[] { c1, c2, c4 }, index.lookup(A));
+        assertArrayEquals(new ClauseSymbol[] { c2, c3 }, index.lookup(F));
+        assertArrayEquals(new ClauseSymbol[] { c2 }, index.lookup(B));
+
+        // Lookups are cached
+        assertSame(index.lookup(A), index.lookup(A));
+    }
+
+    @Test
+    public void lookupWithoutVariables() {
+        final ClauseSymbol c1 = new ClauseSymbol();
+        final ClauseIndex index = new ClauseIndex();
+        index.add(c1, A);
+        assertArrayEquals(new ClauseSymbol[] { c1 }, index.lookup(A));
+        assertArrayEquals(new ClauseSymbol[0], index.lookup(B));
+    }
+
+    @Test
+    public void addFirst() {
+        final ClauseSymbol c1 = new ClauseSymbol(); // p(a, ...)
+        final ClauseSymbol c2 = new ClauseSymbol(); // p(X, ...)
+        final ClauseSymbol c3 = new ClauseSymbol(); // p(a, ...)
+
+        final ClauseIndex index = new ClauseIndex();
+        index.add(c1, A);
+        index.addFirst(c2, null);
+        index.addFirst(c3, A);
+
+        assertArrayEquals(new ClauseSymbol[] { c3, c2, c1 },
+                index.lookup(null));
+        assertArrayEquals(new ClauseSymbol[] { c3, c2, c1 }, index.lookup(A));
+        assertArrayEquals(new ClauseSymbol[] { c2 }, index.lookup(B));
+        assertSame(A, c3.getKey());
+    }
+
+    @Test
+    public void remove() {
+        final ClauseSymbol c1 = new ClauseSymbol(); // p(a, ...)
+        final ClauseSymbol c2 = new ClauseSymbol(); // p(X, ...)
+        final ClauseSymbol c3 = new ClauseSymbol(); // p(b, ...)
+
+        final ClauseIndex index = new ClauseIndex();
+        index.add(c1, A);
+        index.add(c2, null);
+        index.add(c3, B);
+        final ClauseSymbol[] before = index.lookup(A);
+
+        assertTrue(index.remove(c2));
+        assertFalse(index.remove(c2));
+        assertTrue(c2.isErased());
+        assertEquals(2, index.size());
+        assertArrayEquals(new ClauseSymbol[] { c1, c3 }, index.lookup(null));
+        assertArrayEquals(new ClauseSymbol[] { c1 }, index.lookup(A));
+        assertArrayEquals(new ClauseSymbol[] { c3 }, index.lookup(B));
+        assertArrayEquals(new ClauseSymbol[0], index.lookup(F));
+
+        // Earlier lookups are unaffected
+        assertArrayEquals(new ClauseSymbol[] { c1, c2 }, before);
+
+        // Removing a keyed clause leaves the lookups for other keys cached
+        final ClauseSymbol[] cached = index.lookup(B);
+        index.remove(c1);
+        assertSame(cached, index.lookup(B));
+        assertArrayEquals(new ClauseSymbol[0], index.lookup(A));
+    }
+
+}
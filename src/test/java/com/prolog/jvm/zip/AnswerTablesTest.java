@@ -0,0 +1,128 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.newEngine;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.prolog.jvm.main.Engines;
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Test class for {@link AnswerTables}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class AnswerTablesTest {
+
+    private static final String PROGRAM = ":- table path/2, p/2, q/2, "
+            + "bad/1.\n"
+            + ":- dynamic edge/2.\n"
+            + "edge(a, b). edge(b, c). edge(c, a). edge(c, d).\n"
+            + "path(X, Y) :- path(X, Z), edge(Z, Y).\n"
+            + "path(X, Y) :- edge(X, Y).\n"
+            // Mutual recursion, with q depending on the table for p
+            + "p(X, Y) :- q(X, Y).\n"
+            + "p(X, Y) :- edge(X, Y).\n"
+            + "q(X, Y) :- p(X, Z), edge(Z, Y).\n"
+            // Raises an error for an unbound argument
+            + "bad(X) :- q(a, Y), assertz(X).";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void leftRecursion() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            assertEquals(set("a", "b", "c", "d"),
+                    findAll(engine, "path(a, Y).", "Y"));
+            assertEquals(set("a", "b", "c"),
+                    findAll(engine, "path(X, a).", "X"));
+            assertEquals(set(), findAll(engine, "path(d, Y).", "Y"));
+            assertEquals(12, engine.findAll("path(X, Y).", 100).size());
+        }
+    }
+
+    @Test
+    public void mutualRecursion() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            assertEquals(set("a", "b", "c", "d"),
+                    findAll(engine, "p(a, Y).", "Y"));
+            assertEquals(set("a", "b", "c", "d"),
+                    findAll(engine, "q(a, Y).", "Y"));
+            assertEquals(set("a", "b", "c"),
+                    findAll(engine, "p(X, Y), p(Y, X).", "Y"));
+        }
+    }
+
+    @Test
+    public void abolish() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertEquals(set("b", "c", "a", "d"),
+                findAll(engine, "path(a, Y).", "Y"));
+
+        // Tables are reused, even when the program changes
+        engine.findAll("assertz(edge(d, e)).", 1);
+        assertEquals(set("b", "c", "a", "d"),
+                findAll(engine, "path(a, Y).", "Y"));
+        assertEquals(set("b", "c", "a", "d", "e"), findAll(engine,
+                "abolish_all_tables, path(a, Y).", "Y"));
+    }
+
+    @Test
+    public void abandonedEvaluation() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        // The table for bad(X) is evaluated anew, rather than being consumed
+        for (int i = 0; i < 2; i++) {
+            try {
+                engine.findAll("bad(X).", 10);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+        assertEquals(1, engine.findAll("bad(a).", 10).size());
+        assertEquals(set("a", "b", "c", "d"),
+                findAll(engine, "q(a, Y).", "Y"));
+    }
+
+    @Test
+    public void image() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertEquals(set("b", "c", "a", "d"),
+                findAll(engine, "path(a, Y).", "Y"));
+        final Path image = this.folder.newFile().toPath();
+        engine.saveProgram(image);
+
+        final PrologEngine loaded = new PrologEngine.Builder().build();
+        loaded.loadProgram(image);
+        assertEquals(set("a", "b", "c"),
+                findAll(loaded, "path(X, a).", "X"));
+    }
+
+    // Returns the bindings of the specified variable, in no particular order
+    private static Set<String> findAll(final PrologEngine engine,
+            final String query, final String var) throws Exception {
+        return new HashSet<>(Engines.findAll(engine, query, var));
+    }
+
+    private static Set<String> set(final String... elements) {
+        return new HashSet<>(Arrays.asList(elements));
+    }
+}
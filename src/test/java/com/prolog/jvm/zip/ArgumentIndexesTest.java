@@ -0,0 +1,139 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.findAll;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.prolog.jvm.main.Engines;
+import com.prolog.jvm.main.PrologEngine;
+import com.prolog.jvm.zip.api.IndexStats;
+
+/**
+ * Test class for {@link ArgumentIndexes}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ArgumentIndexesTest {
+
+    // A fact table told apart by its second and third arguments, with a
+    // variable and compound terms among the former
+    private static final String PROGRAM = ":- dynamic parent/3.\n"
+            + "parent(zeus, ares, 1). parent(hera, ares, 2).\n"
+            + "parent(ares, harmonia, 3). parent(gaia, _, 4).\n"
+            + "parent(semele, dionysus, 5). parent(zeus, dionysus, 6).\n"
+            + "parent(zeus, f(athena), 7). parent(metis, f(athena), 8).\n"
+            + "parent(cadmus, semele, 9). parent(harmonia, semele, 10).\n"
+            + "parent(zeus, hermes, 11). parent(maia, hermes, 12).\n";
+
+    @Test
+    public void secondArgument() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PrologEngine
+                    .Builder.DEFAULT_INDEX_LIMIT);
+            assertEquals(Arrays.asList("zeus", "hera", "gaia"), findAll(engine,
+                    "parent(X, ares, _).", "X"));
+            assertEquals(Arrays.asList("gaia", "zeus", "metis"), findAll(engine,
+                    "parent(X, f(athena), _).", "X"));
+            assertEquals(Arrays.asList("gaia"), findAll(engine,
+                    "parent(X, kronos, _).", "X"));
+            assertEquals(Arrays.asList("zeus"), findAll(engine,
+                    "parent(X, hermes, 11).", "X"));
+            assertEquals(Arrays.asList("gaia", "semele", "zeus"),
+                    findAll(engine, "parent(X, dionysus, Y).", "X"));
+        }
+    }
+
+    @Test
+    public void stats() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.DEFAULT,
+                PrologEngine.Builder.DEFAULT_INDEX_LIMIT);
+        final IndexStats stats = engine.getIndexStats();
+        engine.findAll("parent(zeus, ares, _).", 100);
+        engine.findAll("parent(X, Y, Z).", 100);
+        assertEquals(0, stats.getHits());
+        assertEquals(0, stats.getBuilds());
+
+        findAll(engine, "parent(X, ares, _).", "X");
+        findAll(engine, "parent(X, hermes, 12).", "X");
+        assertEquals(2, stats.getHits());
+        assertEquals(2, stats.getBuilds());
+        // Eleven clauses over six keys plus the variable for each of them and
+        // for the other keys, and twelve integers
+        assertEquals(11 + 7 + 12, stats.getSize());
+        assertEquals(0, stats.getRejections());
+    }
+
+    @Test
+    public void limit() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.DEFAULT,
+                20);
+        final IndexStats stats = engine.getIndexStats();
+        assertEquals(Arrays.asList("zeus", "hera", "gaia"), findAll(engine,
+                "parent(X, ares, _).", "X"));
+        assertEquals(Arrays.asList("zeus"),
+                findAll(engine, "parent(X, _, 11).", "X"));
+        assertEquals(1, stats.getBuilds());
+        assertEquals(1, stats.getRejections());
+        assertEquals(18, stats.getSize());
+
+        // Adding a variable to every key exceeds the limit
+        engine.findAll("assertz(parent(nyx, _, 13)).", 1);
+        assertEquals(2, stats.getRejections());
+        assertEquals(0, stats.getSize());
+        assertEquals(Arrays.asList("zeus", "hera", "gaia", "nyx"),
+                findAll(engine, "parent(X, ares, _).", "X"));
+        assertEquals(1, stats.getBuilds());
+
+        final PrologEngine disabled = newEngine(PrologEngine.Interpreter
+                .DEFAULT, 0);
+        assertEquals(Arrays.asList("zeus", "hera", "gaia"), findAll(disabled,
+                "parent(X, ares, _).", "X"));
+        assertEquals(0, disabled.getIndexStats().getBuilds());
+    }
+
+    @Test
+    public void changes() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.DEFAULT,
+                PrologEngine.Builder.DEFAULT_INDEX_LIMIT);
+        assertEquals(Arrays.asList("zeus", "hera", "gaia"), findAll(engine,
+                "parent(X, ares, _).", "X"));
+        engine.findAll("assertz(parent(enyo, ares, 13)), "
+                + "retract(parent(hera, ares, 2)).", 1);
+        assertEquals(Arrays.asList("zeus", "gaia", "enyo"), findAll(engine,
+                "parent(X, ares, _).", "X"));
+
+        // Clauses with new keys or variables, added first or last
+        engine.findAll("asserta(parent(uranus, kronos, 14)), "
+                + "assertz(parent(chaos, _, 15)), "
+                + "retract(parent(gaia, _, 4)).", 1);
+        assertEquals(Arrays.asList("uranus", "chaos"), findAll(engine,
+                "parent(X, kronos, _).", "X"));
+        assertEquals(Arrays.asList("zeus", "enyo", "chaos"), findAll(engine,
+                "parent(X, ares, _).", "X"));
+
+        // The index was updated in place rather than built anew
+        final IndexStats stats = engine.getIndexStats();
+        assertEquals(1, stats.getBuilds());
+        // Twelve clauses over seven keys plus the variable for each of them
+        // and for the other keys
+        assertEquals(12 + 8, stats.getSize());
+
+        // Consulting discards the indexes
+        Engines.consult(engine, "parent(rhea, zeus, 16).");
+        assertEquals(Arrays.asList("chaos", "rhea"), findAll(engine,
+                "parent(X, zeus, _).", "X"));
+        assertEquals(2, stats.getBuilds());
+    }
+
+    private static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter, final int limit)
+            throws Exception {
+        return Engines.newEngine(new PrologEngine.Builder().setInterpreter(
+                interpreter).setIndexLimit(limit), PROGRAM);
+    }
+}
@@ -0,0 +1,178 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.assertError;
+import static com.prolog.jvm.main.Engines.count;
+import static com.prolog.jvm.main.Engines.newEngine;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.prolog.jvm.main.PrologEngine;
+import com.prolog.jvm.zip.api.Term;
+import com.prolog.jvm.zip.api.TermType;
+
+/**
+ * Test class for {@link Arithmetic}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ArithmeticTest {
+
+    private static final String PROGRAM = ":- dynamic memo/1.\n"
+            + ":- table fib/2.\n"
+            + "eval(X, Y) :- Y is X.\n"
+            + "fact(N, F) :- N > 0, M is N - 1, fact(M, G), F is N * G.\n"
+            + "fact(0, 1).\n"
+            + "fib(0, 0). fib(1, 1).\n"
+            + "fib(N, F) :- N > 1, A is N - 1, B is N - 2, fib(A, X), "
+            + "fib(B, Y), F is X + Y.\n"
+            + "neg(-5).\n"
+            + "big(8388608). big(-8388609). big(2147483647).\n"
+            // Discards a boxed integer for every element of a list
+            + "count([], X, X).\n"
+            + "count([_|T], X, R) :- burn([a,a,a,a,a,a,a,a,a,a]), "
+            + "Y is X + 1, count(T, Y, R).\n"
+            + "burn([]).\n"
+            + "burn([_|T]) :- X is 100000000 + 1, burn(T).";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void evaluation() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            assertEquals(13, eval(engine, "2 + 3 * 4 - 1"));
+            assertEquals(3, eval(engine, "10 - 4 - 3"));
+            assertEquals(20, eval(engine, "(2 + 3) * 4"));
+            assertEquals(-6, eval(engine, "- 2 * 3"));
+            assertEquals(7, eval(engine, "-(3 - 10)"));
+            assertEquals(-1, eval(engine, "3 - -4 * -1 // 1"));
+            assertEquals(2, eval(engine, "-7 mod 3"));
+            assertEquals(-1, eval(engine, "-7 rem 3"));
+            assertEquals(-2, eval(engine, "-7 // 3"));
+            assertEquals(7, eval(engine, "max(abs(-7), sign(-7))"));
+            assertEquals(1, count(engine, "neg(-5)."));
+            assertEquals(0, count(engine, "neg(5)."));
+        }
+    }
+
+    @Test
+    public void comparisons() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertEquals(1, count(engine, "1 + 2 =:= 3."));
+        assertEquals(1, count(engine, "1 + 2 =\\= 4."));
+        assertEquals(1, count(engine, "2 < 3, 3 > 2, 3 =< 3, 3 >= 3."));
+        assertEquals(0, count(engine, "3 < 3."));
+        assertEquals(0, count(engine, "3 =:= 2 + 2."));
+    }
+
+    @Test
+    public void recursion() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            assertEquals(3628800, solve(engine, "fact(10, F).", "F"));
+            assertEquals(479001600, solve(engine, "fact(12, F).", "F"));
+            assertEquals(832040, solve(engine, "fib(30, F).", "F"));
+        }
+    }
+
+    @Test
+    public void boxedIntegers() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            final List<Integer> values = new ArrayList<>();
+            for (final Map<String,Term> answer : engine.findAll("big(X).",
+                    10)) {
+                values.add(answer.get("X").getIntValue());
+            }
+            assertEquals(3, values.size());
+            assertEquals(8388608, (int) values.get(0));
+            assertEquals(-8388609, (int) values.get(1));
+            assertEquals(Integer.MAX_VALUE, (int) values.get(2));
+            assertEquals(1, count(engine, "X is 8388607 + 1, big(X)."));
+            assertEquals(1, count(engine, "big(X), X > 8388608, big(X)."));
+            assertEquals(Integer.MIN_VALUE, eval(engine,
+                    "-2147483647 - 1"));
+        }
+    }
+
+    @Test
+    public void garbageCollection() throws Exception {
+        // Discarded boxed integers exceed the global stack size
+        final PrologEngine engine = newEngine(new PrologEngine.Builder()
+                .setGlobalStackSize(400), PROGRAM);
+        final StringBuilder list = new StringBuilder("[a");
+        for (int i = 1; i < 30; i++) {
+            list.append(",a");
+        }
+        list.append(']');
+        assertEquals(100000030, solve(engine, "count(" + list
+                + ", 100000000, R).", "R"));
+        assertTrue(engine.getGcStats().getCollections() > 0);
+    }
+
+    @Test
+    public void errors() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertError(engine, "X is Y + 1.", "is/2: arguments are not "
+                + "sufficiently instantiated");
+        assertError(engine, "X is 1 // 0.", "is/2: division by zero");
+        assertError(engine, "X is 2147483647 + 1.", "is/2: integer overflow");
+        assertError(engine, "X is foo + 1.", "is/2: foo/0 is not a function");
+        assertError(engine, "1 < foo(2).", "</2: foo/1 is not a function");
+    }
+
+    @Test
+    public void dynamicDatabase() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        engine.findAll("assertz(memo(42)), assertz(memo(8388608)).", 1);
+        assertEquals(2, count(engine, "memo(X), X > 0."));
+        assertEquals(1, count(engine, "memo(8388608)."));
+        assertEquals(1, count(engine, "retract(memo(42))."));
+        assertEquals(1, count(engine, "memo(X)."));
+    }
+
+    @Test
+    public void image() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        final Path image = this.folder.newFile().toPath();
+        engine.saveProgram(image);
+
+        final PrologEngine loaded = new PrologEngine.Builder().build();
+        loaded.loadProgram(image);
+        assertEquals(3628800, solve(loaded, "fact(10, F).", "F"));
+        assertEquals(1, count(loaded, "big(-8388609)."));
+    }
+
+    private static int eval(final PrologEngine engine, final String expr)
+            throws Exception {
+        return solve(engine, "eval(" + expr + ", Y).", "Y");
+    }
+
+    // Returns the integer bound to the specified variable in the first answer
+    private static int solve(final PrologEngine engine, final String query,
+            final String var) throws Exception {
+        final List<Map<String,Term>> answers = engine.findAll(query, 1);
+        assertEquals(1, answers.size());
+        final Term term = answers.get(0).get(var);
+        assertEquals(TermType.INTEGER, term.getType());
+        return term.getIntValue();
+    }
+}
@@ -0,0 +1,57 @@
+package com.prolog.jvm.zip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.prolog.jvm.symbol.FunctorSymbol;
+
+/**
+ * Test class for {@link ConstantPool}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ConstantPoolTest {
+
+    @Test
+    public void indexOf() {
+        final List<Object> pool = new ConstantPool();
+        pool.add(null);
+        pool.add(FunctorSymbol.valueOf("a"));
+        pool.add(FunctorSymbol.valueOf("f", 2));
+
+        assertEquals(0, pool.indexOf(null));
+        assertEquals(1, pool.indexOf(FunctorSymbol.valueOf("a")));
+        assertEquals(2, pool.indexOf(FunctorSymbol.valueOf("f", 2)));
+        assertEquals(-1, pool.indexOf(FunctorSymbol.valueOf("f", 1)));
+    }
+
+    @Test
+    public void truncate() {
+        final List<Object> pool = new ConstantPool();
+        pool.add(null);
+        pool.add(FunctorSymbol.valueOf("a"));
+        pool.add(FunctorSymbol.valueOf("b"));
+
+        // Truncate the tail, as done when restoring a memento
+        pool.subList(2, pool.size()).clear();
+        assertEquals(2, pool.size());
+        assertTrue(pool.contains(FunctorSymbol.valueOf("a")));
+        assertFalse(pool.contains(FunctorSymbol.valueOf("b")));
+
+        // Indices are reassigned when adding elements anew
+        pool.add(FunctorSymbol.valueOf("c"));
+        assertEquals(2, pool.indexOf(FunctorSymbol.valueOf("c")));
+
+        // Removing from the middle shifts the remaining indices
+        pool.subList(1, 2).clear();
+        assertEquals(1, pool.indexOf(FunctorSymbol.valueOf("c")));
+        assertEquals(-1, pool.indexOf(FunctorSymbol.valueOf("a")));
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.consult;
+import static com.prolog.jvm.main.Engines.findAll;
+import static com.prolog.jvm.main.Engines.run;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.prolog.jvm.main.Engines;
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Test class for {@link DynamicDatabase}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class DynamicDatabaseTest {
+
+    private static final String PROGRAM = ":- dynamic memo/2.\n"
+            + "lookup(K, V) :- memo(K, V).";
+
+    private static final String COUNTER = ":- dynamic cnt/1.\n"
+            + "inc :- retract(cnt(N)), M is N + 1, assertz(cnt(M)).\n"
+            + "loop(0).\n"
+            + "loop(N) :- N > 0, inc, K is N - 1, loop(K).";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void assertAndRetract() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter);
+            assertTrue(findAll(engine, "lookup(K, V).", "K").isEmpty());
+
+            run(engine, "assertz(memo(b, [x|T])).");
+            run(engine, "asserta(memo(a, f(X, X))).");
+            run(engine, "assertz(memo(c, d)).");
+            assertEquals(Arrays.asList("a", "b", "c"),
+                    findAll(engine, "lookup(K, V).", "K"));
+            assertTrue(findAll(engine, "memo(b, V).", "V").get(0)
+                    .startsWith("[x|"));
+
+            // Retracting binds the argument
+            assertEquals("[{Y=y}]", engine.findAll(
+                    "retract(memo(a, f(y, Y))).", 10).toString());
+            assertEquals(Arrays.asList("b", "c"),
+                    findAll(engine, "lookup(K, V).", "K"));
+            assertTrue(findAll(engine, "retract(memo(a, V)).", "V").isEmpty());
+        }
+    }
+
+    @Test
+    public void boundedCode() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter);
+            consult(engine, COUNTER);
+            run(engine, "assertz(cnt(0)), assertz(memo(a, b)).");
+            run(engine, "loop(100).");
+            final int size = engine.getBytecode().getCodeSize();
+
+            // Removed clauses are reclaimed right away, or after a query
+            // leaving choice points that may still try them
+            for (int i = 0; i < 100; i++) {
+                run(engine, "loop(100).");
+                run(engine, "lookup(K, V), loop(100).");
+            }
+            assertEquals(Arrays.asList("20100"), findAll(engine, "cnt(V).",
+                    "V"));
+            assertTrue(engine.getBytecode().getCodeSize() - size < 1000);
+        }
+    }
+
+    @Test
+    public void logicalUpdateView() throws Exception {
+        final PrologEngine engine = newEngine();
+        run(engine, "assertz(memo(a, b)), assertz(memo(c, d)).");
+
+        // Clauses added during a call are not seen by it
+        assertEquals(Arrays.asList("a", "c"),
+                findAll(engine, "memo(K, V), assertz(memo(K, V)).", "K"));
+        assertEquals(Arrays.asList("a", "c", "a", "c"),
+                findAll(engine, "memo(K, V).", "K"));
+
+        // Clauses removed during a call are still seen by it
+        assertEquals(Arrays.asList("a", "c", "a", "c"),
+                findAll(engine, "memo(K, V), retract(memo(K, W)).", "K"));
+        assertTrue(findAll(engine, "memo(K, V).", "K").isEmpty());
+    }
+
+    @Test
+    public void newPredicate() throws Exception {
+        final PrologEngine engine = newEngine();
+        try {
+            engine.findAll("counter(K).", 1);
+            fail();
+        } catch (RuntimeException e) {
+            // Expected: counter/1 does not exist yet
+        }
+        run(engine, "assertz(counter(z)).");
+        assertEquals(Arrays.asList("z"), findAll(engine, "counter(K).", "K"));
+    }
+
+    @Test
+    public void invalidArguments() throws Exception {
+        final PrologEngine engine = newEngine();
+        for (final String query : new String[] {
+                "assertz(X).", "asserta([a]).", "retract(assertz(x))." }) {
+            try {
+                engine.findAll(query, 1);
+                fail(query);
+            } catch (IllegalArgumentException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void image() throws Exception {
+        final PrologEngine engine = newEngine();
+        run(engine, "assertz(memo(a, b)), assertz(memo(c, d)).");
+        run(engine, "retract(memo(a, V)).");
+        final Path image = this.folder.newFile().toPath();
+        engine.saveProgram(image);
+
+        final PrologEngine loaded = new PrologEngine.Builder().build();
+        loaded.loadProgram(image);
+        assertEquals(Arrays.asList("c"), findAll(loaded, "lookup(K, V).", "K"));
+        run(loaded, "assertz(memo(e, f)).");
+        assertEquals(Arrays.asList("c", "e"),
+                findAll(loaded, "lookup(K, V).", "K"));
+    }
+
+    private static PrologEngine newEngine() throws Exception {
+        return newEngine(PrologEngine.Interpreter.DEFAULT);
+    }
+
+    private static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter) throws Exception {
+        return Engines.newEngine(interpreter, PROGRAM);
+    }
+}
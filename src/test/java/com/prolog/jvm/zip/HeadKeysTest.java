@@ -0,0 +1,102 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.findAll;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.prolog.jvm.main.Engines;
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Test class for {@link HeadKeys}, checking that calls ruling out all but one
+ * clause through the keys of its head push no choice point.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class HeadKeysTest {
+
+    // Tail-recursive predicates with their base cases last, only running in
+    // constant local stack space if their calls push no choice points. Neither
+    // is told apart by the clause index: len/3 discriminates on its second
+    // argument, and down/1 on an integer.
+    private static final String PROGRAM = ":- dynamic fact/2.\n"
+            + "len(N, [_|T], M) :- K is N + 1, len(K, T, M).\n"
+            + "len(N, [], N).\n"
+            + "down(N) :- N > 0, M is N - 1, down(M).\n"
+            + "down(0).\n"
+            + "p(a, 1). p(b, 2). p(X, 3).";
+
+    // Small enough to overflow if a choice point is left behind on each call
+    private static final int LOCAL_STACK_SIZE = 200;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void deterministicCalls() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter);
+            assertEquals(Arrays.asList("100"), findAll(engine, "len(0, "
+                    + list(100) + ", X).", "X"));
+            assertEquals(1, engine.findAll("down(100).", 10).size());
+        }
+    }
+
+    @Test
+    public void nondeterministicCalls() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT);
+        assertEquals(Arrays.asList("1", "3"), findAll(engine, "p(a, X).", "X"));
+        assertEquals(Arrays.asList("3"), findAll(engine, "p(c, X).", "X"));
+        assertEquals(Arrays.asList("a", "b"),
+                findAll(engine, "p(X, Y), Y < 3.", "X"));
+        assertEquals(Arrays.asList("[a]", "[b]"), findAll(engine, "p(Y, Z), "
+                + "Z < 3, X = [Y].", "X"));
+    }
+
+    @Test
+    public void assertedFacts() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT);
+        engine.findAll("assertz(fact(a, 1)), assertz(fact(X, 2)), "
+                + "assertz(fact(b, 3)).", 1);
+        assertEquals(Arrays.asList("1", "2"),
+                findAll(engine, "fact(a, X).", "X"));
+        assertEquals(Arrays.asList("2", "3"),
+                findAll(engine, "fact(b, X).", "X"));
+    }
+
+    @Test
+    public void image() throws Exception {
+        final Path image = this.folder.newFile().toPath();
+        newEngine(PrologEngine.Interpreter.DEFAULT).saveProgram(image);
+        final PrologEngine engine = new PrologEngine.Builder()
+                .setLocalStackSize(LOCAL_STACK_SIZE).build();
+        engine.loadProgram(image);
+        assertEquals(Arrays.asList("100"), findAll(engine, "len(0, "
+                + list(100) + ", X).", "X"));
+    }
+
+    // Returns a list of the specified length, in Prolog syntax
+    private static String list(final int length) {
+        final StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < length; i++) {
+            result.append(i == 0 ? "a" : ",a");
+        }
+        return result.append(']').toString();
+    }
+
+    private static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter) throws Exception {
+        return Engines.newEngine(new PrologEngine.Builder().setInterpreter(
+                interpreter).setLocalStackSize(LOCAL_STACK_SIZE), PROGRAM);
+    }
+}
@@ -0,0 +1,191 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.findAll;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.prolog.jvm.main.Engines;
+import com.prolog.jvm.main.PrologEngine;
+import com.prolog.jvm.zip.api.StepEvent;
+import com.prolog.jvm.zip.api.StepListener;
+
+/**
+ * Test class for {@link JitZipInterpreter}, comparing its answers with those
+ * of the {@link ZipInterpreterImpl} while compiling every predicate upon its
+ * first call.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class JitZipInterpreterTest {
+
+    private static final String PROGRAM = ":- dynamic fact/2.\n"
+            + ":- table path/2.\n"
+            + "app([], YS, YS).\n"
+            + "app([X|XS], YS, [X|ZS]) :- app(XS, YS, ZS).\n"
+            + "rev([], []).\n"
+            + "rev([X|XS], YS) :- rev(XS, ZS), app(ZS, [X], YS).\n"
+            // Structures nested in heads, matched or copied depending on
+            // whether the arguments are bound
+            + "swap(pair(f(X), [Y, 1|T]), pair(Y, g(X, T, -7))).\n"
+            + "len(N, [_|T], M) :- K is N + 1, len(K, T, M).\n"
+            + "len(N, [], N).\n"
+            + "fib(0, 0). fib(1, 1).\n"
+            + "fib(N, F) :- N > 1, A is N - 1, B is N - 2, fib(A, X), "
+            + "fib(B, Y), F is X + Y.\n"
+            + "member(X, [X|_]).\n"
+            + "member(X, [_|T]) :- member(X, T).\n"
+            + "edge(a, b). edge(b, c). edge(c, a).\n"
+            + "path(X, Y) :- edge(X, Y).\n"
+            + "path(X, Y) :- path(X, Z), edge(Z, Y).\n";
+
+    // Small enough to overflow unless last calls discard their frames
+    private static final int LOCAL_STACK_SIZE = 200;
+
+    @Test
+    public void answers() throws Exception {
+        final String[] queries = { "app(X, Y, [a, b, c]).",
+                "rev([a, b, c, d, e, f], X).",
+                "swap(pair(f(a), [b, 1, c]), X).",
+                "swap(X, pair(b, g(a, [c], Y))).",
+                "swap(pair(f(a), [b, 2]), X).",
+                "swap(pair(X, [b, 1|Y]), pair(Z, g(a, [], -7))).",
+                "len(0, [a, b, c, d], X).", "fib(12, X).",
+                "member(X, [a, b, c]), member(X, [c, b]).",
+                "member(d, [a, b, c]).", "path(a, X).",
+                "assertz(fact(a, 1)), assertz(fact(b, 2)), fact(X, Y)." };
+        for (final String query : queries) {
+            assertEquals(query, newEngine(PrologEngine.Interpreter.DEFAULT, 1)
+                    .findAll(query, 100).toString(), newEngine(PrologEngine
+                            .Interpreter.JIT, 1).findAll(query, 100)
+                            .toString());
+        }
+    }
+
+    @Test
+    public void compilation() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.JIT,
+                3);
+        final JitZipInterpreter interpreter = (JitZipInterpreter) engine
+                .getInterpreter();
+        engine.findAll("app([a], [b], X).", 1);
+        assertEquals(0, interpreter.getCompiledCount());
+        engine.findAll("rev([a, b, c], X).", 1);
+        assertEquals(2, interpreter.getCompiledCount());
+    }
+
+    @Test
+    public void lastCalls() throws Exception {
+        final PrologEngine engine = Engines.newEngine(new PrologEngine
+                .Builder().setInterpreter(PrologEngine.Interpreter.JIT)
+                .setJitThreshold(1).setLocalStackSize(LOCAL_STACK_SIZE),
+                PROGRAM);
+        final StringBuilder list = new StringBuilder("[a");
+        for (int i = 1; i < 1000; i++) {
+            list.append(",a");
+        }
+        assertEquals("[1000]", findAll(engine, "len(0, " + list
+                + "], X).", "X").toString());
+    }
+
+    @Test
+    public void recompilation() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.JIT,
+                1);
+        final JitZipInterpreter interpreter = (JitZipInterpreter) engine
+                .getInterpreter();
+        engine.findAll("assertz(fact(a, 1)).", 1);
+        assertEquals("[1]", findAll(engine, "fact(a, X).", "X").toString());
+        assertEquals(1, interpreter.getCompiledCount());
+
+        // Adding a clause compiles the predicate anew upon its next call
+        engine.findAll("assertz(fact(a, 2)).", 1);
+        assertEquals("[1, 2]", findAll(engine, "fact(a, X).", "X")
+                .toString());
+        assertEquals(2, interpreter.getCompiledCount());
+
+        // As does removing one, its code being reused for the next
+        engine.findAll("retract(fact(a, 1)), assertz(fact(a, 3)).", 1);
+        assertEquals("[2, 3]", findAll(engine, "fact(a, X).", "X")
+                .toString());
+        assertEquals(3, interpreter.getCompiledCount());
+    }
+
+    @Test
+    public void methodSplitting() throws Exception {
+        final StringBuilder program = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            program.append("n(").append(i).append(", f(x").append(i)
+                    .append(")).\n");
+        }
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.JIT,
+                1, program.toString());
+        assertEquals("[x1999]", findAll(engine, "n(1999, f(X)).", "X")
+                .toString());
+        assertEquals(2000, engine.findAll("n(X, Y).", 3000).size());
+        assertEquals(1, ((JitZipInterpreter) engine.getInterpreter())
+                .getCompiledCount());
+    }
+
+    @Test
+    public void reload() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.JIT,
+                1);
+        assertEquals("[[b, a]]", findAll(engine, "rev([a, b], X).", "X")
+                .toString());
+
+        // Overwrites the code memory holding the compiled clauses
+        try (final Reader reader = new StringReader("rev(X, X).")) {
+            engine.newProgramCompiler().compile(reader);
+        }
+        assertEquals("[[a, b]]", findAll(engine, "rev([a, b], X).", "X")
+                .toString());
+    }
+
+    @Test
+    public void listeners() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter.JIT,
+                1);
+        findAll(engine, "rev([a, b, c], X).", "X");
+
+        // Every step is recorded, the compiled code being bypassed
+        assertEquals(countSteps(newEngine(PrologEngine.Interpreter.DEFAULT,
+                1)), countSteps(engine));
+    }
+
+    // Returns the number of steps recorded while solving a query
+    private static int countSteps(final PrologEngine engine)
+            throws Exception {
+        final List<StepEvent> events = new ArrayList<>();
+        engine.getInterpreter().register(new StepListener() {
+            @Override
+            public void handleEvent(final StepEvent event) {
+                events.add(event);
+            }
+        });
+        assertEquals("[[c, b, a]]", findAll(engine, "rev([a, b, c], X).", "X")
+                .toString());
+        assertTrue(events.size() > 0);
+        return events.size();
+    }
+
+    private static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter, final int threshold)
+            throws Exception {
+        return newEngine(interpreter, threshold, PROGRAM);
+    }
+
+    private static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter, final int threshold,
+            final String program) throws Exception {
+        return Engines.newEngine(new PrologEngine.Builder().setInterpreter(
+                interpreter).setJitThreshold(threshold), program);
+    }
+}
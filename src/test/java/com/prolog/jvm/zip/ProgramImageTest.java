@@ -0,0 +1,133 @@
+package com.prolog.jvm.zip;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Test class for {@link ProgramImage}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class ProgramImageTest {
+
+    // Class-path resource
+    private static final String LISTS = "/com/prolog/jvm/main/lists.pl";
+
+    private static final String[] QUERIES = {
+        "app(X,Y,[a,b]).",
+        "rev([a,b,c],X).",
+        "append(cons(a,[]),cons(b,[]),Z).",
+        "reverse(cons(a,cons(b,[])),X)." };
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws Exception {
+        final PrologEngine compiled = newEngine();
+        compile(compiled);
+        final Path image = this.folder.newFile().toPath();
+        compiled.saveProgram(image);
+        assertTrue(ProgramImage.isImage(image));
+
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine loaded = newEngine(interpreter);
+            loaded.loadProgram(image);
+            for (final String query : QUERIES) {
+                assertEquals(compiled.findAll(query, 10).toString(),
+                        loaded.findAll(query, 10).toString());
+            }
+            assertEquals(compiled.getBytecode().getCodeSize(),
+                    loaded.getBytecode().getCodeSize());
+        }
+    }
+
+    @Test
+    public void saveAfterQuery() throws Exception {
+        final PrologEngine compiled = newEngine();
+        compile(compiled);
+        final int size = compiled.getBytecode().getCodeSize();
+        assertFalse(compiled.findAll(QUERIES[0], 10).isEmpty());
+
+        // The code for the query is not part of the image
+        final Path image = this.folder.newFile().toPath();
+        compiled.saveProgram(image);
+        final PrologEngine loaded = newEngine();
+        loaded.loadProgram(image);
+        assertEquals(size, loaded.getBytecode().getCodeSize());
+        assertEquals(3, loaded.findAll(QUERIES[0], 10).size());
+    }
+
+    @Test
+    public void invalidImage() throws Exception {
+        final PrologEngine compiled = newEngine();
+        compile(compiled);
+        final Path image = this.folder.newFile().toPath();
+        compiled.saveProgram(image);
+        final byte[] bytes = Files.readAllBytes(image);
+
+        // Source code is not an image
+        final Path source = this.folder.newFile().toPath();
+        Files.write(source, "app([],X,X).".getBytes("UTF-8"));
+        assertFalse(ProgramImage.isImage(source));
+        assertLoadFails(source);
+
+        // Truncated image
+        final Path truncated = this.folder.newFile().toPath();
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertLoadFails(truncated);
+    }
+
+    private static void assertLoadFails(final Path image) throws Exception {
+        final PrologEngine engine = newEngine();
+        compile(engine);
+        try {
+            engine.loadProgram(image);
+            fail();
+        } catch (IOException e) {
+            // Expected
+        }
+        // The previous program was discarded
+        try {
+            engine.findAll(QUERIES[0], 1);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private static PrologEngine newEngine() {
+        return new PrologEngine.Builder().build();
+    }
+
+    private static PrologEngine newEngine(
+            final PrologEngine.Interpreter interpreter) {
+        return new PrologEngine.Builder().setInterpreter(interpreter).build();
+    }
+
+    private static void compile(final PrologEngine engine) throws Exception {
+        try (final InputStream is = ProgramImageTest.class
+                .getResourceAsStream(LISTS);
+                final Reader file = new InputStreamReader(is)) {
+            engine.newProgramCompiler().compile(file);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.main.Engines.assertError;
+import static com.prolog.jvm.main.Engines.count;
+import static com.prolog.jvm.main.Engines.findAll;
+import static com.prolog.jvm.main.Engines.newEngine;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.prolog.jvm.main.PrologEngine;
+
+/**
+ * Test class for {@link TermInspection}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class TermInspectionTest {
+
+    private static final String PROGRAM = ":- dynamic fact/1.\n"
+            + "p(a). p(b). p(f(c)).\n"
+            // Replaces the first argument of a compound term
+            + "replace(T, X, U) :- functor(T, N, A), functor(U, N, A), "
+            + "arg(1, U, X), copy(2, A, T, U).\n"
+            + "copy(I, A, T, U) :- I > A.\n"
+            + "copy(I, A, T, U) :- I =< A, arg(I, T, X), arg(I, U, X), "
+            + "J is I + 1, copy(J, A, T, U).";
+
+    @Test
+    public void unification() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            assertEquals(Arrays.asList("f(a, b)"),
+                    findAll(engine, "X = f(Y, b), Y = a.", "X"));
+            assertEquals(Arrays.asList("[b]"),
+                    findAll(engine, "[a|X] = [Y, b], Y = a.", "X"));
+            assertEquals(Arrays.asList(),
+                    findAll(engine, "f(X, b) = f(a, X).", "X"));
+            assertEquals(Arrays.asList("a", "b", "f(c)"),
+                    findAll(engine, "p(X), X = Y.", "X"));
+            assertEquals(Arrays.asList("a", "b"),
+                    findAll(engine, "p(X), X \\= f(Y).", "X"));
+            assertEquals(Arrays.asList("f(c)"),
+                    findAll(engine, "p(X), X \\= a, X \\= b.", "X"));
+            // Bindings made by \=/2 are undone
+            assertEquals(Arrays.asList("a"), findAll(engine,
+                    "f(X, Y, b) \\= f(a, c, d), f(X, b) \\= f(a, c), var(X), "
+                    + "var(Y), X = a.", "X"));
+        }
+    }
+
+    @Test
+    public void typeTests() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertEquals(1, count(engine, "var(X), nonvar(a), nonvar(f(X))."));
+        assertEquals(0, count(engine, "X = a, var(X)."));
+        assertEquals(1, count(engine, "atom(a), atom([]), integer(-3), "
+                + "integer(8388608)."));
+        assertEquals(0, count(engine, "atom(f(a))."));
+        assertEquals(0, count(engine, "atom(1)."));
+        assertEquals(0, count(engine, "integer(a)."));
+    }
+
+    @Test
+    public void functor() throws Exception {
+        for (final PrologEngine.Interpreter interpreter : PrologEngine
+                .Interpreter.values()) {
+            final PrologEngine engine = newEngine(interpreter, PROGRAM);
+            assertEquals(Arrays.asList("f(f, 3)"),
+                    findAll(engine, "functor(f(a, b, c), N, A), "
+                            + "X = f(N, A).", "X"));
+            assertEquals(Arrays.asList("f([|], 2)"),
+                    findAll(engine, "functor([a], N, A), X = f(N, A).", "X"));
+            assertEquals(Arrays.asList("f(a, 0)"),
+                    findAll(engine, "functor(a, N, A), X = f(N, A).", "X"));
+            assertEquals(Arrays.asList("f(7, 0)"),
+                    findAll(engine, "functor(7, N, A), X = f(N, A).", "X"));
+            assertEquals(Arrays.asList("g(a, b)"),
+                    findAll(engine, "functor(X, g, 2), X = g(Y, Z), "
+                            + "var(Y), var(Z), Y = a, Z = b.", "X"));
+            assertEquals(Arrays.asList("[a, b]"),
+                    findAll(engine, "functor([a], N, A), functor(X, N, A), "
+                            + "X = [a|Y], var(Y), Y = [b].", "X"));
+            assertEquals(Arrays.asList("b"),
+                    findAll(engine, "functor(X, b, 0).", "X"));
+            assertEquals(Arrays.asList("g(x, b, c)"),
+                    findAll(engine, "replace(g(a, b, c), x, X).", "X"));
+        }
+    }
+
+    @Test
+    public void arg() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertEquals(Arrays.asList("b"),
+                findAll(engine, "arg(2, f(a, b), X).", "X"));
+        assertEquals(Arrays.asList("[b]"),
+                findAll(engine, "arg(2, [a, b], X).", "X"));
+        assertEquals(0, count(engine, "arg(3, f(a, b), X)."));
+        assertEquals(0, count(engine, "arg(0, f(a, b), X)."));
+        assertEquals(0, count(engine, "arg(1, f(a, b), b)."));
+    }
+
+    @Test
+    public void builtFunctorsMayBeAsserted() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        engine.findAll("functor(X, brand_new, 1), arg(1, X, a), "
+                + "assertz(fact(X)).", 1);
+        assertEquals(Arrays.asList("brand_new(a)"),
+                findAll(engine, "fact(X).", "X"));
+    }
+
+    @Test
+    public void errors() throws Exception {
+        final PrologEngine engine = newEngine(PrologEngine.Interpreter
+                .DEFAULT, PROGRAM);
+        assertError(engine, "functor(X, Y, 2).", "functor/3: arguments are "
+                + "not sufficiently instantiated");
+        assertError(engine, "functor(X, f, a).", "functor/3: arity must be a "
+                + "non-negative integer");
+        assertError(engine, "functor(X, f(a), 0).", "functor/3: name must be "
+                + "atomic");
+        assertError(engine, "functor(X, 3, 1).", "functor/3: name must be an "
+                + "atom");
+        assertError(engine, "arg(N, f(a), X).", "arg/3: arguments are not "
+                + "sufficiently instantiated");
+        assertError(engine, "arg(a, f(a), X).", "arg/3: position must be an "
+                + "integer");
+        assertError(engine, "arg(1, a, X).", "arg/3: term must be compound");
+    }
+}
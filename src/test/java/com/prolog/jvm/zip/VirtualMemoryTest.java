@@ -0,0 +1,55 @@
+package com.prolog.jvm.zip;
+
+import static com.prolog.jvm.zip.util.MemoryConstants.MEMORY_SIZE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.prolog.jvm.zip.api.MemoryArea;
+
+/**
+ * Test class for {@link VirtualMemory}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class VirtualMemoryTest {
+
+    @Test
+    public void readWrite() {
+        final VirtualMemory memory = new VirtualMemory();
+        final MemoryArea low = memory.newArea(0, 99);
+        final MemoryArea high = memory.newArea(20000000, 20000099);
+
+        // Nothing is allocated until written to
+        assertEquals(0, memory.getAllocatedSize());
+        assertEquals(0, high.readFrom(20000050));
+        assertEquals(0, memory.getAllocatedSize());
+
+        low.writeTo(5, 42);
+        high.writeTo(20000050, 43);
+        assertEquals(42, low.readFrom(5));
+        assertEquals(43, high.readFrom(20000050));
+
+        // Only the pages written to are allocated
+        assertEquals(2 * (1 << 14), memory.getAllocatedSize());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void outOfBounds() {
+        new VirtualMemory().newArea(0, 99).writeTo(100, 0);
+    }
+
+    @Test
+    public void invalidArea() {
+        try {
+            new VirtualMemory().newArea(100, 99);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid area 100 - 99; addresses range from 0 to "
+                    + (MEMORY_SIZE - 1), e.getMessage());
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import com.prolog.jvm.symbol.FunctorSymbol;
 import com.prolog.jvm.zip.api.MemoryArea;
+import com.prolog.jvm.zip.util.IntList;
 
 /**
  * Test class for {@link ZipFacadeImpl}.
@@ -43,6 +44,7 @@ public final class ZipFacadeTest {
 
         // Build
         final ZipFacadeMockImpl facade = this.builder
+                .setGlobalStack(new MemoryAreaMockImpl(wordStore))
                 .setWordStore(new MemoryAreaMockImpl(wordStore))
                 .setConstants(constants).build();
 
@@ -53,6 +55,22 @@ public final class ZipFacadeTest {
         assertEquals(getWord(REF, 2), wordStore[2]);
     }
 
+    @Test
+    public void pushList() {
+        // Keep a reference to the word store for post-asserts
+        final int[] wordStore = new int[2];
+
+        // Build
+        final ZipFacadeMockImpl facade = this.builder
+                .setGlobalStack(new MemoryAreaMockImpl(wordStore))
+                .setWordStore(new MemoryAreaMockImpl(wordStore)).build();
+
+        // Assert
+        assertEquals(getWord(LIS, 0), facade.pushList());
+        assertEquals(getWord(REF, 0), wordStore[0]);
+        assertEquals(getWord(REF, 1), wordStore[1]);
+    }
+
     @Test
     public void unwindTrail() {
         // Keep a reference to the word store for post-asserts
@@ -74,7 +92,7 @@ public final class ZipFacadeTest {
                 .build();
 
         // Assert
-        final List<Integer> vars = new ArrayList<>();
+        final IntList vars = new IntList();
         facade.unwindTrail(1, 3, vars);
         assertTrue(Arrays.equals(wordStore, expected));
         assertEquals(2, vars.size());
@@ -105,6 +123,24 @@ public final class ZipFacadeTest {
         assertEquals(getWord(STR, 4), facade.getWordAt(1));
     }
 
+    @Test
+    public void getWordAtLongChain() {
+        // Chain of references deep enough to overflow a recursive deref
+        final int length = 1000000;
+        final int[] wordStore = new int[length + 1];
+        wordStore[0] = getWord(REF, 0); // Unbound variable
+        for (int i = 1; i <= length; i++) {
+            wordStore[i] = getWord(REF, i - 1);
+        }
+
+        // Build the facade
+        final ZipFacadeMockImpl facade = this.builder.setWordStore(
+                new MemoryAreaMockImpl(wordStore)).build();
+
+        // Assert
+        assertEquals(getWord(REF, 0), facade.getWordAt(length));
+    }
+
     @Test
     public final void bind() {
         // Keep references to the word store and trail stack for post-asserts
@@ -124,8 +160,9 @@ public final class ZipFacadeTest {
                 .setWordStore(new MemoryAreaMockImpl(wordStore))
                 .setTrailStack(new MemoryAreaMockImpl(trailStack)).build();
 
-        // Mock backtrack global- and trail stack pointers
+        // Mock backtrack global- and local stack pointers
         facade.backtrackGlobalptr = 5;
+        facade.backtrackLocalptr = 7;
         facade.local = true;
 
         // #1: Bind a global unbound variable to another global unbound
@@ -146,6 +183,13 @@ public final class ZipFacadeTest {
         facade.bind(6, 2);
         assertEquals(getWord(STR, 4), wordStore[6]);
         assertEquals(6, trailStack[1]);
+
+        // #4: Bind a local variable newer than the choice point to an atom
+        // (no trailing)
+        facade.bind(7, 0);
+        assertEquals(getWord(CONS, 0), wordStore[7]);
+        assertEquals(2, facade.getTrailStats().getEntries());
+        assertEquals(1, facade.getTrailStats().getAvoidedEntries());
     }
 
     @Test
@@ -229,6 +273,7 @@ public final class ZipFacadeTest {
 
         private boolean local;
         private int backtrackGlobalptr;
+        private int backtrackLocalptr;
 
         @Override
         protected boolean isLocal(final int address) {
@@ -240,6 +285,11 @@ public final class ZipFacadeTest {
             return this.backtrackGlobalptr;
         }
 
+        @Override
+        protected int getBacktrackLocalPointer() {
+            return this.backtrackLocalptr;
+        }
+
         @Override
         protected int getMinPdlIndex() {
             return 0;
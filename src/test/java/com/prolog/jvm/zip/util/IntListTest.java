@@ -0,0 +1,62 @@
+package com.prolog.jvm.zip.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public final class IntListTest {
+
+    @Test
+    public void addAndGrow() {
+        final IntList list = new IntList();
+        assertTrue(list.isEmpty());
+        for (int i = 0; i < 100; i++) {
+            list.add(i * 3);
+        }
+        assertEquals(100, list.size());
+        assertEquals(0, list.get(0));
+        assertEquals(297, list.get(99));
+        assertTrue(list.contains(42));
+        assertFalse(list.contains(43));
+    }
+
+    @Test
+    public void clear() {
+        final IntList list = new IntList();
+        list.add(1);
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertFalse(list.contains(1));
+    }
+
+    @Test
+    public void setAndTruncate() {
+        final IntList list = new IntList();
+        list.add(1);
+        list.add(2);
+        list.add(3);
+        list.set(0, 4);
+        list.truncate(2);
+        assertEquals(Arrays.asList(4, 2), list.toList());
+    }
+
+    @Test
+    public void toList() {
+        final IntList list = new IntList();
+        list.add(5);
+        list.add(7);
+        assertEquals(Arrays.asList(5, 7), list.toList());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getOutOfBounds() {
+        final IntList list = new IntList();
+        list.add(1);
+        list.get(1);
+    }
+
+}
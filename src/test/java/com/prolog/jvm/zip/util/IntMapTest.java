@@ -0,0 +1,47 @@
+package com.prolog.jvm.zip.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public final class IntMapTest {
+
+    @Test
+    public void putAndGrow() {
+        final IntMap<String> map = new IntMap<>();
+        assertTrue(map.isEmpty());
+        for (int i = -100; i <= 100; i++) {
+            if (i != 0) {
+                map.put(i << 8, Integer.toString(i));
+            }
+        }
+        assertEquals(200, map.size());
+        assertEquals("-100", map.get(-100 << 8));
+        assertEquals("100", map.get(100 << 8));
+        assertNull(map.get(1));
+        assertNull(map.get(0));
+        assertEquals("-100", map.values().get(0));
+    }
+
+    @Test
+    public void replace() {
+        final IntMap<String> map = new IntMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(1, "c");
+        assertEquals(2, map.size());
+        assertEquals("c", map.get(1));
+        assertEquals(Arrays.asList("c", "b"), map.values());
+        assertFalse(map.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroKey() {
+        new IntMap<String>().put(0, "a");
+    }
+}
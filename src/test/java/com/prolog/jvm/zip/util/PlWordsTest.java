@@ -1,6 +1,7 @@
 package com.prolog.jvm.zip.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -34,4 +35,16 @@ public final class PlWordsTest {
         assertTrue(PlWords.hasTag(0xBCDEF, 0x00));
     }
 
+    @Test
+    public void getIntValue() {
+        for (final int value : new int[] { 0, 42, -1, PlWords.MIN_INT,
+                PlWords.MAX_INT }) {
+            final int word = PlWords.getWord(PlWords.INT, value);
+            assertEquals(PlWords.INT, PlWords.getTag(word));
+            assertEquals(value, PlWords.getIntValue(word));
+        }
+        assertTrue(PlWords.isSmallInt(PlWords.MIN_INT));
+        assertFalse(PlWords.isSmallInt(PlWords.MAX_INT + 1));
+    }
+
 }
@@ -0,0 +1,65 @@
+package com.prolog.jvm.zip.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.prolog.jvm.zip.api.Term;
+
+/**
+ * Test class for {@link Terms}.
+ *
+ * @author Arno Bastenhof
+ *
+ */
+public final class TermsTest {
+
+    private static final Term A = Terms.getAtom("a");
+    private static final Term B = Terms.getAtom("b");
+    private static final Term X = Terms.getVariable("X");
+
+    @Test
+    public void toStringRepresentation() {
+        assertEquals("a", A.toString());
+        assertEquals("X", X.toString());
+        assertEquals("f(a, g(X), b)", Terms.getCompound("f", A,
+                Terms.getCompound("g", X), B).toString());
+        assertEquals("[a, b]", Terms.getList(A, Terms.getList(B, Terms.NIL))
+                .toString());
+        assertEquals("[a|X]", Terms.getList(A, X).toString());
+        assertEquals("f([f(a)])", Terms.getCompound("f", Terms.getList(
+                Terms.getCompound("f", A), Terms.NIL)).toString());
+    }
+
+    @Test
+    public void equality() {
+        assertEquals(Terms.getCompound("f", A, X),
+                Terms.getCompound("f", A, X));
+        assertEquals(Terms.getCompound("f", A, X).hashCode(),
+                Terms.getCompound("f", A, X).hashCode());
+        assertFalse(Terms.getCompound("f", A, X).equals(
+                Terms.getCompound("f", X, A)));
+        assertFalse(A.equals(Terms.getVariable("a")));
+    }
+
+    @Test
+    public void longList() {
+        // Deep enough to overflow recursive implementations
+        final int length = 1000000;
+        Term list1 = Terms.NIL;
+        Term list2 = Terms.NIL;
+        for (int i = 0; i < length; i++) {
+            list1 = Terms.getList(A, list1);
+            list2 = Terms.getList(A, list2);
+        }
+        assertEquals(list1, list2);
+        assertEquals(list1.hashCode(), list2.hashCode());
+        assertEquals(3 * length, list1.toString().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyCompound() {
+        Terms.getCompound("f");
+    }
+}
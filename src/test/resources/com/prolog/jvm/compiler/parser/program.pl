@@ -27,4 +27,16 @@ append(cons(X,XS),YS,cons(X,ZS)) :- append(XS,YS,ZS).
 
 % naïve reverse
 reverse([],[]).
-reverse(cons(X,XS),YS) :- reverse(XS,ZS), append(ZS,cons(X,[]),YS).
\ No newline at end of file
+reverse(cons(X,XS),YS) :- reverse(XS,ZS), append(ZS,cons(X,[]),YS).
+
+/*
+ * The same operations, using the built-in list syntax.
+ */
+
+app([],YS,YS).
+app([X|XS],YS,[X|ZS]) :- app(XS,YS,ZS).
+
+rev([],[]).
+rev([X|XS],YS) :- rev(XS,ZS), app(ZS,[X],YS).
+
+first_two([X,Y|_],X,Y).
@@ -2,6 +2,9 @@
  * This example is adapted from Kowalski (1979), Algorithm = Logic + Control.
  */
 
+% Left-recursive, and hence tabled.
+:- table ancestor/2.
+
 % Facts.
 father(zeus, ares).
 mother(hera, ares).
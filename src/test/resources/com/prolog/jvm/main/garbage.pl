@@ -0,0 +1,14 @@
+/*
+ * This example builds and discards structures in a deterministic loop, useful
+ * for testing garbage collection of the global stack.
+ */
+
+% counts down its first argument while building up its second
+count(z, Acc, Acc).
+count(s(N), Acc, R) :- burn(s(s(s(s(s(s(s(s(s(s(z))))))))))), count(N, s(Acc), R).
+
+% allocates a structure for each step without keeping it
+burn(z).
+burn(s(N)) :- junk(f(N, N, N)), burn(N).
+
+junk(X).
@@ -0,0 +1,11 @@
+/*
+ * This example contains operations on natural numbers in successor notation,
+ * useful for testing deep recursion.
+ */
+
+nat(z).
+nat(s(N)) :- nat(N).
+
+% passes a fresh variable on to its last goal
+succ(X) :- succ(Y,X).
+succ(N,s(N)).